@@ -0,0 +1,59 @@
+package app.notificationsvc.mail;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.template.TemplateTestSupport;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Builds and encodes one recipient's message, the way {@code NotificationSender} does for a
+ * transactional email and the way {@link BroadcastMessage} does for a newsletter. Encoding to a
+ * discarding stream stands in for the bytes written to the SMTP connection.
+ */
+@State(Scope.Benchmark)
+public class MimeMessageBenchmark {
+
+    private static final String RECIPIENT = "angie@example.com";
+    private static final String SUBJECT = "Your order has shipped";
+
+    private JavaMailSenderImpl mailSender;
+    private BroadcastMessage broadcastMessage;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        body = TemplateTestSupport.templateRenderer(TemplateTestSupport.templateEngine())
+                .render(EmailType.SHIPPED_ORDER, TemplateTestSupport.sampleVariables(EmailType.SHIPPED_ORDER));
+        broadcastMessage = BroadcastMessage.prepare(mailSender, SUBJECT, body);
+    }
+
+    @Benchmark
+    public MimeMessage mimeMessageHelper() throws MessagingException, IOException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage, true);
+        messageHelper.setTo(RECIPIENT);
+        messageHelper.setSubject(SUBJECT);
+        messageHelper.setText(body, true);
+        mimeMessage.saveChanges();
+        mimeMessage.writeTo(OutputStream.nullOutputStream());
+        return mimeMessage;
+    }
+
+    @Benchmark
+    public MimeMessage broadcastMessage() throws MessagingException, IOException {
+        MimeMessage mimeMessage = broadcastMessage.createMessage(RECIPIENT);
+        mimeMessage.writeTo(OutputStream.nullOutputStream());
+        return mimeMessage;
+    }
+}
@@ -0,0 +1,95 @@
+package app.notificationsvc.service;
+
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-ins for the database and the SMTP relay, so a benchmark measures the service's
+ * own work and not I/O.
+ */
+final class BenchmarkStubs {
+
+    private BenchmarkStubs() {}
+
+    /**
+     * A repository whose {@code save}/{@code saveAll} return their argument, whose named methods
+     * answer from {@code answers}, and whose other methods return an empty result.
+     */
+    @SuppressWarnings("unchecked")
+    static <R> R repository(Class<R> repositoryType, Map<String, Function<Object[], Object>> answers) {
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+
+            return switch (method.getName()) {
+                case "save", "saveAll" -> args[0];
+                case "toString" -> repositoryType.getSimpleName() + " stub";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> emptyResult(method.getReturnType());
+            };
+        });
+    }
+
+    static PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(@Nullable TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    /**
+     * Builds every message like the real sender but hands it to no relay.
+     */
+    static JavaMailSenderImpl mailSender() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl() {
+            @Override
+            protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) {
+            }
+        };
+        mailSender.setHost("localhost");
+        return mailSender;
+    }
+
+    private static Object emptyResult(Class<?> returnType) {
+        if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        if (returnType == List.class) {
+            return List.of();
+        }
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == int.class) {
+            return 0;
+        }
+        if (returnType == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.channel.EmailDeliveryChannel;
+import app.notificationsvc.channel.WebhookEndpoints;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.mail.SendRateLimiter;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.repository.IdempotencyRecordRepository;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.repository.OutboxMessageRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import app.notificationsvc.template.TemplateTestSupport;
+import app.notificationsvc.web.dto.OrderCreateEmailRequest;
+import app.notificationsvc.web.dto.OrderShippedEmailRequest;
+import app.notificationsvc.web.dto.WelcomeEmailRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static app.notificationsvc.TestBuilder.randomNotificationPreference;
+
+/**
+ * The synchronous send paths of {@link NotificationService}: idempotency check, preference lookup,
+ * render, MIME build and the notification log write, against an SMTP relay that accepts
+ * everything instantly and repositories that keep nothing. Every operation uses a fresh
+ * idempotency key, so nothing is replayed.
+ */
+@State(Scope.Benchmark)
+public class NotificationServiceBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private NotificationService notificationService;
+    private MailDispatchQueue dispatchQueue;
+    private DeliveryChannels deliveryChannels;
+    private NewsletterFanOut newsletterFanOut;
+    private NotificationCoalescer notificationCoalescer;
+
+    private WelcomeEmailRequest welcomeEmailRequest;
+    private OrderCreateEmailRequest orderCreateEmailRequest;
+    private OrderShippedEmailRequest orderShippedEmailRequest;
+
+    @Setup
+    public void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        NotificationPreference preference = randomNotificationPreference();
+        Map<String, Function<Object[], Object>> preferences = Map.of("findByUserId", args -> Optional.of(preference));
+
+        NotificationPreferenceRepository preferenceRepository = BenchmarkStubs.repository(NotificationPreferenceRepository.class, preferences);
+        NotificationRepository notificationRepository = BenchmarkStubs.repository(NotificationRepository.class, Map.of());
+        IdempotencyRecordRepository idempotencyRecordRepository = BenchmarkStubs.repository(IdempotencyRecordRepository.class, Map.of());
+
+        NotificationMetrics metrics = new NotificationMetrics(new SimpleMeterRegistry());
+        DatabaseLimiter databaseLimiter = new DatabaseLimiter(properties);
+        // Not started, so every log row is written on the sending thread and counted in the benchmark
+        NotificationLogWriter notificationLogWriter = new NotificationLogWriter(notificationRepository, BenchmarkStubs.transactionManager(), properties, metrics);
+        JavaMailSender mailSender = BenchmarkStubs.mailSender();
+        SendRateLimiter sendRateLimiter = new SendRateLimiter(properties, new MailProperties());
+
+        dispatchQueue = new MailDispatchQueue(properties);
+        deliveryChannels = new DeliveryChannels(List.of(new EmailDeliveryChannel(mailSender, sendRateLimiter, metrics)), dispatchQueue, properties, metrics);
+        NotificationSender notificationSender = new NotificationSender(notificationLogWriter, deliveryChannels, mailSender, sendRateLimiter, new RetryPolicy(properties), metrics);
+
+        PreferenceCache preferenceCache = new PreferenceCache(preferenceRepository, databaseLimiter, properties);
+        OutboxMessageRepository outboxRepository = BenchmarkStubs.repository(OutboxMessageRepository.class, Map.of());
+        newsletterFanOut = new NewsletterFanOut(preferenceRepository, notificationSender, properties);
+        NotificationOutbox notificationOutbox = new NotificationOutbox(outboxRepository, notificationRepository, preferenceCache, notificationSender, deliveryChannels, databaseLimiter, BenchmarkStubs.transactionManager(), properties);
+        EmailTemplateRenderer templateRenderer = TemplateTestSupport.templateRenderer(TemplateTestSupport.templateEngine());
+        // No coalescing windows configured, queued sends go straight to the outbox
+        notificationCoalescer = new NotificationCoalescer(notificationOutbox, templateRenderer, databaseLimiter, metrics, properties);
+        notificationService = new NotificationService(
+                preferenceRepository,
+                preferenceCache,
+                notificationRepository,
+                notificationSender,
+                deliveryChannels,
+                notificationOutbox,
+                notificationCoalescer,
+                newsletterFanOut,
+                templateRenderer,
+                databaseLimiter,
+                new IdempotencyIndex(idempotencyRecordRepository, databaseLimiter, properties),
+                new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties),
+                new WebhookEndpoints(properties),
+                metrics);
+
+        welcomeEmailRequest = new WelcomeEmailRequest();
+        welcomeEmailRequest.setEmailType(EmailType.WELCOME);
+        welcomeEmailRequest.setSubject("Welcome!");
+        welcomeEmailRequest.setUserId(preference.getUserId());
+        welcomeEmailRequest.setUserFirstName("Angie");
+
+        orderCreateEmailRequest = new OrderCreateEmailRequest();
+        orderCreateEmailRequest.setEmailType(EmailType.NEW_ORDER);
+        orderCreateEmailRequest.setSubject("New order");
+        orderCreateEmailRequest.setUserId(preference.getUserId());
+        orderCreateEmailRequest.setFullName("Gosho Goshev");
+        orderCreateEmailRequest.setAddress("Ul. Gosheva 5, Balchik");
+        orderCreateEmailRequest.setPhoneNumber("+359 890 090 090");
+        orderCreateEmailRequest.setCourier("SPEEDY");
+        orderCreateEmailRequest.setPaymentMethod("CARD");
+
+        orderShippedEmailRequest = new OrderShippedEmailRequest();
+        orderShippedEmailRequest.setEmailType(EmailType.SHIPPED_ORDER);
+        orderShippedEmailRequest.setSubject("Shipped");
+        orderShippedEmailRequest.setUserId(preference.getUserId());
+        orderShippedEmailRequest.setOrderId(42L);
+        orderShippedEmailRequest.setTotalAmount(new BigDecimal("333.50"));
+        orderShippedEmailRequest.setPaymentMethod("CASH");
+        orderShippedEmailRequest.setCourier("ECONT");
+        orderShippedEmailRequest.setAddress("Ul. Gosheva 5, Balchik");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        deliveryChannels.shutdown();
+        dispatchQueue.shutdown();
+        newsletterFanOut.shutdown();
+        notificationCoalescer.shutdown();
+    }
+
+    @Benchmark
+    public SendResult sendWelcomeEmail() {
+        return notificationService.sendWelcomeEmail(welcomeEmailRequest, nextKey());
+    }
+
+    @Benchmark
+    public SendResult sendNewOrderEmail() {
+        return notificationService.sendNewOrderEmail(orderCreateEmailRequest, nextKey());
+    }
+
+    @Benchmark
+    public SendResult sendShippedOrderEmail() {
+        return notificationService.sendShippedOrderEmail(orderShippedEmailRequest, nextKey());
+    }
+
+    private String nextKey() {
+        return "benchmark-" + sequence.incrementAndGet();
+    }
+}
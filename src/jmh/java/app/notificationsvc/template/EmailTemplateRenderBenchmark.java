@@ -0,0 +1,46 @@
+package app.notificationsvc.template;
+
+import app.notificationsvc.model.EmailType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.util.Map;
+
+/**
+ * Renders each EmailType through full {@code SpringTemplateEngine.process} and through the
+ * compiled skeletons of {@link EmailTemplateRenderer}.
+ */
+@State(Scope.Benchmark)
+public class EmailTemplateRenderBenchmark {
+
+    @Param
+    public EmailType emailType;
+
+    private SpringTemplateEngine templateEngine;
+    private EmailTemplateRenderer templateRenderer;
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        templateEngine = TemplateTestSupport.templateEngine();
+        templateRenderer = TemplateTestSupport.templateRenderer(templateEngine);
+        variables = TemplateTestSupport.sampleVariables(emailType);
+    }
+
+    @Benchmark
+    public String thymeleaf() {
+        Context context = new Context();
+        variables.forEach(context::setVariable);
+        return templateEngine.process(emailType.getTemplate(), context);
+    }
+
+    @Benchmark
+    public String compiled() {
+        return templateRenderer.render(emailType, variables);
+    }
+}
@@ -0,0 +1,27 @@
+package app.notificationsvc.web;
+
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.web.dto.NotificationPreferenceResponse;
+import app.notificationsvc.web.mapper.DtoMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static app.notificationsvc.TestBuilder.randomNotificationPreference;
+
+@State(Scope.Benchmark)
+public class DtoMapperBenchmark {
+
+    private NotificationPreference notificationPreference;
+
+    @Setup
+    public void setUp() {
+        notificationPreference = randomNotificationPreference();
+    }
+
+    @Benchmark
+    public NotificationPreferenceResponse fromNotificationPreference() {
+        return DtoMapper.fromNotificationPreference(notificationPreference);
+    }
+}
@@ -0,0 +1,61 @@
+package app.notificationsvc.web;
+
+import app.notificationsvc.web.dto.OrderCreateEmailRequest;
+import app.notificationsvc.web.dto.OrderShippedEmailRequest;
+import app.notificationsvc.web.dto.WelcomeEmailRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binds each email request body with an ObjectMapper configured the way Spring MVC configures its own.
+ */
+@State(Scope.Benchmark)
+public class RequestBindingBenchmark {
+
+    public enum RequestType {
+        WELCOME(WelcomeEmailRequest.class, """
+                {"subject":"Welcome!","emailType":"WELCOME","userId":"%s","userFirstName":"Angie"}"""),
+        NEW_ORDER(OrderCreateEmailRequest.class, """
+                {"subject":"New order","emailType":"NEW_ORDER","userId":"%s","fullName":"Gosho Goshev","address":"Ul. Gosheva 5, Balchik",\
+                "phoneNumber":"+359 890 090 090","courier":"SPEEDY","paymentMethod":"CARD","orderId":42}"""),
+        SHIPPED_ORDER(OrderShippedEmailRequest.class, """
+                {"subject":"Shipped","emailType":"SHIPPED_ORDER","userId":"%s","orderId":42,"totalAmount":333.50,\
+                "paymentMethod":"CASH","courier":"ECONT","address":"Ul. Gosheva 5, Balchik"}""");
+
+        private final Class<?> requestClass;
+        private final String json;
+
+        RequestType(Class<?> requestClass, String json) {
+            this.requestClass = requestClass;
+            this.json = json;
+        }
+    }
+
+    @Param
+    public RequestType requestType;
+
+    private ObjectReader reader;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        reader = objectMapper.readerFor(requestType.requestClass);
+        body = requestType.json.formatted(UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object bind() throws IOException {
+        return reader.readValue(body);
+    }
+}
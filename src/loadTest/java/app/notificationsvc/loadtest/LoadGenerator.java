@@ -0,0 +1,95 @@
+package app.notificationsvc.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator. Requests are scheduled at a fixed rate and at most {@code concurrency}
+ * are in flight. Latency is measured from a request's scheduled start, not from when a
+ * concurrency slot freed up, so a stalled service shows up in the percentiles instead of
+ * quietly lowering the offered load.
+ */
+final class LoadGenerator {
+
+    private final LoadTestSettings settings;
+    private final URI baseUri;
+    private final List<UUID> userIds;
+    private final Map<Scenario, LatencyRecorder> recorders = new EnumMap<>(Scenario.class);
+
+    LoadGenerator(LoadTestSettings settings, URI baseUri, List<UUID> userIds) {
+        this.settings = settings;
+        this.baseUri = baseUri;
+        this.userIds = userIds;
+        settings.mix().forEach(scenario -> recorders.put(scenario, new LatencyRecorder()));
+    }
+
+    /**
+     * Runs for the configured duration and returns the elapsed time once every request finished.
+     */
+    Duration run() throws InterruptedException {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(5)).build();
+        Semaphore inFlight = new Semaphore(settings.concurrency());
+
+        long intervalNanos = 1_000_000_000L / settings.rate();
+        long start = System.nanoTime();
+        long end = start + settings.duration().toNanos();
+
+        for (long sequence = 0; ; sequence++) {
+            long scheduledAt = start + sequence * intervalNanos;
+            if (scheduledAt >= end) {
+                break;
+            }
+
+            long wait = scheduledAt - System.nanoTime();
+            while (wait > 0) {
+                LockSupport.parkNanos(wait);
+                wait = scheduledAt - System.nanoTime();
+            }
+
+            inFlight.acquire();
+            send(client, sequence, scheduledAt, inFlight);
+        }
+
+        inFlight.acquire(settings.concurrency());
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        executor.shutdown();
+
+        return elapsed;
+    }
+
+    Map<Scenario, LatencyRecorder> recorders() {
+        return recorders;
+    }
+
+    private void send(HttpClient client, long sequence, long scheduledAt, Semaphore inFlight) {
+        Scenario scenario = settings.mix().get((int) (sequence % settings.mix().size()));
+        UUID userId = userIds.get((int) (sequence % userIds.size()));
+        LatencyRecorder recorder = recorders.get(scenario);
+
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(scenario.path() + "?async=" + settings.async()))
+                .header("Content-Type", "application/json")
+                // Unique per request, so repeated users are sent again instead of replayed
+                .header("Idempotency-Key", "load-" + sequence)
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(scenario.body(userId, sequence)))
+                .build();
+
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            recorder.record(System.nanoTime() - scheduledAt);
+            recorder.outcome(error != null ? error.getClass().getSimpleName() : String.valueOf(response.statusCode()));
+            inFlight.release();
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package app.notificationsvc.loadtest;
+
+import app.notificationsvc.NotificationSvcApplication;
+import app.notificationsvc.repository.OutboxMessageRepository;
+import app.notificationsvc.service.MailDispatchQueue;
+import app.notificationsvc.service.NotificationCoalescer;
+import app.notificationsvc.service.NotificationLogWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the service against in-memory H2 and an in-process {@link SmtpSink}, seeds users, drives
+ * the transactional email endpoints and a newsletter run, and prints startup and first request
+ * latency, throughput, latency percentiles and delivered message counts. Run with
+ * {@code ./gradlew loadTest -PloadTestArgs="--rate=500 --duration=60s"}.
+ */
+public final class LoadTestRunner {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private LoadTestRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.parse(args);
+        long startedAt = System.nanoTime();
+
+        try (SmtpSink smtpSink = new SmtpSink(settings.smtpLatency(), settings.smtpFailureRate(), settings.smtpMaxConnections());
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(NotificationSvcApplication.class)
+                     .profiles("loadtest")
+                     .properties(
+                             "spring.mail.port=" + smtpSink.getPort(),
+                             "spring.threads.virtual.enabled=" + settings.virtualThreads())
+                     .run()) {
+
+            Duration startup = Duration.ofNanos(System.nanoTime() - startedAt);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI baseUri = URI.create("http://localhost:" + port);
+            HttpClient client = HttpClient.newHttpClient();
+
+            List<UUID> userIds = seedUsers(client, baseUri, settings.users());
+            System.out.printf("Seeded %d users, SMTP sink on port %d%n", userIds.size(), smtpSink.getPort());
+            printStartupReport(context, startup, firstRequests(client, baseUri, userIds.getFirst()));
+
+            LoadGenerator generator = new LoadGenerator(settings, baseUri, userIds);
+            Duration elapsed = generator.run();
+            drain(context, smtpSink, settings.drainTimeout());
+            printTransactionalReport(settings, generator, elapsed);
+
+            if (settings.newsletter()) {
+                long deliveredBefore = smtpSink.getDelivered();
+                JsonNode run = runNewsletter(client, baseUri);
+                drain(context, smtpSink, settings.drainTimeout());
+                System.out.printf("%nNewsletter: status %s, processed %d, sent %d, failed %d, %.0f msg/s, %d delivered to the sink%n",
+                        run.path("status").asText(), run.path("processed").asLong(), run.path("sent").asLong(), run.path("failed").asLong(),
+                        run.path("messagesPerSecond").asDouble(), smtpSink.getDelivered() - deliveredBefore);
+            }
+
+            printDeliveryReport(context, smtpSink);
+        }
+    }
+
+    static List<UUID> seedUsers(HttpClient client, URI baseUri, int users) throws Exception {
+        List<UUID> userIds = new ArrayList<>(users);
+        List<Future<HttpResponse<Void>>> responses = new ArrayList<>(users);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < users; i++) {
+                UUID userId = UUID.randomUUID();
+                userIds.add(userId);
+
+                HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/v1/notifications/preferences"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("""
+                                {"userId":"%s","notificationType":"EMAIL","newsletterEnabled":true,"contactData":"user-%d@loadtest.local"}"""
+                                .formatted(userId, i)))
+                        .build();
+                responses.add(executor.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding())));
+            }
+
+            for (Future<HttpResponse<Void>> response : responses) {
+                if (response.get().statusCode() != 201) {
+                    throw new IllegalStateException("Seeding a user failed with status " + response.get().statusCode());
+                }
+            }
+        }
+
+        return userIds;
+    }
+
+    /**
+     * Sends one request per scenario, one after the other, before any load, and returns how long each took.
+     */
+    private static Map<Scenario, Duration> firstRequests(HttpClient client, URI baseUri, UUID userId) throws IOException, InterruptedException {
+        Map<Scenario, Duration> latencies = new EnumMap<>(Scenario.class);
+
+        for (Scenario scenario : Scenario.values()) {
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(scenario.path()))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(scenario.body(userId, 0)))
+                    .build();
+            long start = System.nanoTime();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+            latencies.put(scenario, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        return latencies;
+    }
+
+    private static void printStartupReport(ConfigurableApplicationContext context, Duration startup, Map<Scenario, Duration> firstRequests) {
+        StringBuilder warmUp = new StringBuilder();
+        for (Timer timer : context.getBean(MeterRegistry.class).find("notification.warmup").timers()) {
+            warmUp.append(' ').append(timer.getId().getTag("step")).append('=').append(Math.round(timer.totalTime(TimeUnit.MILLISECONDS))).append("ms");
+        }
+
+        System.out.printf("Ready after %d ms, warm-up:%s%n", startup.toMillis(), warmUp.isEmpty() ? " disabled" : warmUp);
+        firstRequests.forEach((scenario, latency) -> System.out.printf("First %s request: %.1f ms%n", scenario, latency.toNanos() / 1e6));
+    }
+
+    private static JsonNode runNewsletter(HttpClient client, URI baseUri) throws IOException, InterruptedException {
+        HttpRequest start = HttpRequest.newBuilder(baseUri.resolve("/api/v1/notifications/emails/newsletter?async=true"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        JsonNode run = OBJECT_MAPPER.readTree(client.send(start, HttpResponse.BodyHandlers.ofString()).body());
+        URI runUri = baseUri.resolve("/api/v1/notifications/newsletter/runs/" + run.path("id").asText());
+
+        while (run.path("status").asText().equals("QUEUED") || run.path("status").asText().equals("RUNNING")) {
+            Thread.sleep(500);
+            run = OBJECT_MAPPER.readTree(client.send(HttpRequest.newBuilder(runUri).GET().build(), HttpResponse.BodyHandlers.ofString()).body());
+        }
+
+        return run;
+    }
+
+    /**
+     * Waits until digests, outbox messages, queued sends and buffered log rows are gone and the sink has been quiet for a second.
+     */
+    static void drain(ConfigurableApplicationContext context, SmtpSink smtpSink, Duration timeout) throws InterruptedException {
+        MailDispatchQueue dispatchQueue = context.getBean(MailDispatchQueue.class);
+        NotificationLogWriter notificationLogWriter = context.getBean(NotificationLogWriter.class);
+        OutboxMessageRepository outboxRepository = context.getBean(OutboxMessageRepository.class);
+        NotificationCoalescer notificationCoalescer = context.getBean(NotificationCoalescer.class);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long lastSeen = -1;
+
+        while (System.nanoTime() < deadline) {
+            long seen = smtpSink.getDelivered() + smtpSink.getFailed();
+            if (seen == lastSeen && notificationCoalescer.stats().bufferedEmails() == 0 && outboxRepository.count() == 0 && dispatchQueue.size() == 0 && notificationLogWriter.stats().buffered() == 0) {
+                return;
+            }
+            lastSeen = seen;
+            Thread.sleep(1_000);
+        }
+
+        System.out.println("Gave up waiting for the service to drain after " + timeout);
+    }
+
+    private static void printTransactionalReport(LoadTestSettings settings, LoadGenerator generator, Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+
+        System.out.printf("%nTransactional load: %d req/s offered for %s, concurrency %d, async=%s, virtual threads=%s%n",
+                settings.rate(), settings.duration(), settings.concurrency(), settings.async(), settings.virtualThreads());
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %9s %9s  %s%n", "scenario", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "outcomes");
+
+        generator.recorders().forEach((scenario, recorder) -> {
+            long[] sorted = recorder.sortedSamples();
+            System.out.printf("%-10s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    scenario, sorted.length, sorted.length / seconds,
+                    LatencyRecorder.percentileMillis(sorted, 50),
+                    LatencyRecorder.percentileMillis(sorted, 90),
+                    LatencyRecorder.percentileMillis(sorted, 99),
+                    LatencyRecorder.percentileMillis(sorted, 99.9),
+                    LatencyRecorder.percentileMillis(sorted, 100),
+                    recorder.outcomes());
+        });
+    }
+
+    private static void printDeliveryReport(ConfigurableApplicationContext context, SmtpSink smtpSink) {
+        Map<String, Double> outcomes = new TreeMap<>();
+        for (Counter counter : context.getBean(MeterRegistry.class).find("notification.outcome").counters()) {
+            if (counter.count() > 0) {
+                outcomes.merge(counter.getId().getTag("email_type") + "/" + counter.getId().getTag("status"), counter.count(), Double::sum);
+            }
+        }
+
+        System.out.printf("%nSMTP sink: %d delivered, %d rejected, %d connections, %d refused connections%n",
+                smtpSink.getDelivered(), smtpSink.getFailed(), smtpSink.getConnections(), smtpSink.getRefusedConnections());
+        System.out.println("Service outcomes: " + outcomes);
+    }
+}
@@ -0,0 +1,92 @@
+package app.notificationsvc.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test knobs, read from {@code --name=value} arguments. Durations use the same format as
+ * Spring properties ({@code 30s}, {@code 20ms}).
+ */
+public record LoadTestSettings(
+        int users,
+        Duration duration,
+        int rate,
+        int concurrency,
+        boolean async,
+        List<Scenario> mix,
+        boolean newsletter,
+        boolean virtualThreads,
+        Duration smtpLatency,
+        double smtpFailureRate,
+        int smtpMaxConnections,
+        Duration drainTimeout) {
+
+    public static LoadTestSettings parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        return new LoadTestSettings(
+                Integer.parseInt(values.getOrDefault("users", "1000")),
+                duration(values.getOrDefault("duration", "30s")),
+                Integer.parseInt(values.getOrDefault("rate", "200")),
+                Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                Boolean.parseBoolean(values.getOrDefault("async", "false")),
+                mix(values.getOrDefault("mix", "welcome:4,new-order:3,shipped:3")),
+                Boolean.parseBoolean(values.getOrDefault("newsletter", "true")),
+                Boolean.parseBoolean(values.getOrDefault("virtual-threads", "false")),
+                duration(values.getOrDefault("smtp-latency", "20ms")),
+                Double.parseDouble(values.getOrDefault("smtp-failure-rate", "0")),
+                Integer.parseInt(values.getOrDefault("smtp-max-connections", "16")),
+                duration(values.getOrDefault("drain-timeout", "60s")));
+    }
+
+    /**
+     * The same settings with the send mode and thread mode replaced.
+     */
+    public LoadTestSettings withModes(boolean async, boolean virtualThreads) {
+        return new LoadTestSettings(users, duration, rate, concurrency, async, mix, newsletter, virtualThreads,
+                smtpLatency, smtpFailureRate, smtpMaxConnections, drainTimeout);
+    }
+
+    /**
+     * Expands {@code welcome:4,shipped:1} into a round robin of four welcome requests for every
+     * shipped one.
+     */
+    private static List<Scenario> mix(String value) {
+        List<Scenario> scenarios = new ArrayList<>();
+
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Scenario scenario = Scenario.fromName(parts[0]);
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+
+            for (int i = 0; i < weight; i++) {
+                scenarios.add(scenario);
+            }
+        }
+
+        return List.copyOf(scenarios);
+    }
+
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofMillis(Long.parseLong(value));
+    }
+}
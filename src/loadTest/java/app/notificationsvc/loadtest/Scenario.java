@@ -0,0 +1,64 @@
+package app.notificationsvc.loadtest;
+
+import java.util.UUID;
+
+/**
+ * A transactional email endpoint the load generator calls, with the body it posts.
+ */
+public enum Scenario {
+
+    WELCOME("welcome", "/api/v1/notifications/emails/welcome") {
+        @Override
+        String body(UUID userId, long sequence) {
+            return """
+                    {"subject":"Welcome!","emailType":"WELCOME","userId":"%s","userFirstName":"Load %d"}"""
+                    .formatted(userId, sequence);
+        }
+    },
+    NEW_ORDER("new-order", "/api/v1/notifications/emails/order/new") {
+        @Override
+        String body(UUID userId, long sequence) {
+            return """
+                    {"subject":"New order","emailType":"NEW_ORDER","userId":"%s","orderId":%d,"fullName":"Load Tester",\
+                    "address":"Ul. Gosheva 5, Balchik","phoneNumber":"+359 890 090 090","courier":"SPEEDY","paymentMethod":"CARD"}"""
+                    .formatted(userId, sequence);
+        }
+    },
+    SHIPPED("shipped", "/api/v1/notifications/emails/order/shipped") {
+        @Override
+        String body(UUID userId, long sequence) {
+            return """
+                    {"subject":"Shipped","emailType":"SHIPPED_ORDER","userId":"%s","orderId":%d,"totalAmount":333.50,\
+                    "paymentMethod":"CASH","courier":"ECONT","address":"Ul. Gosheva 5, Balchik"}"""
+                    .formatted(userId, sequence);
+        }
+    };
+
+    private final String name;
+    private final String path;
+
+    Scenario(String name, String path) {
+        this.name = name;
+        this.path = path;
+    }
+
+    abstract String body(UUID userId, long sequence);
+
+    String path() {
+        return path;
+    }
+
+    static Scenario fromName(String name) {
+        for (Scenario scenario : values()) {
+            if (scenario.name.equals(name)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
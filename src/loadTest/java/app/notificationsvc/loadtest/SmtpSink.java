@@ -0,0 +1,171 @@
+package app.notificationsvc.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process SMTP server that accepts mail and throws it away. It speaks just enough SMTP for
+ * JavaMail (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT, no AUTH or STARTTLS) and stands in for a
+ * relay: every accepted message is delayed by {@code latency}, a {@code failureRate} share is
+ * answered with a transient 451, and connections beyond {@code maxConnections} are refused with 421.
+ */
+@Slf4j
+public class SmtpSink implements AutoCloseable {
+
+    private final Duration latency;
+    private final double failureRate;
+    private final Semaphore connectionSlots;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("smtp-sink-", 0).factory());
+    private final Thread acceptor;
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong refusedConnections = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public SmtpSink(Duration latency, double failureRate, int maxConnections) throws IOException {
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+        this.acceptor = Thread.ofPlatform().daemon().name("smtp-sink-acceptor").start(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    public long getRefusedConnections() {
+        return refusedConnections.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+        acceptor.interrupt();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("SMTP sink failed to accept a connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+
+            if (!connectionSlots.tryAcquire()) {
+                refusedConnections.incrementAndGet();
+                reply(out, "421 4.7.0 Too many connections, try again later");
+                return;
+            }
+
+            try {
+                connections.incrementAndGet();
+                converse(in, out);
+            } finally {
+                connectionSlots.release();
+            }
+        } catch (IOException e) {
+            log.debug("SMTP sink session ended: {}", e.getMessage());
+        }
+    }
+
+    private void converse(BufferedReader in, Writer out) throws IOException {
+        reply(out, "220 localhost SMTP sink ready");
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+
+            switch (command) {
+                case "EHLO" -> reply(out, "250-localhost\r\n250-PIPELINING\r\n250 8BITMIME");
+                case "HELO" -> reply(out, "250 localhost");
+                case "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 2.0.0 OK");
+                case "DATA" -> {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    readMessage(in);
+                    accept(out);
+                }
+                case "QUIT" -> {
+                    reply(out, "221 2.0.0 Bye");
+                    return;
+                }
+                default -> reply(out, "502 5.5.2 Command not implemented");
+            }
+        }
+    }
+
+    private void readMessage(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(".")) {
+                return;
+            }
+        }
+    }
+
+    private void accept(Writer out) throws IOException {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("SMTP sink stopped", e);
+            }
+        }
+
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failed.incrementAndGet();
+            reply(out, "451 4.3.0 Simulated transient failure");
+        } else {
+            delivered.incrementAndGet();
+            reply(out, "250 2.0.0 Queued");
+        }
+    }
+
+    private static void reply(Writer out, String response) throws IOException {
+        out.write(response);
+        out.write("\r\n");
+        out.flush();
+    }
+}
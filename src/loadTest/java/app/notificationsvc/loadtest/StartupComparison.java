@@ -0,0 +1,196 @@
+package app.notificationsvc.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the extracted boot jar in {@code build/cds} as a separate JVM, once plain, once with AOT
+ * initialization and once with AOT and the class data sharing archive, and measures how long each
+ * takes until the readiness probe reports {@code ACCEPTING_TRAFFIC} and how long the first request
+ * of each kind takes after that. Every start is repeated {@code runs} times and the medians are
+ * printed and written to {@code build/results/loadtest/startup.md}. Run with
+ * {@code ./gradlew compareStartup}, which builds the jar and the archive first.
+ */
+public final class StartupComparison {
+
+    private static final Path RESULTS = Path.of("build", "results", "loadtest", "startup.md");
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+
+    // The same in-memory database as the archive's training run, so only the JVM flags differ between modes
+    private static final List<String> SERVICE_ARGS = List.of(
+            "--spring.datasource.url=jdbc:h2:mem:startup;MODE=MYSQL;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+            "--spring.mail.host=localhost",
+            "--spring.mail.username=",
+            "--spring.mail.password=",
+            "--spring.mail.properties.mail.smtp.auth=false",
+            "--spring.mail.properties.mail.smtp.starttls.enable=false");
+
+    private static final Map<String, List<String>> MODES = modes();
+
+    private StartupComparison() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        Path directory = Path.of(options.getOrDefault("directory", "build/cds"));
+        String jar = options.get("jar");
+        String java = options.getOrDefault("java", "java");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+
+        if (jar == null) {
+            throw new IllegalArgumentException("Expected --jar=<boot jar file name in " + directory + ">");
+        }
+
+        List<String> rows = new ArrayList<>();
+        rows.add("| mode | ready ms | first preference ms | first welcome ms | first new-order ms | first shipped ms |");
+        rows.add("|---|---|---|---|---|---|");
+
+        for (Map.Entry<String, List<String>> mode : MODES.entrySet()) {
+            List<long[]> samples = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                samples.add(start(java, directory, jar, mode.getValue()));
+            }
+            rows.add(row(mode.getKey(), samples));
+            System.out.println(rows.getLast());
+        }
+
+        Files.createDirectories(RESULTS.getParent());
+        Files.write(RESULTS, rows);
+        System.out.printf("%nMedian of %d starts per mode%n", runs);
+        rows.forEach(System.out::println);
+        System.out.println("Written to " + RESULTS.toAbsolutePath());
+    }
+
+    private static Map<String, List<String>> modes() {
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("plain", List.of());
+        modes.put("aot", List.of("-Dspring.aot.enabled=true"));
+        modes.put("aot + cds", List.of("-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true"));
+        return modes;
+    }
+
+    /**
+     * Starts the service once and returns the time to ready followed by the first request latencies, in microseconds.
+     */
+    private static long[] start(String java, Path directory, String jar, List<String> jvmArgs) throws Exception {
+        int port = freePort();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        URI baseUri = URI.create("http://localhost:" + port);
+
+        try (SmtpSink smtpSink = new SmtpSink(Duration.ZERO, 0, 16)) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(jvmArgs);
+            command.addAll(List.of("-jar", jar, "--server.port=" + port, "--spring.mail.port=" + smtpSink.getPort()));
+            command.addAll(SERVICE_ARGS);
+
+            long startedAt = System.nanoTime();
+            Process process = new ProcessBuilder(command)
+                    .directory(directory.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            try {
+                awaitReady(client, baseUri, process);
+                long ready = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt);
+
+                UUID userId = UUID.randomUUID();
+                long[] sample = new long[2 + Scenario.values().length];
+                sample[0] = ready;
+                sample[1] = time(client, baseUri.resolve("/api/v1/notifications/preferences"), """
+                        {"userId":"%s","notificationType":"EMAIL","newsletterEnabled":true,"contactData":"user@loadtest.local"}"""
+                        .formatted(userId));
+                for (Scenario scenario : Scenario.values()) {
+                    sample[2 + scenario.ordinal()] = time(client, baseUri.resolve(scenario.path()), scenario.body(userId, 0));
+                }
+                return sample;
+            } finally {
+                process.destroy();
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    private static void awaitReady(HttpClient client, URI baseUri, Process process) throws InterruptedException {
+        HttpRequest readiness = HttpRequest.newBuilder(baseUri.resolve("/actuator/health/readiness")).GET().build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The service exited with " + process.exitValue() + " before it was ready");
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(10);
+        }
+
+        throw new IllegalStateException("The service was not ready after " + READY_TIMEOUT);
+    }
+
+    private static long time(HttpClient client, URI uri, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        long start = System.nanoTime();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status >= 300) {
+            throw new IllegalStateException("POST " + uri.getPath() + " answered " + status);
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    private static String row(String mode, List<long[]> samples) {
+        StringBuilder row = new StringBuilder("| ").append(mode).append(" |");
+        for (int column = 0; column < samples.getFirst().length; column++) {
+            int index = column;
+            long[] values = samples.stream().mapToLong(sample -> sample[index]).sorted().toArray();
+            row.append(" %.1f |".formatted(values[values.length / 2] / 1000.0));
+        }
+        return row.toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return values;
+    }
+}
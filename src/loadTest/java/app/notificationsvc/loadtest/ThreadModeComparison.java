@@ -0,0 +1,96 @@
+package app.notificationsvc.loadtest;
+
+import app.notificationsvc.NotificationSvcApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Runs the same offered load against the service in platform and in virtual thread mode, sync and
+ * async, and prints one row per run. Each run boots a fresh service against a fresh
+ * {@link SmtpSink}, so the relay latency is real socket I/O through the pooled SMTP transport. The
+ * service's SMTP pool is sized to {@code smtp-max-connections}. The table is also written to
+ * {@code build/results/loadtest/thread-modes.md}. Run with
+ * {@code ./gradlew compareThreadModes -PloadTestArgs="--rate=1000 --smtp-max-connections=64"}.
+ */
+public final class ThreadModeComparison {
+
+    private static final Path RESULTS = Path.of("build", "results", "loadtest", "thread-modes.md");
+
+    private ThreadModeComparison() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings base = LoadTestSettings.parse(args);
+        List<String> rows = new ArrayList<>();
+        rows.add("| send | threads | smtp connections | offered req/s | completed req/s | delivered msg/s | p50 ms | p99 ms | outcomes |");
+        rows.add("|---|---|---|---|---|---|---|---|---|");
+
+        for (boolean async : new boolean[]{false, true}) {
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                rows.add(run(base.withModes(async, virtualThreads)));
+                System.out.println(rows.getLast());
+            }
+        }
+
+        Files.createDirectories(RESULTS.getParent());
+        Files.write(RESULTS, rows);
+        System.out.println();
+        rows.forEach(System.out::println);
+        System.out.println("Written to " + RESULTS.toAbsolutePath());
+    }
+
+    private static String run(LoadTestSettings settings) throws Exception {
+        try (SmtpSink smtpSink = new SmtpSink(settings.smtpLatency(), settings.smtpFailureRate(), settings.smtpMaxConnections());
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(NotificationSvcApplication.class)
+                     .profiles("loadtest")
+                     .properties(
+                             "spring.mail.port=" + smtpSink.getPort(),
+                             "spring.threads.virtual.enabled=" + settings.virtualThreads(),
+                             "notification.mail.pool.max-total=" + settings.smtpMaxConnections())
+                     .run()) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI baseUri = URI.create("http://localhost:" + port);
+            List<UUID> userIds = LoadTestRunner.seedUsers(HttpClient.newHttpClient(), baseUri, settings.users());
+
+            LoadGenerator generator = new LoadGenerator(settings, baseUri, userIds);
+            long start = System.nanoTime();
+            Duration elapsed = generator.run();
+            LoadTestRunner.drain(context, smtpSink, settings.drainTimeout());
+            double drainedSeconds = (System.nanoTime() - start) / 1e9;
+
+            long[] sorted = generator.recorders().values().stream()
+                    .flatMapToLong(recorder -> LongStream.of(recorder.sortedSamples()))
+                    .sorted()
+                    .toArray();
+            String outcomes = generator.recorders().values().stream()
+                    .flatMap(recorder -> recorder.outcomes().entrySet().stream())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, Long::sum, TreeMap::new))
+                    .toString();
+
+            return "| %s | %s | %d | %d | %.0f | %.0f | %.1f | %.1f | %s |".formatted(
+                    settings.async() ? "async" : "sync",
+                    settings.virtualThreads() ? "virtual" : "platform",
+                    settings.smtpMaxConnections(),
+                    settings.rate(),
+                    sorted.length / (elapsed.toNanos() / 1e9),
+                    smtpSink.getDelivered() / drainedSeconds,
+                    LatencyRecorder.percentileMillis(sorted, 50),
+                    LatencyRecorder.percentileMillis(sorted, 99),
+                    outcomes);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.model.NotificationType;
+
+public record ChannelStats(NotificationType channel, int inFlight, int maxConcurrency, int queued, int queueRemaining, long delivered, long failed, long busy) {
+}
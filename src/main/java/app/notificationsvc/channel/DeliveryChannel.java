@@ -0,0 +1,20 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationType;
+
+/**
+ * Transport for one {@link NotificationType}. An implementation only moves a rendered
+ * notification to its recipient. Retries and the notification log are handled by
+ * {@code NotificationSender}, and worker pools, concurrency limits and metrics by
+ * {@link DeliveryChannels}.
+ * <p>
+ * Throwing {@link app.notificationsvc.exception.DeliveryRejectedException} marks the notification
+ * FAILED. Any other exception is treated as transient and retried.
+ */
+public interface DeliveryChannel {
+
+    NotificationType getType();
+
+    void deliver(Notification notification, String contactData, String body) throws Exception;
+}
@@ -0,0 +1,171 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.ChannelBusyException;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.service.DispatchQueue;
+import app.notificationsvc.service.MailDispatchQueue;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes deliveries to the {@link DeliveryChannel} of the recipient's notification type. Every
+ * channel has its own async {@link DispatchQueue}, its own cap on deliveries in flight and its own
+ * metrics, so a channel whose endpoint slows down fills only its own queue and permits while the
+ * others keep their throughput.
+ */
+@Slf4j
+@Component
+public class DeliveryChannels {
+
+    private final Map<NotificationType, Lane> lanes = new EnumMap<>(NotificationType.class);
+    private final NotificationMetrics metrics;
+
+    public DeliveryChannels(List<DeliveryChannel> channels, MailDispatchQueue mailDispatchQueue, NotificationProperties notificationProperties, NotificationMetrics metrics) {
+        this.metrics = metrics;
+
+        for (DeliveryChannel channel : channels) {
+            NotificationType type = channel.getType();
+            NotificationProperties.Channel properties = notificationProperties.getChannels().getOrDefault(type, new NotificationProperties.Channel());
+
+            DispatchQueue queue = type == NotificationType.EMAIL
+                    ? mailDispatchQueue
+                    : new DispatchQueue(type.name().toLowerCase() + "-dispatch", properties.getWorkers(), properties.getQueueCapacity(),
+                            notificationProperties.getDispatch().getRetryAfter(), notificationProperties.getConcurrency().isVirtualThreads());
+
+            if (lanes.put(type, new Lane(channel, queue, properties)) != null) {
+                throw new IllegalStateException("More than one delivery channel for " + type);
+            }
+        }
+    }
+
+    /**
+     * Delivers on the calling thread once the channel has a free concurrency permit.
+     *
+     * @throws ChannelBusyException if no permit frees up within the channel's acquire timeout
+     */
+    public void deliver(NotificationType type, Notification notification, String contactData, String body) throws Exception {
+        lane(type).deliver(notification, contactData, body);
+    }
+
+    /**
+     * Queues a task on the channel's own workers that may run in any order relative to other tasks.
+     *
+     * @throws DispatchQueueFullException if the channel's queue is full
+     */
+    public void submit(NotificationType type, Runnable task) {
+        lane(type).queue.submit(task);
+    }
+
+    /**
+     * Queues a task on the channel's own workers, behind every earlier task with the same key.
+     *
+     * @throws DispatchQueueFullException if the channel's queue is full
+     */
+    public void submit(NotificationType type, Object key, Runnable task) {
+        lane(type).queue.submit(key, task);
+    }
+
+    public Set<NotificationType> types() {
+        return lanes.keySet();
+    }
+
+    public ChannelStats stats(NotificationType type) {
+        return lane(type).stats();
+    }
+
+    public List<DispatchQueue> queues() {
+        return lanes.values().stream().map(lane -> lane.queue).toList();
+    }
+
+    public List<ChannelStats> stats() {
+        return lanes.values().stream().map(Lane::stats).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Lane lane : lanes.values()) {
+            // The mail queue is a bean of its own and shuts itself down
+            if (!(lane.queue instanceof MailDispatchQueue)) {
+                lane.queue.shutdown();
+            }
+        }
+    }
+
+    private Lane lane(NotificationType type) {
+        Lane lane = lanes.get(type);
+        if (lane == null) {
+            throw new IllegalArgumentException("No delivery channel for notification type " + type);
+        }
+        return lane;
+    }
+
+    private final class Lane {
+
+        private final DeliveryChannel channel;
+        private final DispatchQueue queue;
+        private final Semaphore permits;
+        private final int maxConcurrency;
+        private final long acquireTimeoutNanos;
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busy = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+
+        private Lane(DeliveryChannel channel, DispatchQueue queue, NotificationProperties.Channel properties) {
+            this.channel = channel;
+            this.queue = queue;
+            this.maxConcurrency = properties.getMaxConcurrency();
+            this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+            this.acquireTimeoutNanos = properties.getAcquireTimeout().toNanos();
+        }
+
+        private void deliver(Notification notification, String contactData, String body) throws Exception {
+            acquire();
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            boolean succeeded = false;
+
+            try {
+                channel.deliver(notification, contactData, body);
+                succeeded = true;
+            } finally {
+                metrics.recordChannelDelivery(channel.getType(), succeeded, System.nanoTime() - start);
+                (succeeded ? delivered : failed).incrementAndGet();
+                inFlight.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        }
+
+        private void acquire() throws InterruptedException {
+            if (permits == null || permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+
+            busy.incrementAndGet();
+            metrics.recordChannelBusy(channel.getType());
+            log.debug("No free {} delivery permit after {} ms", channel.getType(), TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos));
+            throw new ChannelBusyException(channel.getType());
+        }
+
+        private ChannelStats stats() {
+            return new ChannelStats(channel.getType(), (int) inFlight.get(), maxConcurrency, queue.size(), queue.remainingCapacity(),
+                    delivered.get(), failed.get(), busy.get());
+        }
+    }
+}
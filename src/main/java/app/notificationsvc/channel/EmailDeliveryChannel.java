@@ -0,0 +1,56 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.mail.SendRateLimiter;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.metrics.Stage;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationType;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends notifications as HTML email over the pooled SMTP connections. Every send is paced by the
+ * {@link SendRateLimiter} first.
+ */
+@Component
+public class EmailDeliveryChannel implements DeliveryChannel {
+
+    private final JavaMailSender mailSender;
+    private final SendRateLimiter sendRateLimiter;
+    private final NotificationMetrics metrics;
+
+    public EmailDeliveryChannel(JavaMailSender mailSender, SendRateLimiter sendRateLimiter, NotificationMetrics metrics) {
+        this.mailSender = mailSender;
+        this.sendRateLimiter = sendRateLimiter;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public NotificationType getType() {
+        return NotificationType.EMAIL;
+    }
+
+    @Override
+    public void deliver(Notification notification, String contactData, String body) {
+        sendRateLimiter.acquire(notification.getEmailType());
+
+        // JavaMailSender builds the MIME message inside send(), so the build is timed from
+        // the preparator and the rest of the call is the SMTP exchange
+        long[] mimeBuildNanos = new long[1];
+        long start = System.nanoTime();
+        try {
+            mailSender.send(mimeMessage -> {
+                long buildStart = System.nanoTime();
+                MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage, true);
+                messageHelper.setTo(contactData);
+                messageHelper.setSubject(notification.getSubject());
+                messageHelper.setText(body, true);
+                mimeBuildNanos[0] = System.nanoTime() - buildStart;
+            });
+        } finally {
+            metrics.record(Stage.MIME_BUILD, notification.getEmailType(), mimeBuildNanos[0]);
+            metrics.record(Stage.SMTP_SEND, notification.getEmailType(), System.nanoTime() - start - mimeBuildNanos[0]);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DeliveryRejectedException;
+import app.notificationsvc.exception.InvalidWebhookEndpointException;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Posts notifications as JSON to the URL in the recipient's contact data. A 2xx answer is a
+ * delivery. 408, 429 and 5xx answers are retried, any other answer marks the notification FAILED.
+ * A URL that {@link WebhookEndpoints} refuses marks it FAILED without a request.
+ */
+@Component
+public class WebhookDeliveryChannel implements DeliveryChannel {
+
+    private final ObjectMapper objectMapper;
+    private final WebhookEndpoints webhookEndpoints;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+
+    public WebhookDeliveryChannel(ObjectMapper objectMapper, WebhookEndpoints webhookEndpoints, NotificationProperties notificationProperties) {
+        this.objectMapper = objectMapper;
+        this.webhookEndpoints = webhookEndpoints;
+        this.timeout = notificationProperties.getChannels()
+                .getOrDefault(NotificationType.WEBHOOK, new NotificationProperties.Channel())
+                .getTimeout();
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public NotificationType getType() {
+        return NotificationType.WEBHOOK;
+    }
+
+    @Override
+    public void deliver(Notification notification, String contactData, String body) throws IOException, InterruptedException {
+        URI endpoint = endpoint(contactData);
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", notification.getId());
+        payload.put("userId", notification.getUserId());
+        payload.put("emailType", notification.getEmailType());
+        payload.put("subject", notification.getSubject());
+        payload.put("body", body);
+        payload.put("createdOn", notification.getCreatedOn() == null ? null : notification.getCreatedOn().toString());
+
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", notification.getId().toString())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)))
+                .build();
+
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+
+        if (status >= 200 && status < 300) {
+            return;
+        }
+        if (status == 408 || status == 429 || status >= 500) {
+            throw new IOException("Webhook " + endpoint + " answered " + status);
+        }
+        throw new DeliveryRejectedException("Webhook " + endpoint + " rejected the notification with " + status);
+    }
+
+    private URI endpoint(String contactData) {
+        try {
+            return webhookEndpoints.check(contactData);
+        } catch (InvalidWebhookEndpointException e) {
+            throw new DeliveryRejectedException(e.getMessage());
+        }
+    }
+}
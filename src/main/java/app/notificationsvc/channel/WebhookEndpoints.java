@@ -0,0 +1,65 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidWebhookEndpointException;
+import app.notificationsvc.model.NotificationType;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which URLs webhooks may be posted to, so a preference cannot point the service at its
+ * own host or the internal network. Only hosts listed in {@code allowed-hosts} are accepted, and
+ * with the list empty webhooks are disabled. The host is matched by name rather than by the
+ * addresses it resolves to, because the HTTP client resolves it again when it connects and a host
+ * can change its answer in between. The check runs when a preference is saved and again before
+ * every delivery, so removing a host from the list also stops deliveries to it.
+ */
+@Component
+public class WebhookEndpoints {
+
+    private final Set<String> allowedHosts;
+
+    public WebhookEndpoints(NotificationProperties notificationProperties) {
+        this.allowedHosts = notificationProperties.getChannels()
+                .getOrDefault(NotificationType.WEBHOOK, new NotificationProperties.Channel())
+                .getAllowedHosts().stream()
+                .map(host -> host.trim().toLowerCase(Locale.ROOT))
+                .filter(host -> !host.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @throws InvalidWebhookEndpointException if the URL is malformed, not http(s), or its host is not allowed
+     */
+    public URI check(String contactData) {
+        if (allowedHosts.isEmpty()) {
+            throw new InvalidWebhookEndpointException("Webhooks are disabled, no allowed hosts are configured");
+        }
+
+        URI endpoint = parse(contactData);
+        String host = endpoint.getHost().toLowerCase(Locale.ROOT);
+
+        if (!allowedHosts.contains(host)) {
+            throw new InvalidWebhookEndpointException("Webhook host is not allowed: " + host);
+        }
+        return endpoint;
+    }
+
+    private static URI parse(String contactData) {
+        try {
+            URI endpoint = URI.create(contactData);
+            boolean http = "http".equalsIgnoreCase(endpoint.getScheme()) || "https".equalsIgnoreCase(endpoint.getScheme());
+            if (http && endpoint.getHost() != null && endpoint.getUserInfo() == null) {
+                return endpoint;
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below like any other unusable URL
+        }
+
+        throw new InvalidWebhookEndpointException("Invalid webhook URL: " + contactData);
+    }
+}
@@ -0,0 +1,36 @@
+package app.notificationsvc.config;
+
+import app.notificationsvc.mail.PooledJavaMailSender;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailTransportConfiguration {
+
+    @Bean
+    public PooledJavaMailSender mailSender(MailProperties mailProperties, NotificationProperties notificationProperties) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(notificationProperties.getMail().getPool());
+
+        sender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            sender.setPort(mailProperties.getPort());
+        }
+        sender.setUsername(mailProperties.getUsername());
+        sender.setPassword(mailProperties.getPassword());
+        sender.setProtocol(mailProperties.getProtocol());
+        if (mailProperties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mailProperties.getDefaultEncoding().name());
+        }
+
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(mailProperties.getProperties());
+        sender.setJavaMailProperties(javaMailProperties);
+
+        return sender;
+    }
+}
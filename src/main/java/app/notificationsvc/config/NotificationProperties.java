@@ -0,0 +1,591 @@
+package app.notificationsvc.config;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notification")
+public class NotificationProperties {
+
+    private final Dispatch dispatch = new Dispatch();
+
+    private final Newsletter newsletter = new Newsletter();
+
+    private final Mail mail = new Mail();
+
+    private final PreferenceCache preferenceCache = new PreferenceCache();
+
+    private final NotificationLog notificationLog = new NotificationLog();
+
+    private final Concurrency concurrency = new Concurrency();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final Retry retry = new Retry();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    private final Batch batch = new Batch();
+
+    private final History history = new History();
+
+    private final Outbox outbox = new Outbox();
+
+    private final Coalescing coalescing = new Coalescing();
+
+    private final PreferenceImport preferenceImport = new PreferenceImport();
+
+    private final Retention retention = new Retention();
+
+    private final WarmUp warmUp = new WarmUp();
+
+    private final Campaign campaign = new Campaign();
+
+    /**
+     * Per channel worker pools and limits, keyed by notification type. The email channel queues on
+     * the {@code dispatch} pool, so only its {@code max-concurrency} and {@code acquire-timeout} apply.
+     */
+    private final Map<NotificationType, Channel> channels = new EnumMap<>(NotificationType.class);
+
+    @Getter
+    @Setter
+    public static class Dispatch {
+
+        /**
+         * Number of lanes draining the in-process dispatch queue, each with one thread. One
+         * user's emails always share a lane. Zero means one lane per available processor, or one
+         * per pooled SMTP connection with virtual threads.
+         */
+        private int workers = 0;
+
+        /**
+         * Maximum number of emails waiting to be sent before new async requests are rejected with 429.
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * Value of the Retry-After header returned when the dispatch queue is full.
+         */
+        private Duration retryAfter = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Newsletter {
+
+        /**
+         * Number of subscribers fetched per keyset page.
+         */
+        private int pageSize = 500;
+
+        /**
+         * Number of threads sending newsletter emails in parallel.
+         */
+        private int workers = 8;
+
+        /**
+         * Number of finished runs kept in memory for progress queries.
+         */
+        private int retainedRuns = 20;
+
+        /**
+         * Number of background runs waiting behind the one in progress. Further runs are refused.
+         */
+        private int queuedRuns = 4;
+
+        /**
+         * Retry-After sent when a background run is refused because the queue is full.
+         */
+        private Duration retryAfter = Duration.ofSeconds(60);
+    }
+
+    @Getter
+    @Setter
+    public static class Mail {
+
+        private final Pool pool = new Pool();
+
+        @Getter
+        @Setter
+        public static class Pool {
+
+            /**
+             * Maximum number of SMTP connections open at the same time, idle or in use.
+             */
+            private int maxTotal = 8;
+
+            /**
+             * Number of messages sent over one connection before it is closed and replaced.
+             */
+            private int maxMessagesPerConnection = 100;
+
+            /**
+             * Idle connections older than this are closed by the evictor.
+             */
+            private Duration idleTimeout = Duration.ofSeconds(30);
+
+            /**
+             * Idle connections kept open past {@code idle-timeout} with a NOOP instead of being
+             * closed, so the sessions opened by the warm-up survive a quiet start.
+             */
+            private int minIdle = 2;
+
+            /**
+             * Connections idle for longer than this are checked with NOOP before being reused.
+             */
+            private Duration validateAfterIdle = Duration.ofSeconds(5);
+
+            /**
+             * How long a sender waits for a free connection before the send fails.
+             */
+            private Duration borrowTimeout = Duration.ofSeconds(30);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class PreferenceCache {
+
+        /**
+         * Maximum number of cached preferences, including negative entries.
+         */
+        private int maxSize = 10_000;
+
+        /**
+         * How long a loaded preference is served from memory before it is read again.
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+
+        /**
+         * How long an unknown user id is remembered as missing.
+         */
+        private Duration negativeTtl = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class NotificationLog {
+
+        /**
+         * Maximum number of notification rows written in one JDBC batch.
+         */
+        private int batchSize = 200;
+
+        /**
+         * Longest time a row waits in the buffer for its batch to fill up.
+         */
+        private Duration flushInterval = Duration.ofMillis(250);
+
+        /**
+         * Number of rows the buffer holds before senders have to wait for a flush.
+         */
+        private int bufferCapacity = 10_000;
+
+        /**
+         * How long a sender waits for buffer space before writing its row itself.
+         */
+        private Duration offerTimeout = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Concurrency {
+
+        /**
+         * Runs dispatch and newsletter sends on virtual threads. Follows spring.threads.virtual.enabled by default.
+         */
+        private boolean virtualThreads = false;
+
+        /**
+         * Maximum number of threads running database work at the same time, usually the JDBC pool size.
+         */
+        private int databasePermits = 10;
+
+        /**
+         * How long a thread waits for a database permit before the request fails with 503.
+         */
+        private Duration permitTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Value of the Retry-After header returned when no database permit became free in time.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        /**
+         * Longest time a sender is slowed down for a permit before the send fails instead.
+         */
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        /**
+         * Quota enforced by the SMTP relay configured in spring.mail.host, shared by every email type.
+         */
+        private final Quota relay = new Quota();
+
+        /**
+         * Additional quotas per email type, for example to keep newsletters from starving transactional mail.
+         */
+        private final Map<EmailType, Quota> emailTypes = new EnumMap<>(EmailType.class);
+
+        @Getter
+        @Setter
+        public static class Quota {
+
+            /**
+             * Sustained send rate, zero or less means unlimited.
+             */
+            private double permitsPerSecond = 0;
+
+            /**
+             * Number of sends allowed back to back before the per second rate applies.
+             */
+            private int burst = 1;
+
+            /**
+             * Sends allowed per rolling day, zero or less means unlimited.
+             */
+            private long permitsPerDay = 0;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Retry {
+
+        /**
+         * Total number of send attempts, including the first one, before a notification is marked DEAD.
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Delay before the first retry, doubled by the multiplier for every further attempt.
+         */
+        private Duration initialBackoff = Duration.ofSeconds(30);
+
+        /**
+         * Upper bound of the delay between two attempts.
+         */
+        private Duration maxBackoff = Duration.ofMinutes(30);
+
+        private double multiplier = 2.0;
+
+        /**
+         * How often the scheduler looks for due retries.
+         */
+        private Duration pollInterval = Duration.ofSeconds(5);
+
+        /**
+         * Maximum number of due retries loaded per poll.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Number of retries sent at the same time, kept below the SMTP pool size so fresh emails always get a connection.
+         */
+        private int concurrency = 2;
+
+        /**
+         * How long a claimed retry is hidden from other pollers. It is picked up again if this instance dies mid-send.
+         */
+        private Duration lease = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+
+        /**
+         * How long a request can be replayed with the same idempotency key.
+         */
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * Maximum number of recent keys kept in memory, older keys are still found in the database.
+         */
+        private int maxSize = 100_000;
+
+        /**
+         * How often expired keys are deleted from the database.
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        /**
+         * How long a key stays reserved by a request that has not finished sending. The reservation
+         * is renewed while the send runs, so this only bounds how long duplicates wait after the
+         * holding instance died, before they take the key over.
+         */
+        private Duration reservationTimeout = Duration.ofMinutes(1);
+
+        /**
+         * How often a duplicate checks whether the request holding its key on another instance has finished.
+         */
+        private Duration reservationPoll = Duration.ofMillis(50);
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * Maximum number of emails accepted in one batch request.
+         */
+        private int maxItems = 5_000;
+
+        /**
+         * Number of emails read from the request stream before their preferences are looked up with one query.
+         */
+        private int chunkSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class History {
+
+        /**
+         * Number of notifications returned per history page when the request does not ask for a size.
+         */
+        private int defaultPageSize = 50;
+
+        /**
+         * Largest history page a request can ask for.
+         */
+        private int maxPageSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Outbox {
+
+        /**
+         * How often each instance looks for unclaimed outbox messages. Also the longest an async
+         * send waits before it is picked up.
+         */
+        private Duration pollInterval = Duration.ofMillis(200);
+
+        /**
+         * Maximum number of messages claimed per poll.
+         */
+        private int batchSize = 100;
+
+        /**
+         * How long a claim lasts. Messages of an instance that dies are claimed again by another
+         * once their lease runs out, so it must exceed the time a message spends queued and sending.
+         */
+        private Duration lease = Duration.ofMinutes(5);
+
+        /**
+         * Claims after which a message that never completes is given up on and its notification marked DEAD.
+         * Claims handed back because a delivery queue was full do not count.
+         */
+        private int maxClaims = 5;
+    }
+
+    @Getter
+    @Setter
+    public static class Coalescing {
+
+        /**
+         * Coalescing window per email type. Queued emails of one user arriving within the window of
+         * the first are sent as one digest. Types without a window are never held back.
+         */
+        private final Map<EmailType, Duration> windows = new EnumMap<>(EmailType.class);
+
+        /**
+         * Number of emails after which a user's digest is sent without waiting for its window to end.
+         */
+        private int maxEmailsPerUser = 10;
+
+        /**
+         * Emails held across all users. Once reached, further emails are queued on their own.
+         */
+        private int maxBufferedEmails = 10_000;
+
+        /**
+         * Resolution of the timer wheel closing the windows. A digest is sent at most one tick after its window ends.
+         */
+        private Duration tick = Duration.ofMillis(100);
+
+        /**
+         * Number of threads rendering and queueing closed digests.
+         */
+        private int flushWorkers = 2;
+    }
+
+    @Getter
+    @Setter
+    public static class PreferenceImport {
+
+        /**
+         * Number of records read from the import stream and written in one transaction. Chunks over
+         * 8191 rows are split over several upsert statements to stay under MySQL's 65535 placeholders.
+         */
+        private int chunkSize = 500;
+
+        /**
+         * Rejected records listed in the import summary. Further rejections are only counted.
+         */
+        private int maxReportedErrors = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Retention {
+
+        /**
+         * Whether expired notifications are archived and removed at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long a sent, failed or dead notification is kept. Queued and retrying ones are never removed.
+         */
+        private Duration ttl = Duration.ofDays(90);
+
+        /**
+         * How often expired notifications are looked for.
+         */
+        private Duration pollInterval = Duration.ofHours(1);
+
+        /**
+         * Notifications archived and deleted per statement. Small batches keep row locks short.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Pause between two batches, so a large backlog is purged without starving sends of the database.
+         */
+        private Duration batchPause = Duration.ofMillis(100);
+
+        /**
+         * Writes every notification to a gzip file before it is removed.
+         */
+        private boolean archive = true;
+
+        /**
+         * Directory of the archive files, one {@code notifications-<date>.ndjson.gz} per creation day.
+         * With several replicas it must be a volume they all mount, since any of them may hold the
+         * retention lease.
+         */
+        private String archiveDirectory = "archive";
+
+        /**
+         * How long the instance purging expired notifications keeps the retention lease without
+         * extending it. It is extended before every batch.
+         */
+        private Duration lease = Duration.ofMinutes(10);
+
+        /**
+         * Set once the notification table is partitioned by month with {@code db/notification-partitioning.sql}.
+         * Expired months are then archived and dropped as whole partitions, and partitions for the coming months are added.
+         */
+        private boolean partitioned = false;
+
+        /**
+         * Number of future monthly partitions kept in place when {@code partitioned} is set.
+         */
+        private int partitionsAhead = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class WarmUp {
+
+        /**
+         * Whether templates, database connections and SMTP sessions are prepared before the service reports ready.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Database connections opened and validated during warm-up.
+         */
+        private int databaseConnections = 4;
+
+        /**
+         * SMTP sessions opened and authenticated during warm-up, at most {@code mail.pool.max-total}.
+         */
+        private int smtpConnections = 2;
+    }
+
+    @Getter
+    @Setter
+    public static class Campaign {
+
+        /**
+         * How often due campaigns are looked for.
+         */
+        private Duration pollInterval = Duration.ofSeconds(10);
+
+        /**
+         * Target gap between two slices of recipients. A slice holds as many recipients as the
+         * campaign's rate allows in this time, at most {@code newsletter.page-size}.
+         */
+        private Duration sliceInterval = Duration.ofSeconds(1);
+
+        /**
+         * How long a running campaign stays leased to its instance without a renewal.
+         */
+        private Duration lease = Duration.ofMinutes(5);
+
+        /**
+         * How many times a campaign whose instance stopped renewing its lease is resumed from its
+         * checkpoint by another instance before it is marked failed.
+         */
+        private int maxResumes = 3;
+
+        /**
+         * Time zone of subscribers without one when a campaign is staggered by time zone.
+         */
+        private ZoneId defaultTimeZone = ZoneId.systemDefault();
+    }
+
+    @Getter
+    @Setter
+    public static class Channel {
+
+        /**
+         * Lanes of the channel's async queue, each with one thread. Zero means one lane per
+         * available processor.
+         */
+        private int workers = 4;
+
+        /**
+         * Deliveries that can wait for a worker before async sends are rejected.
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * Deliveries running through the channel at once, sync and async together. Zero or less
+         * means no limit beyond the transport's own.
+         */
+        private int maxConcurrency = 16;
+
+        /**
+         * How long a delivery waits for a concurrency permit before the attempt fails and is retried later.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Timeout of a single delivery, for channels that call a remote endpoint.
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /**
+         * Hosts a channel that calls a remote endpoint may reach. Empty disables the channel.
+         */
+        private List<String> allowedHosts = List.of();
+    }
+}
@@ -0,0 +1,10 @@
+package app.notificationsvc.exception;
+
+import app.notificationsvc.model.NotificationType;
+
+public class ChannelBusyException extends RuntimeException {
+
+    public ChannelBusyException(NotificationType channel) {
+        super("Too many deliveries in flight on the " + channel + " channel");
+    }
+}
@@ -0,0 +1,16 @@
+package app.notificationsvc.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class DatabaseBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public DatabaseBusyException(Duration retryAfter) {
+        super("No database capacity available, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,8 @@
+package app.notificationsvc.exception;
+
+public class DeliveryRejectedException extends RuntimeException {
+
+    public DeliveryRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package app.notificationsvc.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class DispatchQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public DispatchQueueFullException(Duration retryAfter) {
+        super("Dispatch queue is full, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package app.notificationsvc.exception;
+
+public class InvalidBatchException extends RuntimeException {
+
+    public InvalidBatchException(String message) {
+        super(message);
+    }
+
+    public InvalidBatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
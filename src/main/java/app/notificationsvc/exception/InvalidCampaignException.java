@@ -0,0 +1,8 @@
+package app.notificationsvc.exception;
+
+public class InvalidCampaignException extends RuntimeException {
+
+    public InvalidCampaignException(String message) {
+        super(message);
+    }
+}
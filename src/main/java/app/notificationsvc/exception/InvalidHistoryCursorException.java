@@ -0,0 +1,8 @@
+package app.notificationsvc.exception;
+
+public class InvalidHistoryCursorException extends RuntimeException {
+
+    public InvalidHistoryCursorException(String cursor, Throwable cause) {
+        super("Invalid history cursor: " + cursor, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package app.notificationsvc.exception;
+
+public class InvalidWebhookEndpointException extends RuntimeException {
+
+    public InvalidWebhookEndpointException(String message) {
+        super(message);
+    }
+}
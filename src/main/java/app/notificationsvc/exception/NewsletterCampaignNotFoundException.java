@@ -0,0 +1,10 @@
+package app.notificationsvc.exception;
+
+import java.util.UUID;
+
+public class NewsletterCampaignNotFoundException extends RuntimeException {
+
+    public NewsletterCampaignNotFoundException(UUID id) {
+        super("Newsletter campaign with id: " + id + " not found");
+    }
+}
@@ -0,0 +1,16 @@
+package app.notificationsvc.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class NewsletterQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public NewsletterQueueFullException(Duration retryAfter) {
+        super("Newsletter queue is full, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+}
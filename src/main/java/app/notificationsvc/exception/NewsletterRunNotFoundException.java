@@ -0,0 +1,10 @@
+package app.notificationsvc.exception;
+
+import java.util.UUID;
+
+public class NewsletterRunNotFoundException extends RuntimeException {
+
+    public NewsletterRunNotFoundException(UUID id) {
+        super("Newsletter run with id: " + id + " not found");
+    }
+}
@@ -0,0 +1,10 @@
+package app.notificationsvc.exception;
+
+import java.util.UUID;
+
+public class NotificationNotFoundException extends RuntimeException {
+
+    public NotificationNotFoundException(UUID id) {
+        super("Notification with id: " + id + " not found");
+    }
+}
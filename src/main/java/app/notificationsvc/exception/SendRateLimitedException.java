@@ -0,0 +1,14 @@
+package app.notificationsvc.exception;
+
+import lombok.Getter;
+
+@Getter
+public class SendRateLimitedException extends RuntimeException {
+
+    private final String bucket;
+
+    public SendRateLimitedException(String bucket) {
+        super("Send rate limit " + bucket + " would delay this email for longer than allowed");
+        this.bucket = bucket;
+    }
+}
@@ -0,0 +1,110 @@
+package app.notificationsvc.mail;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.InternetHeaders;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A message sent unchanged to many recipients. The subject and multipart body are encoded once;
+ * every recipient's message only adds its own To, Date and Message-ID headers in front of the
+ * shared, already transfer-encoded body bytes.
+ */
+public final class BroadcastMessage {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+    private static final String[] PER_RECIPIENT_HEADERS = {HEADER_MESSAGE_ID, "Date", "To"};
+
+    private final Session session;
+    private final List<String> headerLines;
+    private final byte[] body;
+    private final String messageIdDomain;
+
+    private BroadcastMessage(Session session, List<String> headerLines, byte[] body) {
+        this.session = session;
+        this.headerLines = headerLines;
+        this.body = body;
+        this.messageIdDomain = messageIdDomain(session);
+    }
+
+    public static BroadcastMessage prepare(JavaMailSender mailSender, String subject, String html) {
+        try {
+            MimeMessage template = mailSender.createMimeMessage();
+            MimeMessageHelper messageHelper = new MimeMessageHelper(template, true);
+            messageHelper.setSubject(subject);
+            messageHelper.setText(html, true);
+            template.saveChanges();
+
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            template.writeTo(encoded, PER_RECIPIENT_HEADERS);
+
+            ByteArrayInputStream in = new ByteArrayInputStream(encoded.toByteArray());
+            InternetHeaders headers = new InternetHeaders(in);
+
+            return new BroadcastMessage(template.getSession(), Collections.list(headers.getAllHeaderLines()), in.readAllBytes());
+        } catch (MessagingException | IOException e) {
+            throw new MailPreparationException("Failed to encode broadcast message", e);
+        }
+    }
+
+    public MimeMessage createMessage(String to) throws MessagingException {
+        InternetHeaders headers = new InternetHeaders();
+        headerLines.forEach(headers::addHeaderLine);
+
+        SharedBodyMimeMessage message = new SharedBodyMimeMessage(session, headers, body);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSentDate(new Date());
+        message.setHeader(HEADER_MESSAGE_ID, "<" + UUID.randomUUID() + "." + System.currentTimeMillis() + "@" + messageIdDomain + ">");
+
+        return message;
+    }
+
+    public int bodySize() {
+        return body.length;
+    }
+
+    private static String messageIdDomain(Session session) {
+        InternetAddress local = InternetAddress.getLocalAddress(session);
+
+        if (local != null && local.getAddress() != null && local.getAddress().contains("@")) {
+            return local.getAddress().substring(local.getAddress().indexOf('@') + 1);
+        }
+
+        return "notification-svc";
+    }
+
+    /**
+     * MimeMessage whose content is the shared pre-encoded body. It is never marked modified,
+     * so {@link MimeMessage#writeTo} writes the headers followed by the raw body bytes instead
+     * of rebuilding and re-encoding the multipart.
+     */
+    static final class SharedBodyMimeMessage extends MimeMessage {
+
+        SharedBodyMimeMessage(Session session, InternetHeaders headers, byte[] content) {
+            super(session);
+            this.headers = headers;
+            this.content = content;
+            this.modified = false;
+            this.saved = true;
+        }
+
+        @Override
+        public void saveChanges() {
+            // Body and MIME headers were finalised when the broadcast was prepared
+            saved = true;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package app.notificationsvc.mail;
+
+import app.notificationsvc.config.NotificationProperties;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl} that sends over pooled, already authenticated SMTP connections
+ * instead of connecting, running STARTTLS and AUTH, and disconnecting for every message.
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final SmtpTransportPool pool;
+    private final ScheduledExecutorService evictor;
+
+    public PooledJavaMailSender(NotificationProperties.Mail.Pool properties) {
+        this.pool = new SmtpTransportPool(this::connectTransport, properties);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("smtp-pool-evictor-");
+        threadFactory.setDaemon(true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        long period = Math.max(1, properties.getIdleTimeout().toMillis() / 2);
+        this.evictor.scheduleWithFixedDelay(pool::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public SmtpPoolStats getPoolStats() {
+        return pool.stats();
+    }
+
+    /**
+     * Opens and authenticates up to {@code connections} idle sessions ahead of the first send.
+     */
+    public int prefill(int connections) throws MessagingException {
+        return pool.prefill(connections);
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        for (int i = 0; i < mimeMessages.length; i++) {
+            MimeMessage mimeMessage = mimeMessages[i];
+            Object original = (originalMessages != null ? originalMessages[i] : mimeMessage);
+
+            try {
+                prepare(mimeMessage);
+                sendPooled(mimeMessage);
+            } catch (AuthenticationFailedException ex) {
+                throw new MailAuthenticationException(ex);
+            } catch (MessagingException ex) {
+                failedMessages.put(original, ex);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private void sendPooled(MimeMessage mimeMessage) throws MessagingException {
+        Address[] addresses = mimeMessage.getAllRecipients();
+        Address[] recipients = (addresses != null ? addresses : new Address[0]);
+
+        PooledTransport pooled = pool.borrow();
+        boolean reusedConnection = pooled.getMessagesSent() > 0;
+
+        try {
+            pooled.getTransport().sendMessage(mimeMessage, recipients);
+            pool.release(pooled);
+        } catch (MessagingException ex) {
+            if (pooled.getTransport().isConnected()) {
+                // The server rejected this message, the session itself is still usable
+                pool.release(pooled);
+                throw ex;
+            }
+
+            pool.invalidate(pooled);
+
+            if (!reusedConnection) {
+                throw ex;
+            }
+
+            // A reused connection may have been dropped by the server while idle, retry once on a fresh one
+            log.debug("Pooled SMTP connection was broken, retrying on a new connection: {}", ex.getMessage());
+            PooledTransport fresh = pool.borrow();
+            try {
+                fresh.getTransport().sendMessage(mimeMessage, recipients);
+                pool.release(fresh);
+            } catch (MessagingException retryEx) {
+                pool.invalidate(fresh);
+                throw retryEx;
+            }
+        }
+    }
+
+    private void prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+
+        if (messageId != null) {
+            // Preserve explicitly specified message id, see JavaMailSenderImpl#doSend
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        evictor.shutdownNow();
+        pool.close();
+    }
+}
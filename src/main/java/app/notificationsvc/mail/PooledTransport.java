@@ -0,0 +1,25 @@
+package app.notificationsvc.mail;
+
+import jakarta.mail.Transport;
+import lombok.Getter;
+
+@Getter
+public class PooledTransport {
+
+    private final Transport transport;
+    private int messagesSent;
+    private long lastUsedNanos = System.nanoTime();
+
+    PooledTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    void markUsed() {
+        messagesSent++;
+        lastUsedNanos = System.nanoTime();
+    }
+
+    void markAlive() {
+        lastUsedNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,109 @@
+package app.notificationsvc.mail;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.SendRateLimitedException;
+import app.notificationsvc.model.EmailType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces outgoing mail so the SMTP relay never sees more than its quota. Every send takes one
+ * permit from its email type's buckets and from the relay's buckets, and sleeps until all of them
+ * allow it. Senders are only failed when the wait would be longer than {@code max-wait}.
+ */
+@Slf4j
+@Component
+public class SendRateLimiter {
+
+    private static final Duration DAY = Duration.ofDays(1);
+
+    private final Map<EmailType, List<TokenBucket>> bucketsByType = new EnumMap<>(EmailType.class);
+    private final Set<TokenBucket> buckets = new LinkedHashSet<>();
+    private final long maxWaitNanos;
+
+    public SendRateLimiter(NotificationProperties notificationProperties, MailProperties mailProperties) {
+        NotificationProperties.RateLimit properties = notificationProperties.getRateLimit();
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+
+        String relay = mailProperties.getHost() != null ? mailProperties.getHost() : "relay";
+        List<TokenBucket> relayBuckets = bucketsFor(relay, properties.getRelay());
+
+        for (EmailType emailType : EmailType.values()) {
+            List<TokenBucket> typeBuckets = new ArrayList<>();
+
+            NotificationProperties.RateLimit.Quota quota = properties.getEmailTypes().get(emailType);
+            if (quota != null) {
+                typeBuckets.addAll(bucketsFor(emailType.name(), quota));
+            }
+            // Type buckets come first, a type that is over its own quota never holds relay permits
+            typeBuckets.addAll(relayBuckets);
+
+            bucketsByType.put(emailType, List.copyOf(typeBuckets));
+            buckets.addAll(typeBuckets);
+        }
+    }
+
+    /**
+     * Blocks until the email may be sent and returns how long that took.
+     *
+     * @throws SendRateLimitedException if a quota would make the caller wait longer than max-wait
+     */
+    public Duration acquire(EmailType emailType) {
+        List<TokenBucket> typeBuckets = bucketsByType.get(emailType);
+        long wait = 0;
+
+        for (int i = 0; i < typeBuckets.size(); i++) {
+            long bucketWait = typeBuckets.get(i).reserve(maxWaitNanos);
+
+            if (bucketWait < 0) {
+                for (int j = 0; j < i; j++) {
+                    typeBuckets.get(j).cancel();
+                }
+                throw new SendRateLimitedException(typeBuckets.get(i).getName());
+            }
+
+            wait = Math.max(wait, bucketWait);
+        }
+
+        if (wait > 0) {
+            log.debug("Delaying {} email by {} ms to stay within the send rate", emailType, TimeUnit.NANOSECONDS.toMillis(wait));
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SendRateLimitedException(emailType.name());
+            }
+        }
+
+        return Duration.ofNanos(wait);
+    }
+
+    public List<TokenBucketStats> stats() {
+        return buckets.stream().map(TokenBucket::stats).toList();
+    }
+
+    private static List<TokenBucket> bucketsFor(String name, NotificationProperties.RateLimit.Quota quota) {
+        List<TokenBucket> quotaBuckets = new ArrayList<>();
+
+        if (quota.getPermitsPerSecond() > 0) {
+            // Counted per minute so fractional rates such as 0.5 per second survive the integer permit count
+            long permitsPerMinute = Math.max(1, Math.round(quota.getPermitsPerSecond() * 60));
+            quotaBuckets.add(new TokenBucket(name + "/second", permitsPerMinute, Duration.ofMinutes(1), Math.max(1, quota.getBurst())));
+        }
+        if (quota.getPermitsPerDay() > 0) {
+            quotaBuckets.add(new TokenBucket(name + "/day", quota.getPermitsPerDay(), DAY, (int) Math.min(Integer.MAX_VALUE, quota.getPermitsPerDay())));
+        }
+
+        return quotaBuckets;
+    }
+}
@@ -0,0 +1,4 @@
+package app.notificationsvc.mail;
+
+public record SmtpPoolStats(int active, int idle, int maxTotal, long created, long destroyed, long borrowed, long reused) {
+}
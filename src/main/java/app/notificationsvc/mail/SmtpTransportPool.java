@@ -0,0 +1,189 @@
+package app.notificationsvc.mail;
+
+import app.notificationsvc.config.NotificationProperties;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
+
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of connected and authenticated SMTP {@link Transport}s. Idle connections are reused
+ * most-recently-used first so that the least used ones age out through {@link #evictIdle()}.
+ * The last {@code min-idle} connections are not aged out but kept open with a NOOP, so sessions
+ * opened by the startup warm-up are still there for the first burst after a quiet spell.
+ */
+@Slf4j
+public class SmtpTransportPool {
+
+    @FunctionalInterface
+    public interface TransportConnector {
+        Transport connect() throws MessagingException;
+    }
+
+    private final TransportConnector connector;
+    private final NotificationProperties.Mail.Pool properties;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    public SmtpTransportPool(TransportConnector connector, NotificationProperties.Mail.Pool properties) {
+        this.connector = connector;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.getMaxTotal(), true);
+    }
+
+    public PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(properties.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("No SMTP connection available within " + properties.getBorrowTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isReusable(pooled)) {
+                    borrowed.incrementAndGet();
+                    reused.incrementAndGet();
+                    return pooled;
+                }
+                destroy(pooled);
+            }
+
+            pooled = new PooledTransport(connector.connect());
+            created.incrementAndGet();
+            borrowed.incrementAndGet();
+            return pooled;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens connections until {@code connections} are idle, so the first sends skip the handshake.
+     * Returns the number of connections opened.
+     */
+    public int prefill(int connections) throws MessagingException {
+        int target = Math.min(connections, properties.getMaxTotal());
+        int opened = 0;
+
+        while (idle.size() < target && permits.tryAcquire()) {
+            try {
+                idle.offerLast(new PooledTransport(connector.connect()));
+                created.incrementAndGet();
+                opened++;
+            } finally {
+                permits.release();
+            }
+        }
+
+        return opened;
+    }
+
+    public void release(PooledTransport pooled) {
+        pooled.markUsed();
+
+        if (pooled.getMessagesSent() >= properties.getMaxMessagesPerConnection()) {
+            destroy(pooled);
+        } else {
+            idle.offerFirst(pooled);
+        }
+
+        permits.release();
+    }
+
+    public void invalidate(PooledTransport pooled) {
+        destroy(pooled);
+        permits.release();
+    }
+
+    public void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<PooledTransport> oldestFirst = idle.descendingIterator();
+
+        while (oldestFirst.hasNext()) {
+            PooledTransport pooled = oldestFirst.next();
+            if (now - pooled.getLastUsedNanos() <= properties.getIdleTimeout().toNanos()) {
+                continue;
+            }
+
+            if (idle.size() > properties.getMinIdle()) {
+                if (idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            } else {
+                keepAlive(pooled);
+            }
+        }
+    }
+
+    // Holds a permit while the NOOP runs, so a borrower never opens a connection past max-total meanwhile
+    private void keepAlive(PooledTransport pooled) {
+        if (!permits.tryAcquire()) {
+            return;
+        }
+
+        try {
+            if (!idle.remove(pooled)) {
+                return;
+            }
+            if (pooled.getTransport().isConnected()) {
+                pooled.markAlive();
+                idle.offerLast(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public SmtpPoolStats stats() {
+        int idleCount = idle.size();
+        int inUse = properties.getMaxTotal() - permits.availablePermits();
+
+        return new SmtpPoolStats(inUse, idleCount, properties.getMaxTotal(), created.get(), destroyed.get(), borrowed.get(), reused.get());
+    }
+
+    public void close() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private boolean isReusable(PooledTransport pooled) {
+        long idleNanos = System.nanoTime() - pooled.getLastUsedNanos();
+
+        if (idleNanos > properties.getIdleTimeout().toNanos()) {
+            return false;
+        }
+
+        // isConnected() issues a NOOP, so only pay for it when the server may have dropped us
+        return idleNanos < properties.getValidateAfterIdle().toNanos() || pooled.getTransport().isConnected();
+    }
+
+    private void destroy(PooledTransport pooled) {
+        destroyed.incrementAndGet();
+        try {
+            pooled.getTransport().close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection cleanly: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package app.notificationsvc.mail;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket. Instead of a token count that a refill thread tops up, the bucket keeps
+ * a single theoretical arrival time: the moment the bucket would be empty if nothing else were
+ * reserved. A reservation pushes that time forward by one interval with a CAS. The caller then
+ * sleeps for however far the new time is ahead of {@code now + capacity}. There is no lock and no
+ * timer, and an uncontended reservation is one read and one CAS.
+ */
+public class TokenBucket {
+
+    private final String name;
+    private final int capacity;
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final LongSupplier clock;
+    private final AtomicLong theoreticalArrival;
+
+    private final AtomicLong windowStart;
+    private final AtomicLong windowCount = new AtomicLong();
+    private volatile long lastWindowCount;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitedNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public TokenBucket(String name, long permits, Duration period, int capacity) {
+        this(name, permits, period, capacity, System::nanoTime);
+    }
+
+    TokenBucket(String name, long permits, Duration period, int capacity, LongSupplier clock) {
+        if (permits <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Token bucket " + name + " needs positive permits and capacity");
+        }
+
+        this.name = name;
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, period.toNanos() / permits);
+        this.capacityNanos = intervalNanos * capacity;
+        this.clock = clock;
+
+        long now = clock.getAsLong();
+        this.theoreticalArrival = new AtomicLong(now);
+        this.windowStart = new AtomicLong(now);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Reserves one permit and returns how long the caller has to wait before using it, or -1 if that
+     * wait would be longer than {@code maxWaitNanos}. A rejected call reserves nothing.
+     */
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = clock.getAsLong();
+            long arrival = theoreticalArrival.get();
+            long next = (arrival - now > 0 ? arrival : now) + intervalNanos;
+            long wait = Math.max(0, next - now - capacityNanos);
+
+            if (wait > maxWaitNanos) {
+                rejected.increment();
+                return -1;
+            }
+
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                record(now, wait);
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit reserved by {@link #reserve(long)} that was not used, for example because
+     * another bucket in front of the same send rejected it.
+     */
+    public void cancel() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+        granted.decrement();
+    }
+
+    public TokenBucketStats stats() {
+        long now = clock.getAsLong();
+        long arrival = theoreticalArrival.get();
+        long backlog = Math.max(0, arrival - now);
+        long available = Math.max(0, (capacityNanos - backlog) / intervalNanos);
+        long delayedCount = delayed.sum();
+
+        return new TokenBucketStats(
+                name,
+                1e9 / intervalNanos,
+                capacity,
+                available,
+                currentRate(now),
+                granted.sum(),
+                delayedCount,
+                rejected.sum(),
+                delayedCount == 0 ? 0 : waitedNanos.sum() / 1e6 / delayedCount,
+                maxWaitNanos.get() / 1e6);
+    }
+
+    private void record(long now, long wait) {
+        granted.increment();
+
+        if (wait > 0) {
+            delayed.increment();
+            waitedNanos.add(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+        }
+
+        long start = windowStart.get();
+        if (now - start >= 1_000_000_000L && windowStart.compareAndSet(start, now)) {
+            lastWindowCount = windowCount.getAndSet(0);
+        }
+        windowCount.incrementAndGet();
+    }
+
+    /**
+     * Permits reserved in the last complete one second window. It is approximate, since a window
+     * only rolls over when a permit is reserved.
+     */
+    private double currentRate(long now) {
+        long sinceWindowStart = now - windowStart.get();
+
+        if (sinceWindowStart >= 2_000_000_000L) {
+            return 0;
+        }
+        if (sinceWindowStart >= 1_000_000_000L) {
+            return windowCount.get();
+        }
+        return lastWindowCount;
+    }
+}
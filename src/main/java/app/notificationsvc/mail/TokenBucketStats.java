@@ -0,0 +1,4 @@
+package app.notificationsvc.mail;
+
+public record TokenBucketStats(String name, double permitsPerSecond, int capacity, long available, double currentRate, long granted, long delayed, long rejected, double averageWaitMillis, double maxWaitMillis) {
+}
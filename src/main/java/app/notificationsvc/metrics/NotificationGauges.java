@@ -0,0 +1,108 @@
+package app.notificationsvc.metrics;
+
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.mail.PooledJavaMailSender;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.service.DatabaseLimiter;
+import app.notificationsvc.service.DispatchQueue;
+import app.notificationsvc.service.IdempotencyIndex;
+import app.notificationsvc.service.MailDispatchQueue;
+import app.notificationsvc.service.NotificationCoalescer;
+import app.notificationsvc.service.NotificationLogWriter;
+import app.notificationsvc.service.PreferenceCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges over the service's queues and pools, read from the same stats the
+ * {@code /stats} endpoints serve.
+ */
+@Component
+public class NotificationGauges implements MeterBinder {
+
+    private final MailDispatchQueue dispatchQueue;
+    private final PooledJavaMailSender mailSender;
+    private final PreferenceCache preferenceCache;
+    private final NotificationLogWriter notificationLogWriter;
+    private final IdempotencyIndex idempotencyIndex;
+    private final DatabaseLimiter databaseLimiter;
+    private final DeliveryChannels deliveryChannels;
+    private final NotificationCoalescer notificationCoalescer;
+
+    public NotificationGauges(MailDispatchQueue dispatchQueue, PooledJavaMailSender mailSender, PreferenceCache preferenceCache, NotificationLogWriter notificationLogWriter, IdempotencyIndex idempotencyIndex, DatabaseLimiter databaseLimiter, DeliveryChannels deliveryChannels, NotificationCoalescer notificationCoalescer) {
+        this.dispatchQueue = dispatchQueue;
+        this.mailSender = mailSender;
+        this.preferenceCache = preferenceCache;
+        this.notificationLogWriter = notificationLogWriter;
+        this.idempotencyIndex = idempotencyIndex;
+        this.databaseLimiter = databaseLimiter;
+        this.deliveryChannels = deliveryChannels;
+        this.notificationCoalescer = notificationCoalescer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notification.dispatch.queue.size", dispatchQueue, MailDispatchQueue::size)
+                .description("Sends waiting for a dispatch worker")
+                .register(registry);
+        Gauge.builder("notification.dispatch.queue.remaining", dispatchQueue, MailDispatchQueue::remainingCapacity)
+                .description("Free dispatch queue slots")
+                .register(registry);
+
+        Gauge.builder("notification.smtp.pool.active", mailSender, sender -> sender.getPoolStats().active())
+                .description("SMTP connections in use")
+                .register(registry);
+        Gauge.builder("notification.smtp.pool.idle", mailSender, sender -> sender.getPoolStats().idle())
+                .description("Idle pooled SMTP connections")
+                .register(registry);
+
+        Gauge.builder("notification.preference.cache.size", preferenceCache, cache -> cache.stats().size())
+                .register(registry);
+        Gauge.builder("notification.preference.cache.hit.ratio", preferenceCache, cache -> cache.stats().hitRate())
+                .register(registry);
+
+        Gauge.builder("notification.log.buffered", notificationLogWriter, writer -> writer.stats().buffered())
+                .description("Notification log rows waiting to be written")
+                .register(registry);
+
+        Gauge.builder("notification.idempotency.keys", idempotencyIndex, index -> index.stats().size())
+                .register(registry);
+
+        Gauge.builder("notification.database.permits.available", databaseLimiter, DatabaseLimiter::availablePermits)
+                .description("Free database permits for request threads")
+                .register(registry);
+
+        Gauge.builder("notification.coalescing.buffered", notificationCoalescer, coalescer -> coalescer.stats().bufferedEmails())
+                .description("Queued emails held back to be sent in a digest")
+                .register(registry);
+
+        for (DispatchQueue queue : deliveryChannels.queues()) {
+            for (int lane = 0; lane < queue.getLaneCount(); lane++) {
+                int index = lane;
+                Gauge.builder("notification.dispatch.lane.depth", queue, q -> q.laneDepth(index))
+                        .description("Sends waiting on one dispatch lane, a lane far above the rest points at a hot user")
+                        .tag("queue", queue.getName())
+                        .tag("lane", String.valueOf(lane))
+                        .register(registry);
+            }
+            FunctionCounter.builder("notification.dispatch.stolen", queue, DispatchQueue::getStolen)
+                    .description("Unordered sends taken over by an idle lane")
+                    .tag("queue", queue.getName())
+                    .register(registry);
+        }
+
+        for (NotificationType channel : deliveryChannels.types()) {
+            Gauge.builder("notification.channel.in.flight", deliveryChannels, channels -> channels.stats(channel).inFlight())
+                    .description("Deliveries currently holding a channel permit")
+                    .tag("channel", channel.name())
+                    .register(registry);
+            Gauge.builder("notification.channel.queue.size", deliveryChannels, channels -> channels.stats(channel).queued())
+                    .description("Sends waiting for one of the channel's workers")
+                    .tag("channel", channel.name())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package app.notificationsvc.metrics;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage timers and per-outcome counters for notification sends, tagged by email type.
+ * Every stage/type and type/status combination is registered up front, so recording is a map
+ * lookup rather than a registry lookup on the send path.
+ */
+@Component
+public class NotificationMetrics {
+
+    private final Map<Stage, Map<EmailType, Timer>> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<EmailType, Map<NotificationStatus, Counter>> outcomes = new EnumMap<>(EmailType.class);
+    private final Map<NotificationType, Timer> channelDeliveries = new EnumMap<>(NotificationType.class);
+    private final Map<NotificationType, Timer> channelFailures = new EnumMap<>(NotificationType.class);
+    private final Map<NotificationType, Counter> channelBusy = new EnumMap<>(NotificationType.class);
+    private final Timer logFlushTimer;
+    private final MeterRegistry registry;
+
+    public NotificationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        for (Stage stage : Stage.values()) {
+            Map<EmailType, Timer> timers = new EnumMap<>(EmailType.class);
+            for (EmailType emailType : EmailType.values()) {
+                timers.put(emailType, Timer.builder("notification.stage")
+                        .description("Time spent in one stage of sending a notification")
+                        .tag("stage", stage.getTag())
+                        .tag("email_type", emailType.name())
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+            stageTimers.put(stage, timers);
+        }
+
+        for (EmailType emailType : EmailType.values()) {
+            Map<NotificationStatus, Counter> counters = new EnumMap<>(NotificationStatus.class);
+            for (NotificationStatus status : NotificationStatus.values()) {
+                counters.put(status, Counter.builder("notification.outcome")
+                        .description("Notifications by the status a send attempt left them in")
+                        .tag("email_type", emailType.name())
+                        .tag("status", status.name())
+                        .register(registry));
+            }
+            outcomes.put(emailType, counters);
+        }
+
+        for (NotificationType channel : NotificationType.values()) {
+            channelDeliveries.put(channel, channelTimer(registry, channel, "delivered"));
+            channelFailures.put(channel, channelTimer(registry, channel, "failed"));
+            channelBusy.put(channel, Counter.builder("notification.channel.busy")
+                    .description("Deliveries that found no free concurrency permit on their channel")
+                    .tag("channel", channel.name())
+                    .register(registry));
+        }
+
+        this.logFlushTimer = Timer.builder("notification.log.flush")
+                .description("Time to write one batch of the write-behind notification log")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public <T> T time(Stage stage, EmailType emailType, Supplier<T> work) {
+        long start = System.nanoTime();
+
+        try {
+            return work.get();
+        } finally {
+            record(stage, emailType, System.nanoTime() - start);
+        }
+    }
+
+    public void record(Stage stage, EmailType emailType, long nanos) {
+        stageTimers.get(stage).get(emailType).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(EmailType emailType, NotificationStatus status) {
+        outcomes.get(emailType).get(status).increment();
+    }
+
+    public void recordChannelDelivery(NotificationType channel, boolean delivered, long nanos) {
+        (delivered ? channelDeliveries : channelFailures).get(channel).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordChannelBusy(NotificationType channel) {
+        channelBusy.get(channel).increment();
+    }
+
+    public void recordLogFlush(long nanos) {
+        logFlushTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Only recorded once per startup, so registered on use
+    public void recordWarmUp(String step, long nanos) {
+        Timer.builder("notification.warmup")
+                .description("Time one startup warm-up step took before the service reported ready")
+                .tag("step", step)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer channelTimer(MeterRegistry registry, NotificationType channel, String outcome) {
+        return Timer.builder("notification.channel.delivery")
+                .description("Time one delivery attempt spent in its channel's transport")
+                .tag("channel", channel.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,24 @@
+package app.notificationsvc.metrics;
+
+/**
+ * Steps of a transactional send that are timed separately, tagged as {@code stage} on the
+ * {@code notification.stage} timer.
+ */
+public enum Stage {
+
+    PREFERENCE_LOOKUP("preference_lookup"),
+    RENDER("render"),
+    MIME_BUILD("mime_build"),
+    SMTP_SEND("smtp_send"),
+    PERSIST("persist");
+
+    private final String tag;
+
+    Stage(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,5 @@
+package app.notificationsvc.model;
+
+public enum CampaignStatus {
+    SCHEDULED, RUNNING, COMPLETED, CANCELLED, FAILED
+}
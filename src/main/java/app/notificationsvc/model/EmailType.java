@@ -5,7 +5,8 @@ public enum EmailType {
     NEWSLETTER("newsletter-email"),
     ORDER_CONFIRMATION("order-confirmation-email"),
     NEW_ORDER("new-order-email"),
-    SHIPPED_ORDER("shipped-order-email");
+    SHIPPED_ORDER("shipped-order-email"),
+    DIGEST("digest-email");
 
     private final String template;
 
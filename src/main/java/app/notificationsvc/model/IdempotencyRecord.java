@@ -0,0 +1,43 @@
+package app.notificationsvc.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder(toBuilder = true)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_record_expires_on", columnList = "expires_on"))
+public class IdempotencyRecord implements Persistable<String> {
+
+    // SHA-256 of the idempotency key, so client supplied keys of any length fit the column
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    // Null while the request holding the key is still sending
+    private UUID notificationId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    // End of the reservation while notificationId is null, end of the replay window after that
+    @Column(nullable = false)
+    private LocalDateTime expiresOn;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        isNew = false;
+    }
+}
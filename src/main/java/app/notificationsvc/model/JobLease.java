@@ -0,0 +1,41 @@
+package app.notificationsvc.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease on a job that only one instance may run at a time, such as the retention purge.
+ */
+@Builder(toBuilder = true)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_lease")
+public class JobLease implements Persistable<String> {
+
+    // Name of the job
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(length = 64)
+    private String claimedBy;
+
+    @Column(nullable = false)
+    private LocalDateTime leasedUntil;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        isNew = false;
+    }
+}
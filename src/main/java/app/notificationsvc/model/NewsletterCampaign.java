@@ -0,0 +1,80 @@
+package app.notificationsvc.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A newsletter sent at a paced rate from {@code startOn}, either {@code sendRate} recipients per
+ * second or the whole audience spread evenly over {@code spreadOver}. When staggered by time zone,
+ * {@code startOn} is a wall clock time that every recipient reaches in their own zone. A running
+ * campaign is leased to the instance sending it.
+ * <p>
+ * The checkpoint is the high-water mark of the send: the wave and the last {@code userId} of the
+ * last slice that was completely sent. It is written together with the counts, so a resumed
+ * campaign continues right after it.
+ */
+@Builder(toBuilder = true)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "newsletter_campaign", indexes = @Index(name = "idx_newsletter_campaign_status_release", columnList = "status, release_from"))
+public class NewsletterCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CampaignStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime startOn;
+
+    private Integer sendRate;
+
+    private Duration spreadOver;
+
+    @Column(nullable = false)
+    private boolean staggerByTimeZone;
+
+    // Earliest time any recipient is due, the start of the first time zone when staggered
+    @Column(nullable = false)
+    private LocalDateTime releaseFrom;
+
+    @Column(length = 64)
+    private String claimedBy;
+
+    private LocalDateTime leasedUntil;
+
+    // Time zone of the checkpoint's wave, null for the default time zone or an unstaggered campaign
+    private String checkpointTimeZone;
+
+    private UUID checkpointUserId;
+
+    // Times the campaign was taken over after its instance stopped renewing the lease
+    @Column(nullable = false)
+    private int resumes;
+
+    @Column(nullable = false)
+    private long sent;
+
+    @Column(nullable = false)
+    private long failed;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    private LocalDateTime startedOn;
+
+    private LocalDateTime finishedOn;
+}
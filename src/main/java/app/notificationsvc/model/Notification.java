@@ -3,6 +3,7 @@ package app.notificationsvc.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -13,11 +14,19 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-public class Notification {
+@Table(indexes = {
+        @Index(name = "idx_notification_status_next_attempt", columnList = "status, next_attempt_on"),
+        @Index(name = "idx_notification_user_created", columnList = "user_id, created_on, id"),
+        @Index(name = "idx_notification_user_status_created", columnList = "user_id, status, created_on, id"),
+        @Index(name = "idx_notification_created", columnList = "created_on, id"),
+        @Index(name = "idx_notification_campaign_user", columnList = "campaign_id, user_id")
+})
+public class Notification implements Persistable<UUID> {
 
+    // Assigned up front so callers know the id before the write-behind log flushes the row
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private UUID id;
+    @Builder.Default
+    private UUID id = UUID.randomUUID();
 
     @Column(nullable = false)
     private UUID userId;
@@ -36,4 +45,35 @@ public class Notification {
     @Column(nullable = false)
     private LocalDateTime createdOn;
 
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    private LocalDateTime nextAttemptOn;
+
+    // Rendered body, kept only while a retry is pending
+    @Lob
+    private String body;
+
+    private String lastError;
+
+    // Set on newsletter campaign sends, so a resumed campaign can tell who its in-flight slice already reached
+    private UUID campaignId;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @PrePersist
+    void assignId() {
+        if (id == null) {
+            id = UUID.randomUUID();
+        }
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        isNew = false;
+    }
 }
@@ -31,6 +31,9 @@ public class NotificationPreference {
     @Column(nullable = false)
     private String contactData;
 
+    // Zone id newsletter campaigns stagger by, null means the campaign default
+    private String timeZone;
+
     @Column(nullable = false)
     private LocalDateTime createdOn;
 
@@ -1,5 +1,5 @@
 package app.notificationsvc.model;
 
 public enum NotificationStatus {
-    FAILED, SENT
+    QUEUED, RETRYING, FAILED, DEAD, SENT
 }
@@ -1,5 +1,6 @@
 package app.notificationsvc.model;
 
 public enum NotificationType {
-    EMAIL
+    EMAIL,
+    WEBHOOK
 }
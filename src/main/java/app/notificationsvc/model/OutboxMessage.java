@@ -0,0 +1,61 @@
+package app.notificationsvc.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A queued notification waiting to be sent, written in the same transaction as its
+ * {@link Notification} row. Any instance may claim it once {@code availableOn} has passed, which
+ * moves {@code availableOn} to the end of the claim's lease.
+ */
+@Builder(toBuilder = true)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notification_outbox", indexes = @Index(name = "idx_notification_outbox_available_on", columnList = "available_on, created_on"))
+public class OutboxMessage implements Persistable<UUID> {
+
+    @Id
+    private UUID notificationId;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Lob
+    @Column(nullable = false)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    @Column(nullable = false)
+    private LocalDateTime availableOn;
+
+    @Column(length = 64)
+    private String claimedBy;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int claims = 0;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @Override
+    public UUID getId() {
+        return notificationId;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        isNew = false;
+    }
+}
@@ -0,0 +1,6 @@
+package app.notificationsvc.model;
+
+import java.util.UUID;
+
+public record Recipient(UUID userId, String contactData) {
+}
@@ -0,0 +1,15 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Columns of an expired notification that are archived before it is removed. Leaves out the
+ * rendered body and skips entity management, which is most of the cost of loading a batch.
+ */
+public record ExpiredNotification(UUID id, UUID userId, EmailType emailType, NotificationStatus status, String subject,
+                                  LocalDateTime createdOn, int attempts, String lastError, UUID campaignId) {
+}
@@ -0,0 +1,54 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresOn < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Reserves an expired key again. Returns 0 if another request took it over first.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.notificationId = NULL, r.createdOn = :now, r.expiresOn = :reservedUntil WHERE r.id = :id AND r.expiresOn <= :now")
+    int takeOver(@Param("id") String id, @Param("now") LocalDateTime now, @Param("reservedUntil") LocalDateTime reservedUntil);
+
+    /**
+     * Extends a reservation whose send is still running. Returns 0 if it has already completed,
+     * been released or run out.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.expiresOn = :reservedUntil WHERE r.id = :id AND r.notificationId IS NULL AND r.expiresOn > :now")
+    int renew(@Param("id") String id, @Param("now") LocalDateTime now, @Param("reservedUntil") LocalDateTime reservedUntil);
+
+    /**
+     * Stores the notification a reservation ended in, which duplicates replay from then on.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.notificationId = :notificationId, r.expiresOn = :expiresOn WHERE r.id = :id AND r.notificationId IS NULL")
+    int complete(@Param("id") String id, @Param("notificationId") UUID notificationId, @Param("expiresOn") LocalDateTime expiresOn);
+
+    /**
+     * Drops a reservation whose send failed, so the key can be tried again.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.notificationId IS NULL")
+    int release(@Param("id") String id);
+}
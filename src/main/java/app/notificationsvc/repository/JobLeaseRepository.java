@@ -0,0 +1,29 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    /**
+     * Takes the lease if it ran out, or extends it if the instance already holds it. Returns 0 while
+     * another instance holds it, or if the lease row does not exist yet.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.claimedBy = :claimedBy, l.leasedUntil = :leasedUntil WHERE l.id = :id AND (l.claimedBy = :claimedBy OR l.leasedUntil < :now)")
+    int acquire(@Param("id") String id, @Param("claimedBy") String claimedBy, @Param("leasedUntil") LocalDateTime leasedUntil, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.claimedBy = NULL, l.leasedUntil = :now WHERE l.id = :id AND l.claimedBy = :claimedBy")
+    int release(@Param("id") String id, @Param("claimedBy") String claimedBy, @Param("now") LocalDateTime now);
+}
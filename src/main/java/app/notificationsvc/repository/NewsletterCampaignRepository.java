@@ -0,0 +1,83 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.CampaignStatus;
+import app.notificationsvc.model.NewsletterCampaign;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NewsletterCampaignRepository extends JpaRepository<NewsletterCampaign, UUID> {
+
+    List<NewsletterCampaign> findByStatusAndReleaseFromLessThanEqualOrderByReleaseFromAsc(CampaignStatus status, LocalDateTime releaseFrom, Limit limit);
+
+    /**
+     * Leases a scheduled campaign to one instance. Returns 0 if another instance claimed it first or
+     * it was cancelled. A resumed campaign keeps the time it first started.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.status = app.notificationsvc.model.CampaignStatus.RUNNING, c.claimedBy = :claimedBy, c.leasedUntil = :leasedUntil, c.startedOn = COALESCE(c.startedOn, :now) "
+            + "WHERE c.id = :id AND c.status = app.notificationsvc.model.CampaignStatus.SCHEDULED")
+    int claim(@Param("id") UUID id, @Param("claimedBy") String claimedBy, @Param("leasedUntil") LocalDateTime leasedUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * Extends the lease and commits the checkpoint with the counts it covers. Returns 0 once the
+     * campaign was cancelled or its lease lost.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.leasedUntil = :leasedUntil, c.sent = :sent, c.failed = :failed, "
+            + "c.checkpointTimeZone = :checkpointTimeZone, c.checkpointUserId = :checkpointUserId "
+            + "WHERE c.id = :id AND c.claimedBy = :claimedBy AND c.status = app.notificationsvc.model.CampaignStatus.RUNNING")
+    int renewLease(@Param("id") UUID id, @Param("claimedBy") String claimedBy, @Param("leasedUntil") LocalDateTime leasedUntil, @Param("sent") long sent, @Param("failed") long failed,
+                   @Param("checkpointTimeZone") String checkpointTimeZone, @Param("checkpointUserId") UUID checkpointUserId);
+
+    /**
+     * Hands a running campaign back to be claimed again, by any instance, from its last checkpoint.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.status = app.notificationsvc.model.CampaignStatus.SCHEDULED, c.claimedBy = NULL, c.leasedUntil = NULL "
+            + "WHERE c.id = :id AND c.claimedBy = :claimedBy AND c.status = app.notificationsvc.model.CampaignStatus.RUNNING")
+    int release(@Param("id") UUID id, @Param("claimedBy") String claimedBy);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.status = :status, c.sent = :sent, c.failed = :failed, c.finishedOn = :now, c.claimedBy = NULL, c.leasedUntil = NULL "
+            + "WHERE c.id = :id AND c.claimedBy = :claimedBy AND c.status = app.notificationsvc.model.CampaignStatus.RUNNING")
+    int finish(@Param("id") UUID id, @Param("claimedBy") String claimedBy, @Param("status") CampaignStatus status, @Param("sent") long sent, @Param("failed") long failed, @Param("now") LocalDateTime now);
+
+    /**
+     * Reschedules running campaigns whose instance stopped renewing the lease, so they resume from
+     * their checkpoint, unless they were already resumed {@code maxResumes} times.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.status = app.notificationsvc.model.CampaignStatus.SCHEDULED, c.claimedBy = NULL, c.leasedUntil = NULL, c.resumes = c.resumes + 1 "
+            + "WHERE c.status = app.notificationsvc.model.CampaignStatus.RUNNING AND c.leasedUntil < :now AND c.resumes < :maxResumes")
+    int resumeAbandoned(@Param("now") LocalDateTime now, @Param("maxResumes") int maxResumes);
+
+    /**
+     * Fails running campaigns whose instance stopped renewing the lease and that cannot be resumed again.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.status = app.notificationsvc.model.CampaignStatus.FAILED, c.finishedOn = :now, c.claimedBy = NULL, c.leasedUntil = NULL "
+            + "WHERE c.status = app.notificationsvc.model.CampaignStatus.RUNNING AND c.leasedUntil < :now")
+    int failAbandoned(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsletterCampaign c SET c.status = app.notificationsvc.model.CampaignStatus.CANCELLED, c.finishedOn = :now, c.claimedBy = NULL, c.leasedUntil = NULL "
+            + "WHERE c.id = :id AND c.status IN (app.notificationsvc.model.CampaignStatus.SCHEDULED, app.notificationsvc.model.CampaignStatus.RUNNING)")
+    int cancel(@Param("id") UUID id, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,14 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only row of a user's notification history. Selecting only these columns keeps the
+ * rendered body out of the result and skips entity management.
+ */
+public record NotificationHistoryEntry(UUID id, EmailType emailType, NotificationStatus status, String subject, LocalDateTime createdOn, int attempts) {
+}
@@ -1,17 +1,42 @@
 package app.notificationsvc.repository;
 
 import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.Recipient;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface NotificationPreferenceRepository extends JpaRepository<NotificationPreference, UUID> {
+public interface NotificationPreferenceRepository extends JpaRepository<NotificationPreference, UUID>, PreferenceUpsertRepository {
 
     Optional<NotificationPreference> findByUserId(UUID id);
 
-    List<NotificationPreference> findAllByIsNewsletterEnabledTrue();
+    List<NotificationPreference> findAllByUserIdIn(Collection<UUID> userIds);
+
+    @Query("SELECT p.userId FROM NotificationPreference p WHERE p.userId IN :userIds")
+    List<UUID> findExistingUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    List<Recipient> findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(NotificationType type, Limit limit);
+
+    List<Recipient> findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType type, UUID userId, Limit limit);
+
+    long countByIsNewsletterEnabledTrueAndType(NotificationType type);
+
+    @Query("SELECT DISTINCT p.timeZone FROM NotificationPreference p WHERE p.isNewsletterEnabled = true AND p.type = :type")
+    List<String> findNewsletterTimeZones(@Param("type") NotificationType type);
+
+    // A null time zone matches the subscribers without one
+    List<Recipient> findByIsNewsletterEnabledTrueAndTypeAndTimeZoneOrderByUserIdAsc(NotificationType type, String timeZone, Limit limit);
+
+    List<Recipient> findByIsNewsletterEnabledTrueAndTypeAndTimeZoneAndUserIdGreaterThanOrderByUserIdAsc(NotificationType type, String timeZone, UUID userId, Limit limit);
+
+    long countByIsNewsletterEnabledTrueAndTypeAndTimeZone(NotificationType type, String timeZone);
 }
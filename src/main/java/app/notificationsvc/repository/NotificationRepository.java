@@ -1,12 +1,91 @@
 package app.notificationsvc.repository;
 
+import app.notificationsvc.model.EmailType;
 import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
+
+    List<Notification> findByStatusAndNextAttemptOnLessThanEqualOrderByNextAttemptOnAsc(NotificationStatus status, LocalDateTime dueOn, Limit limit);
+
+    /**
+     * First page of a user's history, newest first. Type and status are optional filters.
+     */
+    @Query("""
+            SELECT new app.notificationsvc.repository.NotificationHistoryEntry(n.id, n.emailType, n.status, n.subject, n.createdOn, n.attempts)
+            FROM Notification n
+            WHERE n.userId = :userId
+              AND (:emailType IS NULL OR n.emailType = :emailType)
+              AND (:status IS NULL OR n.status = :status)
+            ORDER BY n.createdOn DESC, n.id DESC
+            """)
+    List<NotificationHistoryEntry> findHistory(@Param("userId") UUID userId, @Param("emailType") EmailType emailType, @Param("status") NotificationStatus status, Limit limit);
+
+    /**
+     * Next page of a user's history, seeking past the last row of the previous page on
+     * {@code (createdOn, id)} so the index is entered at the cursor instead of skipping an offset.
+     */
+    @Query("""
+            SELECT new app.notificationsvc.repository.NotificationHistoryEntry(n.id, n.emailType, n.status, n.subject, n.createdOn, n.attempts)
+            FROM Notification n
+            WHERE n.userId = :userId
+              AND (:emailType IS NULL OR n.emailType = :emailType)
+              AND (:status IS NULL OR n.status = :status)
+              AND (n.createdOn, n.id) < (:createdOn, :id)
+            ORDER BY n.createdOn DESC, n.id DESC
+            """)
+    List<NotificationHistoryEntry> findHistoryBefore(@Param("userId") UUID userId, @Param("emailType") EmailType emailType, @Param("status") NotificationStatus status, @Param("createdOn") LocalDateTime createdOn, @Param("id") UUID id, Limit limit);
+
+    /**
+     * First batch of notifications in the given statuses created in {@code [from, before)}, oldest first.
+     */
+    @Query("""
+            SELECT new app.notificationsvc.repository.ExpiredNotification(n.id, n.userId, n.emailType, n.status, n.subject, n.createdOn, n.attempts, n.lastError, n.campaignId)
+            FROM Notification n
+            WHERE n.status IN :statuses
+              AND n.createdOn >= :from
+              AND n.createdOn < :before
+            ORDER BY n.createdOn ASC, n.id ASC
+            """)
+    List<ExpiredNotification> findExpired(@Param("statuses") Collection<NotificationStatus> statuses, @Param("from") LocalDateTime from, @Param("before") LocalDateTime before, Limit limit);
+
+    /**
+     * Next batch of expired notifications, seeking past the last row of the previous batch on {@code (createdOn, id)}.
+     */
+    @Query("""
+            SELECT new app.notificationsvc.repository.ExpiredNotification(n.id, n.userId, n.emailType, n.status, n.subject, n.createdOn, n.attempts, n.lastError, n.campaignId)
+            FROM Notification n
+            WHERE n.status IN :statuses
+              AND n.createdOn < :before
+              AND (n.createdOn, n.id) > (:createdOn, :id)
+            ORDER BY n.createdOn ASC, n.id ASC
+            """)
+    List<ExpiredNotification> findExpiredAfter(@Param("statuses") Collection<NotificationStatus> statuses, @Param("before") LocalDateTime before, @Param("createdOn") LocalDateTime createdOn, @Param("id") UUID id, Limit limit);
+
+    /**
+     * Which of the given users already have a notification from the campaign, whatever its status.
+     */
+    @Query("SELECT n.userId FROM Notification n WHERE n.campaignId = :campaignId AND n.userId IN :userIds")
+    List<UUID> findCampaignRecipients(@Param("campaignId") UUID campaignId, @Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * Moves a due retry's next attempt to the end of its lease. Returns 0 if another poller claimed it first.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.nextAttemptOn = :leaseUntil WHERE n.id = :id AND n.status = :status AND n.nextAttemptOn = :dueOn")
+    int claim(@Param("id") UUID id, @Param("status") NotificationStatus status, @Param("dueOn") LocalDateTime dueOn, @Param("leaseUntil") LocalDateTime leaseUntil);
 }
@@ -0,0 +1,51 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, UUID> {
+
+    /**
+     * Locks up to {@code limit} claimable messages, oldest first. Rows locked by another instance's
+     * claim are skipped rather than waited for (a lock timeout of -2 is Hibernate's
+     * {@code SKIP LOCKED}), so concurrent pollers each take a disjoint batch. Must run in a
+     * transaction that also moves the lease.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.availableOn <= :now ORDER BY m.availableOn ASC, m.createdOn ASC")
+    List<OutboxMessage> lockClaimable(@Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Hands claimed messages back so the next poll of any instance can take them. They were never
+     * attempted, so their claim is given back too.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxMessage m SET m.availableOn = :now, m.claimedBy = NULL, m.claims = m.claims - 1 WHERE m.notificationId IN :ids AND m.claimedBy = :claimedBy")
+    int release(@Param("ids") Collection<UUID> ids, @Param("claimedBy") String claimedBy, @Param("now") LocalDateTime now);
+
+    /**
+     * Removes a sent message. Returns 0 if its lease ran out and another instance claimed it since.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxMessage m WHERE m.notificationId = :id AND m.claimedBy = :claimedBy")
+    int deleteClaimed(@Param("id") UUID id, @Param("claimedBy") String claimedBy);
+}
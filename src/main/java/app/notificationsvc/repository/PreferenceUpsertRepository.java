@@ -0,0 +1,15 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.NotificationPreference;
+
+import java.util.List;
+
+public interface PreferenceUpsertRepository {
+
+    /**
+     * Inserts the preferences, or updates type, newsletter flag and contact data of the ones whose
+     * user already has a preference, with one native statement. Ids and creation dates of existing
+     * preferences are kept. Must run in a transaction.
+     */
+    void upsertAll(List<NotificationPreference> preferences);
+}
@@ -0,0 +1,62 @@
+package app.notificationsvc.repository;
+
+import app.notificationsvc.model.NotificationPreference;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.query.TypedParameterValue;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE} on the unique {@code user_id}, which MySQL
+ * and H2 in MySQL mode both run. A chunk of preferences is one round trip instead of a lookup and a
+ * merge per user. Parameters are bound through Hibernate so UUIDs get the column type of the dialect.
+ * A statement carries at most {@link #MAX_ROWS_PER_STATEMENT} rows, since MySQL refuses a prepared
+ * statement with more than 65535 placeholders. Larger lists are split over several statements.
+ */
+public class PreferenceUpsertRepositoryImpl implements PreferenceUpsertRepository {
+
+    private static final String INSERT = "INSERT INTO notification_preference (id, user_id, is_newsletter_enabled, type, contact_data, time_zone, created_on, updated_on) VALUES ";
+
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int PARAMETERS_PER_ROW = 8;
+
+    static final int MAX_ROWS_PER_STATEMENT = 65_535 / PARAMETERS_PER_ROW;
+
+    private static final String ON_DUPLICATE_KEY = " ON DUPLICATE KEY UPDATE is_newsletter_enabled = VALUES(is_newsletter_enabled), type = VALUES(type), contact_data = VALUES(contact_data), time_zone = VALUES(time_zone), updated_on = VALUES(updated_on)";
+
+    private final EntityManager entityManager;
+
+    public PreferenceUpsertRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void upsertAll(List<NotificationPreference> preferences) {
+        for (int from = 0; from < preferences.size(); from += MAX_ROWS_PER_STATEMENT) {
+            upsert(preferences.subList(from, Math.min(preferences.size(), from + MAX_ROWS_PER_STATEMENT)));
+        }
+    }
+
+    private void upsert(List<NotificationPreference> preferences) {
+        Query query = entityManager.createNativeQuery(INSERT + String.join(", ", Collections.nCopies(preferences.size(), ROW)) + ON_DUPLICATE_KEY);
+
+        int position = 1;
+        for (NotificationPreference preference : preferences) {
+            query.setParameter(position++, preference.getId());
+            query.setParameter(position++, preference.getUserId());
+            query.setParameter(position++, preference.isNewsletterEnabled());
+            query.setParameter(position++, preference.getType().name());
+            query.setParameter(position++, preference.getContactData());
+            // Typed, so a null time zone binds as a varchar rather than an unknown type
+            query.setParameter(position++, new TypedParameterValue<>(StandardBasicTypes.STRING, preference.getTimeZone()));
+            query.setParameter(position++, preference.getCreatedOn());
+            query.setParameter(position++, preference.getUpdatedOn());
+        }
+
+        query.executeUpdate();
+    }
+}
@@ -0,0 +1,17 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.web.dto.TransactionalEmailRequest;
+
+/**
+ * One element of a batch request, either parsed into a request or rejected with an error.
+ */
+public record BatchEmailItem(int index, TransactionalEmailRequest request, String error) {
+
+    static BatchEmailItem parsed(int index, TransactionalEmailRequest request) {
+        return new BatchEmailItem(index, request, null);
+    }
+
+    static BatchEmailItem rejected(int index, String error) {
+        return new BatchEmailItem(index, null, error);
+    }
+}
@@ -0,0 +1,119 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidBatchException;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.web.dto.OrderCreateEmailRequest;
+import app.notificationsvc.web.dto.OrderShippedEmailRequest;
+import app.notificationsvc.web.dto.TransactionalEmailRequest;
+import app.notificationsvc.web.dto.WelcomeEmailRequest;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a JSON array of mixed transactional email requests from a stream and hands them over in
+ * chunks. Only one chunk is held in memory at a time, whatever the array's length. The element's
+ * {@code emailType} selects the request class. An element that cannot be read or breaks the request
+ * class's constraints is passed on as a rejected item, so the rest of the batch is still processed.
+ */
+@Component
+public class BatchEmailReader {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final NotificationProperties.Batch properties;
+
+    public BatchEmailReader(ObjectMapper objectMapper, Validator validator, NotificationProperties notificationProperties) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.properties = notificationProperties.getBatch();
+    }
+
+    public void read(InputStream body, Consumer<List<BatchEmailItem>> chunkConsumer) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidBatchException("Batch body must be a JSON array");
+            }
+
+            List<BatchEmailItem> chunk = new ArrayList<>(properties.getChunkSize());
+            int index = 0;
+
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index >= properties.getMaxItems()) {
+                    throw new InvalidBatchException("Batch has more than " + properties.getMaxItems() + " items");
+                }
+
+                JsonNode element = parser.readValueAsTree();
+                chunk.add(toItem(index++, element));
+
+                if (chunk.size() == properties.getChunkSize()) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(properties.getChunkSize());
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        } catch (IOException e) {
+            throw new InvalidBatchException("Batch body is not valid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private BatchEmailItem toItem(int index, JsonNode element) {
+        if (element == null || !element.isObject()) {
+            return BatchEmailItem.rejected(index, "Item is not a JSON object");
+        }
+
+        EmailType emailType;
+        try {
+            emailType = EmailType.valueOf(element.path("emailType").asText());
+        } catch (IllegalArgumentException e) {
+            return BatchEmailItem.rejected(index, "Unsupported emailType: " + element.path("emailType").asText());
+        }
+
+        Class<? extends TransactionalEmailRequest> requestType = switch (emailType) {
+            case WELCOME -> WelcomeEmailRequest.class;
+            case NEW_ORDER, ORDER_CONFIRMATION -> OrderCreateEmailRequest.class;
+            case SHIPPED_ORDER -> OrderShippedEmailRequest.class;
+            default -> null;
+        };
+
+        if (requestType == null) {
+            return BatchEmailItem.rejected(index, "Email type " + emailType + " cannot be sent in a batch");
+        }
+
+        try {
+            return validated(index, objectMapper.treeToValue(element, requestType));
+        } catch (JsonProcessingException e) {
+            return BatchEmailItem.rejected(index, "Invalid " + emailType + " item: " + e.getOriginalMessage());
+        }
+    }
+
+    private BatchEmailItem validated(int index, TransactionalEmailRequest request) {
+        String violations = validator.validate(request).stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(BatchEmailReader::describe)
+                .collect(Collectors.joining("; "));
+
+        return violations.isEmpty() ? BatchEmailItem.parsed(index, request) : BatchEmailItem.rejected(index, violations);
+    }
+
+    private static String describe(ConstraintViolation<TransactionalEmailRequest> violation) {
+        return violation.getPropertyPath() + " " + violation.getMessage();
+    }
+}
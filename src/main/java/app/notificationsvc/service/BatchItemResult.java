@@ -0,0 +1,16 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.model.NotificationStatus;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one batch item. A rejected item has an error and no notification. A replayed
+ * duplicate has the original notification id and no status.
+ */
+public record BatchItemResult(int index, UUID notificationId, NotificationStatus status, boolean replayed, String error) {
+
+    static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, null, null, false, error);
+    }
+}
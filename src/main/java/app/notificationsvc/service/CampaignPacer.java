@@ -0,0 +1,25 @@
+package app.notificationsvc.service;
+
+import java.time.Duration;
+
+/**
+ * Splits a send rate into slices of {@code sliceSize} recipients released every {@code intervalNanos}.
+ * Slices are as large as the rate allows in one slice interval, but never larger than {@code maxSliceSize}
+ * and never empty. The interval is then stretched or shrunk so the slices add up to the rate exactly.
+ */
+record CampaignPacer(int sliceSize, long intervalNanos) {
+
+    static CampaignPacer of(double ratePerSecond, Duration sliceInterval, int maxSliceSize) {
+        long perInterval = Math.round(ratePerSecond * sliceInterval.toNanos() / 1e9);
+        int sliceSize = Math.clamp(perInterval, 1, maxSliceSize);
+
+        return new CampaignPacer(sliceSize, Math.round(sliceSize * 1e9 / ratePerSecond));
+    }
+
+    /**
+     * The rate that sends {@code recipients} evenly over {@code spreadOver}.
+     */
+    static double rateFor(long recipients, Duration spreadOver) {
+        return Math.max(1, recipients) * 1e9 / Math.max(1, spreadOver.toNanos());
+    }
+}
@@ -0,0 +1,4 @@
+package app.notificationsvc.service;
+
+public record CoalescerStats(int bufferedUsers, int bufferedEmails, long digests, long coalescedEmails, long bypassed) {
+}
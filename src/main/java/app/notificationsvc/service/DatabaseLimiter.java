@@ -0,0 +1,58 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DatabaseBusyException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of threads doing database work at the same time. With virtual threads every
+ * request gets its own thread, so without this cap a burst would queue thousands of threads on the
+ * JDBC pool and fail them all at once when its connection timeout runs out. Instead, waiting is
+ * fair and short, and the caller gets a 503 with Retry-After.
+ */
+@Component
+public class DatabaseLimiter {
+
+    private final Semaphore permits;
+    private final NotificationProperties.Concurrency properties;
+
+    public DatabaseLimiter(NotificationProperties notificationProperties) {
+        this.properties = notificationProperties.getConcurrency();
+        this.permits = new Semaphore(properties.getDatabasePermits(), true);
+    }
+
+    public <T> T call(Supplier<T> work) {
+        acquire();
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(properties.getPermitTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new DatabaseBusyException(properties.getRetryAfter());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException(properties.getRetryAfter());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.exception.DispatchQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded in-process queue used by the async send mode. Work is rejected instead of queued
+ * without limit, so a slow transport surfaces as 429 responses rather than growing latency.
+ * <p>
+ * Tasks are spread over {@code workers} lanes, one per available processor when {@code workers}
+ * is zero, and each lane is drained by a single thread. A task submitted with a key, such as a user
+ * id, always goes to the lane the key hashes to, so tasks with the same key run one at a time in
+ * submission order while different keys run in parallel. Tasks without a key carry no ordering, and
+ * a lane that runs out of work steals them from busier lanes. Submitting threads hand tasks to a
+ * lane through lock-free queues and never block.
+ * <p>
+ * With virtual threads the lane threads are virtual, and tasks without a key skip the lanes and
+ * each run on a virtual thread of their own, as they carry no ordering a lane would have to keep.
+ * Both modes accept up to {@code workers + queueCapacity} tasks.
+ */
+@Slf4j
+public class DispatchQueue {
+
+    // An idle lane wakes up this often to look for work it can steal
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String name;
+    private final Lane[] lanes;
+    // Runs tasks without a key in virtual thread mode, null in platform mode
+    private final ExecutorService unorderedThreads;
+    private final int capacity;
+    private final Duration retryAfter;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private final AtomicLong stolen = new AtomicLong();
+    private volatile boolean running = true;
+
+    public DispatchQueue(String name, int workers, int queueCapacity, Duration retryAfter, boolean virtualThreads) {
+        int laneCount = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+
+        this.name = name;
+        this.capacity = laneCount + queueCapacity;
+        this.retryAfter = retryAfter;
+
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name(name + "-", 0).factory()
+                : new CustomizableThreadFactory(name + "-");
+
+        this.unorderedThreads = virtualThreads ? Executors.newThreadPerTaskExecutor(threadFactory) : null;
+
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, threadFactory);
+        }
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Queues a task that may run in any order relative to other tasks.
+     */
+    public void submit(Runnable task) {
+        submit(null, task);
+    }
+
+    /**
+     * Queues a task behind every earlier task submitted with an equal key. A {@code null} key
+     * means the task has no ordering constraint.
+     *
+     * @throws DispatchQueueFullException if {@code workers + queueCapacity} tasks are already
+     *                                    queued or running
+     */
+    public void submit(Object key, Runnable task) {
+        if (!running || !reserve()) {
+            throw new DispatchQueueFullException(retryAfter);
+        }
+
+        if (key != null) {
+            lanes[laneOf(key)].offer(task, true);
+        } else if (unorderedThreads != null) {
+            try {
+                unorderedThreads.execute(() -> run(task));
+            } catch (RejectedExecutionException e) {
+                // Shut down between the running check and here
+                pending.decrementAndGet();
+                throw new DispatchQueueFullException(retryAfter);
+            }
+        } else {
+            pickLaneForUnordered().offer(task, false);
+        }
+    }
+
+    /**
+     * Tasks waiting for their lane, not counting the ones running.
+     */
+    public int size() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.depth.get();
+        }
+        return size;
+    }
+
+    public int remainingCapacity() {
+        return Math.max(0, capacity - pending.get());
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Tasks waiting on one lane. One lane much deeper than the others points at a hot key.
+     */
+    public int laneDepth(int lane) {
+        return lanes[lane].depth.get();
+    }
+
+    public long getStolen() {
+        return stolen.get();
+    }
+
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for (Lane lane : lanes) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis > 0) {
+                lane.thread.join(remainingMillis);
+            }
+        }
+        if (unorderedThreads != null) {
+            unorderedThreads.shutdown();
+            if (!unorderedThreads.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("Dispatch queue {} did not finish its unordered tasks in time", name);
+                unorderedThreads.shutdownNow();
+            }
+        }
+
+        int dropped = size();
+        if (dropped > 0) {
+            log.warn("Dispatch queue {} did not drain in time, {} tasks dropped", name, dropped);
+            for (Lane lane : lanes) {
+                lane.thread.interrupt();
+            }
+        }
+    }
+
+    int laneOf(Object key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    private boolean reserve() {
+        int current;
+        do {
+            current = pending.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!pending.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private Lane pickLaneForUnordered() {
+        int start = Math.floorMod(nextLane.getAndIncrement(), lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = lanes[(start + i) % lanes.length];
+            if (lane.parked.get()) {
+                return lane;
+            }
+        }
+        return lanes[start];
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            // A lane has to outlive any task, or the keys hashed to it would stall
+            log.error("Queued {} task failed", name, e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private final class Lane {
+
+        private final int index;
+        private final Queue<Runnable> ordered = new ConcurrentLinkedQueue<>();
+        private final Queue<Runnable> unordered = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean parked = new AtomicBoolean();
+        private final Thread thread;
+
+        private Lane(int index, ThreadFactory threadFactory) {
+            this.index = index;
+            this.thread = threadFactory.newThread(this::drain);
+        }
+
+        private void offer(Runnable task, boolean keyed) {
+            // Counted before it is visible, so a lane that sees depth 0 never misses a task
+            depth.incrementAndGet();
+            (keyed ? ordered : unordered).offer(task);
+
+            if (parked.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable task = poll();
+                if (task == null) {
+                    task = steal();
+                }
+
+                if (task != null) {
+                    run(task);
+                } else if (!running && depth.get() == 0) {
+                    return;
+                } else {
+                    parked.set(true);
+                    if (depth.get() == 0 && running) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    parked.set(false);
+                }
+            }
+        }
+
+        private Runnable poll() {
+            Runnable task = ordered.poll();
+            if (task == null) {
+                task = unordered.poll();
+            }
+            if (task != null) {
+                depth.decrementAndGet();
+            }
+            return task;
+        }
+
+        // Keyed tasks are never stolen, that would let two tasks of one key run at once
+        private Runnable steal() {
+            for (int i = 1; i < lanes.length; i++) {
+                Lane victim = lanes[(index + i) % lanes.length];
+                Runnable task = victim.unordered.poll();
+                if (task != null) {
+                    victim.depth.decrementAndGet();
+                    stolen.incrementAndGet();
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+}
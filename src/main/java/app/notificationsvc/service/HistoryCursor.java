@@ -0,0 +1,35 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.exception.InvalidHistoryCursorException;
+import app.notificationsvc.repository.NotificationHistoryEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a user's history, the {@code (createdOn, id)} of the last row already returned.
+ * Clients get it as an opaque URL-safe token.
+ */
+record HistoryCursor(LocalDateTime createdOn, UUID id) {
+
+    static HistoryCursor after(NotificationHistoryEntry entry) {
+        return new HistoryCursor(entry.createdOn(), entry.id());
+    }
+
+    static HistoryCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+
+            return new HistoryCursor(LocalDateTime.parse(decoded.substring(0, separator)), UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidHistoryCursorException(token, e);
+        }
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((createdOn + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
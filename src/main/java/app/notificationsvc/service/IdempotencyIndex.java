@@ -0,0 +1,318 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.IdempotencyRecord;
+import app.notificationsvc.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Makes transactional sends idempotent. The first request for a key runs the send and remembers
+ * the resulting notification id. Duplicates get that id back without rendering or touching SMTP.
+ * Duplicates that arrive while the first request is still running wait for it. Recent keys live in
+ * a size-bounded in-memory index.
+ * <p>
+ * Before anything is sent, the key is reserved in the database by inserting its row, so when the
+ * same key reaches several instances at once only the one whose insert wins sends. The others wait
+ * for it to store its notification id and replay that. Keys are therefore also caught after
+ * eviction or a restart. While the send runs, its reservation is renewed every third of
+ * {@code reservation-timeout}, so a send that waits on rate limits or connections longer than that
+ * keeps its key. A reservation whose instance died stops being renewed and is taken over after
+ * {@code reservation-timeout}.
+ */
+@Slf4j
+@Component
+public class IdempotencyIndex {
+
+    private record Entry(CompletableFuture<UUID> result, long expiresAtNanos) {
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final DatabaseLimiter databaseLimiter;
+    private final NotificationProperties.Idempotency properties;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService renewer;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public IdempotencyIndex(IdempotencyRecordRepository recordRepository, DatabaseLimiter databaseLimiter, NotificationProperties notificationProperties) {
+        this.recordRepository = recordRepository;
+        this.databaseLimiter = databaseLimiter;
+        this.properties = notificationProperties.getIdempotency();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("idempotency-renewal-");
+        threadFactory.setDaemon(true);
+        this.renewer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Builds the key for a send. A client supplied Idempotency-Key is scoped to the user. Without
+     * one, the key is derived from the user, the email type and the order, so the same order email
+     * requested twice is sent once. Returns null when nothing identifies the send, which disables
+     * deduplication for it.
+     */
+    public static String keyFor(String clientKey, UUID userId, EmailType emailType, Long orderId) {
+        if (userId == null) {
+            return null;
+        }
+
+        if (clientKey != null && !clientKey.isBlank()) {
+            return "client:" + userId + ":" + clientKey;
+        }
+
+        boolean perOrder = emailType == EmailType.NEW_ORDER || emailType == EmailType.SHIPPED_ORDER;
+        if (perOrder && orderId == null) {
+            return null;
+        }
+
+        return "derived:" + userId + ":" + emailType + (perOrder ? ":" + orderId : "");
+    }
+
+    public SendResult execute(String key, Supplier<UUID> send) {
+        if (key == null) {
+            return new SendResult(send.get(), false);
+        }
+
+        String id = hash(key);
+
+        while (true) {
+            long now = System.nanoTime();
+            Entry existing = entries.get(id);
+
+            if (existing != null && existing.result().isDone() && existing.isExpired(now)) {
+                entries.remove(id, existing);
+                continue;
+            }
+
+            if (existing == null) {
+                Entry entry = new Entry(new CompletableFuture<>(), now + properties.getTtl().toNanos());
+                existing = entries.putIfAbsent(id, entry);
+
+                if (existing == null) {
+                    return executeFirst(id, entry, send);
+                }
+            }
+
+            UUID notificationId;
+            try {
+                notificationId = existing.result().join();
+            } catch (CompletionException e) {
+                // The first request failed and already released the key, so this one may try again
+                continue;
+            }
+
+            replayed.incrementAndGet();
+            return new SendResult(notificationId, true);
+        }
+    }
+
+    public IdempotencyStats stats() {
+        return new IdempotencyStats(entries.size(), executed.get(), replayed.get(), persistentHits.get(), evictions.get());
+    }
+
+    @Scheduled(initialDelayString = "${notification.idempotency.purge-interval:1h}", fixedDelayString = "${notification.idempotency.purge-interval:1h}")
+    public void purgeExpired() {
+        int purged = databaseLimiter.call(() -> recordRepository.deleteExpired(LocalDateTime.now()));
+
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private SendResult executeFirst(String id, Entry entry, Supplier<UUID> send) {
+        try {
+            UUID stored = reserve(id);
+
+            if (stored != null) {
+                persistentHits.incrementAndGet();
+                replayed.incrementAndGet();
+                entry.result().complete(stored);
+                return new SendResult(stored, true);
+            }
+
+            UUID notificationId;
+            ScheduledFuture<?> renewal = renewWhileSending(id);
+            try {
+                notificationId = send.get();
+            } catch (RuntimeException e) {
+                release(id);
+                throw e;
+            } finally {
+                renewal.cancel(false);
+            }
+
+            executed.incrementAndGet();
+            entry.result().complete(notificationId);
+            complete(id, notificationId);
+
+            if (entries.size() > properties.getMaxSize()) {
+                evict();
+            }
+
+            return new SendResult(notificationId, false);
+        } catch (RuntimeException e) {
+            entries.remove(id, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves the key in the database. Returns null once this request holds the reservation, or the
+     * notification id of an earlier request to replay. Waits while another instance is sending for the key.
+     */
+    private UUID reserve(String id) {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime reservedUntil = now.plus(properties.getReservationTimeout());
+            Optional<IdempotencyRecord> stored = databaseLimiter.call(() -> recordRepository.findById(id));
+
+            if (stored.isEmpty()) {
+                if (insert(id, now, reservedUntil)) {
+                    return null;
+                }
+                continue;
+            }
+
+            IdempotencyRecord record = stored.get();
+            if (!record.getExpiresOn().isAfter(now)) {
+                // Expired, or reserved by a request that never finished
+                if (databaseLimiter.call(() -> recordRepository.takeOver(id, now, reservedUntil)) > 0) {
+                    return null;
+                }
+                continue;
+            }
+
+            if (record.getNotificationId() != null) {
+                return record.getNotificationId();
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(properties.getReservationPoll().toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for another request with the same idempotency key", e);
+            }
+        }
+    }
+
+    private boolean insert(String id, LocalDateTime now, LocalDateTime reservedUntil) {
+        IdempotencyRecord reservation = IdempotencyRecord.builder()
+                .id(id)
+                .createdOn(now)
+                .expiresOn(reservedUntil)
+                .build();
+
+        try {
+            databaseLimiter.call(() -> recordRepository.saveAndFlush(reservation));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance reserved the key first
+            return false;
+        }
+    }
+
+    private ScheduledFuture<?> renewWhileSending(String id) {
+        long period = Math.max(1, properties.getReservationTimeout().toMillis() / 3);
+        return renewer.scheduleWithFixedDelay(() -> renew(id), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void renew(String id) {
+        LocalDateTime now = LocalDateTime.now();
+
+        try {
+            databaseLimiter.call(() -> recordRepository.renew(id, now, now.plus(properties.getReservationTimeout())));
+        } catch (RuntimeException e) {
+            // Tried again on the next renewal, the reservation only runs out after several misses
+            log.warn("Could not renew idempotency reservation: {}", e.getMessage());
+        }
+    }
+
+    private void complete(String id, UUID notificationId) {
+        LocalDateTime expiresOn = LocalDateTime.now().plus(properties.getTtl());
+
+        try {
+            databaseLimiter.call(() -> recordRepository.complete(id, notificationId, expiresOn));
+        } catch (RuntimeException e) {
+            // The email has been sent, the in-memory entry still protects this instance
+            log.warn("Could not persist idempotency key for notification {}: {}", notificationId, e.getMessage());
+        }
+    }
+
+    private void release(String id) {
+        try {
+            databaseLimiter.call(() -> recordRepository.release(id));
+        } catch (RuntimeException e) {
+            // The reservation then blocks the key until it times out
+            log.warn("Could not release idempotency key after a failed send: {}", e.getMessage());
+        }
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        int target = properties.getMaxSize() - properties.getMaxSize() / 10;
+
+        // Expired keys go first, then arbitrary completed ones, the database still knows them all
+        Iterator<Entry> expired = entries.values().iterator();
+        while (expired.hasNext()) {
+            Entry entry = expired.next();
+            if (entry.result().isDone() && entry.isExpired(now)) {
+                expired.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        Iterator<Entry> any = entries.values().iterator();
+        while (entries.size() > target && any.hasNext()) {
+            if (any.next().result().isDone()) {
+                any.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package app.notificationsvc.service;
+
+public record IdempotencyStats(int size, long executed, long replayed, long persistentHits, long evictions) {
+}
@@ -0,0 +1,55 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.model.JobLease;
+import app.notificationsvc.repository.JobLeaseRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cluster-wide jobs run by one instance at a time. Like outbox messages and campaigns, a job is
+ * leased to an instance with a conditional update, and the holder extends the lease while it works.
+ * A job whose instance died is taken over once its lease runs out.
+ */
+@Component
+public class JobLeases {
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final DatabaseLimiter databaseLimiter;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public JobLeases(JobLeaseRepository jobLeaseRepository, DatabaseLimiter databaseLimiter) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.databaseLimiter = databaseLimiter;
+    }
+
+    /**
+     * Takes or extends the lease on the job. Returns false while another instance holds it.
+     */
+    public boolean acquire(String job, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leasedUntil = now.plus(lease);
+
+        if (databaseLimiter.call(() -> jobLeaseRepository.acquire(job, instanceId, leasedUntil, now)) > 0) {
+            return true;
+        }
+        if (databaseLimiter.call(() -> jobLeaseRepository.existsById(job))) {
+            return false;
+        }
+
+        try {
+            databaseLimiter.call(() -> jobLeaseRepository.saveAndFlush(JobLease.builder().id(job).claimedBy(instanceId).leasedUntil(leasedUntil).build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the lease first
+            return false;
+        }
+    }
+
+    public void release(String job) {
+        databaseLimiter.run(() -> jobLeaseRepository.release(job, instanceId, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,37 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+/**
+ * The email channel's {@link DispatchQueue}, configured under {@code notification.dispatch}.
+ * Batch sends also fan out on its workers. With virtual threads and no {@code workers} set, there
+ * is one lane per pooled SMTP connection rather than per processor, since a lane waiting on the
+ * relay holds no carrier thread and fewer lanes would leave connections idle.
+ */
+@Component
+public class MailDispatchQueue extends DispatchQueue {
+
+    public MailDispatchQueue(NotificationProperties notificationProperties) {
+        super("mail-dispatch",
+                lanes(notificationProperties),
+                notificationProperties.getDispatch().getQueueCapacity(),
+                notificationProperties.getDispatch().getRetryAfter(),
+                notificationProperties.getConcurrency().isVirtualThreads());
+    }
+
+    private static int lanes(NotificationProperties notificationProperties) {
+        int workers = notificationProperties.getDispatch().getWorkers();
+        if (workers > 0 || !notificationProperties.getConcurrency().isVirtualThreads()) {
+            return workers;
+        }
+        return notificationProperties.getMail().getPool().getMaxTotal();
+    }
+
+    @PreDestroy
+    @Override
+    public void shutdown() throws InterruptedException {
+        super.shutdown();
+    }
+}
@@ -0,0 +1,394 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidCampaignException;
+import app.notificationsvc.exception.NewsletterCampaignNotFoundException;
+import app.notificationsvc.mail.BroadcastMessage;
+import app.notificationsvc.model.CampaignStatus;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NewsletterCampaign;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.Recipient;
+import app.notificationsvc.repository.NewsletterCampaignRepository;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scheduled newsletter campaigns. Every instance polls for due campaigns and leases one at a time
+ * to itself, so a campaign is sent by exactly one instance and an instance sends one campaign at a
+ * time. Recipients are released in evenly spaced slices walked in {@code userId} order, at the
+ * campaign's send rate or at the rate that spreads its audience over the requested window, which
+ * keeps the load on the relay and on the notification table flat.
+ * <p>
+ * A staggered campaign sends one wave per subscriber time zone, each starting when {@code startOn}
+ * is reached in that zone. Waves are sent one after the other, so two zones that start close
+ * together do not double the rate.
+ * <p>
+ * Every completed slice commits a checkpoint, the wave and last {@code userId} sent, together with
+ * the counts and the lease renewal. A campaign whose instance stops renewing its lease is
+ * rescheduled and resumes right after its checkpoint on whichever instance claims it next, and one
+ * interrupted by a shutdown is handed back straight away. Only the slice that was in flight is
+ * checked against the notification log for recipients it already reached. Notifications the
+ * write-behind log had not flushed when the instance died are not there, so those recipients can
+ * still get a second copy.
+ */
+@Slf4j
+@Component
+public class NewsletterCampaigns {
+
+    private record Wave(String timeZone, boolean allZones, LocalDateTime startOn) {
+    }
+
+    // No time zone is ahead of UTC by more than this, so no staggered wave starts earlier
+    private static final ZoneOffset EARLIEST_OFFSET = ZoneOffset.ofHours(14);
+
+    private static final Comparator<Wave> WAVE_ORDER = Comparator.comparing(Wave::startOn)
+            .thenComparing(wave -> Objects.requireNonNullElse(wave.timeZone(), ""));
+
+    private final NewsletterCampaignRepository campaignRepository;
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final NotificationRepository notificationRepository;
+    private final NewsletterFanOut newsletterFanOut;
+    private final NotificationSender notificationSender;
+    private final EmailTemplateRenderer templateRenderer;
+    private final DatabaseLimiter databaseLimiter;
+    private final NotificationProperties.Campaign properties;
+    private final int maxSliceSize;
+    private final ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public NewsletterCampaigns(NewsletterCampaignRepository campaignRepository, NotificationPreferenceRepository preferenceRepository, NotificationRepository notificationRepository, NewsletterFanOut newsletterFanOut, NotificationSender notificationSender, EmailTemplateRenderer templateRenderer, DatabaseLimiter databaseLimiter, NotificationProperties notificationProperties) {
+        this.campaignRepository = campaignRepository;
+        this.preferenceRepository = preferenceRepository;
+        this.notificationRepository = notificationRepository;
+        this.newsletterFanOut = newsletterFanOut;
+        this.notificationSender = notificationSender;
+        this.templateRenderer = templateRenderer;
+        this.databaseLimiter = databaseLimiter;
+        this.properties = notificationProperties.getCampaign();
+        this.maxSliceSize = notificationProperties.getNewsletter().getPageSize();
+        this.runner = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("newsletter-campaign-"));
+    }
+
+    public NewsletterCampaign schedule(String subject, LocalDateTime startOn, Integer sendRate, Duration spreadOver, boolean staggerByTimeZone) {
+        if (startOn == null) {
+            throw new InvalidCampaignException("startOn is required");
+        }
+        if ((sendRate == null) == (spreadOver == null)) {
+            throw new InvalidCampaignException("Exactly one of sendRate and spreadOver is required");
+        }
+        if (sendRate != null && sendRate <= 0) {
+            throw new InvalidCampaignException("sendRate must be positive");
+        }
+        if (spreadOver != null && (spreadOver.isNegative() || spreadOver.isZero())) {
+            throw new InvalidCampaignException("spreadOver must be positive");
+        }
+
+        LocalDateTime releaseFrom = staggerByTimeZone
+                ? startOn.atOffset(EARLIEST_OFFSET).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+                : startOn;
+
+        NewsletterCampaign campaign = NewsletterCampaign.builder()
+                .subject(subject == null || subject.isBlank() ? NotificationService.NEWSLETTER_SUBJECT : subject)
+                .status(CampaignStatus.SCHEDULED)
+                .startOn(startOn)
+                .sendRate(sendRate)
+                .spreadOver(spreadOver)
+                .staggerByTimeZone(staggerByTimeZone)
+                .releaseFrom(releaseFrom)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        return databaseLimiter.call(() -> campaignRepository.save(campaign));
+    }
+
+    public NewsletterCampaign get(UUID id) {
+        return databaseLimiter.call(() -> campaignRepository.findById(id))
+                .orElseThrow(() -> new NewsletterCampaignNotFoundException(id));
+    }
+
+    /**
+     * Cancels a scheduled or running campaign. A running one stops after its current slice.
+     */
+    public NewsletterCampaign cancel(UUID id) {
+        if (databaseLimiter.call(() -> campaignRepository.cancel(id, LocalDateTime.now())) > 0) {
+            log.info("Newsletter campaign {} cancelled", id);
+        }
+        return get(id);
+    }
+
+    @Scheduled(initialDelayString = "${notification.campaign.poll-interval:10s}", fixedDelayString = "${notification.campaign.poll-interval:10s}")
+    public void startDueCampaigns() {
+        LocalDateTime now = LocalDateTime.now();
+
+        int resumed = databaseLimiter.call(() -> campaignRepository.resumeAbandoned(now, properties.getMaxResumes()));
+        if (resumed > 0) {
+            log.warn("Rescheduled {} newsletter campaigns from their checkpoint after their instance stopped renewing the lease", resumed);
+        }
+        int abandoned = databaseLimiter.call(() -> campaignRepository.failAbandoned(now));
+        if (abandoned > 0) {
+            log.warn("Marked {} newsletter campaigns failed after they were abandoned {} times", abandoned, properties.getMaxResumes() + 1);
+        }
+
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            NewsletterCampaign campaign = claimDue(now);
+            if (campaign == null) {
+                running.set(false);
+                return;
+            }
+
+            runner.execute(() -> {
+                try {
+                    execute(campaign);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private NewsletterCampaign claimDue(LocalDateTime now) {
+        List<NewsletterCampaign> due = databaseLimiter.call(() -> campaignRepository.findByStatusAndReleaseFromLessThanEqualOrderByReleaseFromAsc(CampaignStatus.SCHEDULED, now, Limit.of(5)));
+
+        for (NewsletterCampaign campaign : due) {
+            if (databaseLimiter.call(() -> campaignRepository.claim(campaign.getId(), instanceId, now.plus(properties.getLease()), now)) > 0) {
+                return get(campaign.getId());
+            }
+        }
+
+        return null;
+    }
+
+    void execute(NewsletterCampaign campaign) {
+        NewsletterRun run = new NewsletterRun(campaign.getSubject(), campaign.getId());
+        run.start();
+        CampaignStatus outcome = CampaignStatus.FAILED;
+        if (campaign.getCheckpointUserId() == null) {
+            log.info("Newsletter campaign {} started", campaign.getId());
+        } else {
+            log.info("Newsletter campaign {} resumed after user {} with {} recipients processed", campaign.getId(), campaign.getCheckpointUserId(), campaign.getSent() + campaign.getFailed());
+        }
+
+        boolean interrupted = false;
+        try {
+            BroadcastMessage message = notificationSender.prepareBroadcast(campaign.getSubject(), templateRenderer.render(EmailType.NEWSLETTER, Map.of()));
+            outcome = send(campaign, run, message) ? CampaignStatus.COMPLETED : CampaignStatus.CANCELLED;
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (Exception e) {
+            // The database limiter turns an interrupt into an exception
+            interrupted = Thread.interrupted();
+            if (!interrupted) {
+                log.error("Newsletter campaign {} aborted after {} recipients", campaign.getId(), run.getProcessed(), e);
+            }
+        }
+
+        if (interrupted) {
+            outcome = CampaignStatus.SCHEDULED;
+            log.warn("Newsletter campaign {} interrupted after {} recipients, handing it back to resume from its checkpoint", campaign.getId(), run.getProcessed());
+        }
+
+        run.finish(outcome == CampaignStatus.COMPLETED ? NewsletterRun.Status.COMPLETED : NewsletterRun.Status.FAILED);
+        long sent = campaign.getSent() + run.getSent();
+        long failed = campaign.getFailed() + run.getFailed();
+        // A cancelled campaign or a lost lease leaves the row to whoever changed it
+        if (outcome == CampaignStatus.SCHEDULED) {
+            databaseLimiter.run(() -> campaignRepository.release(campaign.getId(), instanceId));
+        } else if (outcome != CampaignStatus.CANCELLED) {
+            CampaignStatus finalStatus = outcome;
+            databaseLimiter.run(() -> campaignRepository.finish(campaign.getId(), instanceId, finalStatus, sent, failed, LocalDateTime.now()));
+        }
+        log.info("Newsletter campaign {} stopped with status {}: {} sent, {} failed", campaign.getId(), outcome, sent, failed);
+
+        // Restored only after the last write, the database limiter refuses interrupted threads
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends every wave slice by slice, starting after the checkpoint. Returns false if the campaign
+     * was cancelled or its lease lost on the way.
+     */
+    private boolean send(NewsletterCampaign campaign, NewsletterRun run, BroadcastMessage message) throws InterruptedException {
+        Wave checkpoint = campaign.getCheckpointUserId() == null ? null : wave(campaign, campaign.getCheckpointTimeZone());
+        boolean inFlight = true;
+
+        for (Wave wave : waves(campaign)) {
+            UUID after = null;
+            if (checkpoint != null) {
+                int order = WAVE_ORDER.compare(wave, checkpoint);
+                if (order < 0) {
+                    continue;
+                }
+                if (order == 0) {
+                    after = campaign.getCheckpointUserId();
+                }
+            }
+
+            CampaignPacer pacer = pacer(campaign, wave);
+            long next = System.nanoTime() + Math.max(0, Duration.between(LocalDateTime.now(), wave.startOn()).toNanos());
+
+            while (true) {
+                if (!awaitSlice(campaign, run, next)) {
+                    return false;
+                }
+
+                UUID lastUserId = after;
+                List<Recipient> slice = databaseLimiter.call(() -> slice(wave, lastUserId, pacer.sliceSize()));
+                if (slice.isEmpty()) {
+                    break;
+                }
+
+                // The first slice after the checkpoint is the one a previous run may have been sending
+                newsletterFanOut.sendPage(run, inFlight ? notYetSent(campaign, slice) : slice, message).join();
+                inFlight = false;
+
+                campaign.setCheckpointTimeZone(wave.timeZone());
+                campaign.setCheckpointUserId(slice.getLast().userId());
+                if (!renewLease(campaign, run)) {
+                    return false;
+                }
+                if (slice.size() < pacer.sliceSize()) {
+                    break;
+                }
+
+                after = slice.getLast().userId();
+                // A slice that overran its interval delays the next one instead of bunching them up
+                next = Math.max(next + pacer.intervalNanos(), System.nanoTime());
+            }
+
+            log.info("Newsletter campaign {} sent its {} wave: {} processed ({} failed)", campaign.getId(),
+                    wave.allZones() ? "only" : Objects.requireNonNullElse(wave.timeZone(), "default time zone"), run.getProcessed(), run.getFailed());
+        }
+
+        return true;
+    }
+
+    // Waits until the deadline, renewing the lease often enough that waiting for a late wave does not lose it
+    private boolean awaitSlice(NewsletterCampaign campaign, NewsletterRun run, long deadlineNanos) throws InterruptedException {
+        long renewEvery = properties.getLease().toNanos() / 3;
+
+        while (true) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, renewEvery));
+            if (remaining > renewEvery && !renewLease(campaign, run)) {
+                return false;
+            }
+        }
+    }
+
+    // Counts of earlier runs are in the campaign as it was claimed
+    private boolean renewLease(NewsletterCampaign campaign, NewsletterRun run) {
+        LocalDateTime leasedUntil = LocalDateTime.now().plus(properties.getLease());
+        return databaseLimiter.call(() -> campaignRepository.renewLease(campaign.getId(), instanceId, leasedUntil, campaign.getSent() + run.getSent(), campaign.getFailed() + run.getFailed(),
+                campaign.getCheckpointTimeZone(), campaign.getCheckpointUserId())) > 0;
+    }
+
+    private List<Recipient> notYetSent(NewsletterCampaign campaign, List<Recipient> slice) {
+        List<UUID> userIds = slice.stream().map(Recipient::userId).toList();
+        Set<UUID> reached = new HashSet<>(databaseLimiter.call(() -> notificationRepository.findCampaignRecipients(campaign.getId(), userIds)));
+        if (reached.isEmpty()) {
+            return slice;
+        }
+
+        log.info("Newsletter campaign {} skips {} recipients of its in-flight slice that it already sent to", campaign.getId(), reached.size());
+        return slice.stream().filter(recipient -> !reached.contains(recipient.userId())).toList();
+    }
+
+    private List<Wave> waves(NewsletterCampaign campaign) {
+        if (!campaign.isStaggerByTimeZone()) {
+            return List.of(wave(campaign, null));
+        }
+
+        return databaseLimiter.call(() -> preferenceRepository.findNewsletterTimeZones(NotificationType.EMAIL)).stream()
+                .map(timeZone -> wave(campaign, timeZone))
+                .sorted(WAVE_ORDER)
+                .toList();
+    }
+
+    private Wave wave(NewsletterCampaign campaign, String timeZone) {
+        if (!campaign.isStaggerByTimeZone()) {
+            return new Wave(null, true, campaign.getStartOn());
+        }
+
+        return new Wave(timeZone, false, campaign.getStartOn().atZone(zoneOf(timeZone)).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+    }
+
+    private CampaignPacer pacer(NewsletterCampaign campaign, Wave wave) {
+        double rate = campaign.getSendRate() != null
+                ? campaign.getSendRate()
+                : CampaignPacer.rateFor(databaseLimiter.call(() -> wave.allZones()
+                        ? preferenceRepository.countByIsNewsletterEnabledTrueAndType(NotificationType.EMAIL)
+                        : preferenceRepository.countByIsNewsletterEnabledTrueAndTypeAndTimeZone(NotificationType.EMAIL, wave.timeZone())), campaign.getSpreadOver());
+
+        return CampaignPacer.of(rate, properties.getSliceInterval(), maxSliceSize);
+    }
+
+    private List<Recipient> slice(Wave wave, UUID after, int size) {
+        Limit limit = Limit.of(size);
+
+        if (wave.allZones()) {
+            return after == null
+                    ? preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(NotificationType.EMAIL, limit)
+                    : preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, after, limit);
+        }
+
+        return after == null
+                ? preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndTimeZoneOrderByUserIdAsc(NotificationType.EMAIL, wave.timeZone(), limit)
+                : preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndTimeZoneAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, wave.timeZone(), after, limit);
+    }
+
+    private ZoneId zoneOf(String timeZone) {
+        if (timeZone == null) {
+            return properties.getDefaultTimeZone();
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            log.warn("Unknown time zone {}, staggering its subscribers as {}", timeZone, properties.getDefaultTimeZone());
+            return properties.getDefaultTimeZone();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        runner.shutdownNow();
+        runner.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
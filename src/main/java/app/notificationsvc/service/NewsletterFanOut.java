@@ -0,0 +1,199 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.NewsletterQueueFullException;
+import app.notificationsvc.exception.NewsletterRunNotFoundException;
+import app.notificationsvc.mail.BroadcastMessage;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.Recipient;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends one newsletter body to every email subscriber. The audience is walked in keyset pages of
+ * {@link Recipient} projections, and each page is sent on a parallel worker pool while the next
+ * page is being fetched, so memory stays bounded by two pages regardless of list size. The body is
+ * MIME-encoded once per run and shared by every recipient's message.
+ * <p>
+ * With virtual threads every send runs on its own thread, and {@code workers} permits cap how many
+ * of them talk to SMTP at once.
+ * <p>
+ * Background runs go through a single coordinator thread. At most {@code queued-runs} of them wait
+ * behind the one in progress; further ones are refused with {@link NewsletterQueueFullException}
+ * instead of piling up in memory.
+ */
+@Slf4j
+@Component
+public class NewsletterFanOut {
+
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final NotificationSender notificationSender;
+    private final NotificationProperties.Newsletter properties;
+    private final ExecutorService workers;
+    private final Semaphore sendPermits;
+    private final ExecutorService coordinator;
+    private final Map<UUID, NewsletterRun> runs = new ConcurrentHashMap<>();
+
+    public NewsletterFanOut(NotificationPreferenceRepository preferenceRepository, NotificationSender notificationSender, NotificationProperties notificationProperties) {
+        this.preferenceRepository = preferenceRepository;
+        this.notificationSender = notificationSender;
+        this.properties = notificationProperties.getNewsletter();
+
+        if (notificationProperties.getConcurrency().isVirtualThreads()) {
+            this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("newsletter-", 0).factory());
+            this.sendPermits = new Semaphore(properties.getWorkers());
+        } else {
+            this.workers = Executors.newFixedThreadPool(properties.getWorkers(), new CustomizableThreadFactory("newsletter-"));
+            this.sendPermits = null;
+        }
+        this.coordinator = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                properties.getQueuedRuns() > 0 ? new LinkedBlockingQueue<>(properties.getQueuedRuns()) : new SynchronousQueue<>(),
+                new CustomizableThreadFactory("newsletter-coordinator-"));
+    }
+
+    public NewsletterRun run(String subject, String body) {
+        NewsletterRun run = register(subject);
+        execute(run, body);
+        return run;
+    }
+
+    public NewsletterRun start(String subject, String body) {
+        NewsletterRun run = register(subject);
+
+        try {
+            coordinator.execute(() -> execute(run, body));
+        } catch (RejectedExecutionException e) {
+            runs.remove(run.getId());
+            throw new NewsletterQueueFullException(properties.getRetryAfter());
+        }
+
+        return run;
+    }
+
+    public NewsletterRun getRun(UUID id) {
+        NewsletterRun run = runs.get(id);
+
+        if (run == null) {
+            throw new NewsletterRunNotFoundException(id);
+        }
+
+        return run;
+    }
+
+    private NewsletterRun register(String subject) {
+        NewsletterRun run = new NewsletterRun(subject);
+        runs.put(run.getId(), run);
+        evictFinishedRuns();
+        return run;
+    }
+
+    private void execute(NewsletterRun run, String body) {
+        run.start();
+        log.info("Newsletter run {} started", run.getId());
+
+        try {
+            BroadcastMessage message = notificationSender.prepareBroadcast(run.getSubject(), body);
+            log.debug("Newsletter run {} encoded a {} byte body shared by all recipients", run.getId(), message.bodySize());
+
+            List<Recipient> page = preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(NotificationType.EMAIL, Limit.of(properties.getPageSize()));
+
+            while (!page.isEmpty()) {
+                CompletableFuture<Void> sending = sendPage(run, page, message);
+
+                UUID lastUserId = page.get(page.size() - 1).userId();
+                List<Recipient> next = page.size() < properties.getPageSize()
+                        ? List.of()
+                        : preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, lastUserId, Limit.of(properties.getPageSize()));
+
+                sending.join();
+                log.info("Newsletter run {}: {} processed ({} failed), {} msg/s", run.getId(), run.getProcessed(), run.getFailed(), "%.1f".formatted(run.getMessagesPerSecond()));
+
+                page = next;
+            }
+
+            run.finish(NewsletterRun.Status.COMPLETED);
+        } catch (Exception e) {
+            run.finish(NewsletterRun.Status.FAILED);
+            log.error("Newsletter run {} aborted after {} recipients", run.getId(), run.getProcessed(), e);
+        }
+
+        log.info("Newsletter run {} finished with status {}: {} sent, {} failed", run.getId(), run.getStatus(), run.getSent(), run.getFailed());
+    }
+
+    /**
+     * Sends to every recipient of the page on the worker pool. Completes once all of them were attempted.
+     */
+    CompletableFuture<Void> sendPage(NewsletterRun run, List<Recipient> page, BroadcastMessage message) {
+        CompletableFuture<?>[] sends = page.stream()
+                .map(recipient -> CompletableFuture.runAsync(() -> sendOne(run, recipient, message), workers))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(sends);
+    }
+
+    private void sendOne(NewsletterRun run, Recipient recipient, BroadcastMessage message) {
+        if (sendPermits != null) {
+            sendPermits.acquireUninterruptibly();
+        }
+
+        try {
+            NotificationStatus status = notificationSender.sendBroadcast(recipient.userId(), recipient.contactData(), EmailType.NEWSLETTER, run.getSubject(), message, run.getCampaignId()).getStatus();
+
+            if (status == NotificationStatus.SENT) {
+                run.recordSent();
+            } else {
+                run.recordFailed();
+            }
+        } catch (Exception e) {
+            run.recordFailed();
+            log.warn("Failed to send newsletter to user with id: %s due to %s".formatted(recipient.userId(), e.getMessage()));
+        } finally {
+            if (sendPermits != null) {
+                sendPermits.release();
+            }
+        }
+    }
+
+    private void evictFinishedRuns() {
+        Iterator<NewsletterRun> finished = runs.values().stream()
+                .filter(NewsletterRun::isFinished)
+                .sorted(Comparator.comparing(NewsletterRun::getCreatedOn))
+                .iterator();
+
+        int excess = runs.size() - properties.getRetainedRuns();
+
+        while (excess-- > 0 && finished.hasNext()) {
+            runs.remove(finished.next().getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        coordinator.shutdown();
+        coordinator.awaitTermination(30, TimeUnit.SECONDS);
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,90 @@
+package app.notificationsvc.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of a single newsletter fan-out. Counters are updated by the sending workers
+ * and may be read at any time while the run is in progress.
+ */
+@Getter
+public class NewsletterRun {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final String subject;
+    // Campaign the run sends for, null for an on-demand newsletter
+    private final UUID campaignId;
+    private final LocalDateTime createdOn = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedOn;
+    private volatile LocalDateTime finishedOn;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong sent = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong failed = new AtomicLong();
+
+    public NewsletterRun(String subject) {
+        this(subject, null);
+    }
+
+    public NewsletterRun(String subject, UUID campaignId) {
+        this.subject = subject;
+        this.campaignId = campaignId;
+    }
+
+    void start() {
+        startedOn = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void finish(Status finalStatus) {
+        finishedOn = LocalDateTime.now();
+        status = finalStatus;
+    }
+
+    void recordSent() {
+        sent.incrementAndGet();
+    }
+
+    void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getProcessed() {
+        return sent.get() + failed.get();
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public double getMessagesPerSecond() {
+        if (startedOn == null) {
+            return 0;
+        }
+
+        LocalDateTime end = finishedOn != null ? finishedOn : LocalDateTime.now();
+        long millis = Math.max(1, Duration.between(startedOn, end).toMillis());
+
+        return getProcessed() * 1000.0 / millis;
+    }
+}
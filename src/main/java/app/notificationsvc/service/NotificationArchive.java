@@ -0,0 +1,75 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.repository.ExpiredNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only archive of removed notifications, one NDJSON line per notification in a gzip file per
+ * creation day. Every {@link #append(List)} adds a complete gzip member to the end of each file it
+ * touches and syncs it to disk before returning, so a file never has to be rewritten and any gzip
+ * reader sees the members as one stream. A crash mid-append can only leave a truncated last member.
+ * Rendered bodies are never read, let alone archived.
+ */
+@Component
+public class NotificationArchive {
+
+    private final ObjectWriter writer;
+    private final Path directory;
+
+    public NotificationArchive(ObjectMapper objectMapper, NotificationProperties notificationProperties) {
+        this.writer = objectMapper.writerFor(ExpiredNotification.class);
+        this.directory = Path.of(notificationProperties.getRetention().getArchiveDirectory());
+    }
+
+    public void append(List<ExpiredNotification> notifications) {
+        Map<LocalDate, List<ExpiredNotification>> byDay = notifications.stream()
+                .collect(Collectors.groupingBy(notification -> notification.createdOn().toLocalDate(), TreeMap::new, Collectors.toList()));
+
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<LocalDate, List<ExpiredNotification>> day : byDay.entrySet()) {
+                appendMember(fileFor(day.getKey()), day.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive notifications to " + directory, e);
+        }
+    }
+
+    Path fileFor(LocalDate day) {
+        return directory.resolve("notifications-" + day + ".ndjson.gz");
+    }
+
+    private void appendMember(Path file, List<ExpiredNotification> notifications) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file.toFile(), true);
+             GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(out))) {
+            for (ExpiredNotification notification : notifications) {
+                writeLine(gzip, notification);
+            }
+            gzip.finish();
+            gzip.flush();
+            out.getFD().sync();
+        }
+    }
+
+    private void writeLine(OutputStream out, ExpiredNotification notification) throws IOException {
+        out.write(writer.writeValueAsBytes(notification));
+        out.write('\n');
+    }
+}
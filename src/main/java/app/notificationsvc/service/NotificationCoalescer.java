@@ -0,0 +1,248 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.metrics.Stage;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges a user's queued emails into one digest. The first email of a type with a coalescing
+ * window opens a digest for its user, and every email of that user arriving before the digest is
+ * sent joins it. A digest is sent when the window of its earliest-ending email runs out, so no
+ * email waits longer than its own window, or as soon as it holds {@code max-emails-per-user}.
+ * A digest of one email is sent as that email, a larger one is rendered from the digest template.
+ * <p>
+ * Digests live in memory until they are written to the outbox, so a crash loses at most one window
+ * of emails. Once {@code max-buffered-emails} are held, further emails skip coalescing.
+ */
+@Slf4j
+@Component
+public class NotificationCoalescer {
+
+    private static final String DIGEST_SUBJECT = "You have %d new updates";
+
+    private static final Pattern BODY_CONTENT = Pattern.compile("(?is)<body[^>]*>(.*)</body>");
+
+    // Buckets of the timer wheel, one turn covers windows up to this many ticks
+    private static final int WHEEL_BUCKETS = 512;
+
+    private final NotificationOutbox notificationOutbox;
+    private final EmailTemplateRenderer templateRenderer;
+    private final DatabaseLimiter databaseLimiter;
+    private final NotificationMetrics metrics;
+    private final NotificationProperties.Coalescing properties;
+    private final TimerWheel timerWheel;
+    private final ExecutorService flushWorkers;
+
+    private final Map<UUID, PendingDigest> pendingByUser = new ConcurrentHashMap<>();
+    private final Map<UUID, PendingDigest> pendingById = new ConcurrentHashMap<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicLong digests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+
+    public NotificationCoalescer(NotificationOutbox notificationOutbox, EmailTemplateRenderer templateRenderer, DatabaseLimiter databaseLimiter, NotificationMetrics metrics, NotificationProperties notificationProperties) {
+        this.notificationOutbox = notificationOutbox;
+        this.templateRenderer = templateRenderer;
+        this.databaseLimiter = databaseLimiter;
+        this.metrics = metrics;
+        this.properties = notificationProperties.getCoalescing();
+        this.timerWheel = new TimerWheel("digest-timer", properties.getTick(), WHEEL_BUCKETS);
+        this.flushWorkers = Executors.newFixedThreadPool(properties.getFlushWorkers(), new CustomizableThreadFactory("digest-flush-"));
+    }
+
+    /**
+     * Adds the email to its user's digest and returns the id of the notification the digest will be
+     * sent as. Returns {@code null} when the email has to be queued on its own, because its type has
+     * no coalescing window or the buffer is full.
+     */
+    public UUID offer(RenderedEmail email) {
+        Duration window = properties.getWindows().get(email.emailType());
+        if (window == null || window.isZero() || window.isNegative()) {
+            return null;
+        }
+
+        if (!reserve()) {
+            bypassed.incrementAndGet();
+            return null;
+        }
+
+        long deadline = System.nanoTime() + window.toNanos();
+        PendingDigest[] full = new PendingDigest[1];
+        boolean[] deadlineMoved = new boolean[1];
+
+        // The digest is only changed while it is mapped, so one removed for sending is complete
+        PendingDigest digest = pendingByUser.compute(email.userId(), (userId, current) -> {
+            PendingDigest target = current != null ? current : open(userId);
+            deadlineMoved[0] = target.add(email, deadline);
+
+            if (target.size() >= properties.getMaxEmailsPerUser()) {
+                full[0] = target;
+                return null;
+            }
+            return target;
+        });
+
+        if (full[0] != null) {
+            flushWorkers.execute(() -> flush(full[0]));
+            return full[0].notificationId;
+        }
+
+        if (deadlineMoved[0]) {
+            timerWheel.schedule(deadline, () -> close(digest));
+        }
+        return digest.notificationId;
+    }
+
+    /**
+     * A digest that is still being collected, as the QUEUED notification it will be sent as.
+     */
+    public Notification find(UUID id) {
+        PendingDigest digest = pendingById.get(id);
+        return digest == null ? null : digest.toNotification();
+    }
+
+    public CoalescerStats stats() {
+        return new CoalescerStats(pendingByUser.size(), buffered.get(), digests.get(), coalesced.get(), bypassed.get());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        timerWheel.shutdown();
+
+        for (PendingDigest digest : List.copyOf(pendingByUser.values())) {
+            close(digest);
+        }
+
+        flushWorkers.shutdown();
+        if (!flushWorkers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Digests did not finish queueing in time, {} emails dropped", buffered.get());
+        }
+    }
+
+    private PendingDigest open(UUID userId) {
+        PendingDigest digest = new PendingDigest(userId);
+        pendingById.put(digest.notificationId, digest);
+        return digest;
+    }
+
+    // Runs on the timer thread, so the rendering and writing is left to the flush workers
+    private void close(PendingDigest digest) {
+        if (pendingByUser.remove(digest.userId, digest)) {
+            flushWorkers.execute(() -> flush(digest));
+        }
+    }
+
+    private void flush(PendingDigest digest) {
+        List<RenderedEmail> emails = digest.emails();
+
+        try {
+            Notification notification = digest.toNotification();
+            String body = emails.size() == 1 ? emails.getFirst().body() : renderDigest(emails);
+
+            metrics.time(Stage.PERSIST, notification.getEmailType(), () -> databaseLimiter.call(() -> notificationOutbox.queue(notification, body)));
+
+            if (emails.size() > 1) {
+                digests.incrementAndGet();
+                coalesced.addAndGet(emails.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not queue digest {} for user {}, {} emails dropped", digest.notificationId, digest.userId, emails.size(), e);
+        } finally {
+            pendingById.remove(digest.notificationId);
+            buffered.addAndGet(-emails.size());
+        }
+    }
+
+    private String renderDigest(List<RenderedEmail> emails) {
+        List<Map<String, String>> items = emails.stream()
+                .map(email -> Map.of("subject", email.subject(), "content", bodyContent(email.body())))
+                .toList();
+
+        return metrics.time(Stage.RENDER, EmailType.DIGEST, () -> templateRenderer.render(EmailType.DIGEST, Map.of("count", emails.size(), "items", items)));
+    }
+
+    // Every email is a full HTML document, only what is inside its body goes into the digest
+    static String bodyContent(String body) {
+        Matcher matcher = BODY_CONTENT.matcher(body);
+        return matcher.find() ? matcher.group(1) : body;
+    }
+
+    private boolean reserve() {
+        int current;
+        do {
+            current = buffered.get();
+            if (current >= properties.getMaxBufferedEmails()) {
+                return false;
+            }
+        } while (!buffered.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private static final class PendingDigest {
+
+        private final UUID notificationId = UUID.randomUUID();
+        private final UUID userId;
+        private final LocalDateTime createdOn = LocalDateTime.now();
+        private final List<RenderedEmail> emails = new ArrayList<>();
+        private long deadline;
+
+        private PendingDigest(UUID userId) {
+            this.userId = userId;
+        }
+
+        /**
+         * Returns whether the email's window ends before the digest's, so the digest has to be sent earlier.
+         */
+        private synchronized boolean add(RenderedEmail email, long emailDeadline) {
+            emails.add(email);
+
+            if (emails.size() == 1 || emailDeadline - deadline < 0) {
+                deadline = emailDeadline;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized int size() {
+            return emails.size();
+        }
+
+        private synchronized List<RenderedEmail> emails() {
+            return List.copyOf(emails);
+        }
+
+        private synchronized Notification toNotification() {
+            return Notification.builder()
+                    .id(notificationId)
+                    .userId(userId)
+                    .subject(emails.size() == 1 ? emails.getFirst().subject() : DIGEST_SUBJECT.formatted(emails.size()))
+                    .emailType(emails.size() == 1 ? emails.getFirst().emailType() : EmailType.DIGEST)
+                    .status(NotificationStatus.QUEUED)
+                    .createdOn(createdOn)
+                    .build();
+        }
+    }
+}
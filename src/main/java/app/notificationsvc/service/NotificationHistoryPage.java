@@ -0,0 +1,11 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.repository.NotificationHistoryEntry;
+
+import java.util.List;
+
+/**
+ * One page of a user's history. {@code nextCursor} is null on the last page.
+ */
+public record NotificationHistoryPage(List<NotificationHistoryEntry> entries, String nextCursor) {
+}
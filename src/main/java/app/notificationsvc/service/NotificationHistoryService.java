@@ -0,0 +1,52 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.NotificationHistoryEntry;
+import app.notificationsvc.repository.NotificationRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Pages through a user's sent notifications, newest first. Pages are keyset paginated on
+ * {@code (createdOn, id)}, so each page is an index range read no matter how deep the client has scrolled.
+ */
+@Service
+public class NotificationHistoryService {
+
+    private final NotificationRepository notificationRepository;
+    private final DatabaseLimiter databaseLimiter;
+    private final NotificationProperties.History properties;
+
+    public NotificationHistoryService(NotificationRepository notificationRepository, DatabaseLimiter databaseLimiter, NotificationProperties notificationProperties) {
+        this.notificationRepository = notificationRepository;
+        this.databaseLimiter = databaseLimiter;
+        this.properties = notificationProperties.getHistory();
+    }
+
+    public NotificationHistoryPage getHistory(UUID userId, EmailType emailType, NotificationStatus status, String before, Integer size) {
+        int pageSize = size == null ? properties.getDefaultPageSize() : Math.clamp(size, 1, properties.getMaxPageSize());
+        // One extra row tells whether another page follows without a count query
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<NotificationHistoryEntry> entries;
+        if (before == null || before.isBlank()) {
+            entries = databaseLimiter.call(() -> notificationRepository.findHistory(userId, emailType, status, limit));
+        } else {
+            HistoryCursor cursor = HistoryCursor.decode(before);
+            entries = databaseLimiter.call(() -> notificationRepository.findHistoryBefore(userId, emailType, status, cursor.createdOn(), cursor.id(), limit));
+        }
+
+        if (entries.size() <= pageSize) {
+            return new NotificationHistoryPage(entries, null);
+        }
+
+        List<NotificationHistoryEntry> page = entries.subList(0, pageSize);
+
+        return new NotificationHistoryPage(page, HistoryCursor.after(page.getLast()).encode());
+    }
+}
@@ -0,0 +1,4 @@
+package app.notificationsvc.service;
+
+public record NotificationLogStats(int buffered, long flushes, long rowsWritten, long rowsFailed, int lastBatchSize, double averageBatchSize, double averageFlushMillis, double maxFlushMillis) {
+}
@@ -0,0 +1,191 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for the notification log. Senders {@link #append(Notification)} rows and a
+ * single flusher thread writes them with {@code saveAll} in one transaction per batch, which
+ * Hibernate turns into JDBC batch inserts. A batch is flushed when it is full or when its oldest
+ * row has waited for the flush interval. If the buffer is full the sender writes its own row,
+ * which slows senders down rather than dropping log entries. The buffer is drained on shutdown.
+ */
+@Slf4j
+@Component
+public class NotificationLogWriter implements SmartLifecycle {
+
+    private final NotificationRepository notificationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationProperties.NotificationLog properties;
+    private final BlockingQueue<Notification> buffer;
+    private final NotificationMetrics metrics;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public NotificationLogWriter(NotificationRepository notificationRepository, PlatformTransactionManager transactionManager, NotificationProperties notificationProperties, NotificationMetrics metrics) {
+        this.notificationRepository = notificationRepository;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = notificationProperties.getNotificationLog();
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferCapacity());
+    }
+
+    public void append(Notification notification) {
+        if (!running) {
+            write(List.of(notification));
+            return;
+        }
+
+        try {
+            if (buffer.offer(notification, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        write(List.of(notification));
+    }
+
+    public NotificationLogStats stats() {
+        long flushCount = flushes.get();
+        long written = rowsWritten.get() + rowsFailed.get();
+
+        return new NotificationLogStats(
+                buffer.size(),
+                flushCount,
+                rowsWritten.get(),
+                rowsFailed.get(),
+                lastBatchSize,
+                flushCount == 0 ? 0 : (double) written / flushCount,
+                flushCount == 0 ? 0 : totalFlushNanos.get() / 1_000_000.0 / flushCount,
+                maxFlushNanos.get() / 1_000_000.0);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "notification-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+
+        try {
+            flusher.join(30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything appended while the flusher was exiting
+        drainRemaining();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flushLoop() {
+        while (running || !buffer.isEmpty()) {
+            List<Notification> batch = new ArrayList<>(properties.getBatchSize());
+
+            try {
+                Notification first = buffer.poll(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + properties.getFlushInterval().toNanos();
+
+                while (batch.size() < properties.getBatchSize()) {
+                    buffer.drainTo(batch, properties.getBatchSize() - batch.size());
+
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0 || !running) {
+                        break;
+                    }
+
+                    Notification next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+    }
+
+    private void drainRemaining() {
+        List<Notification> batch = new ArrayList<>(properties.getBatchSize());
+
+        while (buffer.drainTo(batch, properties.getBatchSize()) > 0) {
+            write(batch);
+            batch = new ArrayList<>(properties.getBatchSize());
+        }
+    }
+
+    private void write(List<Notification> batch) {
+        long start = System.nanoTime();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> notificationRepository.saveAll(batch));
+            rowsWritten.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to write batch of {} notification log rows, retrying row by row: {}", batch.size(), e.getMessage());
+            batch.forEach(this::writeOne);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        metrics.recordLogFlush(elapsed);
+        lastBatchSize = batch.size();
+    }
+
+    private void writeOne(Notification notification) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> notificationRepository.save(notification));
+            rowsWritten.incrementAndGet();
+        } catch (RuntimeException e) {
+            rowsFailed.incrementAndGet();
+            log.error("Failed to write notification log row {}", notification.getId(), e);
+        }
+    }
+}
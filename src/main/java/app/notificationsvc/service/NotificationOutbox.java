@@ -0,0 +1,211 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.OutboxMessage;
+import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.repository.OutboxMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for async sends. A queued notification and its outbox message are written
+ * in one transaction, so an accepted send survives a crash of the instance that accepted it.
+ * <p>
+ * Every instance polls the outbox and claims a batch with {@code SELECT ... FOR UPDATE SKIP
+ * LOCKED}, leasing the claimed rows to itself. Pollers never wait on each other's locks, so each
+ * added replica adds its own share of sends. Claimed messages go to the delivery channel's queue.
+ * The outcome of an attempt is not left to the write-behind log: it is saved in the same transaction
+ * that deletes the message. A message whose instance died before that commit is claimed again after
+ * its lease, so a send may repeat but is never lost.
+ * <p>
+ * When a channel's queue is full, that channel's messages are handed back and the claim is given
+ * back with them, so a backlog never counts towards {@code max-claims}. Only lost leases do.
+ */
+@Slf4j
+@Component
+public class NotificationOutbox {
+
+    private final OutboxMessageRepository outboxRepository;
+    private final NotificationRepository notificationRepository;
+    private final PreferenceCache preferenceCache;
+    private final NotificationSender notificationSender;
+    private final DeliveryChannels deliveryChannels;
+    private final DatabaseLimiter databaseLimiter;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationProperties.Outbox properties;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    public NotificationOutbox(OutboxMessageRepository outboxRepository, NotificationRepository notificationRepository, PreferenceCache preferenceCache, NotificationSender notificationSender, DeliveryChannels deliveryChannels, DatabaseLimiter databaseLimiter, PlatformTransactionManager transactionManager, NotificationProperties notificationProperties) {
+        this.outboxRepository = outboxRepository;
+        this.notificationRepository = notificationRepository;
+        this.preferenceCache = preferenceCache;
+        this.notificationSender = notificationSender;
+        this.deliveryChannels = deliveryChannels;
+        this.databaseLimiter = databaseLimiter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = notificationProperties.getOutbox();
+    }
+
+    /**
+     * Stores a QUEUED notification together with the outbox message that will send it.
+     */
+    public Notification queue(Notification notification, String body) {
+        return transactionTemplate.execute(status -> {
+            Notification saved = notificationRepository.save(notification);
+            outboxRepository.save(OutboxMessage.builder()
+                    .notificationId(saved.getId())
+                    .userId(saved.getUserId())
+                    .body(body)
+                    .createdOn(saved.getCreatedOn())
+                    .availableOn(saved.getCreatedOn())
+                    .build());
+            return saved;
+        });
+    }
+
+    @Scheduled(initialDelayString = "${notification.outbox.poll-interval:200ms}", fixedDelayString = "${notification.outbox.poll-interval:200ms}")
+    public void relayDue() {
+        // Keep claiming while batches come back full, so a backlog drains faster than one batch per poll
+        while (relay(LocalDateTime.now()) == properties.getBatchSize()) {
+            log.debug("Outbox batch full, claiming the next one right away");
+        }
+    }
+
+    /**
+     * Claims one batch and hands it to the delivery channels. Returns how many messages were
+     * dispatched, which is less than claimed if a channel's queue filled up.
+     */
+    int relay(LocalDateTime now) {
+        List<OutboxMessage> batch = claim(now);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, Notification> notifications = databaseLimiter.call(() -> notificationRepository.findAllById(batch.stream().map(OutboxMessage::getNotificationId).toList())).stream()
+                .collect(Collectors.toMap(Notification::getId, Function.identity()));
+        Map<UUID, NotificationPreference> preferences = preferenceCache.getAll(batch.stream().map(OutboxMessage::getUserId).collect(Collectors.toSet()));
+        Set<NotificationType> fullChannels = EnumSet.noneOf(NotificationType.class);
+        List<UUID> handBack = new ArrayList<>();
+
+        for (OutboxMessage message : batch) {
+            NotificationPreference preference = preferences.get(message.getUserId());
+
+            // Later messages of a full channel are handed back untried, which also keeps each user's order
+            if (preference != null && fullChannels.contains(preference.getType())) {
+                handBack.add(message.getNotificationId());
+                continue;
+            }
+
+            try {
+                dispatch(message, notifications.get(message.getNotificationId()), preference);
+            } catch (DispatchQueueFullException e) {
+                fullChannels.add(preference.getType());
+                handBack.add(message.getNotificationId());
+            }
+        }
+
+        if (!handBack.isEmpty()) {
+            int handedBack = databaseLimiter.call(() -> outboxRepository.release(handBack, instanceId, now));
+            released.addAndGet(handedBack);
+            log.debug("Delivery queue full for {}, released {} claimed outbox messages", fullChannels, handedBack);
+        }
+
+        return batch.size() - handBack.size();
+    }
+
+    public OutboxStats stats() {
+        return new OutboxStats(instanceId, claimed.get(), completed.get(), released.get(), abandoned.get());
+    }
+
+    private List<OutboxMessage> claim(LocalDateTime now) {
+        LocalDateTime leaseUntil = now.plus(properties.getLease());
+
+        List<OutboxMessage> batch = databaseLimiter.call(() -> transactionTemplate.execute(status -> {
+            List<OutboxMessage> claimable = outboxRepository.lockClaimable(now, Limit.of(properties.getBatchSize()));
+            for (OutboxMessage message : claimable) {
+                message.setAvailableOn(leaseUntil);
+                message.setClaimedBy(instanceId);
+                message.setClaims(message.getClaims() + 1);
+            }
+            return claimable;
+        }));
+
+        claimed.addAndGet(batch.size());
+        return batch;
+    }
+
+    private void dispatch(OutboxMessage message, Notification notification, NotificationPreference preference) {
+        if (notification == null || notification.getStatus() != NotificationStatus.QUEUED) {
+            // Already attempted by an earlier claim whose lease ran out before it deleted the message
+            complete(message, null);
+            return;
+        }
+
+        if (preference == null) {
+            abandon(message, notification, "Notification preference no longer exists");
+            return;
+        }
+
+        if (message.getClaims() > properties.getMaxClaims()) {
+            abandon(message, notification, "Outbox message claimed " + message.getClaims() + " times without completing");
+            return;
+        }
+
+        deliveryChannels.submit(preference.getType(), notification.getUserId(), () -> {
+            notificationSender.attempt(notification, preference, message.getBody());
+            complete(message, notification);
+        });
+    }
+
+    private void abandon(OutboxMessage message, Notification notification, String reason) {
+        notificationSender.giveUp(notification, reason);
+        abandoned.incrementAndGet();
+        complete(message, notification);
+    }
+
+    /**
+     * Saves the attempted notification, if any, and deletes its message in one transaction. The
+     * notification is saved even when the lease was lost, so the instance that claimed the message
+     * since finds it no longer QUEUED and does not send it again.
+     */
+    private void complete(OutboxMessage message, Notification attempted) {
+        int deleted = databaseLimiter.call(() -> transactionTemplate.execute(status -> {
+            if (attempted != null) {
+                notificationRepository.save(attempted);
+            }
+            return outboxRepository.deleteClaimed(message.getNotificationId(), instanceId);
+        }));
+
+        if (deleted == 0) {
+            log.warn("Lease on outbox message {} ran out before it completed, another instance may send it again", message.getNotificationId());
+        } else {
+            completed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package app.notificationsvc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitions of the MySQL notification table, as laid out by
+ * {@code db/notification-partitioning.sql}: one partition {@code pYYYYMM} per month holding rows
+ * created before the first day of the next month, and a catch-all {@code pmax}. Only used when
+ * {@code notification.retention.partitioned} is set.
+ */
+@Slf4j
+@Component
+public class NotificationPartitions {
+
+    public record Partition(String name, LocalDateTime from, LocalDateTime before) {
+    }
+
+    private static final Pattern MONTH_PARTITION = Pattern.compile("p\\d{6}");
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    // Lower bound of the first partition, older than any notification
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NotificationPartitions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Monthly partitions in range order, leaving out {@code pmax}.
+     */
+    public List<Partition> list() {
+        List<String[]> rows = jdbcTemplate.query("""
+                        SELECT PARTITION_NAME, PARTITION_DESCRIPTION
+                        FROM information_schema.PARTITIONS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'notification' AND PARTITION_NAME IS NOT NULL
+                        ORDER BY PARTITION_ORDINAL_POSITION
+                        """,
+                (resultSet, rowNum) -> new String[]{resultSet.getString(1), resultSet.getString(2)});
+
+        List<Partition> partitions = new ArrayList<>();
+        LocalDateTime from = EPOCH;
+        for (String[] row : rows) {
+            if (!MONTH_PARTITION.matcher(row[0]).matches()) {
+                continue;
+            }
+            // RANGE COLUMNS bounds come back quoted, e.g. '2025-02-01 00:00:00'
+            LocalDateTime before = LocalDate.parse(row[1].replace("'", "").substring(0, 10)).atStartOfDay();
+            partitions.add(new Partition(row[0], from, before));
+            from = before;
+        }
+        return partitions;
+    }
+
+    /**
+     * Number of rows in the partition that are still queued or waiting for a retry.
+     */
+    public long countUnfinished(Partition partition) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification PARTITION (" + checked(partition.name()) + ") WHERE status IN ('QUEUED', 'RETRYING')", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public void drop(Partition partition) {
+        jdbcTemplate.execute("ALTER TABLE notification DROP PARTITION " + checked(partition.name()));
+        log.info("Dropped notification partition {} holding rows created before {}", partition.name(), partition.before());
+    }
+
+    /**
+     * Splits {@code pmax} so every month up to {@code monthsAhead} from now has its own partition.
+     * Done while those months are still empty, so the split moves no rows.
+     */
+    public void ensureAhead(YearMonth current, int monthsAhead) {
+        List<Partition> partitions = list();
+        LocalDateTime lastBound = partitions.isEmpty() ? EPOCH : partitions.getLast().before();
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDateTime before = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (!before.isAfter(lastBound)) {
+                continue;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE notification REORGANIZE PARTITION pmax INTO ("
+                    + "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN ('" + before.toLocalDate() + "'), "
+                    + "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+            log.info("Added notification partition {}", month.format(PARTITION_NAME));
+            lastBound = before;
+        }
+    }
+
+    // Partition names end up in DDL, so only names of the expected shape are used
+    private static String checked(String name) {
+        if (!MONTH_PARTITION.matcher(name).matches()) {
+            throw new IllegalArgumentException("Unexpected partition name: " + name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,210 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.ExpiredNotification;
+import app.notificationsvc.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes notifications older than the retention ttl. Only finished notifications are removed,
+ * queued and retrying ones stay however old they are.
+ * <p>
+ * Expired rows are walked oldest first in keyset batches on {@code (createdOn, id)}. Each batch is
+ * appended to the {@link NotificationArchive} before it is deleted with one short statement, so no
+ * lock is held for longer than one batch and no row is deleted before it is archived. A crash
+ * between the two only archives that batch twice. On a partitioned table, an expired month with
+ * no unfinished rows is archived and then dropped as a whole, which removes it without deleting rows.
+ * <p>
+ * A purge can run for a long time, so it runs on its own thread instead of the shared scheduler
+ * thread that also relays the outbox and polls retries. Only the instance holding the retention
+ * {@link JobLeases lease} purges, and it extends the lease before every batch, so replicas never
+ * race on the same rows or partitions and the archive has a single writer at a time.
+ */
+@Slf4j
+@Component
+public class NotificationRetention {
+
+    static final String JOB = "notification-retention";
+
+    private static final Set<NotificationStatus> FINISHED = EnumSet.of(NotificationStatus.SENT, NotificationStatus.FAILED, NotificationStatus.DEAD);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationArchive notificationArchive;
+    private final NotificationPartitions notificationPartitions;
+    private final DatabaseLimiter databaseLimiter;
+    private final JobLeases jobLeases;
+    private final NotificationProperties.Retention properties;
+    private final ExecutorService purger = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("notification-retention-"));
+    private final AtomicBoolean purging = new AtomicBoolean();
+
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong purged = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private volatile LocalDateTime lastRunOn;
+    private volatile LocalDateTime lastCutoff;
+
+    public NotificationRetention(NotificationRepository notificationRepository, NotificationArchive notificationArchive, NotificationPartitions notificationPartitions, DatabaseLimiter databaseLimiter, JobLeases jobLeases, NotificationProperties notificationProperties) {
+        this.notificationRepository = notificationRepository;
+        this.notificationArchive = notificationArchive;
+        this.notificationPartitions = notificationPartitions;
+        this.databaseLimiter = databaseLimiter;
+        this.jobLeases = jobLeases;
+        this.properties = notificationProperties.getRetention();
+    }
+
+    @Scheduled(initialDelayString = "${notification.retention.poll-interval:1h}", fixedDelayString = "${notification.retention.poll-interval:1h}")
+    public void purgeExpired() {
+        if (!properties.isEnabled() || !purging.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            purger.execute(() -> {
+                try {
+                    purge(LocalDateTime.now());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Notification retention run failed", e);
+                } finally {
+                    purging.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            purging.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Archives and removes everything that expired by {@code now}. Returns the number of rows
+     * removed, 0 if another instance holds the retention lease.
+     */
+    long purge(LocalDateTime now) throws InterruptedException {
+        if (!jobLeases.acquire(JOB, properties.getLease())) {
+            log.debug("Another instance holds the retention lease, skipping this purge");
+            return 0;
+        }
+
+        try {
+            return purgeLeased(now);
+        } finally {
+            jobLeases.release(JOB);
+        }
+    }
+
+    private long purgeLeased(LocalDateTime now) throws InterruptedException {
+        LocalDateTime cutoff = now.minus(properties.getTtl());
+        long removed = 0;
+
+        if (properties.isPartitioned()) {
+            removed += dropExpiredPartitions(cutoff);
+            holdLease();
+            notificationPartitions.ensureAhead(YearMonth.from(now), properties.getPartitionsAhead());
+        }
+
+        removed += sweep(NotificationPartitions.EPOCH, cutoff, true);
+
+        lastRunOn = now;
+        lastCutoff = cutoff;
+        if (removed > 0) {
+            log.info("Removed {} notifications created before {}", removed, cutoff);
+        }
+        return removed;
+    }
+
+    public RetentionStats stats() {
+        return new RetentionStats(archived.get(), purged.get(), partitionsDropped.get(), lastRunOn, lastCutoff);
+    }
+
+    // Only months that end before the cutoff are dropped, the rest of the expired rows are left to the sweep
+    private long dropExpiredPartitions(LocalDateTime cutoff) throws InterruptedException {
+        long removed = 0;
+
+        for (NotificationPartitions.Partition partition : notificationPartitions.list()) {
+            if (partition.before().isAfter(cutoff)) {
+                break;
+            }
+            if (notificationPartitions.countUnfinished(partition) > 0) {
+                log.info("Notification partition {} still has unfinished notifications, purging it row by row", partition.name());
+                continue;
+            }
+
+            long rows = sweep(partition.from(), partition.before(), false);
+            holdLease();
+            notificationPartitions.drop(partition);
+            partitionsDropped.incrementAndGet();
+            purged.addAndGet(rows);
+            removed += rows;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Archives the finished notifications created in {@code [from, before)}, batch by batch, and
+     * deletes each batch after it was archived when {@code delete} is set.
+     */
+    private long sweep(LocalDateTime from, LocalDateTime before, boolean delete) throws InterruptedException {
+        Limit batch = Limit.of(properties.getBatchSize());
+        long swept = 0;
+
+        holdLease();
+        List<ExpiredNotification> expired = databaseLimiter.call(() -> notificationRepository.findExpired(FINISHED, from, before, batch));
+        while (!expired.isEmpty()) {
+            if (properties.isArchive()) {
+                notificationArchive.append(expired);
+                archived.addAndGet(expired.size());
+            }
+
+            if (delete) {
+                List<UUID> ids = expired.stream().map(ExpiredNotification::id).toList();
+                databaseLimiter.run(() -> notificationRepository.deleteAllByIdInBatch(ids));
+                purged.addAndGet(expired.size());
+            }
+            swept += expired.size();
+
+            if (expired.size() < properties.getBatchSize()) {
+                break;
+            }
+
+            ExpiredNotification last = expired.getLast();
+            TimeUnit.NANOSECONDS.sleep(properties.getBatchPause().toNanos());
+            holdLease();
+            expired = databaseLimiter.call(() -> notificationRepository.findExpiredAfter(FINISHED, before, last.createdOn(), last.id(), batch));
+        }
+
+        return swept;
+    }
+
+    // Stops the purge rather than race the instance that took the lease over
+    private void holdLease() {
+        if (!jobLeases.acquire(JOB, properties.getLease())) {
+            throw new IllegalStateException("Retention lease lost to another instance, stopping the purge");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        purger.shutdownNow();
+        purger.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
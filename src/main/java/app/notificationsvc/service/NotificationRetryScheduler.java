@@ -0,0 +1,114 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends notifications whose retry is due. Every poll loads at most as many due rows as there are
+ * free retry slots, using the (status, next_attempt_on) index. It claims each row by moving its next
+ * attempt to the end of a lease, so several instances can poll the same table without sending
+ * twice. Retries run on their own small pool, so a backlog of failures never takes more than
+ * {@code concurrency} SMTP connections away from fresh traffic.
+ */
+@Slf4j
+@Component
+public class NotificationRetryScheduler {
+
+    private final NotificationRepository notificationRepository;
+    private final PreferenceCache preferenceCache;
+    private final NotificationSender notificationSender;
+    private final DatabaseLimiter databaseLimiter;
+    private final NotificationProperties.Retry properties;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+
+    public NotificationRetryScheduler(NotificationRepository notificationRepository, PreferenceCache preferenceCache, NotificationSender notificationSender, DatabaseLimiter databaseLimiter, NotificationProperties notificationProperties) {
+        this.notificationRepository = notificationRepository;
+        this.preferenceCache = preferenceCache;
+        this.notificationSender = notificationSender;
+        this.databaseLimiter = databaseLimiter;
+        this.properties = notificationProperties.getRetry();
+        this.executor = Executors.newFixedThreadPool(properties.getConcurrency(), new CustomizableThreadFactory("notification-retry-"));
+        this.slots = new Semaphore(properties.getConcurrency());
+    }
+
+    @Scheduled(initialDelayString = "${notification.retry.poll-interval:5s}", fixedDelayString = "${notification.retry.poll-interval:5s}")
+    public void retryDue() {
+        int free = slots.availablePermits();
+        if (free == 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> due = databaseLimiter.call(() -> notificationRepository.findByStatusAndNextAttemptOnLessThanEqualOrderByNextAttemptOnAsc(
+                NotificationStatus.RETRYING, now, Limit.of(Math.min(free, properties.getBatchSize()))));
+
+        for (Notification notification : due) {
+            if (!slots.tryAcquire()) {
+                break;
+            }
+
+            if (!claim(notification, now)) {
+                slots.release();
+                continue;
+            }
+
+            executor.execute(() -> {
+                try {
+                    retry(notification);
+                } catch (Exception e) {
+                    log.error("Retry of notification {} failed unexpectedly", notification.getId(), e);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    private boolean claim(Notification notification, LocalDateTime now) {
+        LocalDateTime leaseUntil = now.plus(properties.getLease());
+        int claimed = databaseLimiter.call(() -> notificationRepository.claim(notification.getId(), NotificationStatus.RETRYING, notification.getNextAttemptOn(), leaseUntil));
+
+        if (claimed == 0) {
+            return false;
+        }
+
+        notification.setNextAttemptOn(leaseUntil);
+        return true;
+    }
+
+    private void retry(Notification notification) {
+        Optional<NotificationPreference> preference = preferenceCache.get(notification.getUserId());
+
+        if (preference.isEmpty()) {
+            notificationSender.abandon(notification, "Notification preference no longer exists");
+            return;
+        }
+
+        log.info("Retrying notification {}, attempt {} of {}", notification.getId(), notification.getAttempts() + 1, properties.getMaxAttempts());
+        notificationSender.deliver(notification, preference.get(), notification.getBody());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
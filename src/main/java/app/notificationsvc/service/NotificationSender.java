@@ -0,0 +1,137 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.mail.BroadcastMessage;
+import app.notificationsvc.mail.SendRateLimiter;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.metrics.Stage;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sends a rendered notification on the recipient's {@link DeliveryChannels delivery channel} and
+ * records the outcome in the write-behind notification log. Newsletter broadcasts are email only
+ * and go straight to SMTP, paced by the {@link SendRateLimiter}.
+ */
+@Slf4j
+@Component
+public class NotificationSender {
+
+    private final NotificationLogWriter notificationLogWriter;
+    private final DeliveryChannels deliveryChannels;
+    private final JavaMailSender mailSender;
+    private final SendRateLimiter sendRateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final NotificationMetrics metrics;
+
+    public NotificationSender(NotificationLogWriter notificationLogWriter, DeliveryChannels deliveryChannels, JavaMailSender mailSender, SendRateLimiter sendRateLimiter, RetryPolicy retryPolicy, NotificationMetrics metrics) {
+        this.notificationLogWriter = notificationLogWriter;
+        this.deliveryChannels = deliveryChannels;
+        this.mailSender = mailSender;
+        this.sendRateLimiter = sendRateLimiter;
+        this.retryPolicy = retryPolicy;
+        this.metrics = metrics;
+    }
+
+    public Notification send(NotificationPreference recipient, EmailType emailType, String subject, String body) {
+        Notification notification = newNotification(recipient.getUserId(), emailType, subject);
+
+        deliver(notification, recipient, body);
+
+        return notification;
+    }
+
+    public BroadcastMessage prepareBroadcast(String subject, String body) {
+        return BroadcastMessage.prepare(mailSender, subject, body);
+    }
+
+    public Notification sendBroadcast(UUID userId, String contactData, EmailType emailType, String subject, BroadcastMessage broadcastMessage, UUID campaignId) {
+        Notification notification = newNotification(userId, emailType, subject);
+        notification.setAttempts(1);
+        notification.setCampaignId(campaignId);
+
+        try {
+            sendRateLimiter.acquire(emailType);
+            long start = System.nanoTime();
+            MimeMessage message = broadcastMessage.createMessage(contactData);
+            long built = System.nanoTime();
+            metrics.record(Stage.MIME_BUILD, emailType, built - start);
+
+            try {
+                mailSender.send(message);
+            } finally {
+                metrics.record(Stage.SMTP_SEND, emailType, System.nanoTime() - built);
+            }
+
+            notification.setStatus(NotificationStatus.SENT);
+        } catch (Exception e) {
+            notification.setStatus(NotificationStatus.FAILED);
+            log.warn("Failed to send notification to user with id: %s due to %s".formatted(userId, e.getMessage()));
+        }
+
+        metrics.recordOutcome(emailType, notification.getStatus());
+        notificationLogWriter.append(notification);
+
+        return notification;
+    }
+
+    /**
+     * Sends one attempt of the notification on the recipient's delivery channel. A failure is
+     * handed to the {@link RetryPolicy}, which either schedules another attempt or closes the
+     * notification.
+     */
+    public void deliver(Notification notification, NotificationPreference recipient, String body) {
+        attempt(notification, recipient, body);
+        notificationLogWriter.append(notification);
+    }
+
+    /**
+     * Same as {@link #deliver}, but leaves writing the outcome to the caller, so it can be stored
+     * together with the caller's own state instead of through the write-behind log.
+     */
+    void attempt(Notification notification, NotificationPreference recipient, String body) {
+        notification.setAttempts(notification.getAttempts() + 1);
+
+        try {
+            deliveryChannels.deliver(recipient.getType(), notification, recipient.getContactData(), body);
+            retryPolicy.recordSuccess(notification);
+        } catch (Exception e) {
+            retryPolicy.recordFailure(notification, body, e);
+            log.warn("Failed to send notification to user with id: %s due to %s, attempt %d is %s".formatted(notification.getUserId(), e.getMessage(), notification.getAttempts(), notification.getStatus()));
+        }
+
+        metrics.recordOutcome(notification.getEmailType(), notification.getStatus());
+    }
+
+    public void abandon(Notification notification, String reason) {
+        giveUp(notification, reason);
+        notificationLogWriter.append(notification);
+    }
+
+    /**
+     * Same as {@link #abandon}, but leaves writing the outcome to the caller.
+     */
+    void giveUp(Notification notification, String reason) {
+        retryPolicy.abandon(notification, reason);
+        metrics.recordOutcome(notification.getEmailType(), notification.getStatus());
+        log.warn("Gave up on notification {} for user with id: {} after {} attempts: {}", notification.getId(), notification.getUserId(), notification.getAttempts(), reason);
+    }
+
+    private Notification newNotification(UUID userId, EmailType emailType, String subject) {
+        return Notification.builder()
+                .userId(userId)
+                .subject(subject)
+                .emailType(emailType)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+}
@@ -1,46 +1,83 @@
 package app.notificationsvc.service;
 
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.channel.WebhookEndpoints;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.exception.NotificationNotFoundException;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.metrics.Stage;
 import app.notificationsvc.model.EmailType;
 import app.notificationsvc.model.Notification;
 import app.notificationsvc.model.NotificationPreference;
 import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
 import app.notificationsvc.repository.NotificationPreferenceRepository;
 import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
 import app.notificationsvc.web.dto.*;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class NotificationService {
 
+    static final String NEWSLETTER_SUBJECT = "Your weekly update is here!!!\uD83D\uDC8C";
+
     private final NotificationPreferenceRepository preferenceRepository;
+    private final PreferenceCache preferenceCache;
     private final NotificationRepository notificationRepository;
-    private final JavaMailSender mailSender;
-    private final SpringTemplateEngine templateEngine;
-
-    public NotificationService(NotificationPreferenceRepository preferenceRepository, NotificationRepository notificationRepository, JavaMailSender mailSender, SpringTemplateEngine templateEngine) {
+    private final NotificationSender notificationSender;
+    private final DeliveryChannels deliveryChannels;
+    private final NotificationOutbox notificationOutbox;
+    private final NotificationCoalescer notificationCoalescer;
+    private final NewsletterFanOut newsletterFanOut;
+    private final EmailTemplateRenderer templateRenderer;
+    private final DatabaseLimiter databaseLimiter;
+    private final IdempotencyIndex idempotencyIndex;
+    private final BatchEmailReader batchEmailReader;
+    private final WebhookEndpoints webhookEndpoints;
+    private final NotificationMetrics metrics;
+
+    public NotificationService(NotificationPreferenceRepository preferenceRepository, PreferenceCache preferenceCache, NotificationRepository notificationRepository, NotificationSender notificationSender, DeliveryChannels deliveryChannels, NotificationOutbox notificationOutbox, NotificationCoalescer notificationCoalescer, NewsletterFanOut newsletterFanOut, EmailTemplateRenderer templateRenderer, DatabaseLimiter databaseLimiter, IdempotencyIndex idempotencyIndex, BatchEmailReader batchEmailReader, WebhookEndpoints webhookEndpoints, NotificationMetrics metrics) {
         this.preferenceRepository = preferenceRepository;
+        this.preferenceCache = preferenceCache;
         this.notificationRepository = notificationRepository;
-        this.mailSender = mailSender;
-        this.templateEngine = templateEngine;
+        this.notificationSender = notificationSender;
+        this.deliveryChannels = deliveryChannels;
+        this.notificationOutbox = notificationOutbox;
+        this.notificationCoalescer = notificationCoalescer;
+        this.newsletterFanOut = newsletterFanOut;
+        this.templateRenderer = templateRenderer;
+        this.databaseLimiter = databaseLimiter;
+        this.idempotencyIndex = idempotencyIndex;
+        this.batchEmailReader = batchEmailReader;
+        this.webhookEndpoints = webhookEndpoints;
+        this.metrics = metrics;
     }
 
     public NotificationPreference getByUserId(UUID userId) {
-        return preferenceRepository.findByUserId(userId).orElseThrow(() -> new NullPointerException("Notification preference for user: " + userId + " not found"));
+        return preferenceCache.get(userId).orElseThrow(() -> new NullPointerException("Notification preference for user: " + userId + " not found"));
     }
 
     public NotificationPreference upsertPreference(UpsertNotificationPreference dto) {
 
+        if (dto.getNotificationType() == NotificationType.WEBHOOK) {
+            webhookEndpoints.check(dto.getContactData());
+        }
+
         Optional<NotificationPreference> optionalNotificationPreference = preferenceRepository.findByUserId(dto.getUserId());
 
         if (optionalNotificationPreference.isPresent()) {
@@ -49,114 +86,268 @@ public class NotificationService {
             notificationPreference.setType(dto.getNotificationType());
             notificationPreference.setNewsletterEnabled(dto.isNewsletterEnabled());
             notificationPreference.setContactData(dto.getContactData());
+            notificationPreference.setTimeZone(dto.getTimeZone());
+
+            NotificationPreference saved = preferenceRepository.save(notificationPreference);
+            preferenceCache.invalidate(dto.getUserId());
 
-            return preferenceRepository.save(notificationPreference);
+            return saved;
         } else {
             NotificationPreference preference = NotificationPreference.builder()
                     .userId(dto.getUserId())
                     .type(dto.getNotificationType())
                     .isNewsletterEnabled(dto.isNewsletterEnabled())
                     .contactData(dto.getContactData())
+                    .timeZone(dto.getTimeZone())
                     .createdOn(LocalDateTime.now())
                     .updatedOn(LocalDateTime.now())
                     .build();
 
-            return preferenceRepository.save(preference);
+            NotificationPreference saved = preferenceRepository.save(preference);
+            preferenceCache.invalidate(dto.getUserId());
+
+            return saved;
         }
 
     }
 
-    public void sendWelcomeEmail(WelcomeEmailRequest welcomeEmailRequest) {
+    public SendResult sendWelcomeEmail(WelcomeEmailRequest welcomeEmailRequest, String idempotencyKey) {
+        return idempotencyIndex.execute(welcomeKey(welcomeEmailRequest, idempotencyKey), () -> sendMail(renderWelcomeEmail(welcomeEmailRequest)));
+    }
+
+    public SendResult queueWelcomeEmail(WelcomeEmailRequest welcomeEmailRequest, String idempotencyKey) {
+        return idempotencyIndex.execute(welcomeKey(welcomeEmailRequest, idempotencyKey), () -> queueMail(renderWelcomeEmail(welcomeEmailRequest)));
+    }
+
+    public SendResult sendNewOrderEmail(OrderCreateEmailRequest orderCreateEmailRequest, String idempotencyKey) {
+        return idempotencyIndex.execute(newOrderKey(orderCreateEmailRequest, idempotencyKey), () -> sendMail(renderNewOrderEmail(orderCreateEmailRequest)));
+    }
+
+    public SendResult queueNewOrderEmail(OrderCreateEmailRequest orderCreateEmailRequest, String idempotencyKey) {
+        return idempotencyIndex.execute(newOrderKey(orderCreateEmailRequest, idempotencyKey), () -> queueMail(renderNewOrderEmail(orderCreateEmailRequest)));
+    }
+
+    public SendResult sendShippedOrderEmail(OrderShippedEmailRequest orderShippedEmailRequest, String idempotencyKey) {
+        return idempotencyIndex.execute(shippedOrderKey(orderShippedEmailRequest, idempotencyKey), () -> sendMail(renderShippedOrderEmail(orderShippedEmailRequest)));
+    }
+
+    public SendResult queueShippedOrderEmail(OrderShippedEmailRequest orderShippedEmailRequest, String idempotencyKey) {
+        return idempotencyIndex.execute(shippedOrderKey(orderShippedEmailRequest, idempotencyKey), () -> queueMail(renderShippedOrderEmail(orderShippedEmailRequest)));
+    }
+
+    /**
+     * Sends a streamed JSON array of mixed transactional emails. Each chunk of the stream resolves
+     * the preferences of all its users with one lookup. The emails are then sent in parallel on the
+     * dispatch workers, or queued when {@code async} is set. Returns one result per array element, in order.
+     */
+    public List<BatchItemResult> sendBatch(InputStream body, boolean async) {
+        List<BatchItemResult> results = new ArrayList<>();
+
+        batchEmailReader.read(body, chunk -> results.addAll(sendChunk(chunk, async)));
+
+        return results;
+    }
+
+    public NewsletterRun sendNewsletter() {
+        return newsletterFanOut.run(NEWSLETTER_SUBJECT, renderNewsletter());
+    }
+
+    public NewsletterRun queueNewsletter() {
+        return newsletterFanOut.start(NEWSLETTER_SUBJECT, renderNewsletter());
+    }
+
+    public NewsletterRun getNewsletterRun(UUID id) {
+        return newsletterFanOut.getRun(id);
+    }
+
+    public Notification getNotification(UUID id) {
+        return databaseLimiter.call(() -> notificationRepository.findById(id))
+                .or(() -> Optional.ofNullable(notificationCoalescer.find(id)))
+                .orElseThrow(() -> new NotificationNotFoundException(id));
+    }
+
+    public NotificationPreference changeNotificationPreference(UUID userId, boolean enabled) {
+        // Read from the database, a cached copy may predate changes made on another replica or by an import
+        NotificationPreference notificationPreference = preferenceRepository.findByUserId(userId).orElseThrow(() -> new NullPointerException("Notification preference for user: " + userId + " not found"));
+        notificationPreference.setNewsletterEnabled(enabled);
+
+        NotificationPreference saved = preferenceRepository.save(notificationPreference);
+        preferenceCache.invalidate(userId);
+
+        return saved;
+    }
+
+    private List<BatchItemResult> sendChunk(List<BatchEmailItem> chunk, boolean async) {
+        Set<UUID> userIds = chunk.stream()
+                .filter(item -> item.request() != null)
+                .map(item -> item.request().getUserId())
+                .collect(Collectors.toSet());
+
+        Map<UUID, NotificationPreference> preferences = preferenceCache.getAll(userIds);
+
+        List<CompletableFuture<BatchItemResult>> results = chunk.stream()
+                .map(item -> sendItem(item, item.request() == null ? null : preferences.get(item.request().getUserId()), async))
+                .toList();
+
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private CompletableFuture<BatchItemResult> sendItem(BatchEmailItem item, NotificationPreference preference, boolean async) {
+        if (item.error() != null) {
+            return CompletableFuture.completedFuture(BatchItemResult.rejected(item.index(), item.error()));
+        }
+        if (preference == null) {
+            return CompletableFuture.completedFuture(BatchItemResult.rejected(item.index(), "Notification preference for user: " + item.request().getUserId() + " not found"));
+        }
+
+        if (async) {
+            return CompletableFuture.completedFuture(sendItemNow(item, preference, true));
+        }
+
+        CompletableFuture<BatchItemResult> result = new CompletableFuture<>();
+        Runnable send = () -> result.complete(sendItemNow(item, preference, false));
+
+        // Sync items are one request fanned out and answered together, so they carry no ordering
+        // and an idle lane of the recipient's channel may take them over
+        try {
+            deliveryChannels.submit(preference.getType(), send);
+        } catch (DispatchQueueFullException e) {
+            // The workers are saturated, the request thread sends this one itself
+            send.run();
+        }
+
+        return result;
+    }
+
+    private BatchItemResult sendItemNow(BatchEmailItem item, NotificationPreference preference, boolean async) {
+        TransactionalEmailRequest request = item.request();
+        NotificationStatus[] status = new NotificationStatus[1];
+
+        try {
+            SendResult sent = switch (request) {
+                case WelcomeEmailRequest welcome -> idempotencyIndex.execute(welcomeKey(welcome, null), () -> {
+                    RenderedEmail email = renderWelcomeEmail(welcome);
+                    return async ? queueMail(email, preference) : deliverBatchItem(email, preference, status);
+                });
+                case OrderCreateEmailRequest order -> idempotencyIndex.execute(newOrderKey(order, null), () -> {
+                    RenderedEmail email = renderNewOrderEmail(order);
+                    return async ? queueMail(email, preference) : deliverBatchItem(email, preference, status);
+                });
+                case OrderShippedEmailRequest shipped -> idempotencyIndex.execute(shippedOrderKey(shipped, null), () -> {
+                    RenderedEmail email = renderShippedOrderEmail(shipped);
+                    return async ? queueMail(email, preference) : deliverBatchItem(email, preference, status);
+                });
+                default -> throw new IllegalArgumentException("Unsupported batch request: " + request.getClass().getSimpleName());
+            };
+
+            NotificationStatus outcome = sent.replayed() ? null : (async ? NotificationStatus.QUEUED : status[0]);
+            return new BatchItemResult(item.index(), sent.notificationId(), outcome, sent.replayed(), null);
+        } catch (RuntimeException e) {
+            return BatchItemResult.rejected(item.index(), e.getMessage());
+        }
+    }
+
+    private UUID deliverBatchItem(RenderedEmail email, NotificationPreference preference, NotificationStatus[] status) {
+        Notification notification = deliverNow(email, preference);
+        status[0] = notification.getStatus();
+        return notification.getId();
+    }
+
+    private static String welcomeKey(WelcomeEmailRequest request, String idempotencyKey) {
+        return IdempotencyIndex.keyFor(idempotencyKey, request.getUserId(), EmailType.WELCOME, null);
+    }
+
+    // Confirmation and new order requests both render the NEW_ORDER email and share one key
+    private static String newOrderKey(OrderCreateEmailRequest request, String idempotencyKey) {
+        return IdempotencyIndex.keyFor(idempotencyKey, request.getUserId(), EmailType.NEW_ORDER, request.getOrderId());
+    }
+
+    private static String shippedOrderKey(OrderShippedEmailRequest request, String idempotencyKey) {
+        return IdempotencyIndex.keyFor(idempotencyKey, request.getUserId(), EmailType.SHIPPED_ORDER, request.getOrderId());
+    }
+
+    private String renderNewsletter() {
+        return metrics.time(Stage.RENDER, EmailType.NEWSLETTER, () -> templateRenderer.render(EmailType.NEWSLETTER, Map.of()));
+    }
+
+    private RenderedEmail renderWelcomeEmail(WelcomeEmailRequest welcomeEmailRequest) {
         if (!welcomeEmailRequest.getEmailType().equals(EmailType.WELCOME)) {
             throw new IllegalArgumentException("Invalid email type for this email: " + welcomeEmailRequest.getEmailType());
         }
 
-        Context context = new Context();
-        context.setVariable("firstName", welcomeEmailRequest.getUserFirstName());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("firstName", welcomeEmailRequest.getUserFirstName());
 
-        String body = templateEngine.process(welcomeEmailRequest.getEmailType().getTemplate(), context);
+        String body = metrics.time(Stage.RENDER, welcomeEmailRequest.getEmailType(), () -> templateRenderer.render(welcomeEmailRequest.getEmailType(), variables));
 
-        sendMail(welcomeEmailRequest.getUserId(), welcomeEmailRequest.getEmailType(), welcomeEmailRequest.getSubject(), body);
+        return new RenderedEmail(welcomeEmailRequest.getUserId(), welcomeEmailRequest.getEmailType(), welcomeEmailRequest.getSubject(), body);
     }
 
-    public void sendNewOrderEmail(OrderCreateEmailRequest orderCreateEmailRequest) {
+    private RenderedEmail renderNewOrderEmail(OrderCreateEmailRequest orderCreateEmailRequest) {
         if (!orderCreateEmailRequest.getEmailType().equals(EmailType.NEW_ORDER)) {
             throw new IllegalArgumentException("Invalid email type for this email: " + orderCreateEmailRequest.getEmailType());
         }
 
-        Context context = new Context();
-        context.setVariable("fullName", orderCreateEmailRequest.getFullName());
-        context.setVariable("address", orderCreateEmailRequest.getAddress());
-        context.setVariable("phoneNumber", orderCreateEmailRequest.getPhoneNumber());
-        context.setVariable("courier", orderCreateEmailRequest.getCourier());
-        context.setVariable("paymentMethod", orderCreateEmailRequest.getPaymentMethod());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("fullName", orderCreateEmailRequest.getFullName());
+        variables.put("address", orderCreateEmailRequest.getAddress());
+        variables.put("phoneNumber", orderCreateEmailRequest.getPhoneNumber());
+        variables.put("courier", orderCreateEmailRequest.getCourier());
+        variables.put("paymentMethod", orderCreateEmailRequest.getPaymentMethod());
 
-        String body = templateEngine.process(orderCreateEmailRequest.getEmailType().getTemplate(), context);
+        String body = metrics.time(Stage.RENDER, orderCreateEmailRequest.getEmailType(), () -> templateRenderer.render(orderCreateEmailRequest.getEmailType(), variables));
 
-        sendMail(orderCreateEmailRequest.getUserId(), orderCreateEmailRequest.getEmailType(), orderCreateEmailRequest.getSubject(), body);
+        return new RenderedEmail(orderCreateEmailRequest.getUserId(), orderCreateEmailRequest.getEmailType(), orderCreateEmailRequest.getSubject(), body);
     }
 
-    public void sendShippedOrderEmail(OrderShippedEmailRequest orderShippedEmailRequest) {
+    private RenderedEmail renderShippedOrderEmail(OrderShippedEmailRequest orderShippedEmailRequest) {
         if (!orderShippedEmailRequest.getEmailType().equals(EmailType.SHIPPED_ORDER)) {
             throw new IllegalArgumentException("Invalid email type for this email: " + orderShippedEmailRequest.getEmailType());
         }
 
-        Context context = new Context();
-        context.setVariable("orderId", orderShippedEmailRequest.getOrderId());
-        context.setVariable("totalAmount", orderShippedEmailRequest.getTotalAmount());
-        context.setVariable("address", orderShippedEmailRequest.getAddress());
-        context.setVariable("courier", orderShippedEmailRequest.getCourier());
-        context.setVariable("paymentMethod", orderShippedEmailRequest.getPaymentMethod());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("orderId", orderShippedEmailRequest.getOrderId());
+        variables.put("totalAmount", orderShippedEmailRequest.getTotalAmount());
+        variables.put("address", orderShippedEmailRequest.getAddress());
+        variables.put("courier", orderShippedEmailRequest.getCourier());
+        variables.put("paymentMethod", orderShippedEmailRequest.getPaymentMethod());
 
-        String body = templateEngine.process(orderShippedEmailRequest.getEmailType().getTemplate(), context);
+        String body = metrics.time(Stage.RENDER, orderShippedEmailRequest.getEmailType(), () -> templateRenderer.render(orderShippedEmailRequest.getEmailType(), variables));
 
-        sendMail(orderShippedEmailRequest.getUserId(), orderShippedEmailRequest.getEmailType(), orderShippedEmailRequest.getSubject(), body);
+        return new RenderedEmail(orderShippedEmailRequest.getUserId(), orderShippedEmailRequest.getEmailType(), orderShippedEmailRequest.getSubject(), body);
     }
 
-    public void sendNewsletter() {
-        Context context = new Context();
-
-        String subject = "Your weekly update is here!!!\uD83D\uDC8C";
-        String body = templateEngine.process(EmailType.NEWSLETTER.getTemplate(), context);
+    private UUID sendMail(RenderedEmail email) {
+        return deliverNow(email, lookUpPreference(email)).getId();
+    }
 
-        List<NotificationPreference> allByIsNewsletterEnabledTrue  = preferenceRepository.findAllByIsNewsletterEnabledTrue();
+    private Notification deliverNow(RenderedEmail email, NotificationPreference userNotificationPreference) {
+        return notificationSender.send(userNotificationPreference, email.emailType(), email.subject(), email.body());
+    }
 
-        allByIsNewsletterEnabledTrue.forEach(userPreference -> sendMail(userPreference.getUserId(), EmailType.NEWSLETTER, subject, body));
+    private UUID queueMail(RenderedEmail email) {
+        return queueMail(email, lookUpPreference(email));
     }
 
-    public NotificationPreference changeNotificationPreference(UUID userId, boolean enabled) {
-        NotificationPreference notificationPreference = getByUserId(userId);
-        notificationPreference.setNewsletterEnabled(enabled);
-        return preferenceRepository.save(notificationPreference);
+    private NotificationPreference lookUpPreference(RenderedEmail email) {
+        return metrics.time(Stage.PREFERENCE_LOOKUP, email.emailType(), () -> getByUserId(email.userId()));
     }
 
-    private void sendMail(UUID userId, EmailType templateName, String subject, String body) {
-        NotificationPreference userNotificationPreference = getByUserId(userId);
+    private UUID queueMail(RenderedEmail email, NotificationPreference userNotificationPreference) {
+        // Emails with a coalescing window wait for more of the user's emails and go out as one digest
+        UUID digestId = notificationCoalescer.offer(email);
+        if (digestId != null) {
+            return digestId;
+        }
 
         Notification notification = Notification.builder()
                 .userId(userNotificationPreference.getUserId())
-                .subject(subject)
-                .emailType(templateName)
+                .subject(email.subject())
+                .emailType(email.emailType())
+                .status(NotificationStatus.QUEUED)
                 .createdOn(LocalDateTime.now())
                 .build();
 
-        try {
-            mailSender.send(mimeMessage -> {
-                MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage, true);
-                messageHelper.setTo(userNotificationPreference.getContactData());
-                messageHelper.setSubject(subject);
-                messageHelper.setText(body, true);
-            });
-
-            notification.setStatus(NotificationStatus.SENT);
-        } catch (Exception e) {
-            notification.setStatus(NotificationStatus.FAILED);
-            log.warn("Failed to send notification to user with id: %s due to %s".formatted(userId, e.getMessage()));
-        }
-
-        notificationRepository.save(notification);
+        return metrics.time(Stage.PERSIST, email.emailType(), () -> databaseLimiter.call(() -> notificationOutbox.queue(notification, email.body()))).getId();
     }
-
-
-
 }
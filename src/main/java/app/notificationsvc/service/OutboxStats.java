@@ -0,0 +1,4 @@
+package app.notificationsvc.service;
+
+public record OutboxStats(String instanceId, long claimed, long completed, long released, long abandoned) {
+}
@@ -0,0 +1,223 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of {@link NotificationPreference} keyed by user id. Concurrent misses for the
+ * same user wait on a single database load, and unknown users are remembered for a short time so
+ * repeated lookups do not reach the database. Callers that change a preference must
+ * {@link #invalidate(UUID)} it.
+ */
+@Component
+public class PreferenceCache {
+
+    private record Entry(NotificationPreference preference, long expiresAtNanos) {
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final DatabaseLimiter databaseLimiter;
+    private final NotificationProperties.PreferenceCache properties;
+    private final Map<UUID, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PreferenceCache(NotificationPreferenceRepository preferenceRepository, DatabaseLimiter databaseLimiter, NotificationProperties notificationProperties) {
+        this.preferenceRepository = preferenceRepository;
+        this.databaseLimiter = databaseLimiter;
+        this.properties = notificationProperties.getPreferenceCache();
+    }
+
+    public Optional<NotificationPreference> get(UUID userId) {
+        while (true) {
+            CompletableFuture<Entry> cached = entries.get(userId);
+
+            if (cached == null) {
+                CompletableFuture<Entry> loading = new CompletableFuture<>();
+                cached = entries.putIfAbsent(userId, loading);
+
+                if (cached == null) {
+                    misses.incrementAndGet();
+                    return load(userId, loading);
+                }
+            }
+
+            Entry entry;
+            try {
+                entry = cached.join();
+            } catch (CompletionException e) {
+                // The loading thread already removed the failed entry and rethrew to its own caller
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+
+            if (entry.isExpired(System.nanoTime())) {
+                entries.remove(userId, cached);
+                continue;
+            }
+
+            hits.incrementAndGet();
+            if (entry.preference() == null) {
+                negativeHits.incrementAndGet();
+                return Optional.empty();
+            }
+
+            // Hand out a copy so callers modifying the preference never change the cached one
+            return Optional.of(entry.preference().toBuilder().build());
+        }
+    }
+
+    /**
+     * Looks up many users at once. Fresh entries are served from memory and all misses are loaded
+     * with a single query. Users without a preference are left out of the returned map and cached
+     * as missing. As in {@link #get(UUID)}, each miss is reserved with a loading entry before the
+     * query, so an {@link #invalidate(UUID)} during the load drops the result instead of being
+     * overwritten by it.
+     */
+    public Map<UUID, NotificationPreference> getAll(Collection<UUID> userIds) {
+        long now = System.nanoTime();
+        Map<UUID, NotificationPreference> found = new HashMap<>();
+        Set<UUID> missing = new HashSet<>();
+        Map<UUID, CompletableFuture<Entry>> reserved = new HashMap<>();
+
+        for (UUID userId : userIds) {
+            CompletableFuture<Entry> cached = entries.get(userId);
+
+            if (cached != null && cached.isDone() && !cached.isCompletedExceptionally() && !cached.join().isExpired(now)) {
+                hits.incrementAndGet();
+                NotificationPreference preference = cached.join().preference();
+                if (preference == null) {
+                    negativeHits.incrementAndGet();
+                } else {
+                    found.put(userId, preference.toBuilder().build());
+                }
+                continue;
+            }
+
+            missing.add(userId);
+
+            // A load already in flight keeps its place; this call still reads the user but leaves caching to it
+            if (cached == null || cached.isDone()) {
+                CompletableFuture<Entry> loading = new CompletableFuture<>();
+                boolean installed = cached == null ? entries.putIfAbsent(userId, loading) == null : entries.replace(userId, cached, loading);
+                if (installed) {
+                    reserved.put(userId, loading);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.addAndGet(missing.size());
+        List<NotificationPreference> loaded;
+        try {
+            loaded = databaseLimiter.call(() -> preferenceRepository.findAllByUserIdIn(missing));
+        } catch (RuntimeException e) {
+            reserved.forEach((userId, loading) -> {
+                entries.remove(userId, loading);
+                loading.completeExceptionally(e);
+            });
+            throw e;
+        }
+
+        long expiresAt = System.nanoTime() + properties.getTtl().toNanos();
+        long negativeExpiresAt = System.nanoTime() + properties.getNegativeTtl().toNanos();
+
+        // Completing the reservation only caches the value while it is still mapped, an invalidated one is already gone
+        for (NotificationPreference preference : loaded) {
+            found.put(preference.getUserId(), preference);
+            missing.remove(preference.getUserId());
+            CompletableFuture<Entry> loading = reserved.remove(preference.getUserId());
+            if (loading != null) {
+                loading.complete(new Entry(preference.toBuilder().build(), expiresAt));
+            }
+        }
+        for (UUID userId : missing) {
+            CompletableFuture<Entry> loading = reserved.get(userId);
+            if (loading != null) {
+                loading.complete(new Entry(null, negativeExpiresAt));
+            }
+        }
+
+        if (entries.size() > properties.getMaxSize()) {
+            evict();
+        }
+
+        return found;
+    }
+
+    public void invalidate(UUID userId) {
+        entries.remove(userId);
+    }
+
+    public PreferenceCacheStats stats() {
+        return new PreferenceCacheStats(entries.size(), hits.get(), misses.get(), negativeHits.get(), evictions.get());
+    }
+
+    private Optional<NotificationPreference> load(UUID userId, CompletableFuture<Entry> loading) {
+        Optional<NotificationPreference> preference;
+        try {
+            preference = databaseLimiter.call(() -> preferenceRepository.findByUserId(userId));
+        } catch (RuntimeException e) {
+            entries.remove(userId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+
+        long ttl = preference.isPresent() ? properties.getTtl().toNanos() : properties.getNegativeTtl().toNanos();
+        NotificationPreference cachedCopy = preference.map(loaded -> loaded.toBuilder().build()).orElse(null);
+        loading.complete(new Entry(cachedCopy, System.nanoTime() + ttl));
+
+        if (entries.size() > properties.getMaxSize()) {
+            evict();
+        }
+
+        return preference;
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        int target = properties.getMaxSize() - properties.getMaxSize() / 10;
+
+        // Expired entries go first, then arbitrary ones until we are back under the target size
+        Iterator<CompletableFuture<Entry>> expired = entries.values().iterator();
+        while (expired.hasNext()) {
+            CompletableFuture<Entry> cached = expired.next();
+            if (cached.isDone() && !cached.isCompletedExceptionally() && cached.join().isExpired(now)) {
+                expired.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        Iterator<CompletableFuture<Entry>> any = entries.values().iterator();
+        while (entries.size() > target && any.hasNext()) {
+            any.next();
+            any.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
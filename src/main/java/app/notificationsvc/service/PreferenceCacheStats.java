@@ -0,0 +1,9 @@
+package app.notificationsvc.service;
+
+public record PreferenceCacheStats(int size, long hits, long misses, long negativeHits, long evictions) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,15 @@
+package app.notificationsvc.service;
+
+public enum PreferenceImportFormat {
+
+    /**
+     * One {@code UpsertNotificationPreference} JSON object per line.
+     */
+    NDJSON,
+
+    /**
+     * A header line naming the columns {@code userId}, {@code notificationType},
+     * {@code newsletterEnabled} and {@code contactData}, then one record per line.
+     */
+    CSV
+}
@@ -0,0 +1,18 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.web.dto.UpsertNotificationPreference;
+
+/**
+ * One record of a preference import, either parsed into a preference or rejected with an error.
+ * {@code line} is the record's 1-based line in the uploaded file.
+ */
+public record PreferenceImportItem(long line, UpsertNotificationPreference preference, String error) {
+
+    static PreferenceImportItem parsed(long line, UpsertNotificationPreference preference) {
+        return new PreferenceImportItem(line, preference, null);
+    }
+
+    static PreferenceImportItem rejected(long line, String error) {
+        return new PreferenceImportItem(line, null, error);
+    }
+}
@@ -0,0 +1,192 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidBatchException;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.web.dto.UpsertNotificationPreference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads preference records from an NDJSON or CSV stream line by line and hands them over in
+ * chunks, so an import of any size holds one chunk in memory. A record that cannot be read or fails
+ * the checks of {@link UpsertNotificationPreference} is passed on as a rejected item, and the rest
+ * of the file is still imported.
+ */
+@Component
+public class PreferenceImportReader {
+
+    private static final List<String> CSV_COLUMNS = List.of("userId", "notificationType", "newsletterEnabled", "contactData");
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final NotificationProperties.PreferenceImport properties;
+
+    public PreferenceImportReader(ObjectMapper objectMapper, Validator validator, NotificationProperties notificationProperties) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.properties = notificationProperties.getPreferenceImport();
+    }
+
+    public void read(InputStream body, PreferenceImportFormat format, Consumer<List<PreferenceImportItem>> chunkConsumer) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<PreferenceImportItem> chunk = new ArrayList<>(properties.getChunkSize());
+            Map<String, Integer> columns = null;
+            long line = 0;
+            String text;
+
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+
+                if (format == PreferenceImportFormat.CSV && columns == null) {
+                    columns = readHeader(text);
+                    continue;
+                }
+
+                chunk.add(format == PreferenceImportFormat.CSV ? fromCsv(line, text, columns) : fromJson(line, text));
+
+                if (chunk.size() == properties.getChunkSize()) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(properties.getChunkSize());
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        } catch (IOException e) {
+            throw new InvalidBatchException("Import body could not be read: " + e.getMessage(), e);
+        }
+    }
+
+    private PreferenceImportItem fromJson(long line, String text) {
+        try {
+            return validated(line, objectMapper.readValue(text, UpsertNotificationPreference.class));
+        } catch (JsonProcessingException e) {
+            return PreferenceImportItem.rejected(line, "Invalid record: " + e.getOriginalMessage());
+        }
+    }
+
+    private PreferenceImportItem fromCsv(long line, String text, Map<String, Integer> columns) {
+        List<String> fields = splitCsv(text);
+        if (fields.size() < columns.size()) {
+            return PreferenceImportItem.rejected(line, "Expected " + columns.size() + " columns but found " + fields.size());
+        }
+
+        String userId = fields.get(columns.get("userid"));
+        String notificationType = fields.get(columns.get("notificationtype"));
+        String newsletterEnabled = fields.get(columns.get("newsletterenabled")).toLowerCase(Locale.ROOT);
+
+        UpsertNotificationPreference preference = new UpsertNotificationPreference();
+        try {
+            preference.setUserId(UUID.fromString(userId));
+        } catch (IllegalArgumentException e) {
+            return PreferenceImportItem.rejected(line, "Invalid userId: " + userId);
+        }
+        try {
+            preference.setNotificationType(NotificationType.valueOf(notificationType));
+        } catch (IllegalArgumentException e) {
+            return PreferenceImportItem.rejected(line, "Unsupported notificationType: " + notificationType);
+        }
+        if (!newsletterEnabled.equals("true") && !newsletterEnabled.equals("false")) {
+            return PreferenceImportItem.rejected(line, "newsletterEnabled must be true or false");
+        }
+        preference.setNewsletterEnabled(Boolean.parseBoolean(newsletterEnabled));
+        preference.setContactData(fields.get(columns.get("contactdata")));
+        Integer timeZone = columns.get("timezone");
+        if (timeZone != null && !fields.get(timeZone).isBlank()) {
+            preference.setTimeZone(fields.get(timeZone));
+        }
+
+        return validated(line, preference);
+    }
+
+    private PreferenceImportItem validated(long line, UpsertNotificationPreference preference) {
+        String violations = validator.validate(preference).stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(PreferenceImportReader::describe)
+                .collect(Collectors.joining("; "));
+
+        return violations.isEmpty() ? PreferenceImportItem.parsed(line, preference) : PreferenceImportItem.rejected(line, violations);
+    }
+
+    private static String describe(ConstraintViolation<UpsertNotificationPreference> violation) {
+        return violation.getPropertyPath() + " " + violation.getMessage();
+    }
+
+    // Column names are matched ignoring case and may come in any order
+    private static Map<String, Integer> readHeader(String text) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(text);
+        for (int i = 0; i < names.size(); i++) {
+            columns.putIfAbsent(names.get(i).toLowerCase(Locale.ROOT), i);
+        }
+
+        for (String column : CSV_COLUMNS) {
+            if (!columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new InvalidBatchException("CSV header is missing the " + column + " column");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Splits one CSV line. Fields may be quoted with {@code "}, with {@code ""} for a quote inside
+     * them. Unquoted fields are trimmed.
+     */
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.toString().isBlank()) {
+                quoted = true;
+                wasQuoted = true;
+                field.setLength(0);
+            } else if (c == ',') {
+                fields.add(wasQuoted ? field.toString() : field.toString().trim());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (!wasQuoted) {
+                field.append(c);
+            }
+        }
+
+        fields.add(wasQuoted ? field.toString() : field.toString().trim());
+        return fields;
+    }
+}
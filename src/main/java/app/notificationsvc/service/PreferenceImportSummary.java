@@ -0,0 +1,10 @@
+package app.notificationsvc.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a preference import. A user listed more than once is counted once per record, the
+ * later records as updates. {@code errors} holds the first rejected records only.
+ */
+public record PreferenceImportSummary(long inserted, long updated, long rejected, List<PreferenceImportItem> errors) {
+}
@@ -0,0 +1,164 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.WebhookEndpoints;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidWebhookEndpointException;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.web.dto.UpsertNotificationPreference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bulk preference import. Each chunk read from the stream is written in its own transaction with
+ * one lookup of the users that already have a preference and one native upsert, instead of a
+ * lookup and a save per user. A chunk that was written stays written if a later one fails. A chunk
+ * the database refuses is written again row by row, so only the rows it refuses are rejected.
+ */
+@Slf4j
+@Service
+public class PreferenceImporter {
+
+    private final PreferenceImportReader reader;
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final PreferenceCache preferenceCache;
+    private final DatabaseLimiter databaseLimiter;
+    private final WebhookEndpoints webhookEndpoints;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationProperties.PreferenceImport properties;
+
+    public PreferenceImporter(PreferenceImportReader reader, NotificationPreferenceRepository preferenceRepository, PreferenceCache preferenceCache, DatabaseLimiter databaseLimiter, WebhookEndpoints webhookEndpoints, PlatformTransactionManager transactionManager, NotificationProperties notificationProperties) {
+        this.reader = reader;
+        this.preferenceRepository = preferenceRepository;
+        this.preferenceCache = preferenceCache;
+        this.databaseLimiter = databaseLimiter;
+        this.webhookEndpoints = webhookEndpoints;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = notificationProperties.getPreferenceImport();
+    }
+
+    public PreferenceImportSummary importPreferences(InputStream body, PreferenceImportFormat format) {
+        Tally tally = new Tally();
+
+        reader.read(body, format, chunk -> write(chunk, tally));
+
+        log.info("Imported preferences: {} inserted, {} updated, {} rejected", tally.inserted, tally.updated, tally.rejected);
+        return new PreferenceImportSummary(tally.inserted, tally.updated, tally.rejected, tally.errors);
+    }
+
+    private void write(List<PreferenceImportItem> chunk, Tally tally) {
+        // A user listed twice in one chunk would hit the same row twice in one statement, the last record wins
+        Map<UUID, PreferenceImportItem> latest = new LinkedHashMap<>();
+
+        for (PreferenceImportItem item : chunk) {
+            item = checkWebhook(item);
+
+            if (item.error() != null) {
+                tally.reject(item, properties.getMaxReportedErrors());
+            } else if (latest.put(item.preference().getUserId(), item) != null) {
+                tally.updated++;
+            }
+        }
+
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationPreference> preferences = latest.values().stream()
+                .map(item -> toPreference(item.preference(), now))
+                .toList();
+
+        try {
+            int existing = upsert(latest.keySet(), preferences);
+            tally.inserted += preferences.size() - existing;
+            tally.updated += existing;
+        } catch (DataAccessException e) {
+            // One bad row fails the whole statement, retry row by row so only that row is rejected
+            log.warn("Preference import chunk of {} rows failed, writing it row by row: {}", preferences.size(), e.getMessage());
+            writeRowByRow(new ArrayList<>(latest.values()), preferences, tally);
+        }
+
+        latest.keySet().forEach(preferenceCache::invalidate);
+    }
+
+    private void writeRowByRow(List<PreferenceImportItem> items, List<NotificationPreference> preferences, Tally tally) {
+        for (int i = 0; i < items.size(); i++) {
+            PreferenceImportItem item = items.get(i);
+            NotificationPreference preference = preferences.get(i);
+
+            try {
+                int existing = upsert(List.of(preference.getUserId()), List.of(preference));
+                if (existing > 0) {
+                    tally.updated++;
+                } else {
+                    tally.inserted++;
+                }
+            } catch (DataAccessException e) {
+                tally.reject(PreferenceImportItem.rejected(item.line(), "Could not be written: " + e.getMostSpecificCause().getMessage()), properties.getMaxReportedErrors());
+            }
+        }
+    }
+
+    private int upsert(Collection<UUID> userIds, List<NotificationPreference> preferences) {
+        return databaseLimiter.call(() -> transactionTemplate.execute(status -> {
+            int found = preferenceRepository.findExistingUserIds(userIds).size();
+            preferenceRepository.upsertAll(preferences);
+            return found;
+        }));
+    }
+
+    private static NotificationPreference toPreference(UpsertNotificationPreference dto, LocalDateTime now) {
+        return NotificationPreference.builder()
+                .id(UUID.randomUUID())
+                .userId(dto.getUserId())
+                .type(dto.getNotificationType())
+                .isNewsletterEnabled(dto.isNewsletterEnabled())
+                .contactData(dto.getContactData())
+                .timeZone(dto.getTimeZone())
+                .createdOn(now)
+                .updatedOn(now)
+                .build();
+    }
+
+    private PreferenceImportItem checkWebhook(PreferenceImportItem item) {
+        if (item.error() != null || item.preference().getNotificationType() != NotificationType.WEBHOOK) {
+            return item;
+        }
+
+        try {
+            webhookEndpoints.check(item.preference().getContactData());
+            return item;
+        } catch (InvalidWebhookEndpointException e) {
+            return PreferenceImportItem.rejected(item.line(), e.getMessage());
+        }
+    }
+
+    private static final class Tally {
+
+        private long inserted;
+        private long updated;
+        private long rejected;
+        private final List<PreferenceImportItem> errors = new ArrayList<>();
+
+        private void reject(PreferenceImportItem item, int maxReported) {
+            rejected++;
+            if (errors.size() < maxReported) {
+                errors.add(item);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.model.EmailType;
+
+import java.util.UUID;
+
+public record RenderedEmail(UUID userId, EmailType emailType, String subject, String body) {
+}
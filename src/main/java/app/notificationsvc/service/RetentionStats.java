@@ -0,0 +1,6 @@
+package app.notificationsvc.service;
+
+import java.time.LocalDateTime;
+
+public record RetentionStats(long archived, long purged, long partitionsDropped, LocalDateTime lastRunOn, LocalDateTime lastCutoff) {
+}
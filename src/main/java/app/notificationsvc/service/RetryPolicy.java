@@ -0,0 +1,87 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DeliveryRejectedException;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides what happens to a notification after a failed send. Transient failures are scheduled
+ * for another attempt with exponential backoff and jitter. A failure that can never succeed, such
+ * as an unparseable address, is marked FAILED. A notification that keeps failing is marked DEAD
+ * once it reaches max-attempts.
+ */
+@Component
+public class RetryPolicy {
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final NotificationProperties.Retry properties;
+
+    public RetryPolicy(NotificationProperties notificationProperties) {
+        this.properties = notificationProperties.getRetry();
+    }
+
+    public void recordFailure(Notification notification, String body, Exception cause) {
+        notification.setLastError(abbreviate(cause.getMessage()));
+
+        if (!isRetryable(cause)) {
+            close(notification, NotificationStatus.FAILED);
+        } else if (notification.getAttempts() >= properties.getMaxAttempts()) {
+            close(notification, NotificationStatus.DEAD);
+        } else {
+            notification.setStatus(NotificationStatus.RETRYING);
+            notification.setBody(body);
+            notification.setNextAttemptOn(LocalDateTime.now().plus(backoff(notification.getAttempts())));
+        }
+    }
+
+    public void recordSuccess(Notification notification) {
+        close(notification, NotificationStatus.SENT);
+    }
+
+    public void abandon(Notification notification, String reason) {
+        notification.setLastError(abbreviate(reason));
+        close(notification, NotificationStatus.DEAD);
+    }
+
+    public boolean isRetryable(Exception cause) {
+        return !(cause instanceof MailParseException
+                || cause instanceof MailPreparationException
+                || cause instanceof IllegalArgumentException
+                || cause instanceof DeliveryRejectedException);
+    }
+
+    /**
+     * Delay after the given number of failed attempts. Half of it is fixed and the other half is
+     * random ("equal jitter"), so retries of a burst that failed together spread out instead of
+     * hitting the relay again at the same moment.
+     */
+    Duration backoff(int failedAttempts) {
+        double exponential = properties.getInitialBackoff().toMillis() * Math.pow(properties.getMultiplier(), Math.max(0, failedAttempts - 1));
+        long capped = (long) Math.min(exponential, properties.getMaxBackoff().toMillis());
+        long half = Math.max(1, capped / 2);
+
+        return Duration.ofMillis(capped - half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    private static void close(Notification notification, NotificationStatus status) {
+        notification.setStatus(status);
+        notification.setBody(null);
+        notification.setNextAttemptOn(null);
+    }
+
+    private static String abbreviate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
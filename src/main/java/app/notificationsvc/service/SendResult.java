@@ -0,0 +1,10 @@
+package app.notificationsvc.service;
+
+import java.util.UUID;
+
+/**
+ * Outcome of a transactional send. {@code replayed} is true when the request was a duplicate and
+ * the id is that of the notification created by the original request.
+ */
+public record SendResult(UUID notificationId, boolean replayed) {
+}
@@ -0,0 +1,93 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.mail.PooledJavaMailSender;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares what the first requests would otherwise pay for: parsed and compiled templates, open
+ * database connections with Hibernate's queries prepared, and authenticated SMTP sessions. Runs as
+ * an {@link ApplicationRunner}, so the readiness probe only reports {@code ACCEPTING_TRAFFIC} once
+ * it is done. A failed step is logged and skipped, startup never fails because of it.
+ */
+@Slf4j
+@Component
+public class StartupWarmUp implements ApplicationRunner {
+
+    private final EmailTemplateRenderer templateRenderer;
+    private final DataSource dataSource;
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final PooledJavaMailSender mailSender;
+    private final NotificationMetrics metrics;
+    private final NotificationProperties.WarmUp properties;
+
+    public StartupWarmUp(EmailTemplateRenderer templateRenderer, DataSource dataSource, NotificationPreferenceRepository preferenceRepository, PooledJavaMailSender mailSender, NotificationMetrics metrics, NotificationProperties notificationProperties) {
+        this.templateRenderer = templateRenderer;
+        this.dataSource = dataSource;
+        this.preferenceRepository = preferenceRepository;
+        this.mailSender = mailSender;
+        this.metrics = metrics;
+        this.properties = notificationProperties.getWarmUp();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int templates = step("templates", templateRenderer::warmUp);
+        int connections = step("database", this::warmUpDatabase);
+        int sessions = step("smtp", () -> mailSender.prefill(properties.getSmtpConnections()));
+
+        log.info("Warm-up took {} ms: {} templates, {} database connections, {} SMTP sessions",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), templates, connections, sessions);
+    }
+
+    // Holds all connections at once so the pool has to open that many
+    private int warmUpDatabase() throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < properties.getDatabaseConnections(); i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+
+        preferenceRepository.findByUserId(new UUID(0, 0));
+        return connections.size();
+    }
+
+    private int step(String name, Callable<Integer> step) {
+        long start = System.nanoTime();
+        try {
+            return step.call();
+        } catch (Exception e) {
+            log.warn("Warm-up step {} failed, continuing without it: {}", name, e.getMessage());
+            return 0;
+        } finally {
+            metrics.recordWarmUp(name, System.nanoTime() - start);
+        }
+    }
+}
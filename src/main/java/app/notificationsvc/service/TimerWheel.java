@@ -0,0 +1,101 @@
+package app.notificationsvc.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel running short tasks on one ticker thread. Scheduling is a lock-free queue
+ * offer, and each tick only looks at the timeouts hashed to its bucket, so thousands of pending
+ * timeouts cost the same per tick as a few. Timeouts fire up to one tick late and are never
+ * cancelled, a task that is no longer needed has to notice that itself.
+ */
+@Slf4j
+class TimerWheel {
+
+    private record Timeout(long deadline, Runnable task) {
+    }
+
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    // Touched by the ticker thread only
+    private final ArrayDeque<Timeout>[] buckets;
+    private final Thread ticker;
+    private long tick;
+    private volatile boolean running = true;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(String name, Duration tick, int bucketCount) {
+        this.tickNanos = tick.toNanos();
+        this.buckets = new ArrayDeque[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+
+        this.ticker = new Thread(this::run, name);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Runs the task on the ticker thread once {@code System.nanoTime()} has passed the deadline.
+     */
+    void schedule(long deadlineNanos, Runnable task) {
+        scheduled.offer(new Timeout(deadlineNanos, task));
+    }
+
+    void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(ticker);
+        ticker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running) {
+            long nextTick = startNanos + (tick + 1) * tickNanos;
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+
+            tick++;
+            transferScheduled();
+            expire(buckets[(int) (tick % buckets.length)], System.nanoTime());
+        }
+    }
+
+    // Buckets are only written here, so a timeout can never land in a bucket the ticker just passed
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            long dueTick = Math.max(tick, Math.ceilDiv(timeout.deadline() - startNanos, tickNanos));
+            buckets[(int) (dueTick % buckets.length)].add(timeout);
+        }
+    }
+
+    // Timeouts more than one turn of the wheel away share the bucket and are kept for a later turn
+    private void expire(ArrayDeque<Timeout> bucket, long now) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.deadline() - now > 0) {
+                continue;
+            }
+
+            iterator.remove();
+            try {
+                timeout.task().run();
+            } catch (RuntimeException e) {
+                log.error("Timer task failed", e);
+            }
+        }
+    }
+}
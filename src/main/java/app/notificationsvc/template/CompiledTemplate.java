@@ -0,0 +1,71 @@
+package app.notificationsvc.template;
+
+import org.unbescape.html.HtmlEscape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template rendered once with placeholder values and split into literal segments around them.
+ * Rendering a message only escapes the variable values and splices them between the segments.
+ */
+final class CompiledTemplate {
+
+    private final String[] literals;
+    private final String[] slots;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Splits {@code rendered} at every occurrence of {@code prefix + index + suffix}, where index
+     * points into {@code names}.
+     */
+    static CompiledTemplate parse(String rendered, String prefix, String suffix, List<String> names) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+
+        int from = 0;
+        int start;
+        while ((start = rendered.indexOf(prefix, from)) >= 0) {
+            int indexStart = start + prefix.length();
+            int end = rendered.indexOf(suffix, indexStart);
+            if (end < 0) {
+                break;
+            }
+
+            literals.add(rendered.substring(from, start));
+            slots.add(names.get(Integer.parseInt(rendered.substring(indexStart, end))));
+            from = end + suffix.length();
+        }
+        literals.add(rendered.substring(from));
+
+        return new CompiledTemplate(literals.toArray(String[]::new), slots.toArray(String[]::new));
+    }
+
+    String render(Map<String, ?> variables) {
+        StringBuilder out = new StringBuilder(literalLength + slots.length * 32);
+
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            out.append(HtmlEscape.escapeHtml4Xml(String.valueOf(variables.get(slots[i]))));
+        }
+        out.append(literals[slots.length]);
+
+        return out.toString();
+    }
+
+    int slotCount() {
+        return slots.length;
+    }
+}
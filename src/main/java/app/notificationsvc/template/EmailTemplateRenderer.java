@@ -0,0 +1,174 @@
+package app.notificationsvc.template;
+
+import app.notificationsvc.model.EmailType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders email templates from precompiled skeletons. The first render of a template runs it
+ * through Thymeleaf with placeholder values and splits the output around them; later renders only
+ * splice the escaped values in. A skeleton is only used after a second probe, with values that need
+ * escaping, renders identically through Thymeleaf and through the skeleton. Templates using
+ * conditionals, loops or fragments, or whose output depends on the values in any other way
+ * (unescaped or URL output, formatting), keep being rendered by Thymeleaf.
+ */
+@Slf4j
+@Component
+public class EmailTemplateRenderer {
+
+    private record Key(String template, Set<String> variables) {
+    }
+
+    private static final CompiledTemplate NOT_COMPILABLE = CompiledTemplate.parse("", "\0", "\0", List.of());
+
+    private static final Pattern UNSUPPORTED_ATTRIBUTES = Pattern.compile(
+            "(th:|data-th-)(if|unless|each|switch|case|insert|replace|include|with|object|remove|fragment)\\b");
+
+    private static final Pattern EXPRESSION = Pattern.compile("\\$\\{([^}]*)}");
+
+    // Top level names in an expression, leaving out properties, utility objects and literals
+    private static final Pattern EXPRESSION_VARIABLE = Pattern.compile("(?<![\\w.#$])([A-Za-z_]\\w*)");
+
+    private static final Set<String> EXPRESSION_KEYWORDS = Set.of("and", "or", "not", "true", "false", "null", "eq", "ne", "lt", "gt", "le", "ge");
+
+    private final SpringTemplateEngine templateEngine;
+    private final ResourceLoader resourceLoader;
+    private final ThymeleafProperties thymeleafProperties;
+    private final Map<Key, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+    public EmailTemplateRenderer(SpringTemplateEngine templateEngine, ResourceLoader resourceLoader, ThymeleafProperties thymeleafProperties) {
+        this.templateEngine = templateEngine;
+        this.resourceLoader = resourceLoader;
+        this.thymeleafProperties = thymeleafProperties;
+    }
+
+    public String render(EmailType emailType, Map<String, ?> variables) {
+        return render(emailType.getTemplate(), variables);
+    }
+
+    public String render(String template, Map<String, ?> variables) {
+        if (variables.values().stream().anyMatch(Objects::isNull)) {
+            return process(template, variables);
+        }
+
+        CompiledTemplate skeleton = compiled.computeIfAbsent(new Key(template, Set.copyOf(variables.keySet())), this::compile);
+
+        if (skeleton == NOT_COMPILABLE) {
+            return process(template, variables);
+        }
+
+        return skeleton.render(variables);
+    }
+
+    /**
+     * Parses every template under the Thymeleaf prefix and compiles the skeleton for the variables
+     * it references, so the first email of each type does not pay for either. Returns the number of
+     * templates loaded.
+     */
+    public int warmUp() throws IOException {
+        String prefix = thymeleafProperties.getPrefix().replaceFirst("^classpath:", "classpath*:");
+        String suffix = thymeleafProperties.getSuffix();
+        Resource[] templates = ResourcePatternUtils.getResourcePatternResolver(resourceLoader).getResources(prefix + "*" + suffix);
+
+        for (Resource resource : templates) {
+            String filename = Objects.requireNonNull(resource.getFilename());
+            warmUp(filename.substring(0, filename.length() - suffix.length()), resource.getContentAsString(thymeleafProperties.getEncoding()));
+        }
+
+        return templates.length;
+    }
+
+    public boolean isCompiled(String template, Set<String> variables) {
+        CompiledTemplate skeleton = compiled.get(new Key(template, Set.copyOf(variables)));
+        return skeleton != null && skeleton != NOT_COMPILABLE;
+    }
+
+    private void warmUp(String template, String source) {
+        Set<String> variables = new HashSet<>();
+        Matcher expression = EXPRESSION.matcher(source);
+        while (expression.find()) {
+            Matcher variable = EXPRESSION_VARIABLE.matcher(expression.group(1).replaceAll("'[^']*'", "''"));
+            while (variable.find()) {
+                variables.add(variable.group(1));
+            }
+        }
+        variables.removeAll(EXPRESSION_KEYWORDS);
+
+        if (compiled.computeIfAbsent(new Key(template, Set.copyOf(variables)), this::compile) == NOT_COMPILABLE) {
+            try {
+                // Still leaves the parsed template in Thymeleaf's cache
+                process(template, Map.of());
+            } catch (RuntimeException e) {
+                log.info("Template {} could not be warmed up: {}", template, e.getMessage());
+            }
+        }
+    }
+
+    private CompiledTemplate compile(Key key) {
+        List<String> names = new ArrayList<>(key.variables());
+        String prefix = "tplslot" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + "x";
+        String suffix = "xtolspt";
+
+        try {
+            if (usesUnsupportedAttributes(key.template())) {
+                log.info("Template {} uses conditional or structural attributes, rendering it with Thymeleaf", key.template());
+                return NOT_COMPILABLE;
+            }
+
+            Map<String, Object> placeholders = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                placeholders.put(names.get(i), prefix + i + suffix);
+            }
+
+            CompiledTemplate skeleton = CompiledTemplate.parse(process(key.template(), placeholders), prefix, suffix, names);
+
+            Map<String, Object> probe = new HashMap<>();
+            for (String name : names) {
+                probe.put(name, "<&\"'> " + name + " " + ThreadLocalRandom.current().nextInt());
+            }
+
+            if (!Objects.equals(skeleton.render(probe), process(key.template(), probe))) {
+                log.info("Template {} depends on its variables beyond plain text output, rendering it with Thymeleaf", key.template());
+                return NOT_COMPILABLE;
+            }
+
+            log.debug("Compiled template {} into a skeleton with {} slots", key.template(), skeleton.slotCount());
+            return skeleton;
+        } catch (IOException | RuntimeException e) {
+            log.info("Template {} cannot be compiled, rendering it with Thymeleaf: {}", key.template(), e.getMessage());
+            return NOT_COMPILABLE;
+        }
+    }
+
+    private boolean usesUnsupportedAttributes(String template) throws IOException {
+        Resource resource = resourceLoader.getResource(thymeleafProperties.getPrefix() + template + thymeleafProperties.getSuffix());
+        String source = resource.getContentAsString(thymeleafProperties.getEncoding());
+
+        return UNSUPPORTED_ATTRIBUTES.matcher(source).find();
+    }
+
+    private String process(String template, Map<String, ?> variables) {
+        Context context = new Context();
+        variables.forEach(context::setVariable);
+        return templateEngine.process(template, context);
+    }
+}
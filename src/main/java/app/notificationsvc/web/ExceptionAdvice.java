@@ -1,6 +1,17 @@
 package app.notificationsvc.web;
 
+import app.notificationsvc.exception.DatabaseBusyException;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.exception.InvalidBatchException;
+import app.notificationsvc.exception.InvalidCampaignException;
+import app.notificationsvc.exception.InvalidHistoryCursorException;
+import app.notificationsvc.exception.InvalidWebhookEndpointException;
+import app.notificationsvc.exception.NewsletterCampaignNotFoundException;
+import app.notificationsvc.exception.NewsletterQueueFullException;
+import app.notificationsvc.exception.NewsletterRunNotFoundException;
+import app.notificationsvc.exception.NotificationNotFoundException;
 import app.notificationsvc.web.dto.ErrorResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -18,6 +29,55 @@ public class ExceptionAdvice {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
 
+    @ExceptionHandler({NotificationNotFoundException.class, NewsletterRunNotFoundException.class, NewsletterCampaignNotFoundException.class})
+    public ResponseEntity<ErrorResponse> handleNotificationNotFound(RuntimeException ex) {
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.NOT_FOUND.value(), ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+
+    @ExceptionHandler({InvalidBatchException.class, InvalidHistoryCursorException.class, InvalidCampaignException.class, InvalidWebhookEndpointException.class})
+    public ResponseEntity<ErrorResponse> handleBadRequest(RuntimeException ex) {
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    @ExceptionHandler(DispatchQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleDispatchQueueFull(DispatchQueueFullException ex) {
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many pending notifications, please retry later.");
+
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(NewsletterQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleNewsletterQueueFull(NewsletterQueueFullException ex) {
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many newsletter runs queued, please retry later.");
+
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<ErrorResponse> handleDatabaseBusy(DatabaseBusyException ex) {
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), "Service is busy, please retry later.");
+
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex) {
         ErrorResponse errorResponse = new ErrorResponse(
@@ -1,23 +1,63 @@
 package app.notificationsvc.web;
 
+import app.notificationsvc.model.NewsletterCampaign;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.EmailType;
 import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.service.BatchItemResult;
+import app.notificationsvc.service.NewsletterCampaigns;
+import app.notificationsvc.service.NewsletterRun;
+import app.notificationsvc.service.NotificationHistoryPage;
+import app.notificationsvc.service.NotificationHistoryService;
 import app.notificationsvc.service.NotificationService;
+import app.notificationsvc.service.PreferenceImportFormat;
+import app.notificationsvc.service.PreferenceImportSummary;
+import app.notificationsvc.service.PreferenceImporter;
+import app.notificationsvc.service.SendResult;
 import app.notificationsvc.web.dto.*;
 import app.notificationsvc.web.mapper.DtoMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/notifications")
 public class NotificationController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final NotificationService notificationService;
+    private final NotificationHistoryService notificationHistoryService;
+    private final PreferenceImporter preferenceImporter;
+    private final NewsletterCampaigns newsletterCampaigns;
 
-    public NotificationController(NotificationService notificationService) {
+    public NotificationController(NotificationService notificationService, NotificationHistoryService notificationHistoryService, PreferenceImporter preferenceImporter, NewsletterCampaigns newsletterCampaigns) {
         this.notificationService = notificationService;
+        this.notificationHistoryService = notificationHistoryService;
+        this.preferenceImporter = preferenceImporter;
+        this.newsletterCampaigns = newsletterCampaigns;
+    }
+
+    @GetMapping
+    public ResponseEntity<NotificationHistoryResponse> getNotificationHistory(@RequestParam(name = "userId") UUID userId,
+                                                                              @RequestParam(name = "type", required = false) EmailType type,
+                                                                              @RequestParam(name = "status", required = false) NotificationStatus status,
+                                                                              @RequestParam(name = "before", required = false) String before,
+                                                                              @RequestParam(name = "size", required = false) Integer size) {
+
+        NotificationHistoryPage page = notificationHistoryService.getHistory(userId, type, status, before, size);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromHistoryPage(page));
     }
 
     @GetMapping("/preferences")
@@ -42,6 +82,26 @@ public class NotificationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(responseDto);
     }
 
+    @PostMapping(value = "/preferences/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<PreferenceImportResponse> importNdjsonPreferences(InputStream body) {
+
+        PreferenceImportSummary summary = preferenceImporter.importPreferences(body, PreferenceImportFormat.NDJSON);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromPreferenceImportSummary(summary));
+    }
+
+    @PostMapping(value = "/preferences/import", consumes = "text/csv")
+    public ResponseEntity<PreferenceImportResponse> importCsvPreferences(InputStream body) {
+
+        PreferenceImportSummary summary = preferenceImporter.importPreferences(body, PreferenceImportFormat.CSV);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromPreferenceImportSummary(summary));
+    }
+
     @PutMapping("/preferences")
     public ResponseEntity<NotificationPreferenceResponse> changeNotificationPreference(@RequestParam(name = "userId") UUID userId, @RequestParam(name = "enabled") boolean enabled) {
 
@@ -54,38 +114,131 @@ public class NotificationController {
                 .body(responseDto);
     }
 
+    @GetMapping("/{id}/status")
+    public ResponseEntity<NotificationStatusResponse> getNotificationStatus(@PathVariable(name = "id") UUID id) {
+
+        Notification notification = notificationService.getNotification(id);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromNotification(notification));
+    }
+
     @PostMapping("/emails/welcome")
-    public ResponseEntity<Void> sendWelcomeEmail(@RequestBody WelcomeEmailRequest welcomeEmailRequest) {
-        notificationService.sendWelcomeEmail(welcomeEmailRequest);
+    public ResponseEntity<NotificationAcceptedResponse> sendWelcomeEmail(@RequestBody WelcomeEmailRequest welcomeEmailRequest, @RequestParam(name = "async", defaultValue = "false") boolean async, @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (async) {
+            return accepted(notificationService.queueWelcomeEmail(welcomeEmailRequest, idempotencyKey));
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        return created(notificationService.sendWelcomeEmail(welcomeEmailRequest, idempotencyKey));
     }
 
     @PostMapping("/emails/order/confirmation")
-    public ResponseEntity<Void> sendOrderConfirmationEmail(@RequestBody OrderCreateEmailRequest orderConfirmationEmailRequest) {
-        notificationService.sendNewOrderEmail(orderConfirmationEmailRequest);
+    public ResponseEntity<NotificationAcceptedResponse> sendOrderConfirmationEmail(@RequestBody OrderCreateEmailRequest orderConfirmationEmailRequest, @RequestParam(name = "async", defaultValue = "false") boolean async, @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (async) {
+            return accepted(notificationService.queueNewOrderEmail(orderConfirmationEmailRequest, idempotencyKey));
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        return created(notificationService.sendNewOrderEmail(orderConfirmationEmailRequest, idempotencyKey));
     }
 
     @PostMapping("/emails/order/new")
-    public ResponseEntity<Void> sendNewOrderEmail(@RequestBody OrderCreateEmailRequest orderNewEmailRequest) {
-        notificationService.sendNewOrderEmail(orderNewEmailRequest);
+    public ResponseEntity<NotificationAcceptedResponse> sendNewOrderEmail(@RequestBody OrderCreateEmailRequest orderNewEmailRequest, @RequestParam(name = "async", defaultValue = "false") boolean async, @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (async) {
+            return accepted(notificationService.queueNewOrderEmail(orderNewEmailRequest, idempotencyKey));
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        return created(notificationService.sendNewOrderEmail(orderNewEmailRequest, idempotencyKey));
     }
 
     @PostMapping("emails/order/shipped")
-    public ResponseEntity<Void> sendOrderShippedEmail(@RequestBody OrderShippedEmailRequest orderShippedEmailRequest) {
-        notificationService.sendShippedOrderEmail(orderShippedEmailRequest);
+    public ResponseEntity<NotificationAcceptedResponse> sendOrderShippedEmail(@RequestBody OrderShippedEmailRequest orderShippedEmailRequest, @RequestParam(name = "async", defaultValue = "false") boolean async, @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (async) {
+            return accepted(notificationService.queueShippedOrderEmail(orderShippedEmailRequest, idempotencyKey));
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        return created(notificationService.sendShippedOrderEmail(orderShippedEmailRequest, idempotencyKey));
+    }
+
+    @PostMapping(value = "/emails/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchEmailResponse> sendBatchEmails(InputStream body, @RequestParam(name = "async", defaultValue = "false") boolean async) {
+
+        List<BatchItemResult> results = notificationService.sendBatch(body, async);
+
+        return ResponseEntity
+                .status(async ? HttpStatus.ACCEPTED : HttpStatus.OK)
+                .body(DtoMapper.fromBatchItemResults(results));
     }
 
     @PostMapping("/emails/newsletter")
-    public ResponseEntity<Void> sendNewsletter() {
-        notificationService.sendNewsletter();
+    public ResponseEntity<NewsletterRunResponse> sendNewsletter(@RequestParam(name = "async", defaultValue = "false") boolean async) {
+        if (async) {
+            NewsletterRun newsletterRun = notificationService.queueNewsletter();
+
+            return ResponseEntity
+                    .status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/v1/notifications/newsletter/runs/" + newsletterRun.getId()))
+                    .body(DtoMapper.fromNewsletterRun(newsletterRun));
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(null);
+        NewsletterRun newsletterRun = notificationService.sendNewsletter();
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(DtoMapper.fromNewsletterRun(newsletterRun));
+    }
+
+    @GetMapping("/newsletter/runs/{id}")
+    public ResponseEntity<NewsletterRunResponse> getNewsletterRun(@PathVariable(name = "id") UUID id) {
+
+        NewsletterRun newsletterRun = notificationService.getNewsletterRun(id);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromNewsletterRun(newsletterRun));
+    }
+
+    @PostMapping("/newsletter/campaigns")
+    public ResponseEntity<NewsletterCampaignResponse> scheduleNewsletterCampaign(@RequestBody NewsletterCampaignRequest request) {
+
+        NewsletterCampaign campaign = newsletterCampaigns.schedule(request.getSubject(), request.getStartOn(), request.getSendRate(), request.getSpreadOver(), request.isStaggerByTimeZone());
+
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .location(URI.create("/api/v1/notifications/newsletter/campaigns/" + campaign.getId()))
+                .body(DtoMapper.fromNewsletterCampaign(campaign));
+    }
+
+    @GetMapping("/newsletter/campaigns/{id}")
+    public ResponseEntity<NewsletterCampaignResponse> getNewsletterCampaign(@PathVariable(name = "id") UUID id) {
+
+        NewsletterCampaign campaign = newsletterCampaigns.get(id);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromNewsletterCampaign(campaign));
+    }
+
+    @PostMapping("/newsletter/campaigns/{id}/cancel")
+    public ResponseEntity<NewsletterCampaignResponse> cancelNewsletterCampaign(@PathVariable(name = "id") UUID id) {
+
+        NewsletterCampaign campaign = newsletterCampaigns.cancel(id);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(DtoMapper.fromNewsletterCampaign(campaign));
+    }
+
+    private ResponseEntity<NotificationAcceptedResponse> created(SendResult result) {
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(null);
+    }
+
+    private ResponseEntity<NotificationAcceptedResponse> accepted(SendResult result) {
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/v1/notifications/" + result.notificationId() + "/status"))
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(new NotificationAcceptedResponse(result.notificationId()));
     }
 }
@@ -0,0 +1,117 @@
+package app.notificationsvc.web;
+
+import app.notificationsvc.channel.ChannelStats;
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.mail.PooledJavaMailSender;
+import app.notificationsvc.mail.SendRateLimiter;
+import app.notificationsvc.mail.SmtpPoolStats;
+import app.notificationsvc.mail.TokenBucketStats;
+import app.notificationsvc.service.CoalescerStats;
+import app.notificationsvc.service.IdempotencyIndex;
+import app.notificationsvc.service.IdempotencyStats;
+import app.notificationsvc.service.NotificationLogStats;
+import app.notificationsvc.service.NotificationCoalescer;
+import app.notificationsvc.service.NotificationLogWriter;
+import app.notificationsvc.service.NotificationOutbox;
+import app.notificationsvc.service.NotificationRetention;
+import app.notificationsvc.service.PreferenceCache;
+import app.notificationsvc.service.OutboxStats;
+import app.notificationsvc.service.PreferenceCacheStats;
+import app.notificationsvc.service.RetentionStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/notifications/stats")
+public class StatsController {
+
+    private final PooledJavaMailSender mailSender;
+    private final PreferenceCache preferenceCache;
+    private final NotificationLogWriter notificationLogWriter;
+    private final SendRateLimiter sendRateLimiter;
+    private final IdempotencyIndex idempotencyIndex;
+    private final DeliveryChannels deliveryChannels;
+    private final NotificationOutbox notificationOutbox;
+    private final NotificationCoalescer notificationCoalescer;
+    private final NotificationRetention notificationRetention;
+
+    public StatsController(PooledJavaMailSender mailSender, PreferenceCache preferenceCache, NotificationLogWriter notificationLogWriter, SendRateLimiter sendRateLimiter, IdempotencyIndex idempotencyIndex, DeliveryChannels deliveryChannels, NotificationOutbox notificationOutbox, NotificationCoalescer notificationCoalescer, NotificationRetention notificationRetention) {
+        this.mailSender = mailSender;
+        this.preferenceCache = preferenceCache;
+        this.notificationLogWriter = notificationLogWriter;
+        this.sendRateLimiter = sendRateLimiter;
+        this.idempotencyIndex = idempotencyIndex;
+        this.deliveryChannels = deliveryChannels;
+        this.notificationOutbox = notificationOutbox;
+        this.notificationCoalescer = notificationCoalescer;
+        this.notificationRetention = notificationRetention;
+    }
+
+    @GetMapping("/mail-pool")
+    public ResponseEntity<SmtpPoolStats> getMailPoolStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(mailSender.getPoolStats());
+    }
+
+    @GetMapping("/preference-cache")
+    public ResponseEntity<PreferenceCacheStats> getPreferenceCacheStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(preferenceCache.stats());
+    }
+
+    @GetMapping("/notification-log")
+    public ResponseEntity<NotificationLogStats> getNotificationLogStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(notificationLogWriter.stats());
+    }
+
+    @GetMapping("/send-rate")
+    public ResponseEntity<List<TokenBucketStats>> getSendRateStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(sendRateLimiter.stats());
+    }
+
+    @GetMapping("/idempotency")
+    public ResponseEntity<IdempotencyStats> getIdempotencyStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(idempotencyIndex.stats());
+    }
+
+    @GetMapping("/channels")
+    public ResponseEntity<List<ChannelStats>> getChannelStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(deliveryChannels.stats());
+    }
+
+    @GetMapping("/outbox")
+    public ResponseEntity<OutboxStats> getOutboxStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(notificationOutbox.stats());
+    }
+
+    @GetMapping("/coalescing")
+    public ResponseEntity<CoalescerStats> getCoalescingStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(notificationCoalescer.stats());
+    }
+
+    @GetMapping("/retention")
+    public ResponseEntity<RetentionStats> getRetentionStats() {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(notificationRetention.stats());
+    }
+}
@@ -0,0 +1,22 @@
+package app.notificationsvc.web.dto;
+
+import app.notificationsvc.model.NotificationStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class BatchEmailItemResponse {
+
+    private int index;
+
+    private UUID notificationId;
+
+    private NotificationStatus status;
+
+    private boolean replayed;
+
+    private String error;
+}
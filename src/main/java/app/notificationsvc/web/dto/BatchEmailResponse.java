@@ -0,0 +1,17 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchEmailResponse {
+
+    private int total;
+
+    private int rejected;
+
+    private List<BatchEmailItemResponse> items;
+}
@@ -0,0 +1,20 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Data
+public class NewsletterCampaignRequest {
+
+    private String subject;
+
+    private LocalDateTime startOn;
+
+    private Integer sendRate;
+
+    private Duration spreadOver;
+
+    private boolean staggerByTimeZone;
+}
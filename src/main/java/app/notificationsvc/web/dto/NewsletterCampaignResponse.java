@@ -0,0 +1,37 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class NewsletterCampaignResponse {
+
+    private UUID id;
+
+    private String subject;
+
+    private String status;
+
+    private LocalDateTime startOn;
+
+    private Integer sendRate;
+
+    private Duration spreadOver;
+
+    private boolean staggerByTimeZone;
+
+    private long sent;
+
+    private long failed;
+
+    private int resumes;
+
+    private LocalDateTime startedOn;
+
+    private LocalDateTime finishedOn;
+}
@@ -0,0 +1,28 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class NewsletterRunResponse {
+
+    private UUID id;
+
+    private String status;
+
+    private long processed;
+
+    private long sent;
+
+    private long failed;
+
+    private double messagesPerSecond;
+
+    private LocalDateTime startedOn;
+
+    private LocalDateTime finishedOn;
+}
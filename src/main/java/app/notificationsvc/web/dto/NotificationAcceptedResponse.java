@@ -0,0 +1,13 @@
+package app.notificationsvc.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class NotificationAcceptedResponse {
+
+    private UUID notificationId;
+}
@@ -0,0 +1,26 @@
+package app.notificationsvc.web.dto;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class NotificationHistoryItemResponse {
+
+    private UUID id;
+
+    private EmailType emailType;
+
+    private NotificationStatus status;
+
+    private String subject;
+
+    private LocalDateTime createdOn;
+
+    private int attempts;
+}
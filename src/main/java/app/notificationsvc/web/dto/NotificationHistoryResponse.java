@@ -0,0 +1,15 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class NotificationHistoryResponse {
+
+    private List<NotificationHistoryItemResponse> items;
+
+    private String nextCursor;
+}
@@ -19,4 +19,6 @@ public class NotificationPreferenceResponse {
     private boolean isNewsletterEnabled;
 
     private String contactData;
+
+    private String timeZone;
 }
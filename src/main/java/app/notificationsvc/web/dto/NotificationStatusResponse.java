@@ -0,0 +1,28 @@
+package app.notificationsvc.web.dto;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class NotificationStatusResponse {
+
+    private UUID id;
+
+    private UUID userId;
+
+    private EmailType emailType;
+
+    private NotificationStatus status;
+
+    private LocalDateTime createdOn;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptOn;
+}
@@ -8,7 +8,7 @@ import lombok.Data;
 import java.util.UUID;
 
 @Data
-public class OrderCreateEmailRequest {
+public class OrderCreateEmailRequest implements TransactionalEmailRequest {
 
     @NotBlank
     private String subject;
@@ -33,4 +33,7 @@ public class OrderCreateEmailRequest {
 
     @NotBlank
     private String paymentMethod;
+
+    // Optional, identifies the order so repeated requests for it are sent once
+    private Long orderId;
 }
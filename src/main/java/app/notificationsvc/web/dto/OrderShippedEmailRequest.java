@@ -10,7 +10,7 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 @Data
-public class OrderShippedEmailRequest {
+public class OrderShippedEmailRequest implements TransactionalEmailRequest {
 
     @NotBlank
     private String subject;
@@ -21,7 +21,7 @@ public class OrderShippedEmailRequest {
     @NotNull
     private UUID userId;
 
-    @NotBlank
+    @NotNull
     private Long orderId;
 
     @NotNull
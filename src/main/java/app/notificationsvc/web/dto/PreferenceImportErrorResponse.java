@@ -0,0 +1,13 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PreferenceImportErrorResponse {
+
+    private long line;
+
+    private String error;
+}
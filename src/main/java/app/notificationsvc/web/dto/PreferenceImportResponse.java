@@ -0,0 +1,19 @@
+package app.notificationsvc.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PreferenceImportResponse {
+
+    private long inserted;
+
+    private long updated;
+
+    private long rejected;
+
+    private List<PreferenceImportErrorResponse> errors;
+}
@@ -0,0 +1,15 @@
+package app.notificationsvc.web.dto;
+
+import app.notificationsvc.model.EmailType;
+
+import java.util.UUID;
+
+/**
+ * Common view of the Welcome, order and shipped email requests, as mixed in a batch.
+ */
+public interface TransactionalEmailRequest {
+
+    UUID getUserId();
+
+    EmailType getEmailType();
+}
@@ -2,10 +2,15 @@ package app.notificationsvc.web.dto;
 
 
 import app.notificationsvc.model.NotificationType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
 import java.util.UUID;
 
 @Data
@@ -20,7 +25,26 @@ public class UpsertNotificationPreference {
     @NotNull
     private boolean isNewsletterEnabled;
 
+    // Sizes match the notification_preference columns
     @NotNull
     @NotBlank
+    @Size(max = 255)
     private String contactData;
+
+    @Size(max = 255)
+    private String timeZone;
+
+    @JsonIgnore
+    @AssertTrue(message = "must be a valid time zone id")
+    public boolean isTimeZoneValid() {
+        if (timeZone == null) {
+            return true;
+        }
+        try {
+            ZoneId.of(timeZone);
+            return true;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
 }
@@ -8,7 +8,7 @@ import lombok.Data;
 import java.util.UUID;
 
 @Data
-public class WelcomeEmailRequest {
+public class WelcomeEmailRequest implements TransactionalEmailRequest {
 
     @NotBlank
     private String subject;
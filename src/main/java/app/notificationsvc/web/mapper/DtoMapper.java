@@ -1,9 +1,28 @@
 package app.notificationsvc.web.mapper;
 
+import app.notificationsvc.model.NewsletterCampaign;
+import app.notificationsvc.model.Notification;
 import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.repository.NotificationHistoryEntry;
+import app.notificationsvc.service.BatchItemResult;
+import app.notificationsvc.service.NewsletterRun;
+import app.notificationsvc.service.NotificationHistoryPage;
+import app.notificationsvc.service.PreferenceImportItem;
+import app.notificationsvc.service.PreferenceImportSummary;
+import app.notificationsvc.web.dto.BatchEmailItemResponse;
+import app.notificationsvc.web.dto.BatchEmailResponse;
+import app.notificationsvc.web.dto.NewsletterCampaignResponse;
+import app.notificationsvc.web.dto.NewsletterRunResponse;
+import app.notificationsvc.web.dto.NotificationHistoryItemResponse;
+import app.notificationsvc.web.dto.NotificationHistoryResponse;
 import app.notificationsvc.web.dto.NotificationPreferenceResponse;
+import app.notificationsvc.web.dto.NotificationStatusResponse;
+import app.notificationsvc.web.dto.PreferenceImportErrorResponse;
+import app.notificationsvc.web.dto.PreferenceImportResponse;
 import lombok.experimental.UtilityClass;
 
+import java.util.List;
+
 @UtilityClass
 public class DtoMapper {
 
@@ -14,6 +33,101 @@ public class DtoMapper {
                 .type(notificationPreference.getType())
                 .isNewsletterEnabled(notificationPreference.isNewsletterEnabled())
                 .contactData(notificationPreference.getContactData())
+                .timeZone(notificationPreference.getTimeZone())
+                .build();
+    }
+
+    public NotificationStatusResponse fromNotification(Notification notification) {
+        return NotificationStatusResponse.builder()
+                .id(notification.getId())
+                .userId(notification.getUserId())
+                .emailType(notification.getEmailType())
+                .status(notification.getStatus())
+                .createdOn(notification.getCreatedOn())
+                .attempts(notification.getAttempts())
+                .nextAttemptOn(notification.getNextAttemptOn())
+                .build();
+    }
+
+    public NewsletterRunResponse fromNewsletterRun(NewsletterRun newsletterRun) {
+        return NewsletterRunResponse.builder()
+                .id(newsletterRun.getId())
+                .status(newsletterRun.getStatus().name())
+                .processed(newsletterRun.getProcessed())
+                .sent(newsletterRun.getSent())
+                .failed(newsletterRun.getFailed())
+                .messagesPerSecond(newsletterRun.getMessagesPerSecond())
+                .startedOn(newsletterRun.getStartedOn())
+                .finishedOn(newsletterRun.getFinishedOn())
+                .build();
+    }
+
+    public NewsletterCampaignResponse fromNewsletterCampaign(NewsletterCampaign campaign) {
+        return NewsletterCampaignResponse.builder()
+                .id(campaign.getId())
+                .subject(campaign.getSubject())
+                .status(campaign.getStatus().name())
+                .startOn(campaign.getStartOn())
+                .sendRate(campaign.getSendRate())
+                .spreadOver(campaign.getSpreadOver())
+                .staggerByTimeZone(campaign.isStaggerByTimeZone())
+                .sent(campaign.getSent())
+                .failed(campaign.getFailed())
+                .resumes(campaign.getResumes())
+                .startedOn(campaign.getStartedOn())
+                .finishedOn(campaign.getFinishedOn())
+                .build();
+    }
+
+    public BatchEmailResponse fromBatchItemResults(List<BatchItemResult> results) {
+        return BatchEmailResponse.builder()
+                .total(results.size())
+                .rejected((int) results.stream().filter(result -> result.error() != null).count())
+                .items(results.stream().map(DtoMapper::fromBatchItemResult).toList())
+                .build();
+    }
+
+    public BatchEmailItemResponse fromBatchItemResult(BatchItemResult result) {
+        return BatchEmailItemResponse.builder()
+                .index(result.index())
+                .notificationId(result.notificationId())
+                .status(result.status())
+                .replayed(result.replayed())
+                .error(result.error())
+                .build();
+    }
+
+    public PreferenceImportResponse fromPreferenceImportSummary(PreferenceImportSummary summary) {
+        return PreferenceImportResponse.builder()
+                .inserted(summary.inserted())
+                .updated(summary.updated())
+                .rejected(summary.rejected())
+                .errors(summary.errors().stream().map(DtoMapper::fromPreferenceImportError).toList())
+                .build();
+    }
+
+    public PreferenceImportErrorResponse fromPreferenceImportError(PreferenceImportItem item) {
+        return PreferenceImportErrorResponse.builder()
+                .line(item.line())
+                .error(item.error())
+                .build();
+    }
+
+    public NotificationHistoryResponse fromHistoryPage(NotificationHistoryPage page) {
+        return NotificationHistoryResponse.builder()
+                .items(page.entries().stream().map(DtoMapper::fromHistoryEntry).toList())
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+
+    public NotificationHistoryItemResponse fromHistoryEntry(NotificationHistoryEntry entry) {
+        return NotificationHistoryItemResponse.builder()
+                .id(entry.id())
+                .emailType(entry.emailType())
+                .status(entry.status())
+                .subject(entry.subject())
+                .createdOn(entry.createdOn())
+                .attempts(entry.attempts())
                 .build();
     }
 }
@@ -0,0 +1,23 @@
+-- Converts the MySQL notification table to monthly range partitions on created_on.
+--
+-- Run once by hand during a maintenance window, then set notification.retention.partitioned=true.
+-- MySQL requires every unique key to contain the partitioning column, so the primary key becomes
+-- (id, created_on). Ids are still random UUIDs, so lookups by id are unaffected.
+--
+-- Partitions are named pYYYYMM and hold rows created before the first day of the following month.
+-- pmax catches everything newer; NotificationRetention splits it ahead of time so new months never
+-- land in it, and drops fully expired months instead of deleting their rows.
+--
+-- Adjust the first partitions to cover the oldest rows in the table before running.
+
+ALTER TABLE notification
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_on);
+
+ALTER TABLE notification
+    PARTITION BY RANGE COLUMNS (created_on) (
+        PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+        PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+        PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+        PARTITION pmax VALUES LESS THAN (MAXVALUE)
+    );
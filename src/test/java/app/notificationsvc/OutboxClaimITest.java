@@ -0,0 +1,119 @@
+package app.notificationsvc;
+
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.OutboxMessage;
+import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.repository.OutboxMessageRepository;
+import app.notificationsvc.service.NotificationOutbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The poller is pushed out of the way so the test drives every claim itself
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = "notification.outbox.poll-interval=1h")
+public class OutboxClaimITest {
+
+    @Autowired
+    private NotificationOutbox notificationOutbox;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void queueNotification_writesNotificationAndOutboxMessageTogether() {
+
+        // Given
+        Notification notification = queuedNotification();
+
+        // When
+        notificationOutbox.queue(notification, "<p>Hi</p>");
+
+        // Then
+        assertEquals(NotificationStatus.QUEUED, notificationRepository.findById(notification.getId()).orElseThrow().getStatus());
+        OutboxMessage message = outboxRepository.findById(notification.getId()).orElseThrow();
+        assertEquals("<p>Hi</p>", message.getBody());
+        assertNull(message.getClaimedBy());
+    }
+
+    @Test
+    void claimedMessages_areSkippedUntilTheirLeaseRunsOut() {
+
+        // Given
+        for (int i = 0; i < 3; i++) {
+            notificationOutbox.queue(queuedNotification(), "<p>Hi</p>");
+        }
+        LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+
+        // When
+        List<UUID> first = claim("instance-a", now, now.plusMinutes(5));
+        List<UUID> second = claim("instance-b", now, now.plusMinutes(5));
+        List<UUID> afterLease = claim("instance-b", now.plusMinutes(6), now.plusMinutes(11));
+
+        // Then
+        assertEquals(3, first.size());
+        assertTrue(second.isEmpty());
+        assertEquals(Set.copyOf(first), Set.copyOf(afterLease));
+        assertEquals(0, outboxRepository.deleteClaimed(first.get(0), "instance-a"));
+        assertEquals(1, outboxRepository.deleteClaimed(first.get(0), "instance-b"));
+    }
+
+    @Test
+    void releasedMessages_canBeClaimedRightAway() {
+
+        // Given
+        Notification notification = queuedNotification();
+        notificationOutbox.queue(notification, "<p>Hi</p>");
+        LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+        claim("instance-a", now, now.plusMinutes(5));
+
+        // When
+        int released = outboxRepository.release(List.of(notification.getId()), "instance-a", now);
+
+        // Then
+        assertEquals(1, released);
+        assertEquals(List.of(notification.getId()), claim("instance-b", now, now.plusMinutes(5)));
+    }
+
+    private List<UUID> claim(String instance, LocalDateTime now, LocalDateTime leaseUntil) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<OutboxMessage> claimable = outboxRepository.lockClaimable(now, Limit.of(10));
+            for (OutboxMessage message : claimable) {
+                message.setClaimedBy(instance);
+                message.setAvailableOn(leaseUntil);
+            }
+            return claimable.stream().map(OutboxMessage::getNotificationId).toList();
+        });
+    }
+
+    private static Notification queuedNotification() {
+        return Notification.builder()
+                .userId(UUID.randomUUID())
+                .subject("Welcome!")
+                .emailType(EmailType.WELCOME)
+                .status(NotificationStatus.QUEUED)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+}
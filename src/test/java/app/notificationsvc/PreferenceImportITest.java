@@ -0,0 +1,73 @@
+package app.notificationsvc;
+
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.service.PreferenceImportFormat;
+import app.notificationsvc.service.PreferenceImportSummary;
+import app.notificationsvc.service.PreferenceImporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class PreferenceImportITest {
+
+    @Autowired
+    private PreferenceImporter preferenceImporter;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Test
+    void importCsv_insertsNewUsersAndUpdatesExistingOnesInPlace() {
+
+        // Given
+        UUID existingUser = UUID.randomUUID();
+        UUID newUser = UUID.randomUUID();
+        LocalDateTime createdOn = LocalDateTime.now().minusDays(1);
+        NotificationPreference existing = preferenceRepository.save(NotificationPreference.builder()
+                .userId(existingUser)
+                .type(NotificationType.EMAIL)
+                .isNewsletterEnabled(true)
+                .contactData("old@example.com")
+                .createdOn(createdOn)
+                .updatedOn(createdOn)
+                .build());
+
+        String body = "userId,notificationType,newsletterEnabled,contactData\n"
+                + existingUser + ",EMAIL,false,new@example.com\n"
+                + newUser + ",WEBHOOK,true,https://example.com/hook\n"
+                + "broken,EMAIL,true,x@example.com\n";
+
+        // When
+        PreferenceImportSummary summary = preferenceImporter.importPreferences(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), PreferenceImportFormat.CSV);
+
+        // Then
+        assertEquals(1, summary.inserted());
+        assertEquals(1, summary.updated());
+        assertEquals(1, summary.rejected());
+        assertEquals(2, preferenceRepository.count());
+
+        NotificationPreference updated = preferenceRepository.findByUserId(existingUser).orElseThrow();
+        assertEquals(existing.getId(), updated.getId());
+        assertEquals("new@example.com", updated.getContactData());
+        assertFalse(updated.isNewsletterEnabled());
+        assertTrue(updated.getUpdatedOn().isAfter(createdOn));
+
+        NotificationPreference inserted = preferenceRepository.findByUserId(newUser).orElseThrow();
+        assertEquals(NotificationType.WEBHOOK, inserted.getType());
+        assertTrue(inserted.isNewsletterEnabled());
+    }
+}
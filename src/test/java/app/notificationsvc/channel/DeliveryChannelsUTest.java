@@ -0,0 +1,144 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.ChannelBusyException;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.service.MailDispatchQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeliveryChannelsUTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RecordingDeliveryChannel emailChannel = new RecordingDeliveryChannel(NotificationType.EMAIL);
+    private final RecordingDeliveryChannel webhookChannel = new RecordingDeliveryChannel(NotificationType.WEBHOOK);
+
+    private MailDispatchQueue mailDispatchQueue;
+    private DeliveryChannels deliveryChannels;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        NotificationProperties.Channel webhook = new NotificationProperties.Channel();
+        webhook.setWorkers(1);
+        webhook.setQueueCapacity(1);
+        webhook.setMaxConcurrency(1);
+        webhook.setAcquireTimeout(Duration.ofMillis(50));
+        properties.getChannels().put(NotificationType.WEBHOOK, webhook);
+
+        mailDispatchQueue = new MailDispatchQueue(properties);
+        deliveryChannels = new DeliveryChannels(List.of(emailChannel, webhookChannel), mailDispatchQueue, properties, new NotificationMetrics(meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        emailChannel.release();
+        webhookChannel.release();
+        deliveryChannels.shutdown();
+        mailDispatchQueue.shutdown();
+    }
+
+    @Test
+    void givenSlowWebhookChannel_whenQueueBothChannels_thenEmailIsNotHeldBack() throws InterruptedException {
+        // Given
+        webhookChannel.hold();
+        CountDownLatch emailDelivered = new CountDownLatch(3);
+
+        // When
+        deliveryChannels.submit(NotificationType.WEBHOOK, UUID.randomUUID(), () -> deliverQuietly(NotificationType.WEBHOOK));
+        for (int i = 0; i < 3; i++) {
+            deliveryChannels.submit(NotificationType.EMAIL, UUID.randomUUID(), () -> {
+                deliverQuietly(NotificationType.EMAIL);
+                emailDelivered.countDown();
+            });
+        }
+
+        // Then
+        assertTrue(emailDelivered.await(1, TimeUnit.SECONDS));
+        assertEquals(3, emailChannel.getDeliveries().size());
+        assertTrue(webhookChannel.getDeliveries().isEmpty());
+    }
+
+    @Test
+    void givenWebhookPermitsTaken_whenDeliver_thenThrowChannelBusy() throws Exception {
+        // Given
+        webhookChannel.hold();
+        CompletableFuture<Void> inFlight = CompletableFuture.runAsync(() -> deliverQuietly(NotificationType.WEBHOOK));
+        awaitInFlight(NotificationType.WEBHOOK);
+
+        // When & Then
+        assertThrows(ChannelBusyException.class, () -> deliveryChannels.deliver(NotificationType.WEBHOOK, notification(), "https://hooks.example.com", "<p>Hi</p>"));
+        deliveryChannels.deliver(NotificationType.EMAIL, notification(), "test@example.com", "<p>Hi</p>");
+
+        webhookChannel.release();
+        inFlight.get(1, TimeUnit.SECONDS);
+        ChannelStats stats = deliveryChannels.stats(NotificationType.WEBHOOK);
+        assertEquals(1, stats.delivered());
+        assertEquals(1, stats.busy());
+        assertEquals(1, meterRegistry.get("notification.channel.busy").tag("channel", "WEBHOOK").counter().count());
+        assertEquals(1, meterRegistry.get("notification.channel.delivery").tag("channel", "EMAIL").tag("outcome", "delivered").timer().count());
+    }
+
+    @Test
+    void givenFullWebhookQueue_whenSubmit_thenRejectOnlyThatChannel() {
+        // Given
+        webhookChannel.hold();
+        deliveryChannels.submit(NotificationType.WEBHOOK, UUID.randomUUID(), () -> deliverQuietly(NotificationType.WEBHOOK));
+        deliveryChannels.submit(NotificationType.WEBHOOK, UUID.randomUUID(), () -> deliverQuietly(NotificationType.WEBHOOK));
+
+        // When & Then
+        assertThrows(DispatchQueueFullException.class, () -> deliveryChannels.submit(NotificationType.WEBHOOK, UUID.randomUUID(), () -> { }));
+        assertDoesNotThrow(() -> deliveryChannels.submit(NotificationType.EMAIL, UUID.randomUUID(), () -> { }));
+    }
+
+    @Test
+    void givenFailingChannel_whenDeliver_thenRethrowAndCountFailure() {
+        // Given
+        webhookChannel.failWith(new IllegalStateException("endpoint down"));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> deliveryChannels.deliver(NotificationType.WEBHOOK, notification(), "https://hooks.example.com", "<p>Hi</p>"));
+        assertEquals(1, deliveryChannels.stats(NotificationType.WEBHOOK).failed());
+        assertEquals(0, deliveryChannels.stats(NotificationType.WEBHOOK).inFlight());
+    }
+
+    private void deliverQuietly(NotificationType type) {
+        try {
+            deliveryChannels.deliver(type, notification(), "contact", "<p>Hi</p>");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitInFlight(NotificationType type) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (deliveryChannels.stats(type).inFlight() == 0) {
+            assertTrue(System.nanoTime() < deadline, "No delivery started on " + type);
+            Thread.sleep(5);
+        }
+    }
+
+    private static Notification notification() {
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("Welcome!")
+                .emailType(EmailType.WELCOME)
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package app.notificationsvc.channel;
+
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationType;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory stand-in for a real transport. Records every delivery, and can be told to fail or to
+ * hold deliveries until released, to play a slow endpoint.
+ */
+public class RecordingDeliveryChannel implements DeliveryChannel {
+
+    public record Delivery(Notification notification, String contactData, String body) {
+    }
+
+    private final NotificationType type;
+    private final List<Delivery> deliveries = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch gate;
+    private volatile Exception failure;
+
+    public RecordingDeliveryChannel(NotificationType type) {
+        this.type = type;
+    }
+
+    @Override
+    public NotificationType getType() {
+        return type;
+    }
+
+    @Override
+    public void deliver(Notification notification, String contactData, String body) throws Exception {
+        CountDownLatch held = gate;
+        if (held != null && !held.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Delivery was held but never released");
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        deliveries.add(new Delivery(notification, contactData, body));
+    }
+
+    public void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    public void release() {
+        CountDownLatch held = gate;
+        gate = null;
+        if (held != null) {
+            held.countDown();
+        }
+    }
+
+    public void failWith(Exception failure) {
+        this.failure = failure;
+    }
+
+    public List<Delivery> getDeliveries() {
+        return deliveries;
+    }
+}
@@ -0,0 +1,95 @@
+package app.notificationsvc.mail;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BroadcastMessageUTest {
+
+    private static final String SUBJECT = "Your weekly update is here!!!💌";
+    private static final String HTML = "<html><body><p>Fresh drops this week – 20% off!</p></body></html>";
+
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void setUp() {
+        mailSender = new JavaMailSenderImpl();
+    }
+
+    @Test
+    void givenPreparedBroadcast_whenCreateMessages_thenEachHasOwnHeadersAndTheSameBody() throws Exception {
+        // Given
+        BroadcastMessage broadcastMessage = BroadcastMessage.prepare(mailSender, SUBJECT, HTML);
+
+        // When
+        MimeMessage first = reparse(broadcastMessage.createMessage("first@example.com"));
+        MimeMessage second = reparse(broadcastMessage.createMessage("second@example.com"));
+
+        // Then
+        assertEquals("first@example.com", first.getRecipients(Message.RecipientType.TO)[0].toString());
+        assertEquals("second@example.com", second.getRecipients(Message.RecipientType.TO)[0].toString());
+        assertNotEquals(first.getMessageID(), second.getMessageID());
+        assertNotNull(first.getSentDate());
+        assertEquals(SUBJECT, first.getSubject());
+        assertEquals(SUBJECT, second.getSubject());
+        assertEquals(HTML, findHtml(first));
+        assertEquals(HTML, findHtml(second));
+    }
+
+    @Test
+    void givenCreatedMessage_whenSaveChanges_thenBodyIsNotReEncoded() throws Exception {
+        // Given
+        BroadcastMessage broadcastMessage = BroadcastMessage.prepare(mailSender, SUBJECT, HTML);
+        MimeMessage message = broadcastMessage.createMessage("first@example.com");
+        String messageId = message.getMessageID();
+
+        // When
+        message.saveChanges();
+        byte[] written = write(message);
+
+        // Then
+        assertEquals(messageId, message.getMessageID());
+        assertTrue(written.length > broadcastMessage.bodySize());
+        assertEquals(HTML, findHtml(new MimeMessage(mailSender.getSession(), new ByteArrayInputStream(written))));
+    }
+
+    private MimeMessage reparse(MimeMessage message) throws Exception {
+        return new MimeMessage(mailSender.getSession(), new ByteArrayInputStream(write(message)));
+    }
+
+    private static byte[] write(MimeMessage message) throws IOException, MessagingException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static String findHtml(Part part) throws MessagingException, IOException {
+        if (part.isMimeType("text/html")) {
+            return (String) part.getContent();
+        }
+
+        if (part.getContent() instanceof Multipart multipart) {
+            for (int i = 0; i < multipart.getCount(); i++) {
+                BodyPart bodyPart = multipart.getBodyPart(i);
+                String html = findHtml(bodyPart);
+                if (html != null) {
+                    return html;
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package app.notificationsvc.mail;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.SendRateLimitedException;
+import app.notificationsvc.model.EmailType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SendRateLimiterUTest {
+
+    private NotificationProperties properties;
+    private MailProperties mailProperties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getRateLimit().setMaxWait(Duration.ZERO);
+        mailProperties = new MailProperties();
+        mailProperties.setHost("smtp.example.com");
+    }
+
+    @Test
+    void givenNoQuotas_whenAcquire_thenNeverWait() {
+        // Given
+        SendRateLimiter limiter = new SendRateLimiter(properties, mailProperties);
+
+        // When & Then
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(Duration.ZERO, limiter.acquire(EmailType.WELCOME));
+        }
+        assertTrue(limiter.stats().isEmpty());
+    }
+
+    @Test
+    void givenExhaustedRelayQuota_whenAcquire_thenRejectAndReturnTypePermit() {
+        // Given
+        properties.getRateLimit().getRelay().setPermitsPerDay(1);
+        NotificationProperties.RateLimit.Quota newsletterQuota = new NotificationProperties.RateLimit.Quota();
+        newsletterQuota.setPermitsPerSecond(1_000);
+        newsletterQuota.setBurst(10);
+        properties.getRateLimit().getEmailTypes().put(EmailType.NEWSLETTER, newsletterQuota);
+        SendRateLimiter limiter = new SendRateLimiter(properties, mailProperties);
+
+        // When
+        limiter.acquire(EmailType.NEWSLETTER);
+        SendRateLimitedException exception = assertThrows(SendRateLimitedException.class, () -> limiter.acquire(EmailType.NEWSLETTER));
+
+        // Then
+        assertEquals("smtp.example.com/day", exception.getBucket());
+        Map<String, TokenBucketStats> stats = limiter.stats().stream().collect(Collectors.toMap(TokenBucketStats::name, Function.identity()));
+        assertEquals(1, stats.get("NEWSLETTER/second").granted());
+        assertEquals(1, stats.get("smtp.example.com/day").granted());
+        assertEquals(1, stats.get("smtp.example.com/day").rejected());
+    }
+
+    @Test
+    void givenRelayQuota_whenOtherTypeAcquires_thenShareTheSameRelayBucket() {
+        // Given
+        properties.getRateLimit().getRelay().setPermitsPerDay(1);
+        SendRateLimiter limiter = new SendRateLimiter(properties, mailProperties);
+
+        // When
+        limiter.acquire(EmailType.WELCOME);
+
+        // Then
+        assertThrows(SendRateLimitedException.class, () -> limiter.acquire(EmailType.SHIPPED_ORDER));
+        assertEquals(1, limiter.stats().size());
+    }
+}
@@ -0,0 +1,153 @@
+package app.notificationsvc.mail;
+
+import app.notificationsvc.config.NotificationProperties;
+import jakarta.mail.Transport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SmtpTransportPoolUTest {
+
+    @Mock
+    private SmtpTransportPool.TransportConnector connector;
+
+    @Mock
+    private Transport transport;
+
+    private NotificationProperties.Mail.Pool properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties.Mail.Pool();
+        properties.setMaxTotal(1);
+        properties.setMaxMessagesPerConnection(2);
+        properties.setBorrowTimeout(Duration.ofMillis(50));
+    }
+
+    @Test
+    void givenReleasedConnection_whenBorrowAgain_thenReuseWithoutReconnecting() throws Exception {
+        // Given
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+
+        // When
+        PooledTransport first = pool.borrow();
+        pool.release(first);
+        PooledTransport second = pool.borrow();
+
+        // Then
+        assertSame(first, second);
+        verify(connector, times(1)).connect();
+        assertEquals(1, pool.stats().reused());
+        assertEquals(1, pool.stats().active());
+    }
+
+    @Test
+    void givenConnectionAtMessageLimit_whenReleased_thenCloseIt() throws Exception {
+        // Given
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+
+        // When
+        PooledTransport pooled = pool.borrow();
+        pool.release(pooled);
+        pool.release(pool.borrow());
+
+        // Then
+        verify(transport, times(1)).close();
+        assertEquals(0, pool.stats().idle());
+        assertEquals(1, pool.stats().destroyed());
+    }
+
+    @Test
+    void givenAllConnectionsInUse_whenBorrow_thenFailAfterTimeout() throws Exception {
+        // Given
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+        pool.borrow();
+
+        // When && Then
+        assertThrows(MailSendException.class, pool::borrow);
+    }
+
+    @Test
+    void givenInvalidatedConnection_whenBorrow_thenOpenNewConnection() throws Exception {
+        // Given
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+
+        // When
+        pool.invalidate(pool.borrow());
+        pool.borrow();
+
+        // Then
+        verify(connector, times(2)).connect();
+        assertEquals(2, pool.stats().created());
+    }
+
+    @Test
+    void givenIdleConnectionPastTimeout_whenEvictIdle_thenCloseIt() throws Exception {
+        // Given
+        properties.setIdleTimeout(Duration.ZERO);
+        properties.setMinIdle(0);
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+        pool.release(pool.borrow());
+
+        // When
+        Thread.sleep(5);
+        pool.evictIdle();
+
+        // Then
+        verify(transport, times(1)).close();
+        assertEquals(0, pool.stats().idle());
+    }
+
+    @Test
+    void givenPrefilledConnectionsPastTimeout_whenEvictIdle_thenKeepMinIdleOpenWithNoop() throws Exception {
+        // Given
+        properties.setMaxTotal(3);
+        properties.setMinIdle(2);
+        properties.setIdleTimeout(Duration.ZERO);
+        when(connector.connect()).thenReturn(transport);
+        when(transport.isConnected()).thenReturn(true);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+        pool.prefill(3);
+
+        // When
+        Thread.sleep(5);
+        pool.evictIdle();
+
+        // Then
+        verify(transport, times(1)).close();
+        verify(transport, times(2)).isConnected();
+        assertEquals(2, pool.stats().idle());
+    }
+
+    @Test
+    void givenEmptyPool_whenPrefill_thenOpenIdleConnectionsUpToMaxTotalThatTheFirstBorrowReuses() throws Exception {
+        // Given
+        properties.setMaxTotal(2);
+        when(connector.connect()).thenReturn(transport);
+        SmtpTransportPool pool = new SmtpTransportPool(connector, properties);
+
+        // When
+        int opened = pool.prefill(3);
+        pool.borrow();
+
+        // Then
+        assertEquals(2, opened);
+        verify(connector, times(2)).connect();
+        assertEquals(1, pool.stats().reused());
+        assertEquals(1, pool.stats().idle());
+    }
+}
@@ -0,0 +1,80 @@
+package app.notificationsvc.mail;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketUTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(42 * SECOND);
+
+    @Test
+    void givenFullBucket_whenReserveBeyondCapacity_thenDelayByOneInterval() {
+        // Given
+        TokenBucket bucket = new TokenBucket("relay/second", 10, Duration.ofSeconds(1), 2, clock::get);
+
+        // When
+        long first = bucket.reserve(SECOND);
+        long second = bucket.reserve(SECOND);
+        long third = bucket.reserve(SECOND);
+
+        // Then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(SECOND / 10, third);
+        assertEquals(1, bucket.stats().delayed());
+    }
+
+    @Test
+    void givenElapsedTime_whenReserve_thenRefillUpToCapacityOnly() {
+        // Given
+        TokenBucket bucket = new TokenBucket("relay/second", 10, Duration.ofSeconds(1), 2, clock::get);
+        bucket.reserve(SECOND);
+        bucket.reserve(SECOND);
+
+        // When
+        clock.addAndGet(10 * SECOND);
+
+        // Then
+        assertEquals(2, bucket.stats().available());
+        assertEquals(0, bucket.reserve(SECOND));
+        assertEquals(0, bucket.reserve(SECOND));
+        assertTrue(bucket.reserve(SECOND) > 0);
+    }
+
+    @Test
+    void givenWaitLongerThanMax_whenReserve_thenRejectWithoutConsuming() {
+        // Given
+        TokenBucket bucket = new TokenBucket("relay/day", 1, Duration.ofDays(1), 1, clock::get);
+        bucket.reserve(0);
+
+        // When
+        long rejected = bucket.reserve(SECOND);
+
+        // Then
+        assertEquals(-1, rejected);
+        assertEquals(1, bucket.stats().rejected());
+
+        clock.addAndGet(Duration.ofDays(1).toNanos());
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void givenCancelledReservation_whenReserve_thenPermitIsAvailableAgain() {
+        // Given
+        TokenBucket bucket = new TokenBucket("NEWSLETTER/second", 1, Duration.ofSeconds(1), 1, clock::get);
+        bucket.reserve(0);
+
+        // When
+        bucket.cancel();
+
+        // Then
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(1, bucket.stats().granted());
+    }
+}
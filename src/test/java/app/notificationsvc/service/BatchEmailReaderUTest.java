@@ -0,0 +1,122 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidBatchException;
+import app.notificationsvc.web.dto.OrderCreateEmailRequest;
+import app.notificationsvc.web.dto.OrderShippedEmailRequest;
+import app.notificationsvc.web.dto.WelcomeEmailRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEmailReaderUTest {
+
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getBatch().setChunkSize(2);
+        properties.getBatch().setMaxItems(10);
+    }
+
+    @Test
+    void givenMixedBatch_whenRead_thenEmitChunksWithRequestTypeByEmailType() {
+        // Given
+        BatchEmailReader reader = new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+        String body = "[" + item("WELCOME") + "," + item("NEW_ORDER") + "," + item("SHIPPED_ORDER") + "]";
+        List<List<BatchEmailItem>> chunks = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), chunks::add);
+
+        // Then
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(1, chunks.get(1).size());
+        assertInstanceOf(WelcomeEmailRequest.class, chunks.get(0).get(0).request());
+        assertInstanceOf(OrderCreateEmailRequest.class, chunks.get(0).get(1).request());
+        assertInstanceOf(OrderShippedEmailRequest.class, chunks.get(1).get(0).request());
+        assertEquals(2, chunks.get(1).get(0).index());
+    }
+
+    @Test
+    void givenUnsupportedItems_whenRead_thenRejectOnlyThoseItems() {
+        // Given
+        BatchEmailReader reader = new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+        String body = "[" + item("NEWSLETTER") + ",42,{\"emailType\":\"WELCOME\"}," + item("WELCOME") + "]";
+        List<BatchEmailItem> items = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), items::addAll);
+
+        // Then
+        assertEquals(4, items.size());
+        assertNotNull(items.get(0).error());
+        assertNotNull(items.get(1).error());
+        assertNotNull(items.get(2).error());
+        assertNull(items.get(3).error());
+    }
+
+    @Test
+    void givenTooManyItems_whenRead_thenThrowInvalidBatch() {
+        // Given
+        properties.getBatch().setMaxItems(1);
+        BatchEmailReader reader = new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+        String body = "[" + item("WELCOME") + "," + item("WELCOME") + "]";
+
+        // When & Then
+        assertThrows(InvalidBatchException.class, () -> reader.read(stream(body), chunk -> {}));
+    }
+
+    @Test
+    void givenObjectBody_whenRead_thenThrowInvalidBatch() {
+        // Given
+        BatchEmailReader reader = new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+
+        // When & Then
+        assertThrows(InvalidBatchException.class, () -> reader.read(stream(item("WELCOME")), chunk -> {}));
+    }
+
+    @Test
+    void givenItemBreakingConstraints_whenRead_thenRejectItWithTheViolations() {
+        // Given
+        BatchEmailReader reader = new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+        String body = "[{\"emailType\":\"WELCOME\",\"subject\":\"\",\"userId\":\"" + UUID.randomUUID() + "\"}," + item("SHIPPED_ORDER") + "]";
+        List<BatchEmailItem> items = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), items::addAll);
+
+        // Then
+        assertEquals(2, items.size());
+        assertTrue(items.get(0).error().contains("subject"));
+        assertTrue(items.get(0).error().contains("userFirstName"));
+        assertNull(items.get(0).request());
+        assertNull(items.get(1).error());
+    }
+
+    private static String item(String emailType) {
+        String fields = switch (emailType) {
+            case "WELCOME" -> ",\"userFirstName\":\"Ana\"";
+            case "NEW_ORDER", "ORDER_CONFIRMATION" -> ",\"fullName\":\"Ana Ivanova\",\"address\":\"Sofia\",\"phoneNumber\":\"0888123456\",\"courier\":\"Speedy\",\"paymentMethod\":\"CARD\"";
+            case "SHIPPED_ORDER" -> ",\"orderId\":1,\"totalAmount\":10.50,\"paymentMethod\":\"CARD\",\"courier\":\"Speedy\",\"address\":\"Sofia\"";
+            default -> "";
+        };
+        return "{\"emailType\":\"" + emailType + "\",\"subject\":\"Hi\",\"userId\":\"" + UUID.randomUUID() + "\"" + fields + "}";
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
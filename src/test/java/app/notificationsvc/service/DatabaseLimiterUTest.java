@@ -0,0 +1,71 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DatabaseBusyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseLimiterUTest {
+
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getConcurrency().setDatabasePermits(1);
+        properties.getConcurrency().setPermitTimeout(Duration.ofMillis(50));
+    }
+
+    @Test
+    void givenAllPermitsTaken_whenCall_thenThrowDatabaseBusy() throws InterruptedException {
+        // Given
+        DatabaseLimiter limiter = new DatabaseLimiter(properties);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> limiter.run(() -> {
+            holding.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+        // When & Then
+        assertThrows(DatabaseBusyException.class, () -> limiter.call(() -> "query"));
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    @Test
+    void givenFailingWork_whenCall_thenReleasePermit() {
+        // Given
+        DatabaseLimiter limiter = new DatabaseLimiter(properties);
+
+        // When
+        assertThrows(IllegalStateException.class, () -> limiter.call(() -> {
+            throw new IllegalStateException("query failed");
+        }));
+
+        // Then
+        assertEquals(1, limiter.availablePermits());
+        assertEquals("query", limiter.call(() -> "query"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
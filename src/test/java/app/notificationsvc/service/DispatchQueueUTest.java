@@ -0,0 +1,156 @@
+package app.notificationsvc.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DispatchQueueUTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void givenTasksOfManyUsers_whenSubmit_thenRunEachUsersTasksInOrder(boolean virtualThreads) throws InterruptedException {
+        // Given
+        DispatchQueue dispatchQueue = new DispatchQueue("test-dispatch", 4, 10_000, Duration.ofSeconds(1), virtualThreads);
+        List<UUID> users = IntStream.range(0, 16).mapToObj(i -> UUID.randomUUID()).toList();
+        List<List<Integer>> seen = users.stream().<List<Integer>>map(user -> new CopyOnWriteArrayList<>()).toList();
+        CountDownLatch done = new CountDownLatch(users.size() * 200);
+
+        // When
+        for (int sequence = 0; sequence < 200; sequence++) {
+            for (int user = 0; user < users.size(); user++) {
+                int u = user;
+                int s = sequence;
+                dispatchQueue.submit(users.get(user), () -> {
+                    seen.get(u).add(s);
+                    done.countDown();
+                });
+            }
+        }
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (List<Integer> sequences : seen) {
+            assertEquals(IntStream.range(0, 200).boxed().toList(), sequences);
+        }
+        dispatchQueue.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void givenBlockedUser_whenSubmitForOtherLane_thenOtherUserIsNotHeldBack(boolean virtualThreads) throws InterruptedException {
+        // Given
+        DispatchQueue dispatchQueue = new DispatchQueue("test-dispatch", 2, 10, Duration.ofSeconds(1), virtualThreads);
+        UUID blockedUser = userOnLane(dispatchQueue, 0);
+        UUID otherUser = userOnLane(dispatchQueue, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+
+        dispatchQueue.submit(blockedUser, () -> awaitQuietly(release));
+        dispatchQueue.submit(blockedUser, () -> { });
+
+        // When
+        dispatchQueue.submit(otherUser, otherDone::countDown);
+
+        // Then
+        assertTrue(otherDone.await(1, TimeUnit.SECONDS));
+        assertTrue(dispatchQueue.laneDepth(0) >= 1);
+        release.countDown();
+        dispatchQueue.shutdown();
+        assertEquals(0, dispatchQueue.size());
+    }
+
+    @Test
+    void givenBusyLane_whenUnorderedTasksWait_thenIdleLaneStealsThem() throws InterruptedException {
+        // Given
+        DispatchQueue dispatchQueue = new DispatchQueue("test-dispatch", 2, 10, Duration.ofSeconds(1), false);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseSecond = new CountDownLatch(1);
+        CountDownLatch bothBusy = new CountDownLatch(2);
+        dispatchQueue.submit(userOnLane(dispatchQueue, 0), () -> {
+            bothBusy.countDown();
+            awaitQuietly(releaseFirst);
+        });
+        dispatchQueue.submit(userOnLane(dispatchQueue, 1), () -> {
+            bothBusy.countDown();
+            awaitQuietly(releaseSecond);
+        });
+        assertTrue(bothBusy.await(1, TimeUnit.SECONDS));
+
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch unorderedDone = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            dispatchQueue.submit(() -> {
+                ran.incrementAndGet();
+                unorderedDone.countDown();
+            });
+        }
+
+        // When
+        releaseSecond.countDown();
+
+        // Then
+        assertTrue(unorderedDone.await(1, TimeUnit.SECONDS));
+        assertEquals(4, ran.get());
+        assertTrue(dispatchQueue.getStolen() > 0);
+        releaseFirst.countDown();
+        dispatchQueue.shutdown();
+    }
+
+    @Test
+    void givenVirtualThreadsAndAllLanesBusy_whenSubmitUnorderedTasks_thenRunThemAtOnceOnTheirOwnThreads() throws InterruptedException {
+        // Given
+        DispatchQueue dispatchQueue = new DispatchQueue("test-dispatch", 1, 10, Duration.ofSeconds(1), true);
+        CountDownLatch releaseLane = new CountDownLatch(1);
+        CountDownLatch laneBusy = new CountDownLatch(1);
+        dispatchQueue.submit(UUID.randomUUID(), () -> {
+            laneBusy.countDown();
+            awaitQuietly(releaseLane);
+        });
+        assertTrue(laneBusy.await(1, TimeUnit.SECONDS));
+
+        CountDownLatch allRunning = new CountDownLatch(4);
+        CountDownLatch releaseUnordered = new CountDownLatch(1);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            dispatchQueue.submit(() -> {
+                allRunning.countDown();
+                awaitQuietly(releaseUnordered);
+            });
+        }
+
+        // Then
+        assertTrue(allRunning.await(1, TimeUnit.SECONDS));
+        assertEquals(0, dispatchQueue.getStolen());
+        releaseUnordered.countDown();
+        releaseLane.countDown();
+        dispatchQueue.shutdown();
+    }
+
+    private static UUID userOnLane(DispatchQueue dispatchQueue, int lane) {
+        UUID user;
+        do {
+            user = UUID.randomUUID();
+        } while (dispatchQueue.laneOf(user) != lane);
+        return user;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.IdempotencyRecord;
+import app.notificationsvc.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyIndexUTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    private IdempotencyIndex idempotencyIndex;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        idempotencyIndex = new IdempotencyIndex(recordRepository, new DatabaseLimiter(properties), properties);
+    }
+
+    @Test
+    void givenNewKey_whenExecuteTwice_thenSendOnceAndPersistKey() {
+        // Given
+        UUID notificationId = UUID.randomUUID();
+        AtomicInteger sends = new AtomicInteger();
+        String key = IdempotencyIndex.keyFor("order-7", UUID.randomUUID(), EmailType.NEW_ORDER, null);
+
+        // When
+        SendResult first = idempotencyIndex.execute(key, () -> {
+            sends.incrementAndGet();
+            return notificationId;
+        });
+        SendResult second = idempotencyIndex.execute(key, () -> {
+            sends.incrementAndGet();
+            return UUID.randomUUID();
+        });
+
+        // Then
+        assertEquals(1, sends.get());
+        assertFalse(first.replayed());
+        assertTrue(second.replayed());
+        assertEquals(notificationId, second.notificationId());
+        verify(recordRepository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+        verify(recordRepository, times(1)).complete(anyString(), eq(notificationId), any());
+    }
+
+    @Test
+    void givenKeyOnlyInDatabase_whenExecute_thenReplayWithoutSending() {
+        // Given
+        UUID notificationId = UUID.randomUUID();
+        IdempotencyRecord stored = IdempotencyRecord.builder()
+                .notificationId(notificationId)
+                .expiresOn(LocalDateTime.now().plusHours(1))
+                .build();
+        when(recordRepository.findById(anyString())).thenReturn(Optional.of(stored));
+
+        // When
+        SendResult result = idempotencyIndex.execute("derived:user:WELCOME", () -> fail("Duplicate must not be sent"));
+
+        // Then
+        assertTrue(result.replayed());
+        assertEquals(notificationId, result.notificationId());
+        assertEquals(1, idempotencyIndex.stats().persistentHits());
+        verify(recordRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void givenKeyReservedByAnotherInstance_whenExecute_thenWaitForItsResultWithoutSending() {
+        // Given
+        UUID notificationId = UUID.randomUUID();
+        IdempotencyRecord reserved = IdempotencyRecord.builder()
+                .expiresOn(LocalDateTime.now().plusMinutes(1))
+                .build();
+        IdempotencyRecord completed = IdempotencyRecord.builder()
+                .notificationId(notificationId)
+                .expiresOn(LocalDateTime.now().plusHours(1))
+                .build();
+        when(recordRepository.findById(anyString())).thenReturn(Optional.of(reserved), Optional.of(reserved), Optional.of(completed));
+
+        // When
+        SendResult result = idempotencyIndex.execute("derived:user:WELCOME", () -> fail("Duplicate must not be sent"));
+
+        // Then
+        assertTrue(result.replayed());
+        assertEquals(notificationId, result.notificationId());
+        verify(recordRepository, times(3)).findById(anyString());
+        verify(recordRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void givenInsertLostToAnotherInstance_whenExecute_thenReplayTheWinnersResult() {
+        // Given
+        UUID notificationId = UUID.randomUUID();
+        IdempotencyRecord completed = IdempotencyRecord.builder()
+                .notificationId(notificationId)
+                .expiresOn(LocalDateTime.now().plusHours(1))
+                .build();
+        when(recordRepository.findById(anyString())).thenReturn(Optional.empty(), Optional.of(completed));
+        when(recordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        // When
+        SendResult result = idempotencyIndex.execute("derived:user:WELCOME", () -> fail("Duplicate must not be sent"));
+
+        // Then
+        assertTrue(result.replayed());
+        assertEquals(notificationId, result.notificationId());
+    }
+
+    @Test
+    void givenReservationLeftByADeadInstance_whenExecute_thenTakeItOverAndSend() {
+        // Given
+        UUID notificationId = UUID.randomUUID();
+        IdempotencyRecord abandoned = IdempotencyRecord.builder()
+                .expiresOn(LocalDateTime.now().minusSeconds(1))
+                .build();
+        when(recordRepository.findById(anyString())).thenReturn(Optional.of(abandoned));
+        when(recordRepository.takeOver(anyString(), any(), any())).thenReturn(1);
+
+        // When
+        SendResult result = idempotencyIndex.execute("derived:user:WELCOME", () -> notificationId);
+
+        // Then
+        assertFalse(result.replayed());
+        verify(recordRepository).complete(anyString(), eq(notificationId), any());
+    }
+
+    @Test
+    void givenFailedSend_whenExecuteAgain_thenRetryTheSend() {
+        // Given
+        String key = "derived:user:WELCOME";
+        assertThrows(IllegalStateException.class, () -> idempotencyIndex.execute(key, () -> {
+            throw new IllegalStateException("render failed");
+        }));
+
+        // When
+        UUID notificationId = UUID.randomUUID();
+        SendResult result = idempotencyIndex.execute(key, () -> notificationId);
+
+        // Then
+        assertFalse(result.replayed());
+        assertEquals(notificationId, result.notificationId());
+        verify(recordRepository).release(anyString());
+    }
+
+    @Test
+    void givenSendOutlastingTheReservationTimeout_whenExecute_thenRenewTheReservationUntilItCompletes() {
+        // Given
+        NotificationProperties properties = new NotificationProperties();
+        properties.getIdempotency().setReservationTimeout(Duration.ofMillis(30));
+        IdempotencyIndex shortReservations = new IdempotencyIndex(recordRepository, new DatabaseLimiter(properties), properties);
+        UUID notificationId = UUID.randomUUID();
+
+        try {
+            // When
+            SendResult result = shortReservations.execute("derived:user:WELCOME", () -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return notificationId;
+            });
+
+            // Then
+            assertEquals(notificationId, result.notificationId());
+            verify(recordRepository, atLeast(2)).renew(anyString(), any(), any());
+            verify(recordRepository, times(1)).complete(anyString(), eq(notificationId), any());
+        } finally {
+            shortReservations.shutdown();
+        }
+    }
+
+    @Test
+    void givenRequestsWithoutIdentity_whenKeyFor_thenSkipDeduplication() {
+        UUID userId = UUID.randomUUID();
+
+        assertNull(IdempotencyIndex.keyFor(null, userId, EmailType.NEW_ORDER, null));
+        assertNull(IdempotencyIndex.keyFor("key", null, EmailType.WELCOME, null));
+        assertEquals(IdempotencyIndex.keyFor(null, userId, EmailType.SHIPPED_ORDER, 5L), IdempotencyIndex.keyFor("", userId, EmailType.SHIPPED_ORDER, 5L));
+        assertNotEquals(IdempotencyIndex.keyFor("key", userId, EmailType.WELCOME, null), IdempotencyIndex.keyFor("key", UUID.randomUUID(), EmailType.WELCOME, null));
+    }
+}
@@ -0,0 +1,88 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailDispatchQueueUTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void givenFullQueue_whenSubmit_thenRejectUntilTasksFinish(boolean virtualThreads) throws InterruptedException {
+        // Given
+        NotificationProperties properties = new NotificationProperties();
+        properties.getConcurrency().setVirtualThreads(virtualThreads);
+        properties.getDispatch().setWorkers(1);
+        properties.getDispatch().setQueueCapacity(1);
+        MailDispatchQueue dispatchQueue = new MailDispatchQueue(properties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            awaitQuietly(release);
+            finished.countDown();
+        };
+        dispatchQueue.submit(blocking);
+        dispatchQueue.submit(blocking);
+
+        // When & Then
+        assertThrows(DispatchQueueFullException.class, () -> dispatchQueue.submit(() -> { }));
+
+        release.countDown();
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        dispatchQueue.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void givenThreadMode_whenSubmit_thenRunOnMatchingThreadKind(boolean virtualThreads) throws InterruptedException {
+        // Given
+        NotificationProperties properties = new NotificationProperties();
+        properties.getConcurrency().setVirtualThreads(virtualThreads);
+        MailDispatchQueue dispatchQueue = new MailDispatchQueue(properties);
+        AtomicBoolean ranOnVirtualThread = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+
+        // When
+        dispatchQueue.submit(() -> {
+            ranOnVirtualThread.set(Thread.currentThread().isVirtual());
+            done.countDown();
+        });
+
+        // Then
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(virtualThreads, ranOnVirtualThread.get());
+        dispatchQueue.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void givenNoWorkersConfigured_whenCreate_thenSizeLanesToCoresOrToTheSmtpPool(boolean virtualThreads) throws InterruptedException {
+        // Given
+        NotificationProperties properties = new NotificationProperties();
+        properties.getConcurrency().setVirtualThreads(virtualThreads);
+        properties.getMail().getPool().setMaxTotal(32);
+
+        // When
+        MailDispatchQueue dispatchQueue = new MailDispatchQueue(properties);
+
+        // Then
+        assertEquals(virtualThreads ? 32 : Runtime.getRuntime().availableProcessors(), dispatchQueue.getLaneCount());
+        dispatchQueue.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidCampaignException;
+import app.notificationsvc.mail.BroadcastMessage;
+import app.notificationsvc.model.CampaignStatus;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NewsletterCampaign;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.Recipient;
+import app.notificationsvc.repository.NewsletterCampaignRepository;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NewsletterCampaignsUTest {
+
+    private static final LocalDateTime PAST = LocalDateTime.of(2020, 1, 6, 9, 0);
+
+    @Mock
+    private NewsletterCampaignRepository campaignRepository;
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationSender notificationSender;
+
+    @Mock
+    private EmailTemplateRenderer templateRenderer;
+
+    @Mock
+    private BroadcastMessage broadcastMessage;
+
+    private NotificationProperties properties;
+    private NewsletterFanOut newsletterFanOut;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getNewsletter().setWorkers(2);
+        properties.getCampaign().setSliceInterval(Duration.ofMillis(10));
+        properties.getCampaign().setDefaultTimeZone(ZoneOffset.UTC);
+        newsletterFanOut = new NewsletterFanOut(preferenceRepository, notificationSender, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        newsletterFanOut.shutdown();
+    }
+
+    @Test
+    void givenNeitherOrBothRates_whenSchedule_thenReject() {
+        // Given
+        NewsletterCampaigns campaigns = campaigns();
+
+        // When & Then
+        assertThrows(InvalidCampaignException.class, () -> campaigns.schedule(null, PAST, null, null, false));
+        assertThrows(InvalidCampaignException.class, () -> campaigns.schedule(null, PAST, 10, Duration.ofHours(1), false));
+        assertThrows(InvalidCampaignException.class, () -> campaigns.schedule(null, PAST, 0, null, false));
+        verifyNoInteractions(campaignRepository);
+    }
+
+    @Test
+    void givenStaggeredCampaign_whenSchedule_thenReleaseFromWhenTheEarliestTimeZoneReachesTheStart() {
+        // Given
+        when(campaignRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        NewsletterCampaign campaign = campaigns().schedule(null, PAST, null, Duration.ofHours(2), true);
+
+        // Then
+        assertEquals(CampaignStatus.SCHEDULED, campaign.getStatus());
+        assertEquals(NotificationService.NEWSLETTER_SUBJECT, campaign.getSubject());
+        assertEquals(PAST.atOffset(ZoneOffset.ofHours(14)).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime(), campaign.getReleaseFrom());
+    }
+
+    @Test
+    void givenSendRate_whenExecute_thenReleaseRecipientsInSlicesFromTheLastKeyAndComplete() {
+        // Given
+        NewsletterCampaign campaign = campaign(200);
+        List<Recipient> recipients = recipients(5);
+        givenBroadcast();
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(NotificationType.EMAIL, Limit.of(2))).thenReturn(recipients.subList(0, 2));
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, recipients.get(1).userId(), Limit.of(2))).thenReturn(recipients.subList(2, 4));
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, recipients.get(3).userId(), Limit.of(2))).thenReturn(recipients.subList(4, 5));
+        when(campaignRepository.renewLease(eq(campaign.getId()), anyString(), any(), anyLong(), anyLong(), any(), any())).thenReturn(1);
+
+        // When
+        campaigns().execute(campaign);
+
+        // Then
+        verify(notificationSender, times(5)).sendBroadcast(any(), any(), eq(EmailType.NEWSLETTER), eq("Newsletter"), eq(broadcastMessage), eq(campaign.getId()));
+        verify(campaignRepository, times(3)).renewLease(eq(campaign.getId()), anyString(), any(), anyLong(), anyLong(), any(), any());
+        verify(campaignRepository).finish(eq(campaign.getId()), anyString(), eq(CampaignStatus.COMPLETED), eq(5L), eq(0L), any());
+    }
+
+    @Test
+    void givenCampaignCancelledDuringFirstSlice_whenExecute_thenStopWithoutOverwritingTheStatus() {
+        // Given
+        NewsletterCampaign campaign = campaign(200);
+        List<Recipient> recipients = recipients(4);
+        givenBroadcast();
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(NotificationType.EMAIL, Limit.of(2))).thenReturn(recipients.subList(0, 2));
+        when(campaignRepository.renewLease(eq(campaign.getId()), anyString(), any(), anyLong(), anyLong(), any(), any())).thenReturn(0);
+
+        // When
+        campaigns().execute(campaign);
+
+        // Then
+        verify(notificationSender, times(2)).sendBroadcast(any(), any(), any(), any(), any(), any());
+        verify(preferenceRepository, never()).findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(any(), any(), any());
+        verify(campaignRepository, never()).finish(any(), any(), any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void givenStaggeredCampaign_whenExecute_thenSendOneWavePerTimeZoneEastToWest() {
+        // Given
+        NewsletterCampaign campaign = campaign(200).toBuilder().staggerByTimeZone(true).build();
+        givenBroadcast();
+        when(preferenceRepository.findNewsletterTimeZones(NotificationType.EMAIL)).thenReturn(Arrays.asList("America/New_York", null, "Asia/Tokyo"));
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndTimeZoneOrderByUserIdAsc(eq(NotificationType.EMAIL), any(), any())).thenReturn(recipients(1));
+        when(campaignRepository.renewLease(eq(campaign.getId()), anyString(), any(), anyLong(), anyLong(), any(), any())).thenReturn(1);
+
+        // When
+        campaigns().execute(campaign);
+
+        // Then
+        InOrder inOrder = inOrder(preferenceRepository);
+        inOrder.verify(preferenceRepository).findByIsNewsletterEnabledTrueAndTypeAndTimeZoneOrderByUserIdAsc(eq(NotificationType.EMAIL), eq("Asia/Tokyo"), any());
+        inOrder.verify(preferenceRepository).findByIsNewsletterEnabledTrueAndTypeAndTimeZoneOrderByUserIdAsc(eq(NotificationType.EMAIL), isNull(), any());
+        inOrder.verify(preferenceRepository).findByIsNewsletterEnabledTrueAndTypeAndTimeZoneOrderByUserIdAsc(eq(NotificationType.EMAIL), eq("America/New_York"), any());
+        verify(campaignRepository).finish(eq(campaign.getId()), anyString(), eq(CampaignStatus.COMPLETED), eq(3L), eq(0L), any());
+    }
+
+    @Test
+    void givenCheckpoint_whenExecute_thenResumeAfterItAndSkipWhoTheInFlightSliceAlreadyReached() {
+        // Given
+        List<Recipient> recipients = recipients(5);
+        NewsletterCampaign campaign = campaign(200).toBuilder().checkpointUserId(recipients.get(1).userId()).sent(2).build();
+        givenBroadcast();
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, recipients.get(1).userId(), Limit.of(2))).thenReturn(recipients.subList(2, 4));
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(NotificationType.EMAIL, recipients.get(3).userId(), Limit.of(2))).thenReturn(recipients.subList(4, 5));
+        when(notificationRepository.findCampaignRecipients(campaign.getId(), List.of(recipients.get(2).userId(), recipients.get(3).userId()))).thenReturn(List.of(recipients.get(2).userId()));
+        when(campaignRepository.renewLease(eq(campaign.getId()), anyString(), any(), anyLong(), anyLong(), any(), any())).thenReturn(1);
+
+        // When
+        campaigns().execute(campaign);
+
+        // Then
+        ArgumentCaptor<UUID> checkpoints = ArgumentCaptor.forClass(UUID.class);
+        verify(preferenceRepository, never()).findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(any(), any());
+        verify(notificationRepository, times(1)).findCampaignRecipients(any(), any());
+        verify(notificationSender, never()).sendBroadcast(eq(recipients.get(2).userId()), any(), any(), any(), any(), any());
+        verify(notificationSender, times(2)).sendBroadcast(any(), any(), any(), any(), any(), eq(campaign.getId()));
+        verify(campaignRepository, times(2)).renewLease(eq(campaign.getId()), anyString(), any(), anyLong(), anyLong(), isNull(), checkpoints.capture());
+        assertEquals(List.of(recipients.get(3).userId(), recipients.get(4).userId()), checkpoints.getAllValues());
+        verify(campaignRepository).finish(eq(campaign.getId()), anyString(), eq(CampaignStatus.COMPLETED), eq(4L), eq(0L), any());
+    }
+
+    @Test
+    void givenShutdownInterrupt_whenExecute_thenHandTheCampaignBackInsteadOfFailingIt() {
+        // Given
+        NewsletterCampaign campaign = campaign(200);
+        givenBroadcast();
+        Thread.currentThread().interrupt();
+
+        // When
+        campaigns().execute(campaign);
+
+        // Then
+        assertTrue(Thread.interrupted());
+        verify(campaignRepository).release(eq(campaign.getId()), anyString());
+        verify(campaignRepository, never()).finish(any(), any(), any(), anyLong(), anyLong(), any());
+        verify(notificationSender, never()).sendBroadcast(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void givenSpreadWindow_whenPace_thenSpaceEvenSlicesAcrossTheWindow() {
+        // When
+        CampaignPacer slow = CampaignPacer.of(CampaignPacer.rateFor(3600, Duration.ofHours(2)), Duration.ofSeconds(1), 500);
+        CampaignPacer fast = CampaignPacer.of(5000, Duration.ofSeconds(1), 500);
+
+        // Then
+        assertEquals(1, slow.sliceSize());
+        assertEquals(Duration.ofSeconds(2).toNanos(), slow.intervalNanos());
+        assertEquals(500, fast.sliceSize());
+        assertEquals(Duration.ofMillis(100).toNanos(), fast.intervalNanos());
+    }
+
+    private void givenBroadcast() {
+        when(templateRenderer.render(eq(EmailType.NEWSLETTER), anyMap())).thenReturn("<p>News</p>");
+        when(notificationSender.prepareBroadcast("Newsletter", "<p>News</p>")).thenReturn(broadcastMessage);
+        lenient().when(notificationSender.sendBroadcast(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> Notification.builder().status(NotificationStatus.SENT).build());
+    }
+
+    private NewsletterCampaigns campaigns() {
+        return new NewsletterCampaigns(campaignRepository, preferenceRepository, notificationRepository, newsletterFanOut, notificationSender, templateRenderer, new DatabaseLimiter(properties), properties);
+    }
+
+    private static NewsletterCampaign campaign(int sendRate) {
+        return NewsletterCampaign.builder()
+                .id(UUID.randomUUID())
+                .subject("Newsletter")
+                .status(CampaignStatus.RUNNING)
+                .startOn(PAST)
+                .sendRate(sendRate)
+                .releaseFrom(PAST)
+                .build();
+    }
+
+    private static List<Recipient> recipients(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new Recipient(new UUID(0, i), "user-" + i + "@example.com"))
+                .toList();
+    }
+}
@@ -0,0 +1,133 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.NewsletterQueueFullException;
+import app.notificationsvc.mail.BroadcastMessage;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.Recipient;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NewsletterFanOutUTest {
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Mock
+    private NotificationSender notificationSender;
+
+    @Mock
+    private BroadcastMessage broadcastMessage;
+
+    private NewsletterFanOut newsletterFanOut;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getNewsletter().setPageSize(2);
+        properties.getNewsletter().setWorkers(2);
+
+        newsletterFanOut = new NewsletterFanOut(preferenceRepository, notificationSender, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        newsletterFanOut.shutdown();
+    }
+
+    @Test
+    void givenSubscribersAcrossPages_whenRun_thenSendToEveryoneWithoutPerUserLookups() {
+        // Given
+        Recipient first = new Recipient(UUID.fromString("00000000-0000-0000-0000-000000000001"), "first@example.com");
+        Recipient second = new Recipient(UUID.fromString("00000000-0000-0000-0000-000000000002"), "second@example.com");
+        Recipient third = new Recipient(UUID.fromString("00000000-0000-0000-0000-000000000003"), "third@example.com");
+
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(eq(NotificationType.EMAIL), any(Limit.class))).thenReturn(List.of(first, second));
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeAndUserIdGreaterThanOrderByUserIdAsc(eq(NotificationType.EMAIL), eq(second.userId()), any(Limit.class))).thenReturn(List.of(third));
+
+        when(notificationSender.sendBroadcast(any(), any(), eq(EmailType.NEWSLETTER), eq("Weekly"), eq(broadcastMessage), isNull()))
+                .thenReturn(Notification.builder().status(NotificationStatus.SENT).build());
+        when(notificationSender.sendBroadcast(eq(third.userId()), any(), eq(EmailType.NEWSLETTER), eq("Weekly"), eq(broadcastMessage), isNull()))
+                .thenReturn(Notification.builder().status(NotificationStatus.FAILED).build());
+
+        when(notificationSender.prepareBroadcast("Weekly", "body")).thenReturn(broadcastMessage);
+
+        // When
+        NewsletterRun run = newsletterFanOut.run("Weekly", "body");
+
+        // Then
+        assertEquals(NewsletterRun.Status.COMPLETED, run.getStatus());
+        assertEquals(3, run.getProcessed());
+        assertEquals(2, run.getSent());
+        assertEquals(1, run.getFailed());
+        verify(preferenceRepository, never()).findByUserId(any());
+        verify(notificationSender, times(3)).sendBroadcast(any(), any(), eq(EmailType.NEWSLETTER), eq("Weekly"), eq(broadcastMessage), isNull());
+    }
+
+    @Test
+    void givenNoSubscribers_whenRun_thenCompleteWithoutSending() {
+        // Given
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(eq(NotificationType.EMAIL), any(Limit.class))).thenReturn(List.of());
+
+        when(notificationSender.prepareBroadcast("Weekly", "body")).thenReturn(broadcastMessage);
+
+        // When
+        NewsletterRun run = newsletterFanOut.run("Weekly", "body");
+
+        // Then
+        assertEquals(NewsletterRun.Status.COMPLETED, run.getStatus());
+        assertEquals(0, run.getProcessed());
+        verify(notificationSender, never()).sendBroadcast(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void givenRunInProgressAndNoQueueRoom_whenStart_thenRefuseWithRetryAfter() throws InterruptedException {
+        // Given
+        NotificationProperties properties = new NotificationProperties();
+        properties.getNewsletter().setQueuedRuns(0);
+        NewsletterFanOut boundedFanOut = new NewsletterFanOut(preferenceRepository, notificationSender, properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(notificationSender.prepareBroadcast("Weekly", "body")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return broadcastMessage;
+        });
+        when(preferenceRepository.findByIsNewsletterEnabledTrueAndTypeOrderByUserIdAsc(eq(NotificationType.EMAIL), any(Limit.class))).thenReturn(List.of());
+
+        try {
+            NewsletterRun first = boundedFanOut.start("Weekly", "body");
+            started.await(5, TimeUnit.SECONDS);
+
+            // When & Then
+            NewsletterQueueFullException refused = assertThrows(NewsletterQueueFullException.class, () -> boundedFanOut.start("Weekly", "body"));
+            assertEquals(properties.getNewsletter().getRetryAfter(), refused.getRetryAfter());
+            assertEquals(first, boundedFanOut.getRun(first.getId()));
+        } finally {
+            release.countDown();
+            boundedFanOut.shutdown();
+        }
+
+        verify(notificationSender, times(1)).prepareBroadcast("Weekly", "body");
+    }
+}
@@ -0,0 +1,80 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.ExpiredNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationArchiveUTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void givenTwoAppendsOnTheSameDay_whenReadBack_thenFileHoldsEveryLine() throws IOException {
+        // Given
+        NotificationArchive archive = archive();
+        LocalDateTime day = LocalDateTime.of(2025, 1, 10, 8, 0);
+        ExpiredNotification first = notification(day);
+        ExpiredNotification second = notification(day.plusHours(2));
+
+        // When
+        archive.append(List.of(first));
+        archive.append(List.of(second));
+
+        // Then
+        List<String> lines = read(archive.fileFor(day.toLocalDate()));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains(first.id().toString()));
+        assertTrue(lines.get(1).contains(second.id().toString()));
+        assertTrue(lines.get(0).contains("\"status\":\"SENT\""));
+        assertTrue(lines.get(0).contains("\"subject\":\"Order placed\""));
+    }
+
+    @Test
+    void givenNotificationsFromSeveralDays_whenAppend_thenWriteOneFilePerDay() throws IOException {
+        // Given
+        NotificationArchive archive = archive();
+        LocalDateTime day = LocalDateTime.of(2025, 1, 10, 23, 30);
+
+        // When
+        archive.append(List.of(notification(day), notification(day.plusHours(1)), notification(day.plusHours(2))));
+
+        // Then
+        assertEquals(1, read(archive.fileFor(day.toLocalDate())).size());
+        assertEquals(2, read(archive.fileFor(day.toLocalDate().plusDays(1))).size());
+    }
+
+    private NotificationArchive archive() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getRetention().setArchiveDirectory(directory.toString());
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return new NotificationArchive(objectMapper, properties);
+    }
+
+    private static List<String> read(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    private static ExpiredNotification notification(LocalDateTime createdOn) {
+        return new ExpiredNotification(UUID.randomUUID(), UUID.randomUUID(), EmailType.NEW_ORDER, NotificationStatus.SENT, "Order placed", createdOn, 1, null, null);
+    }
+}
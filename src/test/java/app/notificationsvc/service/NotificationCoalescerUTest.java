@@ -0,0 +1,175 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationCoalescerUTest {
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private EmailTemplateRenderer templateRenderer;
+
+    private NotificationProperties properties;
+    private NotificationCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getCoalescing().setTick(Duration.ofMillis(10));
+        properties.getCoalescing().getWindows().put(EmailType.NEW_ORDER, Duration.ofMillis(500));
+        properties.getCoalescing().getWindows().put(EmailType.SHIPPED_ORDER, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void givenTypeWithoutWindow_whenOffer_thenLeaveItToBeQueuedOnItsOwn() {
+        // Given
+        coalescer = newCoalescer();
+        RenderedEmail welcome = new RenderedEmail(UUID.randomUUID(), EmailType.WELCOME, "Welcome!", "<p>Hi</p>");
+
+        // When
+        UUID digestId = coalescer.offer(welcome);
+
+        // Then
+        assertNull(digestId);
+        assertEquals(0, coalescer.stats().bufferedEmails());
+    }
+
+    @Test
+    void givenSingleEmailInWindow_whenWindowEnds_thenQueueItUnchangedUnderTheReturnedId() {
+        // Given
+        coalescer = newCoalescer();
+        UUID userId = UUID.randomUUID();
+        RenderedEmail order = new RenderedEmail(userId, EmailType.NEW_ORDER, "New order", "<p>Order 1</p>");
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+
+        // When
+        UUID digestId = coalescer.offer(order);
+
+        // Then
+        verify(notificationOutbox, timeout(2000).times(1)).queue(captor.capture(), eq("<p>Order 1</p>"));
+        assertEquals(digestId, captor.getValue().getId());
+        assertEquals(EmailType.NEW_ORDER, captor.getValue().getEmailType());
+        assertEquals("New order", captor.getValue().getSubject());
+        assertEquals(NotificationStatus.QUEUED, captor.getValue().getStatus());
+        verifyNoInteractions(templateRenderer);
+    }
+
+    @Test
+    void givenSameUserEmailsWithinWindow_whenWindowEnds_thenQueueOneDigest() {
+        // Given
+        coalescer = newCoalescer();
+        UUID userId = UUID.randomUUID();
+        when(templateRenderer.render(eq(EmailType.DIGEST), anyMap())).thenReturn("<p>Digest</p>");
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+
+        // When
+        UUID first = coalescer.offer(new RenderedEmail(userId, EmailType.NEW_ORDER, "New order", "<html><body><p>Order 1</p></body></html>"));
+        UUID second = coalescer.offer(new RenderedEmail(userId, EmailType.SHIPPED_ORDER, "Shipped", "<html><body><p>Order 2</p></body></html>"));
+        Notification pending = coalescer.find(first);
+
+        // Then
+        assertEquals(first, second);
+        assertEquals(EmailType.DIGEST, pending.getEmailType());
+        assertEquals(NotificationStatus.QUEUED, pending.getStatus());
+
+        // The shipped email's hour-long window does not hold back the earlier order email
+        verify(notificationOutbox, timeout(2000).times(1)).queue(captor.capture(), eq("<p>Digest</p>"));
+        assertEquals(first, captor.getValue().getId());
+        assertEquals(EmailType.DIGEST, captor.getValue().getEmailType());
+        assertEquals("You have 2 new updates", captor.getValue().getSubject());
+        verify(templateRenderer).render(EmailType.DIGEST, Map.of("count", 2, "items", List.of(
+                Map.of("subject", "New order", "content", "<p>Order 1</p>"),
+                Map.of("subject", "Shipped", "content", "<p>Order 2</p>"))));
+    }
+
+    @Test
+    void givenDigestReachesMaxEmailsPerUser_whenOffer_thenQueueItWithoutWaitingForTheWindow() {
+        // Given
+        properties.getCoalescing().setMaxEmailsPerUser(2);
+        coalescer = newCoalescer();
+        UUID userId = UUID.randomUUID();
+        when(templateRenderer.render(eq(EmailType.DIGEST), anyMap())).thenReturn("<p>Digest</p>");
+
+        // When
+        UUID first = coalescer.offer(new RenderedEmail(userId, EmailType.SHIPPED_ORDER, "Shipped 1", "<p>1</p>"));
+        UUID second = coalescer.offer(new RenderedEmail(userId, EmailType.SHIPPED_ORDER, "Shipped 2", "<p>2</p>"));
+        UUID third = coalescer.offer(new RenderedEmail(userId, EmailType.SHIPPED_ORDER, "Shipped 3", "<p>3</p>"));
+
+        // Then
+        assertEquals(first, second);
+        assertNotEquals(first, third);
+        verify(notificationOutbox, timeout(2000).times(1)).queue(argThat(notification -> notification.getId().equals(first)), eq("<p>Digest</p>"));
+        assertEquals(1, coalescer.stats().bufferedUsers());
+    }
+
+    @Test
+    void givenBufferFull_whenOffer_thenBypassCoalescing() {
+        // Given
+        properties.getCoalescing().setMaxBufferedEmails(1);
+        coalescer = newCoalescer();
+        coalescer.offer(new RenderedEmail(UUID.randomUUID(), EmailType.SHIPPED_ORDER, "Shipped", "<p>1</p>"));
+
+        // When
+        UUID digestId = coalescer.offer(new RenderedEmail(UUID.randomUUID(), EmailType.SHIPPED_ORDER, "Shipped", "<p>2</p>"));
+
+        // Then
+        assertNull(digestId);
+        assertEquals(1, coalescer.stats().bypassed());
+        assertEquals(1, coalescer.stats().bufferedEmails());
+    }
+
+    @Test
+    void givenPendingDigest_whenShutdown_thenQueueItBeforeStopping() throws InterruptedException {
+        // Given
+        coalescer = newCoalescer();
+        UUID digestId = coalescer.offer(new RenderedEmail(UUID.randomUUID(), EmailType.SHIPPED_ORDER, "Shipped", "<p>1</p>"));
+
+        // When
+        coalescer.shutdown();
+
+        // Then
+        verify(notificationOutbox, times(1)).queue(argThat(notification -> notification.getId().equals(digestId)), eq("<p>1</p>"));
+        assertNull(coalescer.find(digestId));
+    }
+
+    @Test
+    void givenFullHtmlDocument_whenBodyContent_thenKeepOnlyWhatIsInsideBody() {
+        assertEquals("<p>Hi</p>", NotificationCoalescer.bodyContent("<html><head><title>T</title></head><BODY style=\"x\"><p>Hi</p></BODY></html>"));
+        assertEquals("<p>Hi</p>", NotificationCoalescer.bodyContent("<p>Hi</p>"));
+    }
+
+    private NotificationCoalescer newCoalescer() {
+        NotificationMetrics metrics = new NotificationMetrics(new SimpleMeterRegistry());
+        return new NotificationCoalescer(notificationOutbox, templateRenderer, new DatabaseLimiter(properties), metrics, properties);
+    }
+}
@@ -0,0 +1,88 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidHistoryCursorException;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.NotificationHistoryEntry;
+import app.notificationsvc.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationHistoryServiceUTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    private NotificationProperties properties;
+
+    private NotificationHistoryService historyService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getHistory().setDefaultPageSize(2);
+        properties.getHistory().setMaxPageSize(3);
+        historyService = new NotificationHistoryService(notificationRepository, new DatabaseLimiter(properties), properties);
+    }
+
+    @Test
+    void givenMoreRowsThanPageSize_whenGetHistory_thenReturnPageAndCursorOfLastRow() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        NotificationHistoryEntry newest = entry(now);
+        NotificationHistoryEntry older = entry(now.minusMinutes(1));
+        NotificationHistoryEntry oldest = entry(now.minusMinutes(2));
+        when(notificationRepository.findHistory(userId, null, null, Limit.of(3))).thenReturn(List.of(newest, older, oldest));
+
+        // When
+        NotificationHistoryPage page = historyService.getHistory(userId, null, null, null, null);
+
+        // Then
+        assertEquals(List.of(newest, older), page.entries());
+        assertNotNull(page.nextCursor());
+        assertEquals(HistoryCursor.after(older), HistoryCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void givenCursor_whenGetHistory_thenSeekPastCursor() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationHistoryEntry last = entry(LocalDateTime.now());
+        String cursor = HistoryCursor.after(last).encode();
+        when(notificationRepository.findHistoryBefore(eq(userId), eq(EmailType.WELCOME), eq(NotificationStatus.SENT), eq(last.createdOn()), eq(last.id()), eq(Limit.of(4))))
+                .thenReturn(List.of());
+
+        // When
+        NotificationHistoryPage page = historyService.getHistory(userId, EmailType.WELCOME, NotificationStatus.SENT, cursor, 10);
+
+        // Then
+        assertTrue(page.entries().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void givenMalformedCursor_whenGetHistory_thenThrowInvalidCursor() {
+        // When & Then
+        assertThrows(InvalidHistoryCursorException.class, () -> historyService.getHistory(UUID.randomUUID(), null, null, "not-a-cursor", null));
+        verifyNoInteractions(notificationRepository);
+    }
+
+    private static NotificationHistoryEntry entry(LocalDateTime createdOn) {
+        return new NotificationHistoryEntry(UUID.randomUUID(), EmailType.WELCOME, NotificationStatus.SENT, "Welcome!", createdOn, 1);
+    }
+}
@@ -0,0 +1,113 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationLogWriterUTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getNotificationLog().setBatchSize(2);
+        properties.getNotificationLog().setFlushInterval(Duration.ofMillis(20));
+    }
+
+    @Test
+    void givenRunningWriter_whenAppendAndStop_thenWriteEveryRowInBatches() {
+        // Given
+        NotificationLogWriter writer = new NotificationLogWriter(notificationRepository, transactionManager, properties, new NotificationMetrics(new SimpleMeterRegistry()));
+        writer.start();
+
+        // When
+        List<Notification> appended = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Notification notification = notification();
+            appended.add(notification);
+            writer.append(notification);
+        }
+        writer.stop();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, atLeast(3)).saveAll(captor.capture());
+
+        List<Notification> written = captor.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(appended.size(), written.size());
+        assertTrue(written.containsAll(appended));
+        assertTrue(captor.getAllValues().stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(5, writer.stats().rowsWritten());
+        assertFalse(writer.isRunning());
+    }
+
+    @Test
+    void givenStoppedWriter_whenAppend_thenWriteImmediately() {
+        // Given
+        NotificationLogWriter writer = new NotificationLogWriter(notificationRepository, transactionManager, properties, new NotificationMetrics(new SimpleMeterRegistry()));
+        Notification notification = notification();
+
+        // When
+        writer.append(notification);
+
+        // Then
+        verify(notificationRepository, times(1)).saveAll(List.of(notification));
+        assertEquals(1, writer.stats().flushes());
+    }
+
+    @Test
+    void givenFailingBatch_whenWrite_thenRetryRowByRow() {
+        // Given
+        NotificationLogWriter writer = new NotificationLogWriter(notificationRepository, transactionManager, properties, new NotificationMetrics(new SimpleMeterRegistry()));
+        Notification notification = notification();
+        when(notificationRepository.saveAll(anyList())).thenThrow(new IllegalStateException("batch failed"));
+
+        // When
+        writer.append(notification);
+
+        // Then
+        verify(notificationRepository, times(1)).save(notification);
+        assertEquals(1, writer.stats().rowsWritten());
+        assertEquals(0, writer.stats().rowsFailed());
+    }
+
+    private static Notification notification() {
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("Welcome!")
+                .emailType(EmailType.WELCOME)
+                .status(NotificationStatus.SENT)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+}
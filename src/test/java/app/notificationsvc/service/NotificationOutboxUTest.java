@@ -0,0 +1,277 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.model.OutboxMessage;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static app.notificationsvc.TestBuilder.randomNotificationPreference;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationOutboxUTest {
+
+    @Mock
+    private OutboxMessageRepository outboxRepository;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Mock
+    private NotificationSender notificationSender;
+
+    @Mock
+    private DeliveryChannels deliveryChannels;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        DatabaseLimiter databaseLimiter = new DatabaseLimiter(properties);
+        PreferenceCache preferenceCache = new PreferenceCache(preferenceRepository, databaseLimiter, properties);
+        outbox = new NotificationOutbox(outboxRepository, notificationRepository, preferenceCache, notificationSender, deliveryChannels, databaseLimiter, transactionManager, properties);
+    }
+
+    @Test
+    void givenQueuedNotification_whenQueue_thenSaveNotificationAndOutboxMessageInOneTransaction() {
+        // Given
+        Notification notification = queued(UUID.randomUUID());
+        when(notificationRepository.save(notification)).thenReturn(notification);
+
+        // When
+        outbox.queue(notification, "<p>Hi</p>");
+
+        // Then
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(outboxRepository, times(1)).save(argThat(message -> message.getNotificationId().equals(notification.getId())
+                && message.getBody().equals("<p>Hi</p>")
+                && message.getAvailableOn().equals(notification.getCreatedOn())));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void givenClaimableMessages_whenRelay_thenLeaseThemAndDeliverInUserLane() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        Notification notification = queued(preference.getUserId());
+        OutboxMessage message = message(notification);
+        LocalDateTime now = LocalDateTime.now();
+        when(outboxRepository.lockClaimable(eq(now), any(Limit.class))).thenReturn(List.of(message));
+        when(notificationRepository.findAllById(List.of(notification.getId()))).thenReturn(List.of(notification));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of(preference));
+        runSubmittedTasks();
+        when(outboxRepository.deleteClaimed(eq(notification.getId()), any())).thenReturn(1);
+
+        // When
+        int dispatched = outbox.relay(now);
+
+        // Then
+        assertEquals(1, dispatched);
+        assertEquals(now.plus(Duration.ofMinutes(5)), message.getAvailableOn());
+        assertEquals(outbox.stats().instanceId(), message.getClaimedBy());
+        assertEquals(1, message.getClaims());
+        verify(deliveryChannels, times(1)).submit(eq(NotificationType.EMAIL), eq(preference.getUserId()), any(Runnable.class));
+        verify(notificationSender, times(1)).attempt(notification, preference, "<p>Hi</p>");
+        verify(notificationRepository, times(1)).save(notification);
+        verify(outboxRepository, times(1)).deleteClaimed(notification.getId(), outbox.stats().instanceId());
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(1, outbox.stats().completed());
+    }
+
+    @Test
+    void givenLeaseLostDuringAttempt_whenAttemptCompletes_thenStillSaveItsOutcome() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        Notification notification = queued(preference.getUserId());
+        LocalDateTime now = LocalDateTime.now();
+        when(outboxRepository.lockClaimable(eq(now), any(Limit.class))).thenReturn(List.of(message(notification)));
+        when(notificationRepository.findAllById(List.of(notification.getId()))).thenReturn(List.of(notification));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of(preference));
+        runSubmittedTasks();
+        doAnswer(invocation -> {
+            invocation.<Notification>getArgument(0).setStatus(NotificationStatus.RETRYING);
+            return null;
+        }).when(notificationSender).attempt(eq(notification), eq(preference), any());
+        when(outboxRepository.deleteClaimed(eq(notification.getId()), any())).thenReturn(0);
+
+        // When
+        outbox.relay(now);
+
+        // Then
+        verify(notificationRepository, times(1)).save(argThat(saved -> saved.getStatus() == NotificationStatus.RETRYING));
+        verify(notificationSender, never()).deliver(any(), any(), any());
+        assertEquals(0, outbox.stats().completed());
+    }
+
+    @Test
+    void givenFullDeliveryQueue_whenRelay_thenReleaseUndispatchedClaims() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        Notification first = queued(preference.getUserId());
+        Notification second = queued(preference.getUserId());
+        LocalDateTime now = LocalDateTime.now();
+        when(outboxRepository.lockClaimable(eq(now), any(Limit.class))).thenReturn(List.of(message(first), message(second)));
+        when(notificationRepository.findAllById(any())).thenReturn(List.of(first, second));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of(preference));
+        doNothing()
+                .doThrow(new DispatchQueueFullException(Duration.ofSeconds(5)))
+                .when(deliveryChannels).submit(any(), any(), any(Runnable.class));
+        when(outboxRepository.release(List.of(second.getId()), outbox.stats().instanceId(), now)).thenReturn(1);
+
+        // When
+        int dispatched = outbox.relay(now);
+
+        // Then
+        assertEquals(1, dispatched);
+        assertEquals(1, outbox.stats().released());
+    }
+
+    @Test
+    void givenDeliveryQueueFullForLongerThanMaxClaims_whenRelay_thenKeepHandingTheMessageBackWithoutAbandoningIt() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        Notification notification = queued(preference.getUserId());
+        OutboxMessage message = message(notification);
+        when(outboxRepository.lockClaimable(any(), any(Limit.class))).thenReturn(List.of(message));
+        when(notificationRepository.findAllById(any())).thenReturn(List.of(notification));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of(preference));
+        doThrow(new DispatchQueueFullException(Duration.ofSeconds(5)))
+                .when(deliveryChannels).submit(any(), any(), any(Runnable.class));
+        when(outboxRepository.release(eq(List.of(notification.getId())), any(), any())).thenAnswer(invocation -> {
+            message.setClaims(message.getClaims() - 1);
+            return 1;
+        });
+
+        // When
+        for (int poll = 0; poll < 10; poll++) {
+            outbox.relay(LocalDateTime.now());
+        }
+
+        // Then
+        assertEquals(0, message.getClaims());
+        assertEquals(10, outbox.stats().released());
+        verify(notificationSender, never()).giveUp(any(), any());
+        verify(deliveryChannels, times(10)).submit(any(), any(), any(Runnable.class));
+    }
+
+    @Test
+    void givenOneChannelFull_whenRelay_thenHandBackOnlyThatChannelsMessages() {
+        // Given
+        NotificationPreference email = randomNotificationPreference();
+        NotificationPreference webhook = randomNotificationPreference();
+        webhook.setType(NotificationType.WEBHOOK);
+        Notification toEmail = queued(email.getUserId());
+        Notification toWebhook = queued(webhook.getUserId());
+        LocalDateTime now = LocalDateTime.now();
+        when(outboxRepository.lockClaimable(eq(now), any(Limit.class))).thenReturn(List.of(message(toEmail), message(toWebhook)));
+        when(notificationRepository.findAllById(any())).thenReturn(List.of(toEmail, toWebhook));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of(email, webhook));
+        lenient().doThrow(new DispatchQueueFullException(Duration.ofSeconds(5)))
+                .when(deliveryChannels).submit(eq(NotificationType.EMAIL), any(), any(Runnable.class));
+        when(outboxRepository.release(List.of(toEmail.getId()), outbox.stats().instanceId(), now)).thenReturn(1);
+
+        // When
+        int dispatched = outbox.relay(now);
+
+        // Then
+        assertEquals(1, dispatched);
+        verify(deliveryChannels, times(1)).submit(eq(NotificationType.WEBHOOK), eq(webhook.getUserId()), any(Runnable.class));
+        assertEquals(1, outbox.stats().released());
+    }
+
+    @Test
+    void givenPreferenceDeleted_whenRelay_thenAbandonNotificationAndDropMessage() {
+        // Given
+        Notification notification = queued(UUID.randomUUID());
+        LocalDateTime now = LocalDateTime.now();
+        when(outboxRepository.lockClaimable(eq(now), any(Limit.class))).thenReturn(List.of(message(notification)));
+        when(notificationRepository.findAllById(any())).thenReturn(List.of(notification));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of());
+        when(outboxRepository.deleteClaimed(eq(notification.getId()), any())).thenReturn(1);
+
+        // When
+        outbox.relay(now);
+
+        // Then
+        verify(notificationSender, times(1)).giveUp(eq(notification), any());
+        verify(notificationRepository, times(1)).save(notification);
+        verifyNoInteractions(deliveryChannels);
+        assertEquals(1, outbox.stats().abandoned());
+    }
+
+    @Test
+    void givenAlreadySentNotification_whenRelay_thenDropMessageWithoutSending() {
+        // Given
+        Notification notification = queued(UUID.randomUUID());
+        notification.setStatus(NotificationStatus.SENT);
+        LocalDateTime now = LocalDateTime.now();
+        when(outboxRepository.lockClaimable(eq(now), any(Limit.class))).thenReturn(List.of(message(notification)));
+        when(notificationRepository.findAllById(any())).thenReturn(List.of(notification));
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of());
+        when(outboxRepository.deleteClaimed(eq(notification.getId()), any())).thenReturn(1);
+
+        // When
+        outbox.relay(now);
+
+        // Then
+        verifyNoInteractions(deliveryChannels, notificationSender);
+        verify(outboxRepository, times(1)).deleteClaimed(eq(notification.getId()), any());
+    }
+
+    private void runSubmittedTasks() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(deliveryChannels).submit(any(), any(), any(Runnable.class));
+    }
+
+    private static Notification queued(UUID userId) {
+        return Notification.builder()
+                .userId(userId)
+                .subject("Welcome!")
+                .emailType(EmailType.WELCOME)
+                .status(NotificationStatus.QUEUED)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+
+    private static OutboxMessage message(Notification notification) {
+        return OutboxMessage.builder()
+                .notificationId(notification.getId())
+                .userId(notification.getUserId())
+                .body("<p>Hi</p>")
+                .createdOn(notification.getCreatedOn())
+                .availableOn(notification.getCreatedOn())
+                .build();
+    }
+}
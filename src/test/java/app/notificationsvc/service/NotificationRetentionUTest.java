@@ -0,0 +1,181 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.ExpiredNotification;
+import app.notificationsvc.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationRetentionUTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 15, 12, 0);
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationArchive notificationArchive;
+
+    @Mock
+    private NotificationPartitions notificationPartitions;
+
+    @Mock
+    private JobLeases jobLeases;
+
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getRetention().setTtl(Duration.ofDays(30));
+        properties.getRetention().setBatchSize(2);
+        properties.getRetention().setBatchPause(Duration.ZERO);
+        lenient().when(jobLeases.acquire(eq(NotificationRetention.JOB), any())).thenReturn(true);
+    }
+
+    @Test
+    void givenMoreExpiredRowsThanOneBatch_whenPurge_thenArchiveAndDeleteBatchByBatchFromTheLastKey() throws InterruptedException {
+        // Given
+        LocalDateTime cutoff = NOW.minusDays(30);
+        ExpiredNotification first = notification(cutoff.minusDays(3));
+        ExpiredNotification second = notification(cutoff.minusDays(2));
+        ExpiredNotification third = notification(cutoff.minusDays(1));
+        when(notificationRepository.findExpired(any(), eq(NotificationPartitions.EPOCH), eq(cutoff), any())).thenReturn(List.of(first, second));
+        when(notificationRepository.findExpiredAfter(any(), eq(cutoff), eq(second.createdOn()), eq(second.id()), any())).thenReturn(List.of(third));
+
+        // When
+        long removed = retention().purge(NOW);
+
+        // Then
+        assertEquals(3, removed);
+        InOrder inOrder = inOrder(notificationArchive, notificationRepository);
+        inOrder.verify(notificationArchive).append(List.of(first, second));
+        inOrder.verify(notificationRepository).deleteAllByIdInBatch(List.of(first.id(), second.id()));
+        inOrder.verify(notificationArchive).append(List.of(third));
+        inOrder.verify(notificationRepository).deleteAllByIdInBatch(List.of(third.id()));
+        verifyNoInteractions(notificationPartitions);
+    }
+
+    @Test
+    void givenLeaseHeldByAnotherInstance_whenPurge_thenTouchNothing() throws InterruptedException {
+        // Given
+        when(jobLeases.acquire(eq(NotificationRetention.JOB), any())).thenReturn(false);
+
+        // When
+        long removed = retention().purge(NOW);
+
+        // Then
+        assertEquals(0, removed);
+        verifyNoInteractions(notificationRepository, notificationArchive, notificationPartitions);
+        verify(jobLeases, never()).release(any());
+    }
+
+    @Test
+    void givenLeaseLostBetweenBatches_whenPurge_thenStopBeforeTheNextBatch() {
+        // Given
+        LocalDateTime cutoff = NOW.minusDays(30);
+        ExpiredNotification first = notification(cutoff.minusDays(3));
+        ExpiredNotification second = notification(cutoff.minusDays(2));
+        when(jobLeases.acquire(eq(NotificationRetention.JOB), any())).thenReturn(true, true, false);
+        when(notificationRepository.findExpired(any(), any(), any(), any())).thenReturn(List.of(first, second));
+        NotificationRetention retention = retention();
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> retention.purge(NOW));
+        verify(notificationRepository, times(1)).deleteAllByIdInBatch(any());
+        verify(notificationRepository, never()).findExpiredAfter(any(), any(), any(), any(), any());
+        verify(jobLeases).release(NotificationRetention.JOB);
+    }
+
+    @Test
+    void givenArchiveFails_whenPurge_thenDeleteNothing() {
+        // Given
+        when(notificationRepository.findExpired(any(), any(), any(), any())).thenReturn(List.of(notification(NOW.minusDays(40))));
+        doThrow(new UncheckedIOException(new IOException("disk full"))).when(notificationArchive).append(anyList());
+        NotificationRetention retention = retention();
+
+        // When & Then
+        assertThrows(UncheckedIOException.class, () -> retention.purge(NOW));
+        verify(notificationRepository, never()).deleteAllByIdInBatch(any());
+        assertEquals(0, retention.stats().purged());
+    }
+
+    @Test
+    void givenArchiveDisabled_whenPurge_thenDeleteWithoutArchiving() throws InterruptedException {
+        // Given
+        properties.getRetention().setArchive(false);
+        ExpiredNotification expired = notification(NOW.minusDays(40));
+        when(notificationRepository.findExpired(any(), any(), any(), any())).thenReturn(List.of(expired));
+
+        // When
+        long removed = retention().purge(NOW);
+
+        // Then
+        assertEquals(1, removed);
+        verify(notificationRepository).deleteAllByIdInBatch(List.of(expired.id()));
+        verifyNoInteractions(notificationArchive);
+    }
+
+    @Test
+    void givenPartitionedTable_whenPurge_thenDropOnlyExpiredMonthsWithoutUnfinishedRows() throws InterruptedException {
+        // Given
+        properties.getRetention().setPartitioned(true);
+        NotificationPartitions.Partition march = partition(YearMonth.of(2025, 3));
+        NotificationPartitions.Partition april = partition(YearMonth.of(2025, 4));
+        NotificationPartitions.Partition may = partition(YearMonth.of(2025, 5));
+        when(notificationPartitions.list()).thenReturn(List.of(march, april, may));
+        when(notificationPartitions.countUnfinished(march)).thenReturn(0L);
+        when(notificationPartitions.countUnfinished(april)).thenReturn(1L);
+        ExpiredNotification archivedRow = notification(march.from().plusDays(1));
+        when(notificationRepository.findExpired(any(), eq(march.from()), eq(march.before()), any())).thenReturn(List.of(archivedRow));
+        when(notificationRepository.findExpired(any(), eq(NotificationPartitions.EPOCH), eq(NOW.minusDays(30)), any())).thenReturn(List.of());
+        NotificationRetention retention = retention();
+
+        // When
+        long removed = retention.purge(NOW);
+
+        // Then
+        assertEquals(1, removed);
+        verify(notificationArchive).append(List.of(archivedRow));
+        verify(notificationPartitions).drop(march);
+        verify(notificationPartitions, never()).drop(april);
+        verify(notificationPartitions, never()).drop(may);
+        verify(notificationRepository, never()).deleteAllByIdInBatch(any());
+        verify(notificationPartitions).ensureAhead(YearMonth.of(2025, 6), properties.getRetention().getPartitionsAhead());
+        assertEquals(1, retention.stats().partitionsDropped());
+        assertEquals(1, retention.stats().archived());
+    }
+
+    private NotificationRetention retention() {
+        return new NotificationRetention(notificationRepository, notificationArchive, notificationPartitions, new DatabaseLimiter(properties), jobLeases, properties);
+    }
+
+    private static NotificationPartitions.Partition partition(YearMonth month) {
+        return new NotificationPartitions.Partition("p" + month.toString().replace("-", ""), month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    private static ExpiredNotification notification(LocalDateTime createdOn) {
+        return new ExpiredNotification(UUID.randomUUID(), UUID.randomUUID(), EmailType.NEW_ORDER, NotificationStatus.SENT, "Order placed", createdOn, 1, null, null);
+    }
+}
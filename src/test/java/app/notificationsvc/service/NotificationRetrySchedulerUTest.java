@@ -0,0 +1,104 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.repository.NotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static app.notificationsvc.TestBuilder.randomNotificationPreference;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationRetrySchedulerUTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Mock
+    private NotificationSender notificationSender;
+
+    private NotificationRetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        DatabaseLimiter databaseLimiter = new DatabaseLimiter(properties);
+        PreferenceCache preferenceCache = new PreferenceCache(preferenceRepository, databaseLimiter, properties);
+        scheduler = new NotificationRetryScheduler(notificationRepository, preferenceCache, notificationSender, databaseLimiter, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void givenDueRetries_whenRetryDue_thenDeliverOnlyClaimedOnes() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        Notification claimed = dueRetry(preference.getUserId());
+        Notification taken = dueRetry(preference.getUserId());
+        when(notificationRepository.findByStatusAndNextAttemptOnLessThanEqualOrderByNextAttemptOnAsc(eq(NotificationStatus.RETRYING), any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(claimed, taken));
+        when(notificationRepository.claim(eq(claimed.getId()), eq(NotificationStatus.RETRYING), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        when(notificationRepository.claim(eq(taken.getId()), eq(NotificationStatus.RETRYING), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(0);
+        when(preferenceRepository.findByUserId(preference.getUserId())).thenReturn(Optional.of(preference));
+
+        // When
+        scheduler.retryDue();
+
+        // Then
+        verify(notificationSender, timeout(1000)).deliver(claimed, preference, claimed.getBody());
+        verify(notificationSender, never()).deliver(eq(taken), any(), any());
+    }
+
+    @Test
+    void givenUserWithoutPreference_whenRetryDue_thenAbandon() {
+        // Given
+        Notification notification = dueRetry(UUID.randomUUID());
+        when(notificationRepository.findByStatusAndNextAttemptOnLessThanEqualOrderByNextAttemptOnAsc(eq(NotificationStatus.RETRYING), any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(notification));
+        when(notificationRepository.claim(eq(notification.getId()), eq(NotificationStatus.RETRYING), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        when(preferenceRepository.findByUserId(notification.getUserId())).thenReturn(Optional.empty());
+
+        // When
+        scheduler.retryDue();
+
+        // Then
+        verify(notificationSender, timeout(1000)).abandon(eq(notification), any());
+        verify(notificationSender, never()).deliver(any(), any(), any());
+    }
+
+    private static Notification dueRetry(UUID userId) {
+        return Notification.builder()
+                .userId(userId)
+                .subject("Your order has shipped")
+                .emailType(EmailType.SHIPPED_ORDER)
+                .status(NotificationStatus.RETRYING)
+                .attempts(1)
+                .nextAttemptOn(LocalDateTime.now().minusSeconds(1))
+                .body("<p>Shipped</p>")
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,191 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.channel.EmailDeliveryChannel;
+import app.notificationsvc.channel.RecordingDeliveryChannel;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.DeliveryRejectedException;
+import app.notificationsvc.exception.SendRateLimitedException;
+import app.notificationsvc.mail.SendRateLimiter;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
+import app.notificationsvc.model.NotificationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationSenderUTest {
+
+    @Mock
+    private NotificationLogWriter notificationLogWriter;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private SendRateLimiter sendRateLimiter;
+
+    @Spy
+    private RetryPolicy retryPolicy = new RetryPolicy(new NotificationProperties());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private NotificationMetrics metrics = new NotificationMetrics(meterRegistry);
+
+    @Mock
+    private MailDispatchQueue mailDispatchQueue;
+
+    private final RecordingDeliveryChannel webhookChannel = new RecordingDeliveryChannel(NotificationType.WEBHOOK);
+
+    private NotificationSender notificationSender;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        DeliveryChannels deliveryChannels = new DeliveryChannels(List.of(new EmailDeliveryChannel(mailSender, sendRateLimiter, metrics), webhookChannel), mailDispatchQueue, properties, metrics);
+        notificationSender = new NotificationSender(notificationLogWriter, deliveryChannels, mailSender, sendRateLimiter, retryPolicy, metrics);
+    }
+
+    @Test
+    void givenWorkingMailSender_whenSend_thenPersistSentNotification() {
+        // Given
+        NotificationPreference recipient = recipient(NotificationType.EMAIL, "test@example.com");
+
+        // When
+        Notification notification = notificationSender.send(recipient, EmailType.WELCOME, "Welcome!", "<p>Hi</p>");
+
+        // Then
+        verify(mailSender, times(1)).send(any(MimeMessagePreparator.class));
+        verify(notificationLogWriter, times(1)).append(notification);
+        assertEquals(NotificationStatus.SENT, notification.getStatus());
+        assertEquals(recipient.getUserId(), notification.getUserId());
+        assertEquals(1, meterRegistry.get("notification.outcome").tag("email_type", "WELCOME").tag("status", "SENT").counter().count());
+        assertEquals(1, meterRegistry.get("notification.stage").tag("stage", "smtp_send").tag("email_type", "WELCOME").timer().count());
+    }
+
+    @Test
+    void givenFailingMailSender_whenSend_thenScheduleRetryWithBody() {
+        // Given
+        doThrow(new MailSendException("SMTP down")).when(mailSender).send(any(MimeMessagePreparator.class));
+
+        // When
+        Notification notification = notificationSender.send(recipient(NotificationType.EMAIL, "test@example.com"), EmailType.WELCOME, "Welcome!", "<p>Hi</p>");
+
+        // Then
+        verify(notificationLogWriter, times(1)).append(notification);
+        assertEquals(NotificationStatus.RETRYING, notification.getStatus());
+        assertEquals(1, notification.getAttempts());
+        assertEquals("<p>Hi</p>", notification.getBody());
+        assertNotNull(notification.getNextAttemptOn());
+        assertEquals("SMTP down", notification.getLastError());
+    }
+
+    @Test
+    void givenLastAttemptFails_whenDeliver_thenMarkDeadAndDropBody() {
+        // Given
+        doThrow(new MailSendException("SMTP down")).when(mailSender).send(any(MimeMessagePreparator.class));
+        Notification notification = Notification.builder()
+                .userId(UUID.randomUUID())
+                .subject("Your order has shipped")
+                .emailType(EmailType.SHIPPED_ORDER)
+                .status(NotificationStatus.RETRYING)
+                .attempts(4)
+                .body("<p>Shipped</p>")
+                .build();
+
+        // When
+        notificationSender.deliver(notification, recipient(NotificationType.EMAIL, "test@example.com"), notification.getBody());
+
+        // Then
+        verify(notificationLogWriter, times(1)).append(notification);
+        assertEquals(NotificationStatus.DEAD, notification.getStatus());
+        assertEquals(5, notification.getAttempts());
+        assertNull(notification.getBody());
+        assertNull(notification.getNextAttemptOn());
+    }
+
+    @Test
+    void givenInvalidAddress_whenSend_thenFailWithoutRetry() {
+        // Given
+        doThrow(new MailParseException("Illegal address")).when(mailSender).send(any(MimeMessagePreparator.class));
+
+        // When
+        Notification notification = notificationSender.send(recipient(NotificationType.EMAIL, "not an address"), EmailType.WELCOME, "Welcome!", "<p>Hi</p>");
+
+        // Then
+        assertEquals(NotificationStatus.FAILED, notification.getStatus());
+        assertNull(notification.getNextAttemptOn());
+    }
+
+    @Test
+    void givenExhaustedSendRate_whenSend_thenRetryLaterWithoutCallingRelay() {
+        // Given
+        when(sendRateLimiter.acquire(EmailType.WELCOME)).thenThrow(new SendRateLimitedException("relay/day"));
+
+        // When
+        Notification notification = notificationSender.send(recipient(NotificationType.EMAIL, "test@example.com"), EmailType.WELCOME, "Welcome!", "<p>Hi</p>");
+
+        // Then
+        verifyNoInteractions(mailSender);
+        verify(notificationLogWriter, times(1)).append(notification);
+        assertEquals(NotificationStatus.RETRYING, notification.getStatus());
+    }
+
+    @Test
+    void givenWebhookRecipient_whenSend_thenDeliverOnWebhookChannelOnly() {
+        // Given
+        NotificationPreference recipient = recipient(NotificationType.WEBHOOK, "https://hooks.example.com/orders");
+
+        // When
+        Notification notification = notificationSender.send(recipient, EmailType.NEW_ORDER, "Order placed", "<p>Thanks</p>");
+
+        // Then
+        verifyNoInteractions(mailSender, sendRateLimiter);
+        assertEquals(NotificationStatus.SENT, notification.getStatus());
+        assertEquals(1, webhookChannel.getDeliveries().size());
+        assertEquals("https://hooks.example.com/orders", webhookChannel.getDeliveries().get(0).contactData());
+        assertEquals(1, meterRegistry.get("notification.channel.delivery").tag("channel", "WEBHOOK").tag("outcome", "delivered").timer().count());
+    }
+
+    @Test
+    void givenWebhookRejectsNotification_whenSend_thenFailWithoutRetry() {
+        // Given
+        webhookChannel.failWith(new DeliveryRejectedException("Webhook answered 404"));
+
+        // When
+        Notification notification = notificationSender.send(recipient(NotificationType.WEBHOOK, "https://hooks.example.com/gone"), EmailType.NEW_ORDER, "Order placed", "<p>Thanks</p>");
+
+        // Then
+        verify(notificationLogWriter, times(1)).append(notification);
+        assertEquals(NotificationStatus.FAILED, notification.getStatus());
+        assertNull(notification.getNextAttemptOn());
+    }
+
+    private static NotificationPreference recipient(NotificationType type, String contactData) {
+        return NotificationPreference.builder()
+                .userId(UUID.randomUUID())
+                .type(type)
+                .contactData(contactData)
+                .build();
+    }
+}
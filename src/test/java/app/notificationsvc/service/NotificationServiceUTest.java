@@ -1,25 +1,36 @@
 package app.notificationsvc.service;
 
+import app.notificationsvc.channel.DeliveryChannels;
+import app.notificationsvc.channel.WebhookEndpoints;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidWebhookEndpointException;
+import app.notificationsvc.metrics.NotificationMetrics;
 import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.Notification;
 import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationStatus;
 import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.repository.IdempotencyRecordRepository;
 import app.notificationsvc.repository.NotificationPreferenceRepository;
 import app.notificationsvc.repository.NotificationRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
 import app.notificationsvc.web.dto.OrderCreateEmailRequest;
 import app.notificationsvc.web.dto.OrderShippedEmailRequest;
 import app.notificationsvc.web.dto.UpsertNotificationPreference;
 import app.notificationsvc.web.dto.WelcomeEmailRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -37,14 +48,37 @@ public class NotificationServiceUTest {
     private NotificationRepository notificationRepository;
 
     @Mock
-    private JavaMailSender mailSender;
+    private NotificationSender notificationSender;
 
     @Mock
-    private SpringTemplateEngine templateEngine;
+    private DeliveryChannels deliveryChannels;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private NotificationCoalescer notificationCoalescer;
+
+    @Mock
+    private NewsletterFanOut newsletterFanOut;
+
+    @Mock
+    private EmailTemplateRenderer templateRenderer;
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
 
-    @InjectMocks
     private NotificationService notificationService;
 
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        DatabaseLimiter databaseLimiter = new DatabaseLimiter(properties);
+        PreferenceCache preferenceCache = new PreferenceCache(notificationPreferenceRepository, databaseLimiter, properties);
+        IdempotencyIndex idempotencyIndex = new IdempotencyIndex(idempotencyRecordRepository, databaseLimiter, properties);
+        notificationService = new NotificationService(notificationPreferenceRepository, preferenceCache, notificationRepository, notificationSender, deliveryChannels, notificationOutbox, notificationCoalescer, newsletterFanOut, templateRenderer, databaseLimiter, idempotencyIndex, new BatchEmailReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties), new WebhookEndpoints(properties), new NotificationMetrics(new SimpleMeterRegistry()));
+    }
+
     @Test
     void givenValidUserId_whenGetByUserId_thenReturnNotificationPreference() {
         // Given
@@ -131,6 +165,19 @@ public class NotificationServiceUTest {
         assertEquals(upsertNotificationPreference.getContactData(), updatedNotificationPreference.getContactData());
     }
 
+    @Test
+    void givenWebhookToCloudMetadataAddress_whenUpsertPreference_thenRejectWithoutSaving() {
+        // Given
+        UpsertNotificationPreference upsertNotificationPreference = new UpsertNotificationPreference();
+        upsertNotificationPreference.setUserId(UUID.randomUUID());
+        upsertNotificationPreference.setNotificationType(NotificationType.WEBHOOK);
+        upsertNotificationPreference.setContactData("http://169.254.169.254/latest/meta-data");
+
+        // When & Then
+        assertThrows(InvalidWebhookEndpointException.class, () -> notificationService.upsertPreference(upsertNotificationPreference));
+        verifyNoInteractions(notificationPreferenceRepository);
+    }
+
     @Test
     void givenInvalidEmailType_whenSendWelcomeEmail_thenThrowException() {
         // Given
@@ -140,7 +187,7 @@ public class NotificationServiceUTest {
 
         // When & Then
         assertThrows(IllegalArgumentException.class,
-                () -> notificationService.sendWelcomeEmail(request));
+                () -> notificationService.sendWelcomeEmail(request, null));
     }
 
     @Test
@@ -159,14 +206,15 @@ public class NotificationServiceUTest {
 
         String expectedBody = "Hello Alice, welcome!";
 
-        when(templateEngine.process(eq(EmailType.WELCOME.getTemplate()), any(Context.class)))
+        when(templateRenderer.render(eq(EmailType.WELCOME), anyMap()))
                 .thenReturn(expectedBody);
+        when(notificationSender.send(any(), eq(EmailType.WELCOME), any(), any())).thenReturn(Notification.builder().build());
 
         // When
-        notificationService.sendWelcomeEmail(request);
+        notificationService.sendWelcomeEmail(request, null);
 
         // Then
-        verify(templateEngine, times(1)).process(eq(EmailType.WELCOME.getTemplate()), any(Context.class));
+        verify(templateRenderer, times(1)).render(eq(EmailType.WELCOME), anyMap());
     }
 
     @Test
@@ -189,14 +237,15 @@ public class NotificationServiceUTest {
 
         String expectedBody = "You have a new order for purchase Gosho Goshev!";
 
-        when(templateEngine.process(eq(EmailType.NEW_ORDER.getTemplate()), any(Context.class)))
+        when(templateRenderer.render(eq(EmailType.NEW_ORDER), anyMap()))
                 .thenReturn(expectedBody);
+        when(notificationSender.send(any(), eq(EmailType.NEW_ORDER), any(), any())).thenReturn(Notification.builder().build());
 
         // When
-        notificationService.sendNewOrderEmail(request);
+        notificationService.sendNewOrderEmail(request, null);
 
         // Then
-        verify(templateEngine, times(1)).process(eq(request.getEmailType().getTemplate()), any(Context.class));
+        verify(templateRenderer, times(1)).render(eq(request.getEmailType()), anyMap());
     }
 
     @Test
@@ -206,7 +255,7 @@ public class NotificationServiceUTest {
         request.setEmailType(EmailType.NEWSLETTER);
 
         // When && Then
-        assertThrows(IllegalArgumentException.class, () -> notificationService.sendNewOrderEmail(request));
+        assertThrows(IllegalArgumentException.class, () -> notificationService.sendNewOrderEmail(request, null));
     }
 
     @Test
@@ -229,17 +278,109 @@ public class NotificationServiceUTest {
 
         String expectedBody = "Your order has been shipped!";
 
-        when(templateEngine.process(eq(EmailType.SHIPPED_ORDER.getTemplate()), any(Context.class)))
+        when(templateRenderer.render(eq(EmailType.SHIPPED_ORDER), anyMap()))
                 .thenReturn(expectedBody);
+        when(notificationSender.send(any(), eq(EmailType.SHIPPED_ORDER), any(), any())).thenReturn(Notification.builder().build());
 
         // When
-        notificationService.sendShippedOrderEmail(request);
+        notificationService.sendShippedOrderEmail(request, null);
 
         // Then
-        verify(templateEngine, times(1)).process(eq(request.getEmailType().getTemplate()), any(Context.class));
+        verify(templateRenderer, times(1)).render(eq(request.getEmailType()), anyMap());
     }
 
 
+    @Test
+    void givenSameOrderTwice_whenSendNewOrderEmail_thenRenderAndSendOnce() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationPreference notificationPreference = new NotificationPreference();
+        notificationPreference.setUserId(userId);
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(notificationPreference));
+        when(templateRenderer.render(eq(EmailType.NEW_ORDER), anyMap())).thenReturn("You have a new order!");
+        Notification sent = Notification.builder().build();
+        when(notificationSender.send(any(), eq(EmailType.NEW_ORDER), any(), any())).thenReturn(sent);
+
+        OrderCreateEmailRequest request = new OrderCreateEmailRequest();
+        request.setEmailType(EmailType.NEW_ORDER);
+        request.setUserId(userId);
+        request.setOrderId(42L);
+
+        // When
+        SendResult first = notificationService.sendNewOrderEmail(request, null);
+        SendResult duplicate = notificationService.sendNewOrderEmail(request, null);
+
+        // Then
+        assertFalse(first.replayed());
+        assertTrue(duplicate.replayed());
+        assertEquals(sent.getId(), duplicate.notificationId());
+        verify(templateRenderer, times(1)).render(eq(EmailType.NEW_ORDER), anyMap());
+        verify(notificationSender, times(1)).send(any(), any(), eq(EmailType.NEW_ORDER), any(), any());
+    }
+
+    @Test
+    void givenBatchOfWelcomeEmails_whenSendBatch_thenLoadPreferencesOnceAndReportEachItem() {
+        // Given
+        UUID knownUser = UUID.randomUUID();
+        UUID otherKnownUser = UUID.randomUUID();
+        UUID unknownUser = UUID.randomUUID();
+        NotificationPreference first = new NotificationPreference();
+        first.setUserId(knownUser);
+        first.setType(NotificationType.EMAIL);
+        NotificationPreference second = new NotificationPreference();
+        second.setUserId(otherKnownUser);
+        second.setType(NotificationType.EMAIL);
+        when(notificationPreferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(first, second));
+        when(templateRenderer.render(eq(EmailType.WELCOME), anyMap())).thenReturn("Welcome!");
+        when(notificationSender.send(any(), eq(EmailType.WELCOME), any(), any()))
+                .thenAnswer(invocation -> Notification.builder().id(UUID.randomUUID()).status(NotificationStatus.SENT).build());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(deliveryChannels).submit(eq(NotificationType.EMAIL), any(Runnable.class));
+
+        String body = "[" + welcomeItem(knownUser) + "," + welcomeItem(otherKnownUser) + "," + welcomeItem(unknownUser) + "," + welcomeItem(knownUser) + "]";
+
+        // When
+        List<BatchItemResult> results = notificationService.sendBatch(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), false);
+
+        // Then
+        assertEquals(4, results.size());
+        assertEquals(NotificationStatus.SENT, results.get(0).status());
+        assertEquals(NotificationStatus.SENT, results.get(1).status());
+        assertNotNull(results.get(2).error());
+        assertTrue(results.get(3).replayed());
+        assertEquals(results.get(0).notificationId(), results.get(3).notificationId());
+        verify(notificationPreferenceRepository, times(1)).findAllByUserIdIn(anyCollection());
+        verify(notificationSender, times(2)).send(any(), any(), eq(EmailType.WELCOME), any(), any());
+    }
+
+    @Test
+    void givenWebhookRecipientInSyncBatch_whenSendBatch_thenSubmitToTheWebhookLane() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationPreference preference = new NotificationPreference();
+        preference.setUserId(userId);
+        preference.setType(NotificationType.WEBHOOK);
+        when(notificationPreferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(preference));
+        when(templateRenderer.render(eq(EmailType.WELCOME), anyMap())).thenReturn("Welcome!");
+        when(notificationSender.send(any(), eq(EmailType.WELCOME), any(), any()))
+                .thenAnswer(invocation -> Notification.builder().id(UUID.randomUUID()).status(NotificationStatus.SENT).build());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(deliveryChannels).submit(eq(NotificationType.WEBHOOK), any(Runnable.class));
+
+        String body = "[" + welcomeItem(userId) + "]";
+
+        // When
+        List<BatchItemResult> results = notificationService.sendBatch(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), false);
+
+        // Then
+        assertEquals(NotificationStatus.SENT, results.get(0).status());
+        verify(deliveryChannels, never()).submit(eq(NotificationType.EMAIL), any(Runnable.class));
+    }
+
     @Test
     void givenInvalidEmailType_whenSendShippedOrderEmail_thenThrowException() {
         // Given
@@ -247,33 +388,25 @@ public class NotificationServiceUTest {
         request.setEmailType(EmailType.NEWSLETTER);
 
         // When && Then
-        assertThrows(IllegalArgumentException.class, () -> notificationService.sendShippedOrderEmail(request));
+        assertThrows(IllegalArgumentException.class, () -> notificationService.sendShippedOrderEmail(request, null));
     }
 
     @Test
-    void givenUsersWithNewsletterEnabled_whenSendNewsletter_thenProcessTemplateAndSendEmails() {
+    void givenNewsletterTemplate_whenSendNewsletter_thenRenderOnceAndFanOut() {
         // Given
-        NotificationPreference user1 = new NotificationPreference();
-        user1.setUserId(UUID.randomUUID());
-        when(notificationPreferenceRepository.findByUserId(user1.getUserId())).thenReturn(Optional.of(user1));
-
-        NotificationPreference user2 = new NotificationPreference();
-        user2.setUserId(UUID.randomUUID());
-        when(notificationPreferenceRepository.findByUserId(user2.getUserId())).thenReturn(Optional.of(user2));
-
-        List<NotificationPreference> newsletterSubscribers = List.of(user1, user2);
-
-        when(notificationPreferenceRepository.findAllByIsNewsletterEnabledTrue()).thenReturn(newsletterSubscribers);
-        when(templateEngine.process(eq(EmailType.NEWSLETTER.getTemplate()), any(Context.class)))
+        when(templateRenderer.render(eq(EmailType.NEWSLETTER), anyMap()))
                 .thenReturn("Mocked newsletter body");
+        NewsletterRun newsletterRun = new NewsletterRun("Newsletter");
+        when(newsletterFanOut.run(anyString(), eq("Mocked newsletter body"))).thenReturn(newsletterRun);
 
         // When
-        notificationService.sendNewsletter();
+        NewsletterRun result = notificationService.sendNewsletter();
 
         // Then
-        verify(templateEngine, times(1)).process(eq(EmailType.NEWSLETTER.getTemplate()), any(Context.class));
-        verify(notificationPreferenceRepository, times(1)).findAllByIsNewsletterEnabledTrue();
-        assertEquals(2, newsletterSubscribers.size());
+        assertEquals(newsletterRun, result);
+        verify(templateRenderer, times(1)).render(eq(EmailType.NEWSLETTER), anyMap());
+        verify(newsletterFanOut, times(1)).run(anyString(), eq("Mocked newsletter body"));
+        verifyNoInteractions(notificationPreferenceRepository);
     }
 
     @Test
@@ -295,4 +428,132 @@ public class NotificationServiceUTest {
 
     }
 
+    @Test
+    void givenValidWelcomeEmailRequest_whenQueueWelcomeEmail_thenWriteQueuedNotificationToOutbox() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        WelcomeEmailRequest request = new WelcomeEmailRequest();
+        request.setUserId(userId);
+        request.setEmailType(EmailType.WELCOME);
+        request.setUserFirstName("Alice");
+        request.setSubject("Welcome to Dripify!");
+
+        NotificationPreference notificationPreference = new NotificationPreference();
+        notificationPreference.setUserId(userId);
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(notificationPreference));
+        when(templateRenderer.render(eq(EmailType.WELCOME), anyMap())).thenReturn("Hello Alice, welcome!");
+        when(notificationOutbox.queue(any(Notification.class), eq("Hello Alice, welcome!"))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+
+        // When
+        UUID queuedId = notificationService.queueWelcomeEmail(request, null).notificationId();
+
+        // Then
+        verify(notificationOutbox, times(1)).queue(captor.capture(), eq("Hello Alice, welcome!"));
+        assertEquals(captor.getValue().getId(), queuedId);
+        assertEquals(NotificationStatus.QUEUED, captor.getValue().getStatus());
+        assertEquals(userId, captor.getValue().getUserId());
+        verifyNoInteractions(notificationSender, deliveryChannels);
+    }
+
+    @Test
+    void givenCoalescedEmailType_whenQueueShippedOrderEmail_thenReturnDigestIdWithoutWritingToOutbox() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID digestId = UUID.randomUUID();
+        OrderShippedEmailRequest request = new OrderShippedEmailRequest();
+        request.setEmailType(EmailType.SHIPPED_ORDER);
+        request.setUserId(userId);
+        request.setOrderId(7L);
+        request.setSubject("Your order is on its way");
+
+        NotificationPreference notificationPreference = new NotificationPreference();
+        notificationPreference.setUserId(userId);
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(notificationPreference));
+        when(templateRenderer.render(eq(EmailType.SHIPPED_ORDER), anyMap())).thenReturn("Shipped!");
+        when(notificationCoalescer.offer(any(RenderedEmail.class))).thenReturn(digestId);
+
+        // When
+        UUID queuedId = notificationService.queueShippedOrderEmail(request, null).notificationId();
+
+        // Then
+        assertEquals(digestId, queuedId);
+        verifyNoInteractions(notificationOutbox, notificationSender);
+    }
+
+    @Test
+    void givenDigestStillCollecting_whenGetNotification_thenReturnItAsQueued() {
+        // Given
+        UUID digestId = UUID.randomUUID();
+        Notification pending = Notification.builder().id(digestId).status(NotificationStatus.QUEUED).build();
+        when(notificationRepository.findById(digestId)).thenReturn(Optional.empty());
+        when(notificationCoalescer.find(digestId)).thenReturn(pending);
+
+        // When
+        Notification notification = notificationService.getNotification(digestId);
+
+        // Then
+        assertEquals(digestId, notification.getId());
+        assertEquals(NotificationStatus.QUEUED, notification.getStatus());
+    }
+
+    @Test
+    void givenCachedPreference_whenGetByUserIdTwice_thenQueryDatabaseOnce() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationPreference notificationPreference = new NotificationPreference();
+        notificationPreference.setUserId(userId);
+        notificationPreference.setContactData("test@example.com");
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(notificationPreference));
+
+        // When
+        notificationService.getByUserId(userId);
+        NotificationPreference cached = notificationService.getByUserId(userId);
+
+        // Then
+        verify(notificationPreferenceRepository, times(1)).findByUserId(userId);
+        assertEquals("test@example.com", cached.getContactData());
+    }
+
+    @Test
+    void givenChangedPreference_whenGetByUserId_thenReloadFromDatabase() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationPreference notificationPreference = new NotificationPreference();
+        notificationPreference.setUserId(userId);
+        notificationPreference.setNewsletterEnabled(true);
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(notificationPreference));
+        when(notificationPreferenceRepository.save(any(NotificationPreference.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        notificationService.changeNotificationPreference(userId, false);
+        notificationService.getByUserId(userId);
+
+        // Then
+        verify(notificationPreferenceRepository, times(2)).findByUserId(userId);
+    }
+
+    @Test
+    void givenCachedPreferenceChangedElsewhere_whenChangeNotificationPreference_thenKeepTheDatabaseValues() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        NotificationPreference stale = NotificationPreference.builder().userId(userId).isNewsletterEnabled(true).contactData("old@example.com").build();
+        NotificationPreference current = NotificationPreference.builder().userId(userId).isNewsletterEnabled(true).contactData("new@example.com").build();
+        when(notificationPreferenceRepository.findByUserId(userId)).thenReturn(Optional.of(stale), Optional.of(current));
+        when(notificationPreferenceRepository.save(any(NotificationPreference.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        notificationService.getByUserId(userId);
+
+        // When
+        NotificationPreference saved = notificationService.changeNotificationPreference(userId, false);
+
+        // Then
+        assertEquals("new@example.com", saved.getContactData());
+        assertFalse(saved.isNewsletterEnabled());
+        verify(notificationPreferenceRepository, times(2)).findByUserId(userId);
+    }
+
+    private static String welcomeItem(UUID userId) {
+        return "{\"emailType\":\"WELCOME\",\"subject\":\"Hi\",\"userId\":\"" + userId + "\",\"userFirstName\":\"Ana\"}";
+    }
 }
@@ -0,0 +1,197 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static app.notificationsvc.TestBuilder.randomNotificationPreference;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PreferenceCacheUTest {
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+    }
+
+    @Test
+    void givenUnknownUser_whenGetTwice_thenCacheTheMiss() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.empty());
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+
+        // When
+        Optional<NotificationPreference> first = cache.get(userId);
+        Optional<NotificationPreference> second = cache.get(userId);
+
+        // Then
+        assertTrue(first.isEmpty());
+        assertTrue(second.isEmpty());
+        verify(preferenceRepository, times(1)).findByUserId(userId);
+        assertEquals(1, cache.stats().negativeHits());
+    }
+
+    @Test
+    void givenExpiredEntry_whenGet_thenReload() {
+        // Given
+        properties.getPreferenceCache().setTtl(Duration.ZERO);
+        NotificationPreference preference = randomNotificationPreference();
+        when(preferenceRepository.findByUserId(preference.getUserId())).thenReturn(Optional.of(preference));
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+
+        // When
+        cache.get(preference.getUserId());
+        cache.get(preference.getUserId());
+
+        // Then
+        verify(preferenceRepository, times(2)).findByUserId(preference.getUserId());
+    }
+
+    @Test
+    void givenCachedPreference_whenCallerModifiesIt_thenCachedCopyStaysIntact() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        when(preferenceRepository.findByUserId(preference.getUserId())).thenReturn(Optional.of(preference));
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+        cache.get(preference.getUserId());
+
+        // When
+        cache.get(preference.getUserId()).orElseThrow().setContactData("changed@example.com");
+
+        // Then
+        assertEquals("text@example.com", cache.get(preference.getUserId()).orElseThrow().getContactData());
+        assertEquals(2, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void givenConcurrentMisses_whenGet_thenLoadOnce() throws Exception {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(preferenceRepository.findByUserId(preference.getUserId())).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            return Optional.of(preference);
+        });
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<Optional<NotificationPreference>> loader = executor.submit(() -> cache.get(preference.getUserId()));
+            loadStarted.await(5, TimeUnit.SECONDS);
+            Future<Optional<NotificationPreference>> waiter = executor.submit(() -> cache.get(preference.getUserId()));
+            releaseLoad.countDown();
+
+            // Then
+            assertTrue(loader.get(5, TimeUnit.SECONDS).isPresent());
+            assertTrue(waiter.get(5, TimeUnit.SECONDS).isPresent());
+            verify(preferenceRepository, times(1)).findByUserId(preference.getUserId());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givenFullCache_whenLoadingMore_thenEvictDownToLimit() {
+        // Given
+        properties.getPreferenceCache().setMaxSize(10);
+        when(preferenceRepository.findByUserId(any())).thenReturn(Optional.empty());
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            cache.get(UUID.randomUUID());
+        }
+
+        // Then
+        assertTrue(cache.stats().size() <= 10);
+        assertTrue(cache.stats().evictions() > 0);
+    }
+
+    @Test
+    void givenMissingUsers_whenGetAllTwice_thenLoadOnceAndCacheTheMiss() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        UUID unknownUserId = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(any())).thenReturn(List.of(preference));
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+
+        // When
+        cache.getAll(List.of(preference.getUserId(), unknownUserId));
+        Map<UUID, NotificationPreference> second = cache.getAll(List.of(preference.getUserId(), unknownUserId));
+
+        // Then
+        assertEquals(1, second.size());
+        assertTrue(second.containsKey(preference.getUserId()));
+        verify(preferenceRepository, times(1)).findAllByUserIdIn(any());
+        assertEquals(1, cache.stats().negativeHits());
+    }
+
+    @Test
+    void givenInvalidationDuringGetAll_whenGetAgain_thenReloadInsteadOfServingTheStaleRow() {
+        // Given
+        NotificationPreference stale = randomNotificationPreference();
+        NotificationPreference updated = stale.toBuilder().contactData("updated@example.com").build();
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+        when(preferenceRepository.findAllByUserIdIn(any())).thenAnswer(invocation -> {
+            // The preference is updated after the row was read but before the read result is cached
+            cache.invalidate(stale.getUserId());
+            return List.of(stale);
+        });
+        when(preferenceRepository.findByUserId(stale.getUserId())).thenReturn(Optional.of(updated));
+
+        // When
+        Map<UUID, NotificationPreference> loaded = cache.getAll(List.of(stale.getUserId()));
+        Optional<NotificationPreference> afterwards = cache.get(stale.getUserId());
+
+        // Then
+        assertEquals("text@example.com", loaded.get(stale.getUserId()).getContactData());
+        assertEquals("updated@example.com", afterwards.orElseThrow().getContactData());
+        verify(preferenceRepository, times(1)).findByUserId(stale.getUserId());
+    }
+
+    @Test
+    void givenFailedGetAll_whenGetAllAgain_thenRetryTheLoad() {
+        // Given
+        NotificationPreference preference = randomNotificationPreference();
+        when(preferenceRepository.findAllByUserIdIn(any()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(List.of(preference));
+        PreferenceCache cache = new PreferenceCache(preferenceRepository, new DatabaseLimiter(properties), properties);
+        assertThrows(IllegalStateException.class, () -> cache.getAll(List.of(preference.getUserId())));
+
+        // When
+        Map<UUID, NotificationPreference> loaded = cache.getAll(List.of(preference.getUserId()));
+
+        // Then
+        assertTrue(loaded.containsKey(preference.getUserId()));
+        verify(preferenceRepository, times(2)).findAllByUserIdIn(any());
+    }
+}
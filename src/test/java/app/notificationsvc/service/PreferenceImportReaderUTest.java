@@ -0,0 +1,127 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.exception.InvalidBatchException;
+import app.notificationsvc.model.NotificationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreferenceImportReaderUTest {
+
+    private PreferenceImportReader reader;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getPreferenceImport().setChunkSize(2);
+        reader = new PreferenceImportReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+    }
+
+    @Test
+    void givenNdjson_whenRead_thenEmitChunksWithLineNumbers() {
+        // Given
+        UUID first = UUID.randomUUID();
+        String body = record(first, "EMAIL", "a@example.com") + "\n\n"
+                + record(UUID.randomUUID(), "WEBHOOK", "https://example.com/hook") + "\n"
+                + record(UUID.randomUUID(), "EMAIL", "c@example.com") + "\n";
+        List<List<PreferenceImportItem>> chunks = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), PreferenceImportFormat.NDJSON, chunks::add);
+
+        // Then
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(1, chunks.get(1).size());
+        assertEquals(first, chunks.get(0).get(0).preference().getUserId());
+        assertTrue(chunks.get(0).get(0).preference().isNewsletterEnabled());
+        assertEquals(NotificationType.WEBHOOK, chunks.get(0).get(1).preference().getNotificationType());
+        assertEquals(3, chunks.get(0).get(1).line());
+    }
+
+    @Test
+    void givenInvalidNdjsonRecords_whenRead_thenRejectOnlyThoseRecords() {
+        // Given
+        String body = "not json\n"
+                + record(UUID.randomUUID(), "EMAIL", "") + "\n"
+                + record(UUID.randomUUID(), "EMAIL", "ok@example.com") + "\n";
+        List<PreferenceImportItem> items = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), PreferenceImportFormat.NDJSON, items::addAll);
+
+        // Then
+        assertEquals(3, items.size());
+        assertNotNull(items.get(0).error());
+        assertTrue(items.get(1).error().startsWith("contactData"));
+        assertNull(items.get(2).error());
+    }
+
+    @Test
+    void givenCsvWithReorderedColumnsAndQuotes_whenRead_thenMapByHeader() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        String body = "contactData,userId,newsletterEnabled,notificationType\n"
+                + "\"https://example.com/hook?a=1,b=\"\"2\"\"\"," + userId + ",FALSE,WEBHOOK\n";
+        List<PreferenceImportItem> items = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), PreferenceImportFormat.CSV, items::addAll);
+
+        // Then
+        assertEquals(1, items.size());
+        assertNull(items.get(0).error());
+        assertEquals(userId, items.get(0).preference().getUserId());
+        assertEquals("https://example.com/hook?a=1,b=\"2\"", items.get(0).preference().getContactData());
+        assertFalse(items.get(0).preference().isNewsletterEnabled());
+        assertEquals(2, items.get(0).line());
+    }
+
+    @Test
+    void givenInvalidCsvRows_whenRead_thenRejectEachWithReason() {
+        // Given
+        String body = "userId,notificationType,newsletterEnabled,contactData\n"
+                + "nope,EMAIL,true,a@example.com\n"
+                + UUID.randomUUID() + ",PIGEON,true,a@example.com\n"
+                + UUID.randomUUID() + ",EMAIL,maybe,a@example.com\n"
+                + UUID.randomUUID() + ",EMAIL\n";
+        List<PreferenceImportItem> items = new ArrayList<>();
+
+        // When
+        reader.read(stream(body), PreferenceImportFormat.CSV, items::addAll);
+
+        // Then
+        assertEquals("Invalid userId: nope", items.get(0).error());
+        assertEquals("Unsupported notificationType: PIGEON", items.get(1).error());
+        assertEquals("newsletterEnabled must be true or false", items.get(2).error());
+        assertEquals("Expected 4 columns but found 2", items.get(3).error());
+    }
+
+    @Test
+    void givenCsvWithoutRequiredColumn_whenRead_thenThrowInvalidBatchException() {
+        // Given
+        String body = "userId,notificationType,contactData\n";
+
+        // When & Then
+        assertThrows(InvalidBatchException.class, () -> reader.read(stream(body), PreferenceImportFormat.CSV, items -> {}));
+    }
+
+    private static String record(UUID userId, String type, String contactData) {
+        return "{\"userId\":\"" + userId + "\",\"notificationType\":\"" + type + "\",\"newsletterEnabled\":true,\"contactData\":\"" + contactData + "\"}";
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
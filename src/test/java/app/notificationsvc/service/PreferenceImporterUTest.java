@@ -0,0 +1,161 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.channel.WebhookEndpoints;
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.model.NotificationPreference;
+import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PreferenceImporterUTest {
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotificationProperties();
+        properties.getPreferenceImport().setChunkSize(3);
+        properties.getPreferenceImport().setMaxReportedErrors(1);
+        NotificationProperties.Channel webhook = new NotificationProperties.Channel();
+        webhook.setAllowedHosts(List.of("example.com"));
+        properties.getChannels().put(NotificationType.WEBHOOK, webhook);
+    }
+
+    @Test
+    void givenNewAndExistingUsers_whenImport_thenUpsertEachChunkOnceAndCountInsertsAndUpdates() {
+        // Given
+        UUID existing = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        UUID later = UUID.randomUUID();
+        String body = "userId,notificationType,newsletterEnabled,contactData\n"
+                + existing + ",EMAIL,true,old@example.com\n"
+                + fresh + ",EMAIL,false,new@example.com\n"
+                + existing + ",WEBHOOK,true,https://example.com/hook\n"
+                + later + ",EMAIL,true,later@example.com\n";
+        when(preferenceRepository.findExistingUserIds(anyCollection())).thenReturn(List.of(existing), List.of());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<NotificationPreference>> captor = ArgumentCaptor.forClass(List.class);
+
+        // When
+        PreferenceImportSummary summary = importer().importPreferences(stream(body), PreferenceImportFormat.CSV);
+
+        // Then
+        assertEquals(2, summary.inserted());
+        assertEquals(2, summary.updated());
+        assertEquals(0, summary.rejected());
+        verify(preferenceRepository, times(2)).upsertAll(captor.capture());
+        verify(transactionManager, times(2)).commit(any());
+
+        List<NotificationPreference> firstChunk = captor.getAllValues().get(0);
+        assertEquals(2, firstChunk.size());
+        assertEquals("https://example.com/hook", firstChunk.stream().filter(p -> p.getUserId().equals(existing)).findFirst().orElseThrow().getContactData());
+        verify(preferenceRepository, never()).findByUserId(any());
+        verify(preferenceRepository, never()).save(any());
+    }
+
+    @Test
+    void givenRejectedRecords_whenImport_thenCountAllButReportOnlyTheFirst() {
+        // Given
+        String body = "{\"userId\":null}\n"
+                + "{\"userId\":\"" + UUID.randomUUID() + "\",\"notificationType\":\"EMAIL\",\"contactData\":\"\"}\n";
+
+        // When
+        PreferenceImportSummary summary = importer().importPreferences(stream(body), PreferenceImportFormat.NDJSON);
+
+        // Then
+        assertEquals(2, summary.rejected());
+        assertEquals(1, summary.errors().size());
+        assertEquals(1, summary.errors().get(0).line());
+        verifyNoInteractions(preferenceRepository, transactionManager);
+    }
+
+    @Test
+    void givenWebhookToAHostNotAllowed_whenImport_thenRejectOnlyThatRecord() {
+        // Given
+        String body = "userId,notificationType,newsletterEnabled,contactData\n"
+                + UUID.randomUUID() + ",WEBHOOK,true,http://169.254.169.254/latest/meta-data\n"
+                + UUID.randomUUID() + ",EMAIL,true,ok@example.com\n";
+        when(preferenceRepository.findExistingUserIds(anyCollection())).thenReturn(List.of());
+
+        // When
+        PreferenceImportSummary summary = importer().importPreferences(stream(body), PreferenceImportFormat.CSV);
+
+        // Then
+        assertEquals(1, summary.inserted());
+        assertEquals(1, summary.rejected());
+        assertEquals(2, summary.errors().get(0).line());
+    }
+
+    @Test
+    void givenChunkRefusedByDatabase_whenImport_thenWriteRowByRowAndRejectOnlyTheRefusedRow() {
+        // Given
+        String body = "userId,notificationType,newsletterEnabled,contactData\n"
+                + UUID.randomUUID() + ",EMAIL,true,ok@example.com\n"
+                + UUID.randomUUID() + ",EMAIL,true,refused@example.com\n";
+        when(preferenceRepository.findExistingUserIds(anyCollection())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException("Data truncation"))
+                .doNothing()
+                .doThrow(new DataIntegrityViolationException("Data truncation"))
+                .when(preferenceRepository).upsertAll(anyList());
+
+        // When
+        PreferenceImportSummary summary = importer().importPreferences(stream(body), PreferenceImportFormat.CSV);
+
+        // Then
+        assertEquals(1, summary.inserted());
+        assertEquals(1, summary.rejected());
+        assertEquals(3, summary.errors().get(0).line());
+        verify(preferenceRepository, times(3)).upsertAll(anyList());
+    }
+
+    @Test
+    void givenContactDataLongerThanTheColumn_whenImport_thenRejectTheRecord() {
+        // Given
+        String body = "{\"userId\":\"" + UUID.randomUUID() + "\",\"notificationType\":\"EMAIL\",\"contactData\":\"" + "a".repeat(256) + "\"}\n";
+
+        // When
+        PreferenceImportSummary summary = importer().importPreferences(stream(body), PreferenceImportFormat.NDJSON);
+
+        // Then
+        assertEquals(1, summary.rejected());
+        verifyNoInteractions(preferenceRepository, transactionManager);
+    }
+
+    private PreferenceImporter importer() {
+        DatabaseLimiter databaseLimiter = new DatabaseLimiter(properties);
+        PreferenceCache preferenceCache = new PreferenceCache(preferenceRepository, databaseLimiter, properties);
+        PreferenceImportReader reader = new PreferenceImportReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+        return new PreferenceImporter(reader, preferenceRepository, preferenceCache, databaseLimiter, new WebhookEndpoints(properties), transactionManager, properties);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,42 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyUTest {
+
+    private RetryPolicy retryPolicy;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getRetry().setInitialBackoff(Duration.ofSeconds(10));
+        properties.getRetry().setMaxBackoff(Duration.ofSeconds(60));
+        retryPolicy = new RetryPolicy(properties);
+    }
+
+    @Test
+    void givenFailedAttempts_whenBackoff_thenGrowExponentiallyWithinJitterBounds() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(Duration.ofSeconds(5), Duration.ofSeconds(10), retryPolicy.backoff(1));
+            assertBetween(Duration.ofSeconds(10), Duration.ofSeconds(20), retryPolicy.backoff(2));
+            assertBetween(Duration.ofSeconds(20), Duration.ofSeconds(40), retryPolicy.backoff(3));
+        }
+    }
+
+    @Test
+    void givenManyFailedAttempts_whenBackoff_thenCapAtMaxBackoff() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(Duration.ofSeconds(30), Duration.ofSeconds(60), retryPolicy.backoff(30));
+        }
+    }
+
+    private static void assertBetween(Duration min, Duration max, Duration actual) {
+        assertTrue(actual.compareTo(min) >= 0 && actual.compareTo(max) <= 0, () -> actual + " is not between " + min + " and " + max);
+    }
+}
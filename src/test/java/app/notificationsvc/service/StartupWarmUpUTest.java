@@ -0,0 +1,85 @@
+package app.notificationsvc.service;
+
+import app.notificationsvc.config.NotificationProperties;
+import app.notificationsvc.mail.PooledJavaMailSender;
+import app.notificationsvc.metrics.NotificationMetrics;
+import app.notificationsvc.repository.NotificationPreferenceRepository;
+import app.notificationsvc.template.EmailTemplateRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StartupWarmUpUTest {
+
+    @Mock
+    private EmailTemplateRenderer templateRenderer;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Mock
+    private PooledJavaMailSender mailSender;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new NotificationProperties();
+        properties.getWarmUp().setDatabaseConnections(3);
+        properties.getWarmUp().setSmtpConnections(2);
+    }
+
+    @Test
+    void givenFailingSmtpServer_whenRun_thenWarmUpTheRestAndTimeEveryStep() throws Exception {
+        // Given
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(mailSender.prefill(2)).thenThrow(new MessagingException("connection refused"));
+
+        // When
+        warmUp().run(null);
+
+        // Then
+        verify(templateRenderer).warmUp();
+        verify(dataSource, times(3)).getConnection();
+        verify(connection, times(3)).close();
+        verify(preferenceRepository).findByUserId(any());
+        assertEquals(3, meterRegistry.find("notification.warmup").timers().size());
+        assertEquals(1, meterRegistry.get("notification.warmup").tag("step", "smtp").timer().count());
+    }
+
+    @Test
+    void givenWarmUpDisabled_whenRun_thenTouchNothing() throws Exception {
+        // Given
+        properties.getWarmUp().setEnabled(false);
+
+        // When
+        warmUp().run(null);
+
+        // Then
+        verifyNoInteractions(templateRenderer, dataSource, preferenceRepository, mailSender);
+    }
+
+    private StartupWarmUp warmUp() {
+        return new StartupWarmUp(templateRenderer, dataSource, preferenceRepository, mailSender, new NotificationMetrics(meterRegistry), properties);
+    }
+}
@@ -0,0 +1,108 @@
+package app.notificationsvc.template;
+
+import app.notificationsvc.model.EmailType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static app.notificationsvc.template.TemplateTestSupport.sampleVariables;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailTemplateRendererUTest {
+
+    private SpringTemplateEngine templateEngine;
+    private EmailTemplateRenderer templateRenderer;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = TemplateTestSupport.templateEngine();
+        templateRenderer = TemplateTestSupport.templateRenderer(templateEngine);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = EmailType.class, mode = EnumSource.Mode.EXCLUDE, names = "DIGEST")
+    void givenEmailType_whenRenderTwice_thenMatchThymeleafOutputFromCompiledSkeleton(EmailType emailType) {
+        // Given
+        Map<String, Object> variables = sampleVariables(emailType);
+
+        // When
+        String first = templateRenderer.render(emailType, variables);
+        String second = templateRenderer.render(emailType, variables);
+
+        // Then
+        String expected = process(emailType.getTemplate(), variables);
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertTrue(templateRenderer.isCompiled(emailType.getTemplate(), variables.keySet()));
+    }
+
+    @Test
+    void givenTemplatesOnClasspath_whenWarmUp_thenCompileSkeletonsForTheVariablesTheyReference() throws Exception {
+        // When
+        int templates = templateRenderer.warmUp();
+
+        // Then
+        assertTrue(templates >= EmailType.values().length);
+        for (EmailType emailType : EmailType.values()) {
+            if (emailType != EmailType.DIGEST) {
+                assertTrue(templateRenderer.isCompiled(emailType.getTemplate(), sampleVariables(emailType).keySet()), emailType.name());
+            }
+        }
+        assertFalse(templateRenderer.isCompiled("conditional-test", Set.of("name")));
+    }
+
+    @Test
+    void givenNullVariable_whenRender_thenFallBackToThymeleaf() {
+        // Given
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("firstName", null);
+
+        // When
+        String rendered = templateRenderer.render(EmailType.WELCOME, variables);
+
+        // Then
+        assertEquals(process(EmailType.WELCOME.getTemplate(), variables), rendered);
+    }
+
+    @Test
+    void givenTemplateWithConditional_whenRender_thenFallBackToThymeleaf() {
+        // Given
+        Map<String, Object> variables = Map.of("name", "VIP");
+
+        // When
+        String rendered = templateRenderer.render("conditional-test", variables);
+
+        // Then
+        assertEquals(process("conditional-test", variables), rendered);
+        assertTrue(rendered.contains("Thanks for being one of our best customers!"));
+        assertFalse(templateRenderer.isCompiled("conditional-test", variables.keySet()));
+    }
+
+    @Test
+    void givenDigestItems_whenRender_thenRenderLoopWithThymeleafAndKeepItemMarkup() {
+        // Given
+        Map<String, Object> variables = sampleVariables(EmailType.DIGEST);
+
+        // When
+        String rendered = templateRenderer.render(EmailType.DIGEST, variables);
+
+        // Then
+        assertEquals(process(EmailType.DIGEST.getTemplate(), variables), rendered);
+        assertTrue(rendered.contains("New order &lt;1&gt;"));
+        assertTrue(rendered.contains("<p>Gosho ordered <b>2</b> items</p>"));
+        assertFalse(templateRenderer.isCompiled(EmailType.DIGEST.getTemplate(), variables.keySet()));
+    }
+
+    private String process(String template, Map<String, Object> variables) {
+        Context context = new Context();
+        variables.forEach(context::setVariable);
+        return templateEngine.process(template, context);
+    }
+}
@@ -0,0 +1,67 @@
+package app.notificationsvc.template;
+
+import app.notificationsvc.model.EmailType;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class TemplateTestSupport {
+
+    private TemplateTestSupport() {}
+
+    public static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        return templateEngine;
+    }
+
+    public static EmailTemplateRenderer templateRenderer(SpringTemplateEngine templateEngine) {
+        return new EmailTemplateRenderer(templateEngine, new DefaultResourceLoader(), new ThymeleafProperties());
+    }
+
+    public static Map<String, Object> sampleVariables(EmailType emailType) {
+        Map<String, Object> variables = new HashMap<>();
+
+        switch (emailType) {
+            case WELCOME -> variables.put("firstName", "Angie <b>&</b>");
+            case NEW_ORDER, ORDER_CONFIRMATION -> {
+                variables.put("fullName", "Gosho \"The Boss\" Goshev");
+                variables.put("address", "Ul. Gosheva 5 & 7, Balchik");
+                variables.put("phoneNumber", "+359 890 090 090");
+                variables.put("courier", "SPEEDY");
+                variables.put("paymentMethod", "CARD");
+            }
+            case SHIPPED_ORDER -> {
+                variables.put("orderId", 42L);
+                variables.put("totalAmount", new BigDecimal("333.50"));
+                variables.put("address", "Ul. Gosheva <5>, Balchik");
+                variables.put("courier", "ECONT");
+                variables.put("paymentMethod", "CASH");
+            }
+            case NEWSLETTER -> {
+            }
+            case DIGEST -> {
+                variables.put("count", 2);
+                variables.put("items", List.of(
+                        Map.of("subject", "New order <1>", "content", "<p>Gosho ordered <b>2</b> items</p>"),
+                        Map.of("subject", "Shipped & on its way", "content", "<p>Order 42 left the warehouse</p>")));
+            }
+        }
+
+        return variables;
+    }
+}
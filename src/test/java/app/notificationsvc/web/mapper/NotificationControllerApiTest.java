@@ -1,8 +1,28 @@
 package app.notificationsvc.web.mapper;
 
+import app.notificationsvc.exception.DispatchQueueFullException;
+import app.notificationsvc.exception.InvalidCampaignException;
+import app.notificationsvc.exception.NewsletterQueueFullException;
+import app.notificationsvc.exception.NotificationNotFoundException;
+import app.notificationsvc.model.CampaignStatus;
 import app.notificationsvc.model.EmailType;
+import app.notificationsvc.model.NewsletterCampaign;
+import app.notificationsvc.model.Notification;
+import app.notificationsvc.model.NotificationStatus;
 import app.notificationsvc.model.NotificationType;
+import app.notificationsvc.exception.InvalidBatchException;
+import app.notificationsvc.service.BatchItemResult;
+import app.notificationsvc.service.NewsletterCampaigns;
+import app.notificationsvc.service.NewsletterRun;
+import app.notificationsvc.repository.NotificationHistoryEntry;
+import app.notificationsvc.service.NotificationHistoryPage;
+import app.notificationsvc.service.NotificationHistoryService;
 import app.notificationsvc.service.NotificationService;
+import app.notificationsvc.service.PreferenceImportFormat;
+import app.notificationsvc.service.PreferenceImportItem;
+import app.notificationsvc.service.PreferenceImportSummary;
+import app.notificationsvc.service.PreferenceImporter;
+import app.notificationsvc.service.SendResult;
 import app.notificationsvc.web.NotificationController;
 import app.notificationsvc.web.dto.OrderCreateEmailRequest;
 import app.notificationsvc.web.dto.OrderShippedEmailRequest;
@@ -19,13 +39,19 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static app.notificationsvc.TestBuilder.randomNotificationPreference;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,6 +61,15 @@ public class NotificationControllerApiTest {
     @MockitoBean
     private NotificationService notificationService;
 
+    @MockitoBean
+    private NotificationHistoryService notificationHistoryService;
+
+    @MockitoBean
+    private PreferenceImporter preferenceImporter;
+
+    @MockitoBean
+    private NewsletterCampaigns newsletterCampaigns;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -116,6 +151,7 @@ public class NotificationControllerApiTest {
         welcomeEmailRequest.setUserId(UUID.randomUUID());
         welcomeEmailRequest.setUserFirstName("Angie");
 
+        when(notificationService.sendWelcomeEmail(any(), any())).thenReturn(new SendResult(UUID.randomUUID(), false));
         MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/welcome")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsBytes(welcomeEmailRequest));
@@ -137,6 +173,7 @@ public class NotificationControllerApiTest {
         orderCreateEmailRequest.setFullName("Test User");
         orderCreateEmailRequest.setPhoneNumber("890 123 456");
 
+        when(notificationService.sendNewOrderEmail(any(), any())).thenReturn(new SendResult(UUID.randomUUID(), false));
         MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/order/confirmation")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsBytes(orderCreateEmailRequest));
@@ -158,6 +195,7 @@ public class NotificationControllerApiTest {
         orderCreateEmailRequest.setFullName("Test User");
         orderCreateEmailRequest.setPhoneNumber("890 123 456");
 
+        when(notificationService.sendNewOrderEmail(any(), any())).thenReturn(new SendResult(UUID.randomUUID(), false));
         MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/order/new")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsBytes(orderCreateEmailRequest));
@@ -180,6 +218,7 @@ public class NotificationControllerApiTest {
         orderShippedEmailRequest.setPaymentMethod("CARD");
         orderShippedEmailRequest.setUserId(UUID.randomUUID());
 
+        when(notificationService.sendNewOrderEmail(any(), any())).thenReturn(new SendResult(UUID.randomUUID(), false));
         MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/order/new")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsBytes(orderShippedEmailRequest));
@@ -191,6 +230,7 @@ public class NotificationControllerApiTest {
 
     @Test
     void postRequestToNewsletterEmail_happyPath() throws Exception {
+        when(notificationService.sendNewsletter()).thenReturn(new NewsletterRun("Newsletter"));
 
         MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/newsletter");
 
@@ -198,6 +238,245 @@ public class NotificationControllerApiTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void postRequestToWelcomeEmailInAsyncMode_returns202WithNotificationId() throws Exception {
+        WelcomeEmailRequest welcomeEmailRequest = new WelcomeEmailRequest();
+        welcomeEmailRequest.setEmailType(EmailType.WELCOME);
+        welcomeEmailRequest.setSubject("Welcome!!");
+        welcomeEmailRequest.setUserId(UUID.randomUUID());
+        welcomeEmailRequest.setUserFirstName("Angie");
+
+        UUID notificationId = UUID.randomUUID();
+        when(notificationService.queueWelcomeEmail(any(), any())).thenReturn(new SendResult(notificationId, false));
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/welcome")
+                .param("async", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(welcomeEmailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/notifications/" + notificationId + "/status"))
+                .andExpect(jsonPath("notificationId").value(notificationId.toString()));
+    }
+
+    @Test
+    void postRequestToWelcomeEmailWithRepeatedIdempotencyKey_returnsOriginalNotification() throws Exception {
+        WelcomeEmailRequest welcomeEmailRequest = new WelcomeEmailRequest();
+        welcomeEmailRequest.setEmailType(EmailType.WELCOME);
+        welcomeEmailRequest.setSubject("Welcome!!");
+        welcomeEmailRequest.setUserId(UUID.randomUUID());
+        welcomeEmailRequest.setUserFirstName("Angie");
+
+        UUID notificationId = UUID.randomUUID();
+        when(notificationService.queueWelcomeEmail(any(), eq("signup-123"))).thenReturn(new SendResult(notificationId, true));
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/welcome")
+                .param("async", "true")
+                .header("Idempotency-Key", "signup-123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(welcomeEmailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("notificationId").value(notificationId.toString()));
+    }
+
+    @Test
+    void postRequestToWelcomeEmailWithFullQueue_returns429WithRetryAfter() throws Exception {
+        WelcomeEmailRequest welcomeEmailRequest = new WelcomeEmailRequest();
+        welcomeEmailRequest.setEmailType(EmailType.WELCOME);
+        welcomeEmailRequest.setSubject("Welcome!!");
+        welcomeEmailRequest.setUserId(UUID.randomUUID());
+        welcomeEmailRequest.setUserFirstName("Angie");
+
+        when(notificationService.queueWelcomeEmail(any(), any())).thenThrow(new DispatchQueueFullException(Duration.ofSeconds(7)));
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/welcome")
+                .param("async", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(welcomeEmailRequest));
+
+        mockMvc.perform(request)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "7"));
+    }
+
+    @Test
+    void postRequestToNewsletterEmailInAsyncMode_returns202() throws Exception {
+        NewsletterRun newsletterRun = new NewsletterRun("Newsletter");
+        when(notificationService.queueNewsletter()).thenReturn(newsletterRun);
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/newsletter").param("async", "true");
+
+        mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/notifications/newsletter/runs/" + newsletterRun.getId()))
+                .andExpect(jsonPath("status").value("QUEUED"));
+    }
+
+    @Test
+    void postRequestToNewsletterEmailWithFullQueue_returns503WithRetryAfter() throws Exception {
+        when(notificationService.queueNewsletter()).thenThrow(new NewsletterQueueFullException(Duration.ofSeconds(60)));
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/emails/newsletter").param("async", "true");
+
+        mockMvc.perform(request)
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "60"));
+    }
+
+    @Test
+    void getRequestNewsletterRun_happyPath() throws Exception {
+        NewsletterRun newsletterRun = new NewsletterRun("Newsletter");
+        when(notificationService.getNewsletterRun(newsletterRun.getId())).thenReturn(newsletterRun);
+
+        mockMvc.perform(get("/api/v1/notifications/newsletter/runs/{id}", newsletterRun.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(newsletterRun.getId().toString()))
+                .andExpect(jsonPath("processed").value(0));
+    }
+
+    @Test
+    void postNewsletterCampaign_returns201WithLocation() throws Exception {
+        LocalDateTime startOn = LocalDateTime.of(2030, 1, 6, 9, 0);
+        NewsletterCampaign campaign = NewsletterCampaign.builder()
+                .id(UUID.randomUUID())
+                .subject("Newsletter")
+                .status(CampaignStatus.SCHEDULED)
+                .startOn(startOn)
+                .spreadOver(Duration.ofHours(2))
+                .staggerByTimeZone(true)
+                .build();
+        when(newsletterCampaigns.schedule(null, startOn, null, Duration.ofHours(2), true)).thenReturn(campaign);
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/newsletter/campaigns")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"startOn\":\"2030-01-06T09:00:00\",\"spreadOver\":\"PT2H\",\"staggerByTimeZone\":true}");
+
+        mockMvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/api/v1/notifications/newsletter/campaigns/" + campaign.getId()))
+                .andExpect(jsonPath("status").value("SCHEDULED"))
+                .andExpect(jsonPath("staggerByTimeZone").value(true));
+    }
+
+    @Test
+    void postNewsletterCampaignWithoutRate_returns400() throws Exception {
+        when(newsletterCampaigns.schedule(any(), any(), any(), any(), anyBoolean())).thenThrow(new InvalidCampaignException("Exactly one of sendRate and spreadOver is required"));
+
+        MockHttpServletRequestBuilder request = post("/api/v1/notifications/newsletter/campaigns")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"startOn\":\"2030-01-06T09:00:00\"}");
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("message").value("Exactly one of sendRate and spreadOver is required"));
+    }
+
+    @Test
+    void postBatchEmails_returnsResultPerItem() throws Exception {
+        UUID notificationId = UUID.randomUUID();
+        when(notificationService.sendBatch(any(), eq(false))).thenReturn(List.of(
+                new BatchItemResult(0, notificationId, NotificationStatus.SENT, false, null),
+                new BatchItemResult(1, null, null, false, "userId is required")));
+
+        mockMvc.perform(post("/api/v1/notifications/emails/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("total").value(2))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("items[0].notificationId").value(notificationId.toString()))
+                .andExpect(jsonPath("items[1].error").value("userId is required"));
+    }
+
+    @Test
+    void postMalformedBatch_returns400() throws Exception {
+        when(notificationService.sendBatch(any(), anyBoolean())).thenThrow(new InvalidBatchException("Batch body must be a JSON array"));
+
+        mockMvc.perform(post("/api/v1/notifications/emails/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}")
+                        .with(csrf()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void postCsvPreferenceImport_returnsSummary() throws Exception {
+        when(preferenceImporter.importPreferences(any(), eq(PreferenceImportFormat.CSV))).thenReturn(new PreferenceImportSummary(2, 1, 1,
+                List.of(new PreferenceImportItem(4, null, "contactData must not be blank"))));
+
+        mockMvc.perform(post("/api/v1/notifications/preferences/import")
+                        .contentType("text/csv")
+                        .content("userId,notificationType,newsletterEnabled,contactData\n")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("inserted").value(2))
+                .andExpect(jsonPath("updated").value(1))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("errors[0].line").value(4))
+                .andExpect(jsonPath("errors[0].error").value("contactData must not be blank"));
+    }
+
+    @Test
+    void postNdjsonPreferenceImport_readsNdjson() throws Exception {
+        when(preferenceImporter.importPreferences(any(), eq(PreferenceImportFormat.NDJSON))).thenReturn(new PreferenceImportSummary(1, 0, 0, List.of()));
+
+        mockMvc.perform(post("/api/v1/notifications/preferences/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{}\n")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("inserted").value(1));
+    }
+
+    @Test
+    void getNotificationHistory_returnsPageWithCursor() throws Exception {
+        UUID userId = UUID.randomUUID();
+        NotificationHistoryEntry entry = new NotificationHistoryEntry(UUID.randomUUID(), EmailType.WELCOME, NotificationStatus.SENT, "Welcome!", LocalDateTime.now(), 1);
+        when(notificationHistoryService.getHistory(userId, EmailType.WELCOME, null, "abc", null)).thenReturn(new NotificationHistoryPage(List.of(entry), "next"));
+
+        mockMvc.perform(get("/api/v1/notifications")
+                        .param("userId", userId.toString())
+                        .param("type", "WELCOME")
+                        .param("before", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("items[0].id").value(entry.id().toString()))
+                .andExpect(jsonPath("items[0].status").value("SENT"))
+                .andExpect(jsonPath("nextCursor").value("next"));
+    }
+
+    @Test
+    void getRequestNotificationStatus_happyPath() throws Exception {
+        Notification notification = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .subject("Welcome!!")
+                .emailType(EmailType.WELCOME)
+                .status(NotificationStatus.SENT)
+                .createdOn(LocalDateTime.now())
+                .build();
+
+        when(notificationService.getNotification(notification.getId())).thenReturn(notification);
+
+        mockMvc.perform(get("/api/v1/notifications/{id}/status", notification.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(notification.getId().toString()))
+                .andExpect(jsonPath("status").value("SENT"));
+    }
+
+    @Test
+    void getRequestNotificationStatusForUnknownId_returns404() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(notificationService.getNotification(id)).thenThrow(new NotificationNotFoundException(id));
+
+        mockMvc.perform(get("/api/v1/notifications/{id}/status", id))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void getRequestToNonExistentEndpoint_shouldReturnErrorResponse() throws Exception {
         MockHttpServletRequestBuilder request = get("/api/v1/notifications/emails/nonexistent");